@@ -0,0 +1,86 @@
+package inventory;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creating articles and changing articles stored at a location, which
+ * updates the location's width and article number index.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ArticleBenchmark {
+
+	@Param({ "10", "1000" })
+	private int size;
+
+	private BenchmarkData limits;
+	private String[] artNrs;
+	private Article stored;
+	private int next;
+	private boolean wide;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.limits = BenchmarkData.raiseLimits();
+		this.artNrs = BenchmarkData.queries(this.size, 1, "ART");
+
+		StorageLocation location = new StorageLocation("location");
+
+		for (int i = 0; i < this.size; i++)
+			location.insert(new Article(BenchmarkData.artNr(i), 1));
+
+		this.stored = location.getArticles().get(0);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.limits.restoreLimits();
+	}
+
+	@Benchmark
+	public Article create() {
+		return new Article(this.nextArtNr(), 1);
+	}
+
+	@Benchmark
+	public Article setWidthStored() {
+		this.wide = !this.wide;
+		this.stored.setWidth(this.wide ? 2 : 1);
+		return this.stored;
+	}
+
+	@Benchmark
+	public Article setArtNrStored() {
+		this.stored.setArtNr(this.nextArtNr());
+		return this.stored;
+	}
+
+	/**
+	 * Returns the next article number
+	 * 
+	 * @return article number
+	 */
+	private String nextArtNr() {
+		String artNr = this.artNrs[this.next];
+		this.next = (this.next + 1) & (BenchmarkData.QUERIES - 1);
+		return artNr;
+	}
+}
@@ -0,0 +1,83 @@
+package inventory;
+
+import java.util.Random;
+
+/**
+ * Shared fixtures for the benchmarks: article numbers, lookup keys with a
+ * given hit ratio and raising the static limits for large inventories.
+ */
+final class BenchmarkData {
+
+	static final int QUERIES = 1024;
+
+	private static final long SEED = 42;
+
+	private int maxArticles;
+	private double maxWidth;
+	private int maxStorageLocations;
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * Lifts the article, width and location limits so that benchmarks can
+	 * build inventories of any size
+	 * 
+	 * @return previous limits, to restore after the trial
+	 */
+	static BenchmarkData raiseLimits() {
+		BenchmarkData previous = new BenchmarkData();
+		previous.maxArticles = StorageLocation.MAX_ARTICLES;
+		previous.maxWidth = StorageLocation.MAX_WIDTH;
+		previous.maxStorageLocations = Stock.MAX_STORAGE_LOCATIONS;
+
+		StorageLocation.MAX_ARTICLES = Integer.MAX_VALUE;
+		StorageLocation.MAX_WIDTH = Double.MAX_VALUE;
+		Stock.MAX_STORAGE_LOCATIONS = Integer.MAX_VALUE;
+
+		return previous;
+	}
+
+	/**
+	 * Restores the limits replaced by raiseLimits
+	 */
+	void restoreLimits() {
+		StorageLocation.MAX_ARTICLES = this.maxArticles;
+		StorageLocation.MAX_WIDTH = this.maxWidth;
+		Stock.MAX_STORAGE_LOCATIONS = this.maxStorageLocations;
+	}
+
+	/**
+	 * Returns the article number stored for an index
+	 * 
+	 * @param i
+	 *            - index
+	 * @return article number
+	 */
+	static String artNr(int i) {
+		return "ART" + i;
+	}
+
+	/**
+	 * Returns lookup keys, of which a share are article numbers in stock and
+	 * the rest article numbers that are not, in random order
+	 * 
+	 * @param distinct
+	 *            - number of distinct article numbers in stock
+	 * @param hitRatio
+	 *            - share of keys in stock, 0 to 1
+	 * @param prefix
+	 *            - prefix of the keys, followed by the index
+	 * @return QUERIES keys, a power of two
+	 */
+	static String[] queries(int distinct, double hitRatio, String prefix) {
+		Random random = new Random(BenchmarkData.SEED);
+		String[] queries = new String[BenchmarkData.QUERIES];
+
+		for (int i = 0; i < queries.length; i++)
+			queries[i] = random.nextDouble() < hitRatio ? prefix
+					+ random.nextInt(Math.max(distinct, 1)) : "MISS" + i;
+
+		return queries;
+	}
+}
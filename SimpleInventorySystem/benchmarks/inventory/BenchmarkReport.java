@@ -0,0 +1,105 @@
+package inventory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two result files written by BenchmarkSuite and prints the change
+ * of score and allocation per benchmark. A benchmark regresses when its
+ * score got worse by more than the threshold: higher for time per operation,
+ * lower for operations per time. Exits with 1 if any benchmark regressed,
+ * so that it can gate a build.
+ *
+ * Usage: BenchmarkReport baseline.csv current.csv [threshold percent]
+ */
+public class BenchmarkReport {
+
+	private static final double DEFAULT_THRESHOLD = 10;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: BenchmarkReport baseline.csv "
+					+ "current.csv [threshold percent]");
+			System.exit(2);
+		}
+
+		Map<String, String[]> baseline = BenchmarkReport.read(new File(
+				args[0]));
+		Map<String, String[]> current = BenchmarkReport.read(new File(args[1]));
+		double threshold = args.length > 2 ? Double.parseDouble(args[2])
+				: BenchmarkReport.DEFAULT_THRESHOLD;
+		int regressions = 0;
+
+		System.out.println("benchmark\tparams\tthreads\tbaseline\tcurrent"
+				+ "\tchange %\talloc baseline\talloc current");
+
+		for (Map.Entry<String, String[]> e : current.entrySet()) {
+			String[] now = e.getValue();
+			String[] before = baseline.get(e.getKey());
+
+			if (null == before) {
+				System.out.println(now[0] + "\t" + now[1] + "\t" + now[2]
+						+ "\t-\t" + now[3] + "\tnew\t-\t" + now[6]);
+				continue;
+			}
+
+			double old = Double.parseDouble(before[3]);
+			double score = Double.parseDouble(now[3]);
+			double change = 100 * (score - old) / old;
+			boolean lowerIsBetter = now[5].contains("/op");
+			boolean regressed = lowerIsBetter ? change > threshold
+					: change < -threshold;
+
+			if (regressed)
+				regressions++;
+
+			System.out.println(now[0] + "\t" + now[1] + "\t" + now[2] + "\t"
+					+ before[3] + "\t" + now[3] + "\t"
+					+ String.format("%+.1f", change) + "\t" + before[6] + "\t"
+					+ now[6] + (regressed ? "\tREGRESSION" : ""));
+		}
+
+		System.out.println(regressions + " regression(s) above " + threshold
+				+ "%");
+
+		if (regressions > 0)
+			System.exit(1);
+	}
+
+	/**
+	 * Reads a result file
+	 * 
+	 * @param file
+	 *            - file written by BenchmarkSuite
+	 * @return columns per benchmark, params and threads
+	 */
+	private static Map<String, String[]> read(File file) throws IOException {
+		Map<String, String[]> results = new LinkedHashMap<String, String[]>();
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				new FileInputStream(file), "UTF-8"));
+		try {
+			String line = in.readLine();
+
+			if (!BenchmarkSuite.HEADER.equals(line))
+				throw new IOException("Not a benchmark result file: " + file);
+
+			while (null != (line = in.readLine())) {
+				if (line.isEmpty())
+					continue;
+
+				String[] columns = line.split(",", -1);
+				results.put(columns[0] + "," + columns[1] + "," + columns[2],
+						columns);
+			}
+		} finally {
+			in.close();
+		}
+
+		return results;
+	}
+}
@@ -0,0 +1,124 @@
+package inventory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.NoBenchmarksException;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all benchmarks with the GC profiler (like -prof gc) and writes one
+ * CSV line per benchmark and parameter combination: score, error and
+ * allocated bytes per operation. The single threaded benchmarks run once,
+ * the shared location benchmarks once per thread count. Every benchmark is
+ * forked with the same JVM flags, so that result files of different runs
+ * can be compared with BenchmarkReport.
+ *
+ * Usage: BenchmarkSuite [result file] [benchmark regex]
+ */
+public class BenchmarkSuite {
+
+	static final String HEADER = "benchmark,params,threads,score,error,unit,alloc.norm";
+
+	private static final String DEFAULT_FILE = "benchmark-results.csv";
+	private static final String SINGLE_THREADED = "inventory\\.(Article|StorageLocation|Stock)Benchmark\\.";
+	private static final String SHARED = "inventory\\.(Concurrency|Capacity)Benchmark\\.";
+	private static final String ALLOC_NORM = "gc.alloc.rate.norm";
+	private static final int[] THREADS = { 1, 2, 4, 8 };
+	private static final String[] JVM_ARGS = { "-Xms2g", "-Xmx2g",
+			"-XX:+UseG1GC", "-XX:+AlwaysPreTouch" };
+
+	public static void main(String[] args) throws RunnerException,
+			IOException {
+		File file = new File(args.length > 0 ? args[0]
+				: BenchmarkSuite.DEFAULT_FILE);
+		String filter = args.length > 1 ? args[1] : "";
+		List<RunResult> results = new ArrayList<RunResult>();
+
+		results.addAll(BenchmarkSuite.run(BenchmarkSuite.SINGLE_THREADED
+				+ ".*" + filter, 1));
+
+		for (int threads : BenchmarkSuite.THREADS)
+			results.addAll(BenchmarkSuite.run(BenchmarkSuite.SHARED + ".*"
+					+ filter, threads));
+
+		PrintWriter out = new PrintWriter(file, "UTF-8");
+		try {
+			out.println(BenchmarkSuite.HEADER);
+
+			for (RunResult result : results)
+				out.println(BenchmarkSuite.toLine(result));
+		} finally {
+			out.close();
+		}
+
+		System.out.println("Results written to " + file);
+	}
+
+	/**
+	 * Runs the benchmarks matching a pattern
+	 * 
+	 * @param include
+	 *            - benchmark regex
+	 * @param threads
+	 *            - number of threads
+	 * @return results, empty if no benchmark matches
+	 */
+	private static Collection<RunResult> run(String include, int threads)
+			throws RunnerException {
+		Options options = new OptionsBuilder().include(include)
+				.threads(threads).jvmArgs(BenchmarkSuite.JVM_ARGS)
+				.addProfiler(GCProfiler.class)
+				.shouldFailOnError(true).build();
+
+		try {
+			return new Runner(options).run();
+		} catch (NoBenchmarksException e) {
+			return new ArrayList<RunResult>();
+		}
+	}
+
+	/**
+	 * Formats one result as a CSV line
+	 * 
+	 * @param result
+	 *            - benchmark result
+	 * @return CSV line
+	 */
+	private static String toLine(RunResult result) {
+		BenchmarkParams params = result.getParams();
+		Result<?> primary = result.getPrimaryResult();
+		StringBuilder values = new StringBuilder();
+
+		for (String key : params.getParamsKeys()) {
+			if (values.length() > 0)
+				values.append(';');
+
+			values.append(key).append('=').append(params.getParam(key));
+		}
+
+		double alloc = Double.NaN;
+
+		for (String key : result.getSecondaryResults().keySet())
+			if (key.endsWith(BenchmarkSuite.ALLOC_NORM)) {
+				Result<?> secondary = result.getSecondaryResults().get(key);
+				alloc = secondary.getScore();
+			}
+
+		return params.getBenchmark() + "," + values + ","
+				+ params.getThreads() + "," + primary.getScore() + ","
+				+ primary.getScoreError() + "," + primary.getScoreUnit() + ","
+				+ alloc;
+	}
+}
@@ -0,0 +1,81 @@
+package inventory;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares reserve/release throughput of the compare-and-set Capacity with
+ * a monitor based baseline, all threads hitting the same location. Run it
+ * with increasing thread counts (-t, or BenchmarkSuite).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CapacityBenchmark {
+
+	private BenchmarkData limits;
+	private SynchronizedCapacity baseline;
+	private Capacity cas;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.limits = BenchmarkData.raiseLimits();
+		this.baseline = new SynchronizedCapacity();
+		this.cas = new Capacity();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.limits.restoreLimits();
+	}
+
+	@Benchmark
+	public void synchronizedReserveRelease() {
+		this.baseline.reserve(1, 1.0);
+		this.baseline.release(1, 1.0);
+	}
+
+	@Benchmark
+	public void casReserveRelease() {
+		this.cas.reserve(1, 1.0);
+		this.cas.release(1, 1.0);
+	}
+
+	/**
+	 * Monitor based capacity used as baseline
+	 */
+	private static class SynchronizedCapacity {
+
+		private int count;
+		private double width;
+
+		synchronized void reserve(int count, double width) {
+			if (this.width + width > StorageLocation.MAX_WIDTH
+					|| this.count + count > StorageLocation.MAX_ARTICLES)
+				throw new IllegalStateException();
+
+			this.count += count;
+			this.width += width;
+		}
+
+		synchronized void release(int count, double width) {
+			this.count -= count;
+			this.width = 0 == this.count ? 0 : this.width - width;
+		}
+	}
+}
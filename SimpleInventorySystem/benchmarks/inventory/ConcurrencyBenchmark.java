@@ -0,0 +1,101 @@
+package inventory;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of one shared concurrent location and stock under several
+ * threads. Thread counts are set per run (-t, or BenchmarkSuite); the
+ * readWrite group runs one writer against three snapshot readers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrencyBenchmark {
+
+	@Param({ "1", "16" })
+	private int artNrs;
+
+	private BenchmarkData limits;
+	private Stock stock;
+	private ConcurrentStorageLocation location;
+	private AtomicInteger threads;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.limits = BenchmarkData.raiseLimits();
+		this.stock = new Stock();
+		this.location = new ConcurrentStorageLocation("location");
+		this.stock.addStorageLocation(this.location);
+		this.threads = new AtomicInteger();
+
+		for (int i = 0; i < this.artNrs; i++)
+			this.location.insert(new Article(BenchmarkData.artNr(i), 1));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.limits.restoreLimits();
+	}
+
+	/**
+	 * Article number used by one benchmark thread; threads share article
+	 * numbers when there are more threads than article numbers
+	 */
+	@State(Scope.Thread)
+	public static class ThreadState {
+
+		private String artNr;
+
+		@Setup(Level.Trial)
+		public void setUp(ConcurrencyBenchmark benchmark) {
+			this.artNr = BenchmarkData.artNr(benchmark.threads
+					.getAndIncrement() % benchmark.artNrs);
+		}
+	}
+
+	@Benchmark
+	public LinkedList<Article> insertAndPick(ThreadState state) {
+		this.location.insert(new Article(state.artNr, 1));
+		return this.location.pick(state.artNr, 1);
+	}
+
+	@Benchmark
+	public int getArticleCount(ThreadState state) {
+		return this.location.getArticleCount(state.artNr);
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(1)
+	public LinkedList<Article> writer(ThreadState state) {
+		return this.insertAndPick(state);
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(3)
+	public LinkedList<Article> snapshotReader(ThreadState state) {
+		return this.stock.getSnapshot().findArticles(state.artNr);
+	}
+}
@@ -0,0 +1,143 @@
+package inventory;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Stock wide queries and changes for stocks of increasing size. Each
+ * location holds ten articles and each article number is spread over about
+ * ten locations; hitRatio is the share of lookups for article numbers or
+ * location names in stock. Operations that change the stock undo
+ * themselves.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StockBenchmark {
+
+	private static final int ARTICLES_PER_LOCATION = 10;
+
+	@Param({ "10", "1000", "10000" })
+	private int locations;
+
+	@Param({ "0.0", "0.5", "1.0" })
+	private double hitRatio;
+
+	private BenchmarkData limits;
+	private Stock stock;
+	private StorageLocation from;
+	private StorageLocation to;
+	private Article putaway;
+	private String[] artNrs;
+	private String[] names;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.limits = BenchmarkData.raiseLimits();
+		this.stock = new Stock();
+		List<StorageLocation> locs = new ArrayList<StorageLocation>();
+
+		for (int i = 0; i < this.locations; i++) {
+			StorageLocation loc = new StorageLocation("L" + i);
+
+			for (int j = 0; j < StockBenchmark.ARTICLES_PER_LOCATION; j++)
+				loc.insert(new Article(BenchmarkData.artNr((i + j
+						* this.locations / StockBenchmark.ARTICLES_PER_LOCATION)
+						% this.locations), 1 + j));
+
+			locs.add(loc);
+		}
+
+		this.stock.addStorageLocations(locs);
+		this.from = locs.get(0);
+		this.to = locs.get(locs.size() - 1);
+		this.putaway = new Article("PUTAWAY", 1);
+		this.artNrs = BenchmarkData.queries(this.locations, this.hitRatio,
+				"ART");
+		this.names = BenchmarkData.queries(this.locations, this.hitRatio, "L");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.limits.restoreLimits();
+	}
+
+	@Benchmark
+	public LinkedList<Article> findArticles() {
+		return this.stock.findArticles(this.nextArtNr());
+	}
+
+	@Benchmark
+	public boolean streamArticlesFindFirst() {
+		return this.stock.streamArticles(this.nextArtNr()).findFirst()
+				.isPresent();
+	}
+
+	@Benchmark
+	public LinkedList<Article> snapshotFindArticles() {
+		return this.stock.getSnapshot().findArticles(this.nextArtNr());
+	}
+
+	@Benchmark
+	public LinkedList<StorageLocation> getStorageLocationsByName() {
+		String name = this.names[this.next];
+		this.next = (this.next + 1) & (BenchmarkData.QUERIES - 1);
+		return this.stock.getStorageLocationsByName(name);
+	}
+
+	@Benchmark
+	public boolean moveAllArticlesBothWays() {
+		String artNr = BenchmarkData.artNr(0);
+		return this.stock.moveAllArticles(this.to, this.from, artNr)
+				&& this.stock.moveAllArticles(this.from, this.to, artNr);
+	}
+
+	@Benchmark
+	public LinkedList<Article> putawayAndPick() {
+		StorageLocation loc = this.stock.putaway(this.putaway,
+				Slotting.BEST_FIT);
+		return loc.pick(this.putaway.getArtNr(), 1);
+	}
+
+	@Benchmark
+	public Map<String, Integer> snapshotArticleCounts() {
+		return this.stock.getSnapshot().getArticleCounts();
+	}
+
+	@Benchmark
+	public ConsolidationPlan planConsolidation() {
+		return this.stock.planConsolidation(Slotting.FIRST_FIT);
+	}
+
+	/**
+	 * Returns the next article number to look up
+	 * 
+	 * @return article number
+	 */
+	private String nextArtNr() {
+		String artNr = this.artNrs[this.next];
+		this.next = (this.next + 1) & (BenchmarkData.QUERIES - 1);
+		return artNr;
+	}
+}
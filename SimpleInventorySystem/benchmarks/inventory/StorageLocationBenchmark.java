@@ -0,0 +1,127 @@
+package inventory;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups, inserts and picks on one storage location, for each article
+ * storage. Every article number is held about ten times; hitRatio is the
+ * share of lookups for article numbers the location holds. Operations that
+ * change the location undo themselves, so its size stays fixed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StorageLocationBenchmark {
+
+	private static final String BATCH_ART_NR = "BATCH";
+	private static final int BATCH_SIZE = 10;
+
+	@Param({ "10", "100", "1000" })
+	private int size;
+
+	@Param({ "LINKED", "COLUMNAR", "OFF_HEAP" })
+	private ArticleStorage storage;
+
+	@Param({ "0.0", "0.5", "1.0" })
+	private double hitRatio;
+
+	private BenchmarkData limits;
+	private StorageLocation location;
+	private String[] queries;
+	private int next;
+	private Map<String, Integer> lines;
+	private LinkedList<Article> batch;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.limits = BenchmarkData.raiseLimits();
+		this.location = new StorageLocation("location", this.storage);
+		int distinct = Math.max(this.size / 10, 1);
+
+		for (int i = 0; i < this.size; i++)
+			this.location.insert(new Article(BenchmarkData.artNr(i % distinct),
+					1 + i % 7));
+
+		this.queries = BenchmarkData.queries(distinct, this.hitRatio, "ART");
+		this.lines = Collections.singletonMap(BenchmarkData.artNr(0), 1);
+		this.batch = new LinkedList<Article>();
+
+		for (int i = 0; i < StorageLocationBenchmark.BATCH_SIZE; i++)
+			this.batch.add(new Article(StorageLocationBenchmark.BATCH_ART_NR, 1));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.limits.restoreLimits();
+	}
+
+	@Benchmark
+	public LinkedList<Article> getArticles() {
+		return this.location.getArticles(this.nextQuery());
+	}
+
+	@Benchmark
+	public int getArticleCount() {
+		return this.location.getArticleCount(this.nextQuery());
+	}
+
+	@Benchmark
+	public double getTotalWidth() {
+		return this.location.getTotalWidth(this.nextQuery());
+	}
+
+	@Benchmark
+	public LinkedList<Article> insertAndPick() {
+		String artNr = this.nextQuery();
+		this.location.insert(new Article(artNr, 1));
+		return this.location.pick(artNr, 1);
+	}
+
+	@Benchmark
+	public LinkedList<Article> insertManyAndPickAll() {
+		this.location.insertMany(this.batch);
+		return this.location.pickAll(StorageLocationBenchmark.BATCH_ART_NR);
+	}
+
+	@Benchmark
+	public Map<String, LinkedList<Article>> pickManyAndInsert() {
+		Map<String, LinkedList<Article>> picked = this.location
+				.pickMany(this.lines);
+
+		for (LinkedList<Article> articles : picked.values())
+			this.location.insertMany(articles);
+
+		return picked;
+	}
+
+	/**
+	 * Returns the next lookup key
+	 * 
+	 * @return article number
+	 */
+	private String nextQuery() {
+		String query = this.queries[this.next];
+		this.next = (this.next + 1) & (BenchmarkData.QUERIES - 1);
+		return query;
+	}
+}
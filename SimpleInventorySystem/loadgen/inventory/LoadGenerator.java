@@ -0,0 +1,221 @@
+package inventory;
+
+import inventory.metrics.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drives a stock of concurrent locations with a mix of lookups, putaways and
+ * moves from several threads for a fixed time and prints throughput and
+ * latency percentiles per operation. Every thread draws its operations from
+ * its own seeded random, so runs with the same arguments issue the same
+ * operations. Results of a warmup period of the same length are discarded.
+ *
+ * Usage: LoadGenerator [threads] [seconds] [locations] [read percent]
+ */
+public class LoadGenerator {
+
+	private static final int DEFAULT_THREADS = 4;
+	private static final int DEFAULT_SECONDS = 10;
+	private static final int DEFAULT_LOCATIONS = 1000;
+	private static final int DEFAULT_READ_PERCENT = 80;
+	private static final int ARTICLES_PER_LOCATION = 5;
+	private static final long SEED = 42;
+
+	private static final int READ = 0;
+	private static final int PUTAWAY = 1;
+	private static final int MOVE = 2;
+	private static final String[] NAMES = { "findArticles", "putaway+pick",
+			"moveAllArticles" };
+
+	private final Stock stock;
+	private final List<StorageLocation> locations;
+	private final int artNrs;
+	private final int readPercent;
+
+	/**
+	 * Constructor
+	 *
+	 * @param locations
+	 *            - number of locations to create
+	 * @param readPercent
+	 *            - share of lookups, the rest is split between putaways and
+	 *            moves
+	 */
+	LoadGenerator(int locations, int readPercent) {
+		StorageLocation.MAX_ARTICLES = Integer.MAX_VALUE;
+		StorageLocation.MAX_WIDTH = Double.MAX_VALUE;
+		Stock.MAX_STORAGE_LOCATIONS = Integer.MAX_VALUE;
+
+		this.stock = new Stock();
+		this.locations = new ArrayList<StorageLocation>(locations);
+		this.artNrs = locations;
+		this.readPercent = readPercent;
+
+		for (int i = 0; i < locations; i++) {
+			StorageLocation loc = new ConcurrentStorageLocation("L" + i);
+
+			for (int j = 0; j < LoadGenerator.ARTICLES_PER_LOCATION; j++)
+				loc.insert(new Article(this.artNr(i + j), 1));
+
+			this.locations.add(loc);
+		}
+
+		this.stock.addStorageLocations(this.locations);
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int threads = args.length > 0 ? Integer.parseInt(args[0])
+				: LoadGenerator.DEFAULT_THREADS;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1])
+				: LoadGenerator.DEFAULT_SECONDS;
+		int locations = args.length > 2 ? Integer.parseInt(args[2])
+				: LoadGenerator.DEFAULT_LOCATIONS;
+		int readPercent = args.length > 3 ? Integer.parseInt(args[3])
+				: LoadGenerator.DEFAULT_READ_PERCENT;
+
+		LoadGenerator generator = new LoadGenerator(locations, readPercent);
+
+		// Warmup
+		generator.run(threads, seconds);
+
+		Histogram[] results = generator.run(threads, seconds);
+
+		System.out.println(threads + " threads, " + seconds + " s, "
+				+ locations + " locations, " + readPercent + "% reads");
+		System.out.println("operation\tops/s\tp50 us\tp99 us\tp99.9 us\tmax us");
+
+		for (int op = 0; op < results.length; op++)
+			System.out.println(LoadGenerator.NAMES[op] + "\t"
+					+ results[op].getCount() / seconds + "\t"
+					+ LoadGenerator.micros(results[op].getPercentile(50))
+					+ "\t"
+					+ LoadGenerator.micros(results[op].getPercentile(99))
+					+ "\t"
+					+ LoadGenerator.micros(results[op].getPercentile(99.9))
+					+ "\t" + LoadGenerator.micros(results[op].getMax()));
+	}
+
+	/**
+	 * Runs the load for a number of seconds
+	 *
+	 * @param threads
+	 *            - number of threads
+	 * @param seconds
+	 *            - duration
+	 * @return latencies per operation, of all threads
+	 */
+	Histogram[] run(int threads, int seconds) throws InterruptedException {
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final CountDownLatch start = new CountDownLatch(1);
+		final Histogram[][] latencies = new Histogram[threads][];
+		Thread[] workers = new Thread[threads];
+
+		for (int i = 0; i < threads; i++) {
+			final int worker = i;
+			latencies[worker] = LoadGenerator.histograms();
+			workers[i] = new Thread(new Runnable() {
+				public void run() {
+					Random random = new Random(LoadGenerator.SEED + worker);
+
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+
+					while (running.get())
+						LoadGenerator.this.step(random, latencies[worker]);
+				}
+			}, "load-" + i);
+			workers[i].start();
+		}
+
+		start.countDown();
+		Thread.sleep(seconds * 1000L);
+		running.set(false);
+
+		for (Thread t : workers)
+			t.join();
+
+		Histogram[] total = LoadGenerator.histograms();
+
+		for (Histogram[] h : latencies)
+			for (int op = 0; op < total.length; op++)
+				total[op].add(h[op]);
+
+		return total;
+	}
+
+	/**
+	 * Runs one randomly chosen operation and records its latency
+	 *
+	 * @param random
+	 *            - random of the calling thread
+	 * @param latencies
+	 *            - latencies per operation of the calling thread
+	 */
+	private void step(Random random, Histogram[] latencies) {
+		int size = this.locations.size();
+		int dice = random.nextInt(100);
+		String artNr = this.artNr(random.nextInt(size));
+		int op;
+		long start = System.nanoTime();
+
+		if (dice < this.readPercent) {
+			op = LoadGenerator.READ;
+			this.stock.findArticles(artNr);
+		} else if (dice < this.readPercent + (100 - this.readPercent) / 2) {
+			op = LoadGenerator.PUTAWAY;
+			this.stock.putaway(new Article(artNr, 1), Slotting.BEST_FIT).pick(
+					artNr, 1);
+		} else {
+			op = LoadGenerator.MOVE;
+			this.stock.moveAllArticles(
+					this.locations.get(random.nextInt(size)),
+					this.locations.get(random.nextInt(size)), artNr);
+		}
+
+		latencies[op].record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Returns the article number for an index
+	 *
+	 * @param i
+	 *            - index
+	 * @return article number
+	 */
+	private String artNr(int i) {
+		return "ART" + i % this.artNrs;
+	}
+
+	/**
+	 * Returns one empty histogram per operation
+	 *
+	 * @return histograms
+	 */
+	private static Histogram[] histograms() {
+		Histogram[] histograms = new Histogram[LoadGenerator.NAMES.length];
+
+		for (int i = 0; i < histograms.length; i++)
+			histograms[i] = new Histogram();
+
+		return histograms;
+	}
+
+	/**
+	 * Formats nanoseconds as microseconds
+	 *
+	 * @param nanos
+	 *            - nanoseconds
+	 * @return microseconds, one decimal
+	 */
+	private static String micros(long nanos) {
+		return String.format("%.1f", nanos / 1000.0);
+	}
+}
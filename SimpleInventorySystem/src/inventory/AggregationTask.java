@@ -0,0 +1,70 @@
+package inventory;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join task aggregating a range of location snapshots. Ranges larger
+ * than the threshold are halved, the first half forked and the second half
+ * computed by the current thread; smaller ranges are aggregated
+ * sequentially.
+ *
+ * @param <R>
+ *            - result type
+ */
+class AggregationTask<R> extends RecursiveTask<R> {
+
+	private static final long serialVersionUID = 1L;
+
+	private LocationSnapshot[] locations;
+	private LocationAggregator<R> aggregator;
+	private int from;
+	private int to;
+	private int threshold;
+
+	/**
+	 * Constructor
+	 *
+	 * @param locations
+	 *            - location snapshots, not copied
+	 * @param aggregator
+	 *            - aggregation to run
+	 * @param from
+	 *            - first location of the range
+	 * @param to
+	 *            - location after the range
+	 * @param threshold
+	 *            - largest range aggregated sequentially
+	 */
+	AggregationTask(LocationSnapshot[] locations,
+			LocationAggregator<R> aggregator, int from, int to, int threshold) {
+		this.locations = locations;
+		this.aggregator = aggregator;
+		this.from = from;
+		this.to = to;
+		this.threshold = Math.max(threshold, 1);
+	}
+
+	@Override
+	protected R compute() {
+		if (this.to - this.from <= this.threshold) {
+			R result = this.aggregator.empty();
+
+			for (int i = this.from; i < this.to; i++)
+				result = this.aggregator.combine(result,
+						this.aggregator.aggregate(this.locations[i]));
+
+			return result;
+		}
+
+		int middle = (this.from + this.to) >>> 1;
+		AggregationTask<R> first = new AggregationTask<R>(this.locations,
+				this.aggregator, this.from, middle, this.threshold);
+		AggregationTask<R> second = new AggregationTask<R>(this.locations,
+				this.aggregator, middle, this.to, this.threshold);
+
+		first.fork();
+		R secondResult = second.compute();
+
+		return this.aggregator.combine(first.join(), secondResult);
+	}
+}
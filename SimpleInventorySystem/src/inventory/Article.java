@@ -10,7 +10,9 @@ public class Article {
 	public static double MAX_WIDTH = 999;
 
 	private String artnr;
+	private ArticleKey key;
 	private double width;
+	private StorageLocation location;
 
 	/**
 	 * Constructor
@@ -42,6 +44,19 @@ public class Article {
 		this.width = width;
 	}
 
+	/**
+	 * Recreates a stored article without validating it again
+	 * @param artNr - article number
+	 * @param width - width
+	 * @return article
+	 */
+	static Article restore(String artNr, double width) {
+		Article article = new Article();
+		article.artnr = artNr;
+		article.width = width;
+		return article;
+	}
+
 	/**
 	 * Returns article number
 	 * @return article number
@@ -50,6 +65,22 @@ public class Article {
 		return this.artnr;
 	}
 
+	/**
+	 * Returns the case insensitive key of the article number, normalized on
+	 * first use and kept until the article number changes
+	 * @return article number key
+	 */
+	final ArticleKey getKey() {
+		ArticleKey k = this.key;
+
+		if (null == k) {
+			k = ArticleKey.of(this.getArtNr());
+			this.key = k;
+		}
+
+		return k;
+	}
+
 	/**
 	 * Returns width
 	 * @return width
@@ -66,7 +97,16 @@ public class Article {
 		if (width > Article.MAX_WIDTH)
 			throw new InvalidWidthException();
 
+		double oldWidth = this.width;
 		this.width = width;
+
+		if (null != this.location)
+			try {
+				this.location.articleResized(this, oldWidth, width);
+			} catch (InvalidWidthException e) {
+				this.width = oldWidth;
+				throw e;
+			}
 	}
 
 	/**
@@ -80,7 +120,28 @@ public class Article {
 		if (artNr.length() > Article.MAX_ARTNR_LENGTH)
 			throw new InvalidNameException();
 
+		String oldArtNr = this.artnr;
 		this.artnr = artNr;
+		this.key = null;
+
+		if (null != this.location)
+			this.location.articleRenamed(this, oldArtNr);
+	}
+
+	/**
+	 * Returns the storage location currently holding the article
+	 * @return storage location, null if not stored
+	 */
+	StorageLocation getLocation() {
+		return this.location;
+	}
+
+	/**
+	 * Sets the storage location currently holding the article
+	 * @param location - storage location, null when picked
+	 */
+	void setLocation(StorageLocation location) {
+		this.location = location;
 	}
 
 }
@@ -0,0 +1,215 @@
+package inventory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Canonical, case insensitive key of an article number. Keys are interned,
+ * so two article numbers that only differ in case share one key and keys
+ * are compared by reference; the hash is computed once.
+ *
+ * Article numbers of up to 12 ASCII letters and digits are case folded and
+ * packed into one long, base 37, and interned by that long: looking them up
+ * needs no lower cased copy and one table entry serves every spelling.
+ * Packed keys hold no string: their lower cased value is decoded from the
+ * long when asked for. Other article numbers are interned by lower cased
+ * string only, so every spelling of them shares one table entry. Interned
+ * keys are never released.
+ */
+final class ArticleKey {
+
+	static final long NOT_PACKED = -1;
+
+	private static final int MAX_PACKED_LENGTH = 12;
+	private static final int RADIX = 37;
+
+	private static final ConcurrentMap<Long, ArticleKey> packedKeys = new ConcurrentHashMap<Long, ArticleKey>();
+	private static final ConcurrentMap<String, ArticleKey> keys = new ConcurrentHashMap<String, ArticleKey>();
+
+	private final String value;
+	private final long packed;
+	private final int hash;
+
+	/**
+	 * Constructor
+	 *
+	 * @param value
+	 *            - lower cased article number, null if packed
+	 * @param packed
+	 *            - packed article number, NOT_PACKED if it cannot be packed
+	 */
+	private ArticleKey(String value, long packed) {
+		this.value = value;
+		this.packed = packed;
+		this.hash = ArticleKey.NOT_PACKED == packed ? value.hashCode()
+				: (int) (packed ^ (packed >>> 32));
+	}
+
+	/**
+	 * Returns the key of an article number, interning it if needed
+	 *
+	 * @param artNr
+	 *            - article number
+	 * @return key, null for a null article number
+	 */
+	static ArticleKey of(String artNr) {
+		if (null == artNr)
+			return null;
+
+		ArticleKey key = ArticleKey.find(artNr);
+
+		if (null != key)
+			return key;
+
+		// Lower casing can turn a spelling that cannot be packed into one
+		// that can, so the lower cased value decides the table
+		String value = StorageLocation.toKey(artNr);
+		long packed = ArticleKey.pack(value);
+
+		if (ArticleKey.NOT_PACKED != packed)
+			return ArticleKey.intern(ArticleKey.packedKeys, packed,
+					new ArticleKey(null, packed));
+
+		return ArticleKey.intern(ArticleKey.keys, value, new ArticleKey(value,
+				ArticleKey.NOT_PACKED));
+	}
+
+	/**
+	 * Returns the key of an article number without interning it, for lookups.
+	 * A null key can only be trusted to mean "no such articles" once the
+	 * articles being searched have interned their keys with of, so callers
+	 * must build their index, or otherwise key their articles, before they
+	 * call find.
+	 *
+	 * @param artNr
+	 *            - article number
+	 * @return key, null if no article with this number was ever stored
+	 */
+	static ArticleKey find(String artNr) {
+		if (null == artNr)
+			return null;
+
+		long packed = ArticleKey.pack(artNr);
+
+		if (ArticleKey.NOT_PACKED != packed)
+			return ArticleKey.packedKeys.get(packed);
+
+		String value = StorageLocation.toKey(artNr);
+		packed = ArticleKey.pack(value);
+
+		if (ArticleKey.NOT_PACKED != packed)
+			return ArticleKey.packedKeys.get(packed);
+
+		return ArticleKey.keys.get(value);
+	}
+
+	/**
+	 * Packs a short alphanumeric article number into a long, case folded
+	 *
+	 * @param artNr
+	 *            - article number
+	 * @return packed article number, NOT_PACKED if longer than 12 characters
+	 *         or not made of ASCII letters and digits only
+	 */
+	static long pack(String artNr) {
+		int length = artNr.length();
+
+		if (length > ArticleKey.MAX_PACKED_LENGTH)
+			return ArticleKey.NOT_PACKED;
+
+		long packed = 0;
+
+		for (int i = 0; i < ArticleKey.MAX_PACKED_LENGTH; i++) {
+			int digit = 0;
+
+			if (i < length) {
+				char c = artNr.charAt(i);
+
+				if (c >= '0' && c <= '9')
+					digit = 1 + c - '0';
+				else if (c >= 'a' && c <= 'z')
+					digit = 11 + c - 'a';
+				else if (c >= 'A' && c <= 'Z')
+					digit = 11 + c - 'A';
+				else
+					return ArticleKey.NOT_PACKED;
+			}
+
+			packed = packed * ArticleKey.RADIX + digit;
+		}
+
+		return packed;
+	}
+
+	/**
+	 * Returns the packed article number
+	 *
+	 * @return packed article number, NOT_PACKED if it cannot be packed
+	 */
+	long getPacked() {
+		return this.packed;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hash;
+	}
+
+	/**
+	 * Returns the lower cased article number, decoded anew for packed keys
+	 *
+	 * @return lower cased article number
+	 */
+	@Override
+	public String toString() {
+		return ArticleKey.NOT_PACKED == this.packed ? this.value : ArticleKey
+				.unpack(this.packed);
+	}
+
+	/**
+	 * Decodes a packed article number
+	 *
+	 * @param packed
+	 *            - packed article number
+	 * @return lower cased article number
+	 */
+	private static String unpack(long packed) {
+		char[] chars = new char[ArticleKey.MAX_PACKED_LENGTH];
+		int length = 0;
+
+		for (int i = ArticleKey.MAX_PACKED_LENGTH - 1; i >= 0; i--) {
+			int digit = (int) (packed % ArticleKey.RADIX);
+			packed /= ArticleKey.RADIX;
+
+			// Padding only ever follows the last character
+			if (0 == digit)
+				continue;
+
+			if (0 == length)
+				length = i + 1;
+
+			chars[i] = (char) (digit <= 10 ? '0' + digit - 1 : 'a' + digit
+					- 11);
+		}
+
+		return new String(chars, 0, length);
+	}
+
+	/**
+	 * Adds a key to an intern table unless another thread was first
+	 *
+	 * @param table
+	 *            - intern table
+	 * @param id
+	 *            - table key
+	 * @param created
+	 *            - new key
+	 * @return interned key
+	 */
+	private static <K> ArticleKey intern(ConcurrentMap<K, ArticleKey> table,
+			K id, ArticleKey created) {
+		ArticleKey key = table.putIfAbsent(id, created);
+
+		return null == key ? created : key;
+	}
+}
@@ -0,0 +1,219 @@
+package inventory;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Process wide dictionary of interned article numbers. Each distinct
+ * spelling gets an int id while records use it: ids are reference counted
+ * by the records holding them, and the id of a spelling no record holds any
+ * more is reclaimed and handed out again. Reading the dictionary never
+ * locks; only assigning and reclaiming an id does.
+ */
+final class ArticleNumbers {
+
+	private static final int[] NO_IDS = new int[0];
+	private static final Object LOCK = new Object();
+
+	private static ConcurrentMap<String, Entry> bySpelling = new ConcurrentHashMap<String, Entry>();
+	private static ConcurrentMap<ArticleKey, int[]> idsByKey = new ConcurrentHashMap<ArticleKey, int[]>();
+	private static volatile AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<Entry>(
+			64);
+
+	// Guarded by LOCK
+	private static int[] free = new int[16];
+	private static int freeCount;
+	private static int nextId;
+
+	private ArticleNumbers() {
+	}
+
+	/**
+	 * Returns the id of an article number, assigning one if needed, and
+	 * holds it for one more record until released
+	 *
+	 * @param artNr
+	 *            - article number
+	 * @return article number id
+	 */
+	static int intern(String artNr) {
+		Entry entry = ArticleNumbers.bySpelling.get(artNr);
+
+		if (null != entry && entry.retain())
+			return entry.id;
+
+		synchronized (ArticleNumbers.LOCK) {
+			// A reclaimed entry leaves the table under the lock, so an entry
+			// found here is alive or being revived
+			entry = ArticleNumbers.bySpelling.get(artNr);
+
+			if (null != entry && entry.retain())
+				return entry.id;
+
+			int id = ArticleNumbers.freeCount > 0 ? ArticleNumbers.free[--ArticleNumbers.freeCount]
+					: ArticleNumbers.nextId++;
+			entry = new Entry(id, artNr, ArticleKey.of(artNr));
+
+			AtomicReferenceArray<Entry> table = ArticleNumbers.entries;
+
+			if (id >= table.length()) {
+				AtomicReferenceArray<Entry> grown = new AtomicReferenceArray<Entry>(
+						2 * table.length());
+
+				for (int i = 0; i < table.length(); i++)
+					grown.set(i, table.get(i));
+
+				table = grown;
+				ArticleNumbers.entries = grown;
+			}
+
+			table.set(id, entry);
+
+			int[] sameKey = ArticleNumbers.idsByKey.get(entry.key);
+			sameKey = null == sameKey ? new int[1] : Arrays.copyOf(sameKey,
+					sameKey.length + 1);
+			sameKey[sameKey.length - 1] = id;
+			ArticleNumbers.idsByKey.put(entry.key, sameKey);
+			ArticleNumbers.bySpelling.put(artNr, entry);
+
+			return id;
+		}
+	}
+
+	/**
+	 * Holds an id for one more record
+	 *
+	 * @param id
+	 *            - article number id held by another record
+	 */
+	static void retain(int id) {
+		ArticleNumbers.entries.get(id).retain();
+	}
+
+	/**
+	 * Releases an id held by a record, reclaiming it once no record holds
+	 * it
+	 *
+	 * @param id
+	 *            - article number id returned by intern
+	 */
+	static void release(int id) {
+		Entry entry = ArticleNumbers.entries.get(id);
+
+		if (0 == entry.refs.decrementAndGet())
+			ArticleNumbers.reclaim(entry);
+	}
+
+	/**
+	 * Returns the article number with the given id
+	 *
+	 * @param id
+	 *            - article number id held by a record
+	 * @return article number
+	 */
+	static String get(int id) {
+		return ArticleNumbers.entries.get(id).artNr;
+	}
+
+	/**
+	 * Returns the key of the article number with the given id
+	 *
+	 * @param id
+	 *            - article number id held by a record
+	 * @return article number key
+	 */
+	static ArticleKey keyOf(int id) {
+		return ArticleNumbers.entries.get(id).key;
+	}
+
+	/**
+	 * Returns the ids of all spellings of an article number, ignoring case
+	 *
+	 * @param artNr
+	 *            - article number
+	 * @return matching ids, empty if no record holds the article number
+	 */
+	static int[] idsFor(String artNr) {
+		// Interning an id interns its key, so a missing key means no ids
+		ArticleKey key = ArticleKey.find(artNr);
+		int[] sameKey = null == key ? null : ArticleNumbers.idsByKey.get(key);
+
+		return null == sameKey ? ArticleNumbers.NO_IDS : sameKey;
+	}
+
+	/**
+	 * Reclaims the id of an entry no record holds, unless it has been
+	 * retained again meanwhile
+	 *
+	 * @param entry
+	 *            - released entry
+	 */
+	private static void reclaim(Entry entry) {
+		synchronized (ArticleNumbers.LOCK) {
+			if (!entry.refs.compareAndSet(0, -1))
+				return;
+
+			ArticleNumbers.bySpelling.remove(entry.artNr, entry);
+
+			int[] sameKey = ArticleNumbers.idsByKey.get(entry.key);
+			int[] left = new int[sameKey.length - 1];
+			int n = 0;
+
+			for (int id : sameKey)
+				if (id != entry.id)
+					left[n++] = id;
+
+			if (0 == left.length)
+				ArticleNumbers.idsByKey.remove(entry.key);
+			else
+				ArticleNumbers.idsByKey.put(entry.key, left);
+
+			ArticleNumbers.entries.set(entry.id, null);
+
+			if (ArticleNumbers.freeCount == ArticleNumbers.free.length)
+				ArticleNumbers.free = Arrays.copyOf(ArticleNumbers.free,
+						2 * ArticleNumbers.free.length);
+
+			ArticleNumbers.free[ArticleNumbers.freeCount++] = entry.id;
+		}
+	}
+
+	/**
+	 * Interned spelling with the number of records holding its id; -1 once
+	 * reclaimed
+	 */
+	private static final class Entry {
+
+		private final int id;
+		private final String artNr;
+		private final ArticleKey key;
+		private final AtomicInteger refs;
+
+		Entry(int id, String artNr, ArticleKey key) {
+			this.id = id;
+			this.artNr = artNr;
+			this.key = key;
+			this.refs = new AtomicInteger(1);
+		}
+
+		/**
+		 * Holds the id for one more record
+		 *
+		 * @return true if held, false if the entry has been reclaimed
+		 */
+		boolean retain() {
+			while (true) {
+				int current = this.refs.get();
+
+				if (current < 0)
+					return false;
+
+				if (this.refs.compareAndSet(current, current + 1))
+					return true;
+			}
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package inventory;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the articles of a range of location snapshots, optionally
+ * restricted to one article number key. Articles are created one at a time as
+ * they are consumed. Splitting halves the range of locations and, once a
+ * single location is left, the range of its articles, so parallel streams
+ * spread over locations first. The number of articles before each location
+ * is summed once for all splits, so the size of a split is known without
+ * counting its locations again.
+ */
+class ArticleSpliterator implements Spliterator<Article> {
+
+	private LocationSnapshot[] locations;
+	private long[] offsets;
+	private ArticleKey key;
+	private int location;
+	private int end;
+	private int position;
+	private int fence;
+	private long remaining;
+
+	/**
+	 * Constructor
+	 *
+	 * @param locations
+	 *            - location snapshots, not copied
+	 * @param key
+	 *            - article number key to match, null for all articles
+	 */
+	ArticleSpliterator(LocationSnapshot[] locations, ArticleKey key) {
+		this(locations, ArticleSpliterator.offsets(locations), key, 0,
+				locations.length, 0, -1);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param locations
+	 *            - location snapshots, not copied
+	 * @param offsets
+	 *            - number of articles before each location, and in all
+	 *            locations at the end
+	 * @param key
+	 *            - article number key to match, null for all articles
+	 * @param location
+	 *            - first location of the range
+	 * @param end
+	 *            - location after the range
+	 * @param position
+	 *            - first article at the first location
+	 * @param fence
+	 *            - article after the range at the last location, -1 for all
+	 *            of its articles
+	 */
+	private ArticleSpliterator(LocationSnapshot[] locations, long[] offsets,
+			ArticleKey key, int location, int end, int position, int fence) {
+		this.locations = locations;
+		this.offsets = offsets;
+		this.key = key;
+		this.location = location;
+		this.end = end;
+		this.position = position;
+		this.fence = fence;
+
+		if (location < end)
+			this.remaining = (fence >= 0 ? offsets[end - 1] + fence
+					: offsets[end]) - offsets[location] - position;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super Article> action) {
+		while (this.location < this.end) {
+			LocationSnapshot loc = this.locations[this.location];
+			int limit = this.limit(this.location);
+
+			while (this.position < limit) {
+				int i = this.position++;
+				this.remaining--;
+
+				if (null == this.key || loc.keyAt(i) == this.key) {
+					action.accept(Article.restore(loc.artNrAt(i),
+							loc.widthAt(i)));
+					return true;
+				}
+			}
+
+			this.location++;
+			this.position = 0;
+		}
+
+		return false;
+	}
+
+	@Override
+	public Spliterator<Article> trySplit() {
+		if (this.end - this.location > 1) {
+			int middle = (this.location + this.end) >>> 1;
+			ArticleSpliterator prefix = new ArticleSpliterator(this.locations,
+					this.offsets, this.key, this.location, middle,
+					this.position, -1);
+			this.location = middle;
+			this.position = 0;
+			this.remaining -= prefix.remaining;
+
+			return prefix;
+		}
+
+		if (this.end - this.location == 1) {
+			int limit = this.limit(this.location);
+
+			if (limit - this.position > 1) {
+				int middle = (this.position + limit) >>> 1;
+				ArticleSpliterator prefix = new ArticleSpliterator(
+						this.locations, this.offsets, this.key, this.location,
+						this.end, this.position, middle);
+				this.position = middle;
+				this.remaining -= prefix.remaining;
+
+				return prefix;
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public long estimateSize() {
+		return this.remaining;
+	}
+
+	@Override
+	public int characteristics() {
+		int characteristics = Spliterator.ORDERED | Spliterator.NONNULL
+				| Spliterator.IMMUTABLE;
+
+		if (null == this.key)
+			characteristics |= Spliterator.SIZED | Spliterator.SUBSIZED;
+
+		return characteristics;
+	}
+
+	/**
+	 * Returns the position after the last article of the range at a location
+	 *
+	 * @param i
+	 *            - location
+	 * @return position after the last article of the range
+	 */
+	private int limit(int i) {
+		if (i == this.end - 1 && this.fence >= 0)
+			return this.fence;
+
+		return this.locations[i].getArticleCount();
+	}
+
+	/**
+	 * Sums the number of articles before each location
+	 *
+	 * @param locations
+	 *            - location snapshots
+	 * @return number of articles before each location, and in all locations
+	 *         at the end
+	 */
+	private static long[] offsets(LocationSnapshot[] locations) {
+		long[] offsets = new long[locations.length + 1];
+
+		for (int i = 0; i < locations.length; i++)
+			offsets[i + 1] = offsets[i] + locations[i].getArticleCount();
+
+		return offsets;
+	}
+}
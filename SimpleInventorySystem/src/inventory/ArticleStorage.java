@@ -0,0 +1,28 @@
+package inventory;
+
+/**
+ * How a storage location keeps its articles
+ */
+public enum ArticleStorage {
+
+	/**
+	 * Article objects in a linked list, indexed by article number. Stored
+	 * articles stay attached to the location, so changing their width or
+	 * article number updates it.
+	 */
+	LINKED,
+
+	/**
+	 * Interned article number ids in an int[] and widths in a double[].
+	 * Articles are created when read or picked and are not attached to the
+	 * location.
+	 */
+	COLUMNAR,
+
+	/**
+	 * (article number id, width) records in a direct byte buffer outside the
+	 * Java heap. Articles are created when read or picked and are not
+	 * attached to the location.
+	 */
+	OFF_HEAP
+}
@@ -0,0 +1,119 @@
+package inventory;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Backing store for the articles of a storage location. Capacity checks
+ * and running totals are kept by the location, the store only holds the
+ * articles.
+ */
+interface ArticleStore {
+
+	/**
+	 * Returns the number of stored articles
+	 * 
+	 * @return number of stored articles
+	 */
+	int size();
+
+	/**
+	 * Returns all stored articles in insertion order
+	 * 
+	 * @return all stored articles
+	 */
+	List<Article> getArticles();
+
+	/**
+	 * Returns all articles with given article number, ignoring case
+	 * 
+	 * @param artNr
+	 *            - article number
+	 * @return matching articles
+	 */
+	LinkedList<Article> find(String artNr);
+
+	/**
+	 * Returns the number of articles with given article number, ignoring
+	 * case
+	 * 
+	 * @param artNr
+	 *            - article number
+	 * @return number of matching articles
+	 */
+	int count(String artNr);
+
+	/**
+	 * Returns the total width of articles with given article number,
+	 * ignoring case
+	 * 
+	 * @param artNr
+	 *            - article number
+	 * @return total width of matching articles
+	 */
+	double width(String artNr);
+
+	/**
+	 * Returns the number of articles per lower cased article number
+	 * 
+	 * @return number of articles per lower cased article number
+	 */
+	Map<String, Integer> counts();
+
+	/**
+	 * Adds articles after the location has checked capacity
+	 * 
+	 * @param articles
+	 *            - articles to add
+	 */
+	void addAll(List<Article> articles);
+
+	/**
+	 * Removes up to count articles with given article number, ignoring case
+	 * 
+	 * @param artNr
+	 *            - article number
+	 * @param count
+	 *            - maximum number of articles to remove
+	 * @return removed articles
+	 */
+	LinkedList<Article> remove(String artNr, int count);
+
+	/**
+	 * Removes up to a count of articles for each of several article numbers
+	 * in one pass
+	 * 
+	 * @param counts
+	 *            - maximum number of articles to remove per lower cased
+	 *            article number
+	 * @return removed articles per lower cased article number, missing if
+	 *         none were removed
+	 */
+	Map<String, LinkedList<Article>> removeMany(Map<String, Integer> counts);
+
+	/**
+	 * Removes all articles
+	 * 
+	 * @return removed articles
+	 */
+	LinkedList<Article> removeAll();
+
+	/**
+	 * Called when a stored article changes article number
+	 * 
+	 * @param article
+	 *            - renamed article
+	 * @param oldArtNr
+	 *            - article number before renaming
+	 */
+	void articleRenamed(Article article, String oldArtNr);
+
+	/**
+	 * Returns the current articles in a state later changes do not affect
+	 * 
+	 * @return immutable articles, null if the store cannot hand out its
+	 *         state and the articles have to be copied
+	 */
+	SnapshotArticles snapshot();
+}
@@ -0,0 +1,118 @@
+package inventory;
+
+import inventory.exceptions.InvalidWidthException;
+import inventory.exceptions.TooManyArticlesException;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Article count and total width of a storage location. Room is reserved
+ * with compare-and-set on an immutable pair of totals, so concurrent
+ * reservations never overshoot the limits and never lock. A reservation is
+ * rolled back by releasing the same count and width.
+ */
+class Capacity {
+
+	private AtomicReference<Totals> totals;
+
+	/**
+	 * Constructor
+	 */
+	Capacity() {
+		this.totals = new AtomicReference<Totals>(new Totals(0, 0));
+	}
+
+	/**
+	 * Returns the number of articles
+	 * 
+	 * @return number of articles
+	 */
+	int getCount() {
+		return this.totals.get().count;
+	}
+
+	/**
+	 * Returns the total width
+	 * 
+	 * @return total width
+	 */
+	double getWidth() {
+		return this.totals.get().width;
+	}
+
+	/**
+	 * Reserves room for articles, failing if the location would overflow
+	 * 
+	 * @param count
+	 *            - number of articles
+	 * @param width
+	 *            - total width of the articles
+	 */
+	void reserve(int count, double width) {
+		while (true) {
+			Totals current = this.totals.get();
+
+			if (current.width + width > StorageLocation.MAX_WIDTH)
+				throw new InvalidWidthException();
+
+			if (current.count + count > StorageLocation.MAX_ARTICLES)
+				throw new TooManyArticlesException();
+
+			if (this.totals.compareAndSet(current, new Totals(current.count
+					+ count, current.width + width)))
+				return;
+		}
+	}
+
+	/**
+	 * Adds articles that have already been verified to fit
+	 * 
+	 * @param count
+	 *            - number of articles
+	 * @param width
+	 *            - total width of the articles
+	 */
+	void add(int count, double width) {
+		while (true) {
+			Totals current = this.totals.get();
+
+			if (this.totals.compareAndSet(current, new Totals(current.count
+					+ count, current.width + width)))
+				return;
+		}
+	}
+
+	/**
+	 * Releases the room of removed articles or of a rolled back reservation
+	 * 
+	 * @param count
+	 *            - number of articles
+	 * @param width
+	 *            - total width of the articles
+	 */
+	void release(int count, double width) {
+		while (true) {
+			Totals current = this.totals.get();
+			int newCount = current.count - count;
+			double newWidth = 0 == newCount ? 0 : current.width - width;
+
+			if (this.totals.compareAndSet(current, new Totals(newCount,
+					newWidth)))
+				return;
+		}
+	}
+
+	/**
+	 * Immutable count and width pair
+	 */
+	private static class Totals {
+
+		private final int count;
+		private final double width;
+
+		private Totals(int count, double width) {
+			this.count = count;
+			this.width = width;
+		}
+	}
+}
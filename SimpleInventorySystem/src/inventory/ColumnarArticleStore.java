@@ -0,0 +1,54 @@
+package inventory;
+
+/**
+ * Article store keeping interned article number ids in an int[] and widths
+ * in a double[]
+ */
+class ColumnarArticleStore extends RecordArticleStore {
+
+	@Override
+	Records allocate(int capacity) {
+		return new Columns(capacity);
+	}
+
+	/**
+	 * Records kept in two arrays
+	 */
+	private static final class Columns extends Records {
+
+		private final int[] ids;
+		private final double[] widths;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param capacity
+		 *            - number of records
+		 */
+		Columns(int capacity) {
+			this.ids = new int[capacity];
+			this.widths = new double[capacity];
+		}
+
+		@Override
+		int capacity() {
+			return this.ids.length;
+		}
+
+		@Override
+		int idAt(int i) {
+			return this.ids[i];
+		}
+
+		@Override
+		double widthAt(int i) {
+			return this.widths[i];
+		}
+
+		@Override
+		void set(int i, int id, double width) {
+			this.ids[i] = id;
+			this.widths[i] = width;
+		}
+	}
+}
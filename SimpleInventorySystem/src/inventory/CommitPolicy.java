@@ -0,0 +1,28 @@
+package inventory;
+
+/**
+ * When a stock log makes logged changes durable
+ */
+public enum CommitPolicy {
+
+	/**
+	 * Every change waits until it is durable. Changes of concurrent threads
+	 * still share one force.
+	 */
+	EACH_CHANGE,
+
+	/**
+	 * A change only waits for a force when the last force is older than
+	 * StockLog.BATCH_WINDOW_MILLIS; changes in between become durable with
+	 * that force. Up to one window of changes can be lost in a crash, and the
+	 * changes after the last force of a burst stay pending until the next
+	 * change, commit or close.
+	 */
+	BATCHED,
+
+	/**
+	 * Changes are only made durable by StockLog.commit, checkpoints and
+	 * close.
+	 */
+	ON_DEMAND
+}
@@ -0,0 +1,678 @@
+package inventory;
+
+import inventory.exceptions.InvalidWidthException;
+import inventory.exceptions.TooManyArticlesException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Storage location that may be used by several threads at once. Inserts
+ * reserve count and width with compare-and-set before publishing the
+ * articles, so they never overshoot the limits. Articles are grouped by
+ * article number and writers lock only the stripe of the article numbers
+ * they touch, so picks of different article numbers run in parallel.
+ * Readers never lock: each article number maps to an immutable array that
+ * writers replace.
+ *
+ * Articles are returned grouped by article number rather than in insertion
+ * order.
+ */
+public class ConcurrentStorageLocation extends StorageLocation {
+
+	private static final int STRIPES = 16;
+	private static final Article[] NO_ARTICLES = new Article[0];
+	private static final AtomicLong SEQUENCE = new AtomicLong();
+
+	private final long order;
+	private ReentrantLock[] stripes;
+	private ConcurrentHashMap<ArticleKey, Article[]> articles;
+	private Capacity capacity;
+
+	/**
+	 * Constructor
+	 *
+	 * @param name
+	 *            of storage location
+	 */
+	public ConcurrentStorageLocation(String name) {
+		super(name, (ArticleStore) null);
+
+		this.order = ConcurrentStorageLocation.SEQUENCE.getAndIncrement();
+
+		this.stripes = new ReentrantLock[ConcurrentStorageLocation.STRIPES];
+		for (int i = 0; i < this.stripes.length; i++)
+			this.stripes[i] = new ReentrantLock();
+
+		this.articles = new ConcurrentHashMap<ArticleKey, Article[]>();
+		this.capacity = new Capacity();
+	}
+
+	@Override
+	public List<Article> getArticles() {
+		LinkedList<Article> all = new LinkedList<Article>();
+
+		for (Article[] matches : this.articles.values())
+			all.addAll(Arrays.asList(matches));
+
+		return all;
+	}
+
+	@Override
+	Map<String, Integer> getArticleCounts() {
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+
+		for (Map.Entry<ArticleKey, Article[]> e : this.articles.entrySet())
+			counts.put(e.getKey().toString(), e.getValue().length);
+
+		return counts;
+	}
+
+	@Override
+	public int getArticleCount() {
+		return this.capacity.getCount();
+	}
+
+	@Override
+	public double getTotalWidth() {
+		return this.capacity.getWidth();
+	}
+
+	@Override
+	public int getArticleCount(String string) {
+		return this.get(string).length;
+	}
+
+	@Override
+	public double getTotalWidth(String string) {
+		double totWidth = 0;
+
+		for (Article a : this.get(string))
+			totWidth += a.getWidth();
+
+		return totWidth;
+	}
+
+	@Override
+	public LinkedList<Article> getArticles(String string) {
+		return new LinkedList<Article>(Arrays.asList(this.get(string)));
+	}
+
+	@Override
+	void insertArticles(List<Article> articles) {
+		double width = this.sumWidth(articles);
+		this.capacity.reserve(articles.size(), width);
+		this.commit(articles, width);
+	}
+
+	@Override
+	void insertVerified(List<Article> articles, double width) {
+		// Concurrent inserts may have used the room verified by the caller
+		this.capacity.reserve(articles.size(), width);
+		this.commit(articles, width);
+	}
+
+	@Override
+	LinkedList<Article> pickArticles() {
+		LinkedList<Article> picked = new LinkedList<Article>();
+
+		this.lockAll();
+		try {
+			for (Article[] matches : this.articles.values())
+				picked.addAll(Arrays.asList(matches));
+
+			this.articles.clear();
+			this.capacity.release(picked.size(), this.sumWidth(picked));
+		} finally {
+			this.unlockAll();
+		}
+
+		this.released(picked);
+
+		return picked;
+	}
+
+	@Override
+	LinkedList<Article> pickArticles(String string, int count) {
+		ArticleKey key = ArticleKey.find(string);
+		LinkedList<Article> picked = new LinkedList<Article>();
+
+		if (null == key)
+			return picked;
+
+		ReentrantLock lock = this.stripeFor(key);
+
+		lock.lock();
+		try {
+			Article[] matches = this.articles.get(key);
+
+			if (null == matches)
+				return picked;
+
+			int n = Math.min(Math.max(count, 0), matches.length);
+			picked.addAll(Arrays.asList(matches).subList(0, n));
+			this.replace(key, Arrays.copyOfRange(matches, n, matches.length));
+			this.capacity.release(n, this.sumWidth(picked));
+		} finally {
+			lock.unlock();
+		}
+
+		this.released(picked);
+
+		return picked;
+	}
+
+	@Override
+	Map<String, LinkedList<Article>> pickManyArticles(Map<String, Integer> lines) {
+		Map<String, Integer> counts = StorageLocation.countsByKey(lines);
+		Map<String, LinkedList<Article>> picked = new HashMap<String, LinkedList<Article>>();
+		LinkedList<Article> all = new LinkedList<Article>();
+		boolean[] needed = new boolean[this.stripes.length];
+
+		Map<String, ArticleKey> keys = new HashMap<String, ArticleKey>();
+
+		for (String line : counts.keySet()) {
+			ArticleKey key = ArticleKey.find(line);
+
+			if (null != key) {
+				keys.put(line, key);
+				needed[this.stripeIndex(key)] = true;
+			}
+		}
+
+		this.lock(needed);
+		try {
+			for (Map.Entry<String, Integer> e : counts.entrySet()) {
+				ArticleKey key = keys.get(e.getKey());
+				Article[] matches = null == key ? null : this.articles.get(key);
+
+				if (null == matches || 0 == e.getValue())
+					continue;
+
+				int n = Math.min(e.getValue(), matches.length);
+				LinkedList<Article> taken = new LinkedList<Article>(Arrays
+						.asList(matches).subList(0, n));
+				this.replace(key,
+						Arrays.copyOfRange(matches, n, matches.length));
+				picked.put(e.getKey(), taken);
+				all.addAll(taken);
+			}
+
+			this.capacity.release(all.size(), this.sumWidth(all));
+		} finally {
+			this.unlock(needed);
+		}
+
+		this.released(all);
+
+		return StorageLocation.splitByLine(lines, picked);
+	}
+
+	/**
+	 * Atomically moves all articles, or all articles with an article number,
+	 * to another location if they fit. The stripes of both locations are
+	 * locked in a fixed order, so opposite moves cannot deadlock. A plain
+	 * target is checked against the articles taken under the stripe locks,
+	 * so articles inserted concurrently are either all moved or all left.
+	 *
+	 * @param target
+	 *            - location to move to
+	 * @param artNr
+	 *            - article number, null to move all articles
+	 * @return number of articles moved, -1 if the articles do not fit
+	 */
+	int moveTo(StorageLocation target, String artNr) {
+		if (this == target)
+			return 0;
+
+		if (!(target instanceof ConcurrentStorageLocation))
+			return this.moveToPlain(target, artNr);
+
+		ConcurrentStorageLocation other = (ConcurrentStorageLocation) target;
+		boolean[] needed = this.stripesFor(artNr);
+		ConcurrentStorageLocation first = this.order < other.order ? this
+				: other;
+		ConcurrentStorageLocation second = first == this ? other : this;
+		Map<ArticleKey, Article[]> moved = new HashMap<ArticleKey, Article[]>();
+		LinkedList<Article> all = new LinkedList<Article>();
+
+		first.lock(needed);
+		second.lock(needed);
+		try {
+			this.collect(artNr, moved, all);
+			double width = this.sumWidth(all);
+
+			if (!other.tryReserve(all.size(), width))
+				return -1;
+
+			for (Map.Entry<ArticleKey, Article[]> e : moved.entrySet()) {
+				this.articles.remove(e.getKey());
+				other.append(e.getKey(), Arrays.asList(e.getValue()));
+			}
+
+			this.capacity.release(all.size(), width);
+		} finally {
+			second.unlock(needed);
+			first.unlock(needed);
+		}
+
+		this.released(all);
+
+		for (Article a : all)
+			a.setLocation(other);
+
+		if (!all.isEmpty() && null != other.getStock())
+			other.getStock().articlesAdded(other, all);
+
+		return all.size();
+	}
+
+	/**
+	 * Moves all articles, or all articles with an article number, from a
+	 * plain location if they fit. Room is reserved for the articles actually
+	 * picked; if concurrent inserts have used it meanwhile, the articles are
+	 * given back to the source, which is not shared between threads.
+	 *
+	 * @param source
+	 *            - location to move from
+	 * @param artNr
+	 *            - article number, null to move all articles
+	 * @return number of articles moved, -1 if the articles do not fit
+	 */
+	int moveFrom(StorageLocation source, String artNr) {
+		int count = null == artNr ? source.getArticleCount() : source
+				.getArticleCount(artNr);
+		double width = null == artNr ? source.getTotalWidth() : source
+				.getTotalWidth(artNr);
+
+		if (this.capacity.getCount() + count > StorageLocation.MAX_ARTICLES
+				|| this.capacity.getWidth() + width > StorageLocation.MAX_WIDTH)
+			return -1;
+
+		LinkedList<Article> picked = null == artNr ? source.pickAll() : source
+				.pickAll(artNr);
+		width = this.sumWidth(picked);
+
+		if (!this.tryReserve(picked.size(), width)) {
+			source.insertVerified(picked, width);
+			return -1;
+		}
+
+		this.commit(picked, width);
+
+		return picked.size();
+	}
+
+	/**
+	 * Moves articles to a plain location, checking the room left there
+	 * against the articles taken under the stripe locks
+	 *
+	 * @param target
+	 *            - plain location to move to
+	 * @param artNr
+	 *            - article number, null to move all articles
+	 * @return number of articles moved, -1 if the articles do not fit
+	 */
+	private int moveToPlain(StorageLocation target, String artNr) {
+		boolean[] needed = this.stripesFor(artNr);
+		Map<ArticleKey, Article[]> moved = new HashMap<ArticleKey, Article[]>();
+		LinkedList<Article> all = new LinkedList<Article>();
+		double width;
+
+		this.lock(needed);
+		try {
+			this.collect(artNr, moved, all);
+			width = this.sumWidth(all);
+
+			if (target.getArticleCount() + all.size() > StorageLocation.MAX_ARTICLES
+					|| target.getTotalWidth() + width > StorageLocation.MAX_WIDTH)
+				return -1;
+
+			for (ArticleKey key : moved.keySet())
+				this.articles.remove(key);
+
+			this.capacity.release(all.size(), width);
+		} finally {
+			this.unlock(needed);
+		}
+
+		this.released(all);
+		target.insertVerified(all, width);
+
+		return all.size();
+	}
+
+	/**
+	 * Returns the stripes holding all articles or an article number
+	 *
+	 * @param artNr
+	 *            - article number, null for all articles
+	 * @return stripes to lock
+	 */
+	private boolean[] stripesFor(String artNr) {
+		boolean[] needed = new boolean[this.stripes.length];
+
+		ArticleKey key = null == artNr ? null : ArticleKey.find(artNr);
+
+		if (null == artNr)
+			Arrays.fill(needed, true);
+		else if (null != key)
+			needed[this.stripeIndex(key)] = true;
+
+		return needed;
+	}
+
+	/**
+	 * Collects the articles to move, holding their stripe locks
+	 *
+	 * @param artNr
+	 *            - article number, null for all articles
+	 * @param moved
+	 *            - receives the articles per article number key
+	 * @param all
+	 *            - receives all articles
+	 */
+	private void collect(String artNr, Map<ArticleKey, Article[]> moved,
+			List<Article> all) {
+		ArticleKey key = null == artNr ? null : ArticleKey.find(artNr);
+
+		if (null == artNr)
+			moved.putAll(this.articles);
+		else if (null != key && this.articles.containsKey(key))
+			moved.put(key, this.articles.get(key));
+
+		for (Article[] matches : moved.values())
+			all.addAll(Arrays.asList(matches));
+	}
+
+	@Override
+	void articleRenamed(Article article, String oldArtNr) {
+		ArticleKey oldKey = ArticleKey.of(oldArtNr);
+		ArticleKey newKey = article.getKey();
+		boolean[] needed = new boolean[this.stripes.length];
+		needed[this.stripeIndex(oldKey)] = true;
+		needed[this.stripeIndex(newKey)] = true;
+
+		this.lock(needed);
+		try {
+			Article[] matches = this.articles.get(oldKey);
+
+			if (null == matches)
+				return;
+
+			LinkedList<Article> remaining = new LinkedList<Article>();
+			for (Article a : matches)
+				if (a != article)
+					remaining.add(a);
+
+			if (remaining.size() == matches.length)
+				return;
+
+			this.replace(oldKey, remaining.toArray(new Article[0]));
+			this.append(newKey, Collections.singletonList(article));
+		} finally {
+			this.unlock(needed);
+		}
+
+		if (null != this.getStock())
+			this.getStock().articleRenamed(this, article, oldArtNr);
+	}
+
+	@Override
+	void articleResized(Article article, double oldWidth, double newWidth) {
+		if (newWidth > oldWidth)
+			this.capacity.reserve(0, newWidth - oldWidth);
+		else
+			this.capacity.add(0, newWidth - oldWidth);
+
+		if (null != this.getStock())
+			this.getStock().articleResized(this, article, oldWidth);
+	}
+
+	/**
+	 * Reserves room for articles
+	 *
+	 * @param count
+	 *            - number of articles
+	 * @param width
+	 *            - total width of the articles
+	 * @return true if reserved, false if the articles do not fit
+	 */
+	private boolean tryReserve(int count, double width) {
+		try {
+			this.capacity.reserve(count, width);
+			return true;
+		} catch (TooManyArticlesException e) {
+			return false;
+		} catch (InvalidWidthException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Adds articles whose capacity has been reserved, rolling the
+	 * reservation back if they cannot be added
+	 *
+	 * @param added
+	 *            - articles to add
+	 * @param width
+	 *            - reserved width
+	 */
+	private void commit(List<Article> added, double width) {
+		try {
+			this.add(added);
+		} catch (RuntimeException e) {
+			this.capacity.release(added.size(), width);
+			throw e;
+		}
+	}
+
+	/**
+	 * Adds articles whose capacity has been reserved
+	 *
+	 * @param added
+	 *            - articles to add
+	 */
+	private void add(List<Article> added) {
+		Map<ArticleKey, List<Article>> byKey = new HashMap<ArticleKey, List<Article>>();
+		boolean[] needed = new boolean[this.stripes.length];
+
+		for (Article a : added) {
+			ArticleKey key = a.getKey();
+			List<Article> group = byKey.get(key);
+
+			if (null == group) {
+				group = new LinkedList<Article>();
+				byKey.put(key, group);
+				needed[this.stripeIndex(key)] = true;
+			}
+
+			group.add(a);
+		}
+
+		this.lock(needed);
+		try {
+			for (Map.Entry<ArticleKey, List<Article>> e : byKey.entrySet())
+				this.append(e.getKey(), e.getValue());
+		} finally {
+			this.unlock(needed);
+		}
+
+		for (Article a : added)
+			a.setLocation(this);
+
+		if (null != this.getStock())
+			this.getStock().articlesAdded(this, added);
+	}
+
+	/**
+	 * Detaches picked articles and notifies the stock
+	 *
+	 * @param picked
+	 *            - picked articles
+	 */
+	private void released(List<Article> picked) {
+		if (picked.isEmpty())
+			return;
+
+		for (Article a : picked)
+			if (a.getLocation() == this)
+				a.setLocation(null);
+
+		if (null != this.getStock())
+			this.getStock().articlesRemoved(this, picked);
+	}
+
+	/**
+	 * Appends articles to an article number, holding its stripe lock
+	 *
+	 * @param key
+	 *            - article number key
+	 * @param added
+	 *            - articles to append
+	 */
+	private void append(ArticleKey key, List<Article> added) {
+		Article[] matches = this.articles.get(key);
+
+		if (null == matches)
+			matches = ConcurrentStorageLocation.NO_ARTICLES;
+
+		Article[] grown = Arrays.copyOf(matches, matches.length
+				+ added.size());
+		int i = matches.length;
+
+		for (Article a : added)
+			grown[i++] = a;
+
+		this.articles.put(key, grown);
+	}
+
+	@Override
+	SnapshotArticles snapshotArticles() {
+		this.lockAll();
+		try {
+			return StoredArticles.copyOf(this.getArticles());
+		} finally {
+			this.unlockAll();
+		}
+	}
+
+	/**
+	 * Replaces the articles of an article number, holding its stripe lock
+	 *
+	 * @param key
+	 *            - article number key
+	 * @param remaining
+	 *            - articles to keep
+	 */
+	private void replace(ArticleKey key, Article[] remaining) {
+		if (0 == remaining.length)
+			this.articles.remove(key);
+		else
+			this.articles.put(key, remaining);
+	}
+
+	/**
+	 * Returns the articles of an article number without locking
+	 *
+	 * @param string
+	 *            - article number
+	 * @return articles with the article number
+	 */
+	private Article[] get(String string) {
+		if (null == string)
+			throw new IllegalArgumentException();
+
+		ArticleKey key = ArticleKey.find(string);
+		Article[] matches = null == key ? null : this.articles.get(key);
+
+		return null == matches ? ConcurrentStorageLocation.NO_ARTICLES
+				: matches;
+	}
+
+	/**
+	 * Sums the width of a set of articles
+	 *
+	 * @param articles
+	 *            - articles
+	 * @return total width
+	 */
+	private double sumWidth(List<Article> articles) {
+		double totWidth = 0;
+
+		for (Article a : articles)
+			totWidth += a.getWidth();
+
+		return totWidth;
+	}
+
+	/**
+	 * Returns the stripe index of an article number
+	 *
+	 * @param key
+	 *            - article number key
+	 * @return stripe index
+	 */
+	private int stripeIndex(ArticleKey key) {
+		int h = key.hashCode();
+		return (h ^ (h >>> 16)) & (this.stripes.length - 1);
+	}
+
+	/**
+	 * Returns the stripe lock of an article number
+	 *
+	 * @param key
+	 *            - article number key
+	 * @return stripe lock
+	 */
+	private ReentrantLock stripeFor(ArticleKey key) {
+		return this.stripes[this.stripeIndex(key)];
+	}
+
+	/**
+	 * Locks the needed stripes in ascending order
+	 *
+	 * @param needed
+	 *            - stripes to lock
+	 */
+	private void lock(boolean[] needed) {
+		for (int i = 0; i < needed.length; i++)
+			if (needed[i])
+				this.stripes[i].lock();
+	}
+
+	/**
+	 * Unlocks the needed stripes
+	 *
+	 * @param needed
+	 *            - stripes to unlock
+	 */
+	private void unlock(boolean[] needed) {
+		for (int i = needed.length - 1; i >= 0; i--)
+			if (needed[i])
+				this.stripes[i].unlock();
+	}
+
+	/**
+	 * Locks all stripes in ascending order
+	 */
+	private void lockAll() {
+		for (ReentrantLock lock : this.stripes)
+			lock.lock();
+	}
+
+	/**
+	 * Unlocks all stripes
+	 */
+	private void unlockAll() {
+		for (int i = this.stripes.length - 1; i >= 0; i--)
+			this.stripes[i].unlock();
+	}
+}
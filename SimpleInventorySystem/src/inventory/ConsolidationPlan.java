@@ -0,0 +1,108 @@
+package inventory;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Moves that empty storage locations by merging them into others, computed
+ * by Stock.planConsolidation from one snapshot of the stock. Each move merges
+ * all articles of one location into another; a location is either emptied
+ * or receives articles, never both.
+ */
+public class ConsolidationPlan {
+
+	private Stock stock;
+	private List<Move> moves;
+
+	/**
+	 * Constructor
+	 *
+	 * @param stock
+	 *            - stock the plan was computed for
+	 * @param moves
+	 *            - planned moves, not copied
+	 */
+	ConsolidationPlan(Stock stock, List<Move> moves) {
+		this.stock = stock;
+		this.moves = moves;
+	}
+
+	/**
+	 * Returns the planned moves in the order they are carried out
+	 *
+	 * @return planned moves
+	 */
+	public List<Move> getMoves() {
+		return Collections.unmodifiableList(this.moves);
+	}
+
+	/**
+	 * Carries out the plan by merging each emptied location into its target.
+	 * Moves that no longer fit because the stock changed since planning are
+	 * skipped, like any merge that does not fit. All merges are published as
+	 * one version of the stock, so applying a plan costs one snapshot, not
+	 * one per move.
+	 *
+	 * @return number of locations merged away
+	 */
+	public int apply() {
+		int merged = 0;
+		boolean outermost = this.stock.deferChanges();
+
+		try {
+			for (Move move : this.moves) {
+				if (move.from.getStock() != this.stock)
+					continue;
+
+				this.stock.mergeStorageLocations(move.to, move.from);
+
+				if (move.from.getStock() != this.stock)
+					merged++;
+			}
+		} finally {
+			this.stock.publishDeferred(outermost);
+		}
+
+		return merged;
+	}
+
+	/**
+	 * Merge of all articles of one location into another
+	 */
+	public static class Move {
+
+		private StorageLocation from;
+		private StorageLocation to;
+
+		/**
+		 * Constructor
+		 *
+		 * @param from
+		 *            - location to empty
+		 * @param to
+		 *            - location receiving the articles
+		 */
+		Move(StorageLocation from, StorageLocation to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Returns the location to empty
+		 *
+		 * @return location to empty
+		 */
+		public StorageLocation getFrom() {
+			return this.from;
+		}
+
+		/**
+		 * Returns the location receiving the articles
+		 *
+		 * @return location receiving the articles
+		 */
+		public StorageLocation getTo() {
+			return this.to;
+		}
+	}
+}
@@ -0,0 +1,353 @@
+package inventory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Bin-packing heuristic for consolidating the locations of a stock. The
+ * contents of each location are one item with a width and an article count;
+ * items are placed in decreasing order of width into the locations kept so
+ * far, and a location whose contents fit nowhere is kept and receives later
+ * items. Best fit places an item into the fullest kept location it fits,
+ * first fit into the earliest kept one.
+ *
+ * Kept locations are bucketed by their article count, so every location of
+ * a bucket with few enough articles has the article slots an item needs and
+ * only the width is searched. For best fit each bucket orders its locations
+ * by total width in a tree; for first fit it lays them out in the order
+ * they were kept in a segment tree of minimum total widths. Placing an item
+ * searches one bucket per article count in O(log n), so planning takes
+ * O(n s log n) for s article slots per location.
+ */
+class ConsolidationPlanner {
+
+	private Slotting slotting;
+	private Bin[] bins;
+	private int binCount;
+	private Bucket[] buckets;
+	private int capacity;
+	private Bin probe;
+
+	/**
+	 * Constructor
+	 *
+	 * @param slotting
+	 *            - how to choose among the kept locations an item fits
+	 */
+	ConsolidationPlanner(Slotting slotting) {
+		this.slotting = slotting;
+	}
+
+	/**
+	 * Computes the moves consolidating the locations of a snapshot
+	 *
+	 * @param snapshot
+	 *            - snapshot of the stock
+	 * @return planned moves
+	 */
+	List<ConsolidationPlan.Move> plan(StockSnapshot snapshot) {
+		List<LocationSnapshot> locs = snapshot.getStorageLocations();
+		LocationSnapshot[] items = new LocationSnapshot[locs.size()];
+		int itemCount = 0;
+
+		for (LocationSnapshot loc : locs)
+			if (loc.getArticleCount() > 0)
+				items[itemCount++] = loc;
+
+		Arrays.sort(items, 0, itemCount, new Comparator<LocationSnapshot>() {
+			public int compare(LocationSnapshot a, LocationSnapshot b) {
+				int byWidth = Double.compare(b.getTotalWidth(),
+						a.getTotalWidth());
+
+				if (0 != byWidth)
+					return byWidth;
+
+				return b.getArticleCount() - a.getArticleCount();
+			}
+		});
+
+		this.bins = new Bin[itemCount];
+		this.binCount = 0;
+		this.buckets = new Bucket[StorageLocation.MAX_ARTICLES];
+		this.capacity = Integer.highestOneBit(Math.max(itemCount, 1) * 2 - 1);
+		this.probe = new Bin(null, -1, 0, 0);
+
+		List<ConsolidationPlan.Move> moves = new ArrayList<ConsolidationPlan.Move>();
+
+		for (int i = 0; i < itemCount; i++) {
+			LocationSnapshot item = items[i];
+			Bin bin = Slotting.FIRST_FIT == this.slotting ? this
+					.firstFit(item) : this.bestFit(item);
+
+			if (null == bin) {
+				this.open(item);
+				continue;
+			}
+
+			moves.add(new ConsolidationPlan.Move(item.getLocation(),
+					bin.location));
+			this.fill(bin, item);
+		}
+
+		return moves;
+	}
+
+	/**
+	 * Keeps the location of an item and makes it available for later items
+	 *
+	 * @param item
+	 *            - item that fits into no kept location
+	 */
+	private void open(LocationSnapshot item) {
+		Bin bin = new Bin(item.getLocation(), this.binCount,
+				item.getTotalWidth(), item.getArticleCount());
+		this.bins[this.binCount++] = bin;
+		this.file(bin);
+	}
+
+	/**
+	 * Adds an item to a kept location
+	 *
+	 * @param bin
+	 *            - kept location
+	 * @param item
+	 *            - item placed into it
+	 */
+	private void fill(Bin bin, LocationSnapshot item) {
+		this.buckets[bin.count].remove(bin);
+
+		bin.width += item.getTotalWidth();
+		bin.count += item.getArticleCount();
+		this.file(bin);
+	}
+
+	/**
+	 * Files a kept location in the bucket of its article count, unless it has
+	 * no free article slot left
+	 *
+	 * @param bin
+	 *            - kept location
+	 */
+	private void file(Bin bin) {
+		if (bin.count >= this.buckets.length)
+			return;
+
+		if (null == this.buckets[bin.count])
+			this.buckets[bin.count] = Slotting.FIRST_FIT == this.slotting ? new Bucket(
+					this.capacity) : new Bucket();
+
+		this.buckets[bin.count].add(bin);
+	}
+
+	/**
+	 * Returns the fullest kept location an item fits into, the earliest kept
+	 * one of equally full locations
+	 *
+	 * @param item
+	 *            - item
+	 * @return kept location, null if the item fits nowhere
+	 */
+	private Bin bestFit(LocationSnapshot item) {
+		this.probe.width = StorageLocation.MAX_WIDTH - item.getTotalWidth();
+		Bin best = null;
+
+		for (int count = 0; count <= this.maxCount(item); count++) {
+			Bin bin = null == this.buckets[count] ? null : this.buckets[count]
+					.fullest(this.probe);
+
+			if (null != bin
+					&& (null == best || Bucket.BY_WIDTH.compare(bin, best) > 0))
+				best = bin;
+		}
+
+		return best;
+	}
+
+	/**
+	 * Returns the earliest kept location an item fits into
+	 *
+	 * @param item
+	 *            - item
+	 * @return kept location, null if the item fits nowhere
+	 */
+	private Bin firstFit(LocationSnapshot item) {
+		double limit = StorageLocation.MAX_WIDTH - item.getTotalWidth();
+		int first = Integer.MAX_VALUE;
+
+		for (int count = 0; count <= this.maxCount(item); count++) {
+			int position = null == this.buckets[count] ? -1
+					: this.buckets[count].earliest(limit);
+
+			if (position >= 0 && position < first)
+				first = position;
+		}
+
+		return Integer.MAX_VALUE == first ? null : this.bins[first];
+	}
+
+	/**
+	 * Returns the largest article count of a kept location an item fits into
+	 *
+	 * @param item
+	 *            - item
+	 * @return article count, negative if the item fits no location
+	 */
+	private int maxCount(LocationSnapshot item) {
+		return Math.min(this.buckets.length - 1, StorageLocation.MAX_ARTICLES
+				- item.getArticleCount());
+	}
+
+	/**
+	 * Location kept by the plan and its planned totals
+	 */
+	private static class Bin {
+
+		private StorageLocation location;
+		private int position;
+		private double width;
+		private int count;
+
+		/**
+		 * Constructor
+		 *
+		 * @param location
+		 *            - kept location
+		 * @param position
+		 *            - position in the order locations were kept
+		 * @param width
+		 *            - total width of its articles
+		 * @param count
+		 *            - number of its articles
+		 */
+		private Bin(StorageLocation location, int position, double width,
+				int count) {
+			this.location = location;
+			this.position = position;
+			this.width = width;
+			this.count = count;
+		}
+	}
+
+	/**
+	 * Kept locations with the same article count, searched either by width
+	 * or by the order they were kept in
+	 */
+	private static class Bucket {
+
+		/**
+		 * Orders kept locations by total width and equally full ones from the
+		 * last kept to the earliest kept, so the greatest location is the
+		 * fullest and earliest
+		 */
+		private static final Comparator<Bin> BY_WIDTH = new Comparator<Bin>() {
+			public int compare(Bin a, Bin b) {
+				int byWidth = Double.compare(a.width, b.width);
+
+				if (0 != byWidth)
+					return byWidth;
+
+				return b.position - a.position;
+			}
+		};
+
+		private TreeSet<Bin> byWidth;
+		private double[] tree;
+		private int capacity;
+
+		/**
+		 * Constructor for best fit
+		 */
+		private Bucket() {
+			this.byWidth = new TreeSet<Bin>(Bucket.BY_WIDTH);
+		}
+
+		/**
+		 * Constructor for first fit
+		 *
+		 * @param capacity
+		 *            - number of positions, a power of two
+		 */
+		private Bucket(int capacity) {
+			this.capacity = capacity;
+			this.tree = new double[2 * capacity];
+			Arrays.fill(this.tree, Double.POSITIVE_INFINITY);
+		}
+
+		/**
+		 * Adds a kept location under its current total width
+		 *
+		 * @param bin
+		 *            - kept location
+		 */
+		private void add(Bin bin) {
+			if (null == this.tree)
+				this.byWidth.add(bin);
+			else
+				this.setLeaf(bin.position, bin.width);
+		}
+
+		/**
+		 * Removes a kept location added under its current total width
+		 *
+		 * @param bin
+		 *            - kept location
+		 */
+		private void remove(Bin bin) {
+			if (null == this.tree)
+				this.byWidth.remove(bin);
+			else
+				this.setLeaf(bin.position, Double.POSITIVE_INFINITY);
+		}
+
+		/**
+		 * Returns the fullest location with a total width of at most that of
+		 * a probe, the earliest kept one of equally full locations
+		 *
+		 * @param probe
+		 *            - location with the largest total width and no position
+		 * @return kept location, null if none
+		 */
+		private Bin fullest(Bin probe) {
+			return this.byWidth.floor(probe);
+		}
+
+		/**
+		 * Returns the earliest position with a total width of at most limit
+		 *
+		 * @param limit
+		 *            - largest total width
+		 * @return position, -1 if none
+		 */
+		private int earliest(double limit) {
+			if (this.tree[1] > limit)
+				return -1;
+
+			int i = 1;
+
+			while (i < this.capacity)
+				i = this.tree[2 * i] <= limit ? 2 * i : 2 * i + 1;
+
+			return i - this.capacity;
+		}
+
+		/**
+		 * Sets the total width at a position and updates the minimums above
+		 * it
+		 *
+		 * @param position
+		 *            - position
+		 * @param width
+		 *            - total width, infinite if not in the bucket
+		 */
+		private void setLeaf(int position, double width) {
+			int i = position + this.capacity;
+			this.tree[i] = width;
+
+			for (i /= 2; i > 0; i /= 2)
+				this.tree[i] = Math.min(this.tree[2 * i], this.tree[2 * i + 1]);
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package inventory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Free capacity of the locations of a stock, kept up to date as locations
+ * change. Locations with a free article slot are ordered by total width in
+ * a tree for best-fit queries and laid out in insertion order in a segment
+ * tree of minimum total widths for first-fit queries, so both queries and
+ * updates take O(log n). Article slots are checked against MAX_ARTICLES
+ * when a location is updated.
+ */
+class FreeCapacityIndex {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private TreeMap<Double, Set<StorageLocation>> byWidth;
+	private Map<StorageLocation, Slot> slots;
+	private StorageLocation[] positions;
+	private double[] tree;
+	private int capacity;
+	private int next;
+
+	/**
+	 * Constructor
+	 */
+	FreeCapacityIndex() {
+		this.byWidth = new TreeMap<Double, Set<StorageLocation>>();
+		this.slots = new HashMap<StorageLocation, Slot>();
+		this.allocate(FreeCapacityIndex.MIN_CAPACITY);
+	}
+
+	/**
+	 * Records the current totals of a location, adding it if not indexed yet
+	 * 
+	 * @param loc
+	 *            - location
+	 * @param width
+	 *            - total width of its articles
+	 * @param count
+	 *            - number of its articles
+	 */
+	synchronized void update(StorageLocation loc, double width, int count) {
+		Slot slot = this.slots.get(loc);
+
+		if (null == slot) {
+			if (this.next == this.capacity)
+				this.compact();
+
+			slot = new Slot(this.next++);
+			this.slots.put(loc, slot);
+			this.positions[slot.position] = loc;
+		} else if (slot.free) {
+			this.removeWidth(loc, slot.width);
+		}
+
+		slot.width = width;
+		slot.free = count < StorageLocation.MAX_ARTICLES;
+
+		if (slot.free) {
+			Set<StorageLocation> same = this.byWidth.get(width);
+
+			if (null == same) {
+				same = new LinkedHashSet<StorageLocation>();
+				this.byWidth.put(width, same);
+			}
+
+			same.add(loc);
+		}
+
+		this.setLeaf(slot.position, slot.free ? width
+				: Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Removes a location
+	 * 
+	 * @param loc
+	 *            - location
+	 */
+	synchronized void remove(StorageLocation loc) {
+		Slot slot = this.slots.remove(loc);
+
+		if (null == slot)
+			return;
+
+		if (slot.free)
+			this.removeWidth(loc, slot.width);
+
+		this.positions[slot.position] = null;
+		this.setLeaf(slot.position, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Returns the fullest location with room for an article
+	 * 
+	 * @param width
+	 *            - width of the article
+	 * @return location, null if none has room
+	 */
+	synchronized StorageLocation bestFit(double width) {
+		Map.Entry<Double, Set<StorageLocation>> fullest = this.byWidth
+				.floorEntry(StorageLocation.MAX_WIDTH - width);
+
+		if (null == fullest)
+			return null;
+
+		return fullest.getValue().iterator().next();
+	}
+
+	/**
+	 * Returns the earliest added location with room for an article
+	 * 
+	 * @param width
+	 *            - width of the article
+	 * @return location, null if none has room
+	 */
+	synchronized StorageLocation firstFit(double width) {
+		double limit = StorageLocation.MAX_WIDTH - width;
+
+		if (!(this.tree[1] <= limit))
+			return null;
+
+		int i = 1;
+
+		while (i < this.capacity)
+			i = this.tree[2 * i] <= limit ? 2 * i : 2 * i + 1;
+
+		return this.positions[i - this.capacity];
+	}
+
+	/**
+	 * Removes a location from the width tree
+	 * 
+	 * @param loc
+	 *            - location
+	 * @param width
+	 *            - total width it is filed under
+	 */
+	private void removeWidth(StorageLocation loc, double width) {
+		Set<StorageLocation> same = this.byWidth.get(width);
+		same.remove(loc);
+
+		if (same.isEmpty())
+			this.byWidth.remove(width);
+	}
+
+	/**
+	 * Sets the total width at a position and updates the minimums above it
+	 * 
+	 * @param position
+	 *            - position
+	 * @param width
+	 *            - total width, infinite if the position has no room
+	 */
+	private void setLeaf(int position, double width) {
+		int i = position + this.capacity;
+		this.tree[i] = width;
+
+		for (i /= 2; i > 0; i /= 2)
+			this.tree[i] = Math.min(this.tree[2 * i], this.tree[2 * i + 1]);
+	}
+
+	/**
+	 * Moves the indexed locations to the front of new arrays, in insertion
+	 * order, leaving room for as many again
+	 */
+	private void compact() {
+		StorageLocation[] old = this.positions;
+		int used = this.next;
+		this.allocate(Math.max(FreeCapacityIndex.MIN_CAPACITY,
+				Integer.highestOneBit(Math.max(this.slots.size(), 1)) * 4));
+
+		for (int i = 0; i < used; i++) {
+			if (null == old[i])
+				continue;
+
+			Slot slot = this.slots.get(old[i]);
+			slot.position = this.next++;
+			this.positions[slot.position] = old[i];
+			this.tree[slot.position + this.capacity] = slot.free ? slot.width
+					: Double.POSITIVE_INFINITY;
+		}
+
+		for (int i = this.capacity - 1; i > 0; i--)
+			this.tree[i] = Math.min(this.tree[2 * i], this.tree[2 * i + 1]);
+	}
+
+	/**
+	 * Creates empty arrays
+	 * 
+	 * @param size
+	 *            - number of positions, a power of two
+	 */
+	private void allocate(int size) {
+		this.capacity = size;
+		this.next = 0;
+		this.positions = new StorageLocation[size];
+		this.tree = new double[2 * size];
+		Arrays.fill(this.tree, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Position and last recorded totals of an indexed location
+	 */
+	private static class Slot {
+
+		private int position;
+		private double width;
+		private boolean free;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param position
+		 *            - position in insertion order
+		 */
+		private Slot(int position) {
+			this.position = position;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package inventory;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder events of slow inventory operations. Each event
+ * carries the location name, article number and article count, its
+ * duration and the thread, so a recording shows which operation a GC pause
+ * or a lock wait hit. Only operations at least as slow as the threshold are
+ * recorded; override it with a .jfc file or for example
+ * -XX:StartFlightRecording:inventory.Pick#threshold=0ms. While no recording
+ * has the events enabled, creating and checking an event is optimized away.
+ */
+final class InventoryEvents {
+
+	private InventoryEvents() {
+	}
+
+	/**
+	 * Fields all inventory events carry
+	 */
+	@Category("Inventory")
+	abstract static class InventoryEvent extends Event {
+
+		@Label("Location")
+		@Description("Name of the storage location, the source of moves and merges")
+		String location;
+
+		@Label("Article Number")
+		@Description("Article number, null for operations on all articles")
+		String artNr;
+
+		@Label("Articles")
+		@Description("Number of articles inserted, picked, moved or removed")
+		int articles;
+
+		/**
+		 * Sets the location and article number
+		 *
+		 * @param loc
+		 *            - storage location, may be null
+		 * @param artNr
+		 *            - article number, may be null
+		 * @param articles
+		 *            - number of articles
+		 */
+		void set(StorageLocation loc, String artNr, int articles) {
+			this.location = null == loc ? null : loc.getName();
+			this.artNr = artNr;
+			this.articles = articles;
+		}
+	}
+
+	@Name("inventory.Insert")
+	@Label("Insert")
+	@Description("StorageLocation.insert and insertMany, with the article number of the first article")
+	@Threshold("1 ms")
+	static final class Insert extends InventoryEvent {
+	}
+
+	@Name("inventory.Pick")
+	@Label("Pick")
+	@Description("StorageLocation.pick, pickAll and pickMany, without article number for pickAll and pickMany")
+	@Threshold("1 ms")
+	static final class Pick extends InventoryEvent {
+	}
+
+	@Name("inventory.MoveAllArticles")
+	@Label("Move All Articles")
+	@Description("Stock.moveAllArticles, the articles are those the destination gained")
+	@Threshold("10 ms")
+	static final class Move extends InventoryEvent {
+
+		@Label("Destination")
+		@Description("Name of the storage location the articles were moved to")
+		String destination;
+	}
+
+	@Name("inventory.MergeStorageLocations")
+	@Label("Merge Storage Locations")
+	@Description("Stock.mergeStorageLocations, the articles are those of the merged location")
+	@Threshold("10 ms")
+	static final class Merge extends InventoryEvent {
+
+		@Label("Destination")
+		@Description("Name of the storage location merged into")
+		String destination;
+	}
+
+	@Name("inventory.RemoveStorageLocations")
+	@Label("Remove Storage Locations")
+	@Description("Stock.removeAllStorageLocations, the location is the removed name or null for all")
+	@Threshold("10 ms")
+	static final class Remove extends InventoryEvent {
+
+		@Label("Locations")
+		@Description("Number of storage locations removed")
+		int locations;
+	}
+}
@@ -0,0 +1,363 @@
+package inventory;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Article store keeping article objects in a doubly linked list of nodes.
+ * An index from article number key to articles is built on the first
+ * lookup and kept in sync afterwards. Once indexed, every node is also
+ * linked among the nodes of its article number, so picking an article
+ * unlinks it in constant time and a pick costs the number of matches, not
+ * the size of the location.
+ */
+class LinkedArticleStore implements ArticleStore {
+
+	private StorageLocation location;
+	private final Node head;
+	private int size;
+	private Map<ArticleKey, Matches> index;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param location
+	 *            - location owning the store
+	 * @param articles
+	 *            - initial articles
+	 */
+	LinkedArticleStore(StorageLocation location, List<Article> articles) {
+		this.location = location;
+		this.head = new Node(null);
+		this.head.prev = this.head;
+		this.head.next = this.head;
+
+		for (Article a : articles) {
+			this.link(a);
+			a.setLocation(location);
+		}
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public List<Article> getArticles() {
+		LinkedList<Article> articles = new LinkedList<Article>();
+
+		for (Node n = this.head.next; n != this.head; n = n.next)
+			articles.add(n.article);
+
+		return articles;
+	}
+
+	@Override
+	public LinkedList<Article> find(String artNr) {
+		Matches matches = this.lookup(artNr);
+		LinkedList<Article> found = new LinkedList<Article>();
+
+		if (null != matches)
+			for (Node n = matches.first; null != n; n = n.nextMatch)
+				found.add(n.article);
+
+		return found;
+	}
+
+	@Override
+	public int count(String artNr) {
+		Matches matches = this.lookup(artNr);
+
+		return null == matches ? 0 : matches.size;
+	}
+
+	@Override
+	public double width(String artNr) {
+		Matches matches = this.lookup(artNr);
+		double totWidth = 0;
+
+		if (null != matches)
+			for (Node n = matches.first; null != n; n = n.nextMatch)
+				totWidth += n.article.getWidth();
+
+		return totWidth;
+	}
+
+	@Override
+	public Map<String, Integer> counts() {
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+
+		for (Map.Entry<ArticleKey, Matches> e : this.getIndex().entrySet())
+			counts.put(e.getKey().toString(), e.getValue().size);
+
+		return counts;
+	}
+
+	@Override
+	public void addAll(List<Article> articles) {
+		for (Article a : articles) {
+			this.link(a);
+			a.setLocation(this.location);
+		}
+	}
+
+	@Override
+	public LinkedList<Article> remove(String artNr, int count) {
+		Matches matches = this.lookup(artNr);
+		LinkedList<Article> picked = new LinkedList<Article>();
+
+		while (null != matches && null != matches.first
+				&& picked.size() < count) {
+			Node n = matches.first;
+			this.unlink(n);
+			picked.add(n.article);
+		}
+
+		for (Article a : picked)
+			this.releaseArticle(a);
+
+		return picked;
+	}
+
+	@Override
+	public Map<String, LinkedList<Article>> removeMany(
+			Map<String, Integer> counts) {
+		Map<String, LinkedList<Article>> picked = new HashMap<String, LinkedList<Article>>();
+		Map<ArticleKey, Matches> index = this.getIndex();
+
+		for (Map.Entry<String, Integer> e : counts.entrySet()) {
+			Matches matches = index.get(ArticleKey.find(e.getKey()));
+			int count = e.getValue();
+
+			if (null == matches || count <= 0)
+				continue;
+
+			LinkedList<Article> removed = new LinkedList<Article>();
+
+			while (null != matches.first && removed.size() < count) {
+				Node n = matches.first;
+				this.unlink(n);
+				this.releaseArticle(n.article);
+				removed.add(n.article);
+			}
+
+			picked.put(e.getKey(), removed);
+		}
+
+		return picked;
+	}
+
+	@Override
+	public LinkedList<Article> removeAll() {
+		LinkedList<Article> picked = (LinkedList<Article>) this.getArticles();
+		this.head.prev = this.head;
+		this.head.next = this.head;
+		this.size = 0;
+
+		if (null != this.index)
+			this.index.clear();
+
+		for (Article a : picked)
+			this.releaseArticle(a);
+
+		return picked;
+	}
+
+	@Override
+	public void articleRenamed(Article article, String oldArtNr) {
+		if (null == this.index)
+			return;
+
+		ArticleKey key = article.getKey();
+		Matches old = this.index.get(ArticleKey.find(oldArtNr));
+
+		if (null == old || old.key == key)
+			return;
+
+		Node n = old.first;
+		while (null != n) {
+			Node next = n.nextMatch;
+
+			if (n.article == article) {
+				this.unlinkMatch(n);
+				this.linkMatch(n, key);
+			}
+
+			n = next;
+		}
+	}
+
+	@Override
+	public SnapshotArticles snapshot() {
+		// Stored articles are shared with their callers, so they are copied
+		return null;
+	}
+
+	/**
+	 * Returns the articles with an article number
+	 * 
+	 * @param artNr
+	 *            - article number
+	 * @return indexed articles, null if none
+	 */
+	private Matches lookup(String artNr) {
+		// Building the index interns the keys of the stored articles, so it
+		// must be built before the key is looked up
+		Map<ArticleKey, Matches> index = this.getIndex();
+
+		return index.get(ArticleKey.find(artNr));
+	}
+
+	/**
+	 * Returns the article number index, building it on first use
+	 * 
+	 * @return index from article number key to articles
+	 */
+	private Map<ArticleKey, Matches> getIndex() {
+		if (null == this.index) {
+			this.index = new HashMap<ArticleKey, Matches>();
+
+			for (Node n = this.head.next; n != this.head; n = n.next)
+				this.linkMatch(n, n.article.getKey());
+		}
+
+		return this.index;
+	}
+
+	/**
+	 * Appends an article to the list and to the index if it has been built
+	 * 
+	 * @param article
+	 *            - article to add
+	 */
+	private void link(Article article) {
+		Node n = new Node(article);
+		n.prev = this.head.prev;
+		n.next = this.head;
+		this.head.prev.next = n;
+		this.head.prev = n;
+		this.size++;
+
+		if (null != this.index)
+			this.linkMatch(n, article.getKey());
+	}
+
+	/**
+	 * Unlinks a node from the list and from the index
+	 * 
+	 * @param n
+	 *            - node to unlink
+	 */
+	private void unlink(Node n) {
+		n.prev.next = n.next;
+		n.next.prev = n.prev;
+		this.size--;
+
+		if (null != this.index)
+			this.unlinkMatch(n);
+	}
+
+	/**
+	 * Appends a node to the articles of an article number
+	 * 
+	 * @param n
+	 *            - node
+	 * @param key
+	 *            - article number key
+	 */
+	private void linkMatch(Node n, ArticleKey key) {
+		Matches matches = this.index.get(key);
+
+		if (null == matches) {
+			matches = new Matches(key);
+			this.index.put(key, matches);
+		}
+
+		n.matches = matches;
+		n.nextMatch = null;
+		n.prevMatch = matches.last;
+
+		if (null == matches.last)
+			matches.first = n;
+		else
+			matches.last.nextMatch = n;
+
+		matches.last = n;
+		matches.size++;
+	}
+
+	/**
+	 * Unlinks a node from the articles of its article number, dropping the
+	 * index entry once empty
+	 * 
+	 * @param n
+	 *            - node
+	 */
+	private void unlinkMatch(Node n) {
+		Matches matches = n.matches;
+
+		if (null == n.prevMatch)
+			matches.first = n.nextMatch;
+		else
+			n.prevMatch.nextMatch = n.nextMatch;
+
+		if (null == n.nextMatch)
+			matches.last = n.prevMatch;
+		else
+			n.nextMatch.prevMatch = n.prevMatch;
+
+		n.matches = null;
+		n.prevMatch = null;
+		n.nextMatch = null;
+
+		if (0 == --matches.size)
+			this.index.remove(matches.key);
+	}
+
+	/**
+	 * Detaches a picked article from the location
+	 * 
+	 * @param article
+	 *            - picked article
+	 */
+	private void releaseArticle(Article article) {
+		if (article.getLocation() == this.location)
+			article.setLocation(null);
+	}
+
+	/**
+	 * Stored article, linked in insertion order and among the articles of
+	 * its article number
+	 */
+	private static final class Node {
+
+		private final Article article;
+		private Node prev;
+		private Node next;
+		private Matches matches;
+		private Node prevMatch;
+		private Node nextMatch;
+
+		Node(Article article) {
+			this.article = article;
+		}
+	}
+
+	/**
+	 * Articles of one article number, in insertion order
+	 */
+	private static final class Matches {
+
+		private final ArticleKey key;
+		private Node first;
+		private Node last;
+		private int size;
+
+		Matches(ArticleKey key) {
+			this.key = key;
+		}
+	}
+}
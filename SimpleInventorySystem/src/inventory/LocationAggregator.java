@@ -0,0 +1,41 @@
+package inventory;
+
+/**
+ * Aggregation over the location snapshots of a stock snapshot. Each location
+ * is aggregated on its own and the partial results are combined pairwise,
+ * possibly on different threads, so implementations must not keep state
+ * between calls. Combining must be associative, and empty() must be its
+ * identity.
+ *
+ * @param <R>
+ *            - result type
+ */
+public interface LocationAggregator<R> {
+
+	/**
+	 * Returns the result for no locations
+	 *
+	 * @return empty result
+	 */
+	R empty();
+
+	/**
+	 * Returns the partial result of one location
+	 *
+	 * @param loc
+	 *            - location snapshot
+	 * @return partial result
+	 */
+	R aggregate(LocationSnapshot loc);
+
+	/**
+	 * Combines the results of two adjacent ranges of locations
+	 *
+	 * @param first
+	 *            - result of the earlier locations
+	 * @param second
+	 *            - result of the later locations
+	 * @return combined result
+	 */
+	R combine(R first, R second);
+}
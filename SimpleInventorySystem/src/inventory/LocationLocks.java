@@ -0,0 +1,114 @@
+package inventory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Locks used by a stock to make operations on two locations atomic. Pairs
+ * are always locked in the order the locks were created, so concurrent
+ * A to B and B to A operations cannot deadlock.
+ */
+class LocationLocks {
+
+	private Map<StorageLocation, OrderedLock> locks;
+	private long sequence;
+
+	/**
+	 * Constructor
+	 */
+	LocationLocks() {
+		this.locks = Collections
+				.synchronizedMap(new WeakHashMap<StorageLocation, OrderedLock>());
+	}
+
+	/**
+	 * Locks one location, waiting as needed
+	 * 
+	 * @param loc
+	 *            - location
+	 */
+	void lock(StorageLocation loc) {
+		this.lockFor(loc).lock();
+	}
+
+	/**
+	 * Unlocks a location locked with lock
+	 * 
+	 * @param loc
+	 *            - location
+	 */
+	void unlock(StorageLocation loc) {
+		this.lockFor(loc).unlock();
+	}
+
+	/**
+	 * Locks two locations, waiting as needed
+	 * 
+	 * @param a
+	 *            - first location
+	 * @param b
+	 *            - second location
+	 */
+	void lock(StorageLocation a, StorageLocation b) {
+		OrderedLock first = this.lockFor(a);
+		OrderedLock second = this.lockFor(b);
+
+		if (first.order > second.order) {
+			OrderedLock tmp = first;
+			first = second;
+			second = tmp;
+		}
+
+		first.lock();
+		second.lock();
+	}
+
+	/**
+	 * Unlocks two locations locked with lock
+	 * 
+	 * @param a
+	 *            - first location
+	 * @param b
+	 *            - second location
+	 */
+	void unlock(StorageLocation a, StorageLocation b) {
+		this.lockFor(a).unlock();
+		this.lockFor(b).unlock();
+	}
+
+	/**
+	 * Returns the lock of a location, creating it on first use
+	 * 
+	 * @param loc
+	 *            - location
+	 * @return lock of the location
+	 */
+	private OrderedLock lockFor(StorageLocation loc) {
+		synchronized (this.locks) {
+			OrderedLock lock = this.locks.get(loc);
+
+			if (null == lock) {
+				lock = new OrderedLock(this.sequence++);
+				this.locks.put(loc, lock);
+			}
+
+			return lock;
+		}
+	}
+
+	/**
+	 * Reentrant lock with a fixed position in the lock order
+	 */
+	private static class OrderedLock extends ReentrantLock {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long order;
+
+		private OrderedLock(long order) {
+			this.order = order;
+		}
+	}
+}
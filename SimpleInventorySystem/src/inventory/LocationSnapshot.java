@@ -0,0 +1,243 @@
+package inventory;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Immutable view of a storage location at one version of a stock. The
+ * snapshot holds the state of its location at the time the version was
+ * published, so later changes to the location or its articles are not
+ * visible here. Record stores hand out their blocks copy-on-write, other
+ * stores are copied. Locations loaded from a stock file and not yet
+ * accessed are read straight from the mapped record instead. Articles
+ * handed out are fresh copies owned by the caller.
+ */
+public class LocationSnapshot {
+
+	private StorageLocation location;
+	private SnapshotArticles articles;
+
+	/**
+	 * Constructor
+	 *
+	 * @param location
+	 *            - storage location, only used for its fixed name
+	 * @param articles
+	 *            - immutable articles at the location
+	 */
+	private LocationSnapshot(StorageLocation location,
+			SnapshotArticles articles) {
+		this.location = location;
+		this.articles = articles;
+	}
+
+	/**
+	 * Captures the current state of a location
+	 *
+	 * @param loc
+	 *            - location
+	 * @return snapshot of the location
+	 */
+	static LocationSnapshot of(StorageLocation loc) {
+		SnapshotArticles articles = loc.snapshotArticles();
+
+		if (null == articles)
+			articles = StoredArticles.copyOf(loc.getArticles());
+
+		return new LocationSnapshot(loc, articles);
+	}
+
+	/**
+	 * Returns name
+	 *
+	 * @return name
+	 */
+	public String getName() {
+		return this.location.getName();
+	}
+
+	/**
+	 * Returns the number of articles
+	 *
+	 * @return number of articles
+	 */
+	public int getArticleCount() {
+		return this.articles.size();
+	}
+
+	/**
+	 * Returns the total width of all articles
+	 *
+	 * @return total width
+	 */
+	public double getTotalWidth() {
+		return this.articles.getTotalWidth();
+	}
+
+	/**
+	 * Returns the number of articles with given article id, ignoring case
+	 *
+	 * @param string
+	 *            - article id
+	 * @return number of articles with given article id
+	 */
+	public int getArticleCount(String string) {
+		if (null == string)
+			throw new IllegalArgumentException();
+
+		ArticleKey key = ArticleKey.find(string);
+		int count = 0;
+
+		for (int i = 0; null != key && i < this.getArticleCount(); i++)
+			if (this.keyAt(i) == key)
+				count++;
+
+		return count;
+	}
+
+	/**
+	 * Returns the total width of all articles with given article id,
+	 * ignoring case
+	 *
+	 * @param string
+	 *            - article id
+	 * @return total width of articles with given article id
+	 */
+	public double getTotalWidth(String string) {
+		if (null == string)
+			throw new IllegalArgumentException();
+
+		if (this.articles instanceof MappedLocation)
+			return ((MappedLocation) this.articles).width(string);
+
+		ArticleKey key = ArticleKey.find(string);
+		double totWidth = 0;
+
+		for (int i = 0; null != key && i < this.getArticleCount(); i++)
+			if (this.keyAt(i) == key)
+				totWidth += this.widthAt(i);
+
+		return totWidth;
+	}
+
+	/**
+	 * Returns copies of all articles
+	 *
+	 * @return all articles
+	 */
+	public LinkedList<Article> getArticles() {
+		LinkedList<Article> copies = new LinkedList<Article>();
+
+		for (int i = 0; i < this.getArticleCount(); i++)
+			copies.add(Article.restore(this.artNrAt(i), this.widthAt(i)));
+
+		return copies;
+	}
+
+	/**
+	 * Returns copies of all articles with given article id, ignoring case
+	 *
+	 * @param string
+	 *            - article id
+	 * @return all articles with given article id
+	 */
+	public LinkedList<Article> getArticles(String string) {
+		if (null == string)
+			throw new IllegalArgumentException();
+
+		ArticleKey key = ArticleKey.find(string);
+		LinkedList<Article> copies = new LinkedList<Article>();
+
+		for (int i = 0; null != key && i < this.getArticleCount(); i++)
+			if (this.keyAt(i) == key)
+				copies.add(Article.restore(this.artNrAt(i), this.widthAt(i)));
+
+		return copies;
+	}
+
+	/**
+	 * Returns a lazy stream of copies of the articles with given article id,
+	 * ignoring case
+	 *
+	 * @param string
+	 *            - article id
+	 * @return stream of articles with given article id
+	 */
+	public Stream<Article> streamArticles(String string) {
+		if (null == string)
+			throw new IllegalArgumentException();
+
+		ArticleKey key = ArticleKey.find(string);
+
+		if (null == key)
+			return Stream.empty();
+
+		return StreamSupport.stream(new ArticleSpliterator(
+				new LocationSnapshot[] { this }, key), false);
+	}
+
+	/**
+	 * Returns the live location this is a snapshot of
+	 *
+	 * @return storage location
+	 */
+	StorageLocation getLocation() {
+		return this.location;
+	}
+
+	/**
+	 * Returns the number of articles per lower cased article number
+	 *
+	 * @return number of articles per lower cased article number
+	 */
+	Map<String, Integer> counts() {
+		if (this.articles instanceof MappedLocation)
+			return ((MappedLocation) this.articles).counts();
+
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+
+		for (int i = 0; i < this.getArticleCount(); i++) {
+			String key = this.keyAt(i).toString();
+			Integer current = counts.get(key);
+			counts.put(key, null == current ? 1 : current + 1);
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Returns the article number at the given position
+	 *
+	 * @param i
+	 *            - position
+	 * @return article number
+	 */
+	String artNrAt(int i) {
+		return this.articles.artNrAt(i);
+	}
+
+	/**
+	 * Returns the article number key at the given position
+	 *
+	 * @param i
+	 *            - position
+	 * @return article number key
+	 */
+	ArticleKey keyAt(int i) {
+		return this.articles.keyAt(i);
+	}
+
+	/**
+	 * Returns the width at the given position
+	 *
+	 * @param i
+	 *            - position
+	 * @return width
+	 */
+	double widthAt(int i) {
+		return this.articles.widthAt(i);
+	}
+}
@@ -0,0 +1,133 @@
+package inventory;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Article store of a location loaded from a stock file. Counts and widths
+ * are answered from the mapped record; the articles are decoded into a
+ * regular store of the stock's article storage on first access.
+ */
+class MappedArticleStore implements ArticleStore {
+
+	private MappedLocation record;
+	private ArticleStorage storage;
+	private StorageLocation location;
+	private ArticleStore delegate;
+
+	/**
+	 * Constructor
+	 *
+	 * @param record
+	 *            - mapped record of the location
+	 * @param storage
+	 *            - how to keep the articles once decoded
+	 */
+	MappedArticleStore(MappedLocation record, ArticleStorage storage) {
+		this.record = record;
+		this.storage = storage;
+	}
+
+	/**
+	 * Sets the location owning the store
+	 *
+	 * @param location
+	 *            - owning location
+	 */
+	void setLocation(StorageLocation location) {
+		this.location = location;
+	}
+
+	/**
+	 * Returns the mapped record while the articles have not been decoded
+	 *
+	 * @return mapped record, null once decoded
+	 */
+	synchronized MappedLocation getRecord() {
+		return this.record;
+	}
+
+	@Override
+	public synchronized int size() {
+		return null == this.record ? this.delegate.size() : this.record
+				.size();
+	}
+
+	@Override
+	public List<Article> getArticles() {
+		return this.delegate().getArticles();
+	}
+
+	@Override
+	public LinkedList<Article> find(String artNr) {
+		return this.delegate().find(artNr);
+	}
+
+	@Override
+	public synchronized int count(String artNr) {
+		return null == this.record ? this.delegate.count(artNr) : this.record
+				.count(artNr);
+	}
+
+	@Override
+	public synchronized double width(String artNr) {
+		return null == this.record ? this.delegate.width(artNr) : this.record
+				.width(artNr);
+	}
+
+	@Override
+	public synchronized Map<String, Integer> counts() {
+		return null == this.record ? this.delegate.counts() : this.record
+				.counts();
+	}
+
+	@Override
+	public void addAll(List<Article> articles) {
+		this.delegate().addAll(articles);
+	}
+
+	@Override
+	public LinkedList<Article> remove(String artNr, int count) {
+		return this.delegate().remove(artNr, count);
+	}
+
+	@Override
+	public Map<String, LinkedList<Article>> removeMany(
+			Map<String, Integer> counts) {
+		return this.delegate().removeMany(counts);
+	}
+
+	@Override
+	public LinkedList<Article> removeAll() {
+		return this.delegate().removeAll();
+	}
+
+	@Override
+	public synchronized void articleRenamed(Article article, String oldArtNr) {
+		// Only decoded articles can be renamed
+		if (null == this.record)
+			this.delegate.articleRenamed(article, oldArtNr);
+	}
+
+	@Override
+	public synchronized SnapshotArticles snapshot() {
+		return null == this.record ? this.delegate.snapshot() : this.record;
+	}
+
+	/**
+	 * Returns the store holding the decoded articles, decoding them on first
+	 * use
+	 *
+	 * @return decoded store
+	 */
+	private synchronized ArticleStore delegate() {
+		if (null != this.record) {
+			this.delegate = this.location.createStore(this.storage);
+			this.delegate.addAll(this.record.decode());
+			this.record = null;
+		}
+
+		return this.delegate;
+	}
+}
@@ -0,0 +1,366 @@
+package inventory;
+
+import inventory.exceptions.CorruptStockFileException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only view of one storage location record in a stock file. Only the
+ * name and totals are decoded up front. The article number dictionary, with
+ * its keys, is decoded when first used, and the dictionary indexes are
+ * checked when the articles are first read, so indexing a loaded stock by
+ * article number does not touch the articles of its locations; article
+ * numbers and widths are read from the buffer on demand.
+ *
+ * Record layout: name (int length, -1 if null, UTF-8 bytes), int count,
+ * double total width, int dictionary size, per entry (int length, UTF-8
+ * bytes, int count), count int dictionary indexes, count double widths.
+ */
+class MappedLocation extends SnapshotArticles {
+
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private ByteBuffer buffer;
+	private String name;
+	private int size;
+	private double totalWidth;
+	private int entries;
+	private int start;
+	private volatile Dictionary dictionary;
+
+	/**
+	 * Constructor. Only the name and totals are checked; the rest of the
+	 * record is checked when first read.
+	 *
+	 * @param buffer
+	 *            - buffer holding the record, read with absolute gets only
+	 * @param offset
+	 *            - position of the record
+	 * @throws IOException
+	 *             if the name or totals are corrupt
+	 */
+	MappedLocation(ByteBuffer buffer, int offset) throws IOException {
+		this.buffer = buffer;
+
+		int pos = offset;
+		this.name = this.readString(pos);
+		pos += 4 + Math.max(this.buffer.getInt(pos), 0);
+		this.require(pos, 16);
+		this.size = this.buffer.getInt(pos);
+		this.totalWidth = this.buffer.getDouble(pos + 4);
+		this.entries = this.buffer.getInt(pos + 12);
+		this.start = pos + 16;
+
+		if (this.size < 0 || this.entries < 0
+				|| this.entries > (this.buffer.limit() - this.start) / 8)
+			throw new IOException("Corrupt location record");
+	}
+
+	/**
+	 * Returns the location name
+	 *
+	 * @return name
+	 */
+	String getName() {
+		return this.name;
+	}
+
+	@Override
+	int size() {
+		return this.size;
+	}
+
+	@Override
+	double getTotalWidth() {
+		return this.totalWidth;
+	}
+
+	@Override
+	String artNrAt(int i) {
+		Dictionary d = this.articles();
+		return d.artNrs[this.buffer.getInt(d.ids + 4 * i)];
+	}
+
+	@Override
+	ArticleKey keyAt(int i) {
+		Dictionary d = this.articles();
+		return d.keys[this.buffer.getInt(d.ids + 4 * i)];
+	}
+
+	@Override
+	double widthAt(int i) {
+		return this.buffer.getDouble(this.articles().widths + 8 * i);
+	}
+
+	/**
+	 * Returns the number of articles per lower cased article number
+	 *
+	 * @return number of articles per lower cased article number
+	 */
+	Map<String, Integer> counts() {
+		Dictionary d = this.dictionary();
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+
+		for (int i = 0; i < d.keys.length; i++) {
+			String key = d.keys[i].toString();
+			Integer current = counts.get(key);
+			counts.put(key, (null == current ? 0 : current) + d.counts[i]);
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Returns the number of articles with given article number, ignoring
+	 * case
+	 *
+	 * @param artNr
+	 *            - article number
+	 * @return number of matching articles
+	 */
+	int count(String artNr) {
+		Dictionary d = this.dictionary();
+		ArticleKey key = ArticleKey.find(artNr);
+		int count = 0;
+
+		for (int i = 0; null != key && i < d.keys.length; i++)
+			if (d.keys[i] == key)
+				count += d.counts[i];
+
+		return count;
+	}
+
+	/**
+	 * Returns the total width of articles with given article number,
+	 * ignoring case
+	 *
+	 * @param artNr
+	 *            - article number
+	 * @return total width of matching articles
+	 */
+	double width(String artNr) {
+		Dictionary d = this.articles();
+		ArticleKey key = ArticleKey.find(artNr);
+		boolean[] matching = new boolean[d.keys.length];
+		boolean any = false;
+
+		for (int i = 0; null != key && i < d.keys.length; i++)
+			if (d.keys[i] == key)
+				any = matching[i] = true;
+
+		double totWidth = 0;
+
+		if (any)
+			for (int i = 0; i < this.size; i++)
+				if (matching[this.buffer.getInt(d.ids + 4 * i)])
+					totWidth += this.widthAt(i);
+
+		return totWidth;
+	}
+
+	/**
+	 * Creates all articles of the record in stored order
+	 *
+	 * @return articles
+	 */
+	List<Article> decode() {
+		List<Article> articles = new ArrayList<Article>(this.size);
+
+		for (int i = 0; i < this.size; i++)
+			articles.add(Article.restore(this.artNrAt(i), this.widthAt(i)));
+
+		return articles;
+	}
+
+	/**
+	 * Returns the article number dictionary, decoding and checking it on
+	 * first use. Concurrent first uses may decode it twice, to the same
+	 * result.
+	 *
+	 * @return dictionary
+	 * @throws CorruptStockFileException
+	 *             if the dictionary is corrupt
+	 */
+	private Dictionary dictionary() {
+		Dictionary d = this.dictionary;
+
+		if (null == d)
+			try {
+				d = this.readDictionary();
+				this.dictionary = d;
+			} catch (IOException e) {
+				throw new CorruptStockFileException(e);
+			}
+
+		return d;
+	}
+
+	/**
+	 * Returns the article number dictionary once the dictionary indexes have
+	 * been checked against it, checking them on first use
+	 *
+	 * @return dictionary
+	 * @throws CorruptStockFileException
+	 *             if the dictionary or the dictionary indexes are corrupt
+	 */
+	private Dictionary articles() {
+		Dictionary d = this.dictionary();
+
+		if (!d.checked)
+			try {
+				this.checkIds(d);
+				d.checked = true;
+			} catch (IOException e) {
+				throw new CorruptStockFileException(e);
+			}
+
+		return d;
+	}
+
+	/**
+	 * Decodes the article number dictionary
+	 *
+	 * @return dictionary
+	 * @throws IOException
+	 *             if the dictionary is corrupt
+	 */
+	private Dictionary readDictionary() throws IOException {
+		String[] artNrs = new String[this.entries];
+		ArticleKey[] keys = new ArticleKey[this.entries];
+		int[] counts = new int[this.entries];
+		int pos = this.start;
+		long counted = 0;
+
+		for (int i = 0; i < this.entries; i++) {
+			artNrs[i] = this.readString(pos);
+
+			if (null == artNrs[i])
+				throw new IOException("Corrupt location record");
+
+			keys[i] = ArticleKey.of(artNrs[i]);
+			pos += 4 + this.buffer.getInt(pos);
+			this.require(pos, 4);
+			counts[i] = this.buffer.getInt(pos);
+			counted += counts[i];
+			pos += 4;
+
+			if (counts[i] < 0)
+				throw new IOException("Corrupt location record");
+		}
+
+		this.require(pos, 12L * this.size);
+
+		if (counted != this.size)
+			throw new IOException("Corrupt location record");
+
+		return new Dictionary(artNrs, keys, counts, pos, pos + 4 * this.size);
+	}
+
+	/**
+	 * Checks that the dictionary indexes match the dictionary counts
+	 *
+	 * @param d
+	 *            - dictionary
+	 * @throws IOException
+	 *             if the dictionary indexes are corrupt
+	 */
+	private void checkIds(Dictionary d) throws IOException {
+		int[] found = new int[this.entries];
+
+		for (int i = 0; i < this.size; i++) {
+			int id = this.buffer.getInt(d.ids + 4 * i);
+
+			if (id < 0 || id >= this.entries)
+				throw new IOException("Corrupt location record");
+
+			found[id]++;
+		}
+
+		for (int i = 0; i < this.entries; i++)
+			if (found[i] != d.counts[i])
+				throw new IOException("Corrupt location record");
+	}
+
+	/**
+	 * Reads a length prefixed UTF-8 string
+	 *
+	 * @param pos
+	 *            - position of the length
+	 * @return string, null if the length is negative
+	 * @throws IOException
+	 *             if the string does not fit in the record
+	 */
+	private String readString(int pos) throws IOException {
+		this.require(pos, 4);
+
+		if (this.buffer.getInt(pos) < 0)
+			return null;
+
+		this.require(pos + 4, this.buffer.getInt(pos));
+
+		byte[] bytes = new byte[this.buffer.getInt(pos)];
+		ByteBuffer view = this.buffer.duplicate();
+		view.position(pos + 4);
+		view.get(bytes);
+
+		return new String(bytes, MappedLocation.UTF_8);
+	}
+
+	/**
+	 * Checks that bytes at a position lie within the record
+	 *
+	 * @param pos
+	 *            - position
+	 * @param length
+	 *            - number of bytes
+	 * @throws IOException
+	 *             if the bytes do not lie within the record
+	 */
+	private void require(int pos, long length) throws IOException {
+		if (pos < 0 || pos + length > this.buffer.limit())
+			throw new IOException("Corrupt location record");
+	}
+
+	/**
+	 * Decoded article number dictionary of a record, the positions of its
+	 * dictionary indexes and widths and whether the indexes were checked
+	 */
+	private static class Dictionary {
+
+		private final String[] artNrs;
+		private final ArticleKey[] keys;
+		private final int[] counts;
+		private final int ids;
+		private final int widths;
+		private volatile boolean checked;
+
+		/**
+		 * Constructor
+		 *
+		 * @param artNrs
+		 *            - article numbers
+		 * @param keys
+		 *            - keys of the article numbers
+		 * @param counts
+		 *            - number of articles per article number
+		 * @param ids
+		 *            - position of the dictionary indexes
+		 * @param widths
+		 *            - position of the widths
+		 */
+		private Dictionary(String[] artNrs, ArticleKey[] keys, int[] counts,
+				int ids, int widths) {
+			this.artNrs = artNrs;
+			this.keys = keys;
+			this.counts = counts;
+			this.ids = ids;
+			this.widths = widths;
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package inventory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Article store keeping (article number id, width) records in a direct
+ * byte buffer outside the Java heap. The heap only holds the buffer
+ * object, however many articles are stored.
+ */
+class OffHeapArticleStore extends RecordArticleStore {
+
+	private static final int RECORD_SIZE = 12;
+	private static final int WIDTH_OFFSET = 4;
+
+	@Override
+	Records allocate(int capacity) {
+		return new Buffer(capacity);
+	}
+
+	/**
+	 * Records kept in a direct buffer
+	 */
+	private static final class Buffer extends Records {
+
+		private final ByteBuffer records;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param capacity
+		 *            - number of records
+		 */
+		Buffer(int capacity) {
+			this.records = ByteBuffer.allocateDirect(
+					capacity * OffHeapArticleStore.RECORD_SIZE).order(
+					ByteOrder.nativeOrder());
+		}
+
+		@Override
+		int capacity() {
+			return this.records.capacity() / OffHeapArticleStore.RECORD_SIZE;
+		}
+
+		@Override
+		int idAt(int i) {
+			return this.records.getInt(i * OffHeapArticleStore.RECORD_SIZE);
+		}
+
+		@Override
+		double widthAt(int i) {
+			return this.records.getDouble(i * OffHeapArticleStore.RECORD_SIZE
+					+ OffHeapArticleStore.WIDTH_OFFSET);
+		}
+
+		@Override
+		void set(int i, int id, double width) {
+			int offset = i * OffHeapArticleStore.RECORD_SIZE;
+			this.records.putInt(offset, id);
+			this.records.putDouble(offset + OffHeapArticleStore.WIDTH_OFFSET,
+					width);
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package inventory;
+
+/**
+ * Immutable map from non-negative positions to values, kept as a 32-way
+ * radix trie. Adding or removing a value copies only the nodes on its path,
+ * so versions share all other nodes and an update costs O(log n). Values are
+ * returned in ascending order of their positions.
+ */
+final class PersistentTrie<V> {
+
+	private static final int BITS = 5;
+	private static final int WIDTH = 1 << PersistentTrie.BITS;
+	private static final int MASK = PersistentTrie.WIDTH - 1;
+	private static final PersistentTrie<Object> EMPTY = new PersistentTrie<Object>(
+			null, 0, 0);
+
+	private final Object[] root;
+	private final int shift;
+	private final int size;
+
+	/**
+	 * Constructor
+	 *
+	 * @param root
+	 *            - root node, null if empty
+	 * @param shift
+	 *            - number of position bits below the root
+	 * @param size
+	 *            - number of values
+	 */
+	private PersistentTrie(Object[] root, int shift, int size) {
+		this.root = root;
+		this.shift = shift;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the empty trie
+	 *
+	 * @return empty trie
+	 */
+	@SuppressWarnings("unchecked")
+	static <V> PersistentTrie<V> empty() {
+		return (PersistentTrie<V>) PersistentTrie.EMPTY;
+	}
+
+	/**
+	 * Returns the number of values
+	 *
+	 * @return number of values
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the value at a position
+	 *
+	 * @param position
+	 *            - position
+	 * @return value, null if none
+	 */
+	@SuppressWarnings("unchecked")
+	V get(long position) {
+		if (position < 0 || !PersistentTrie.fits(position, this.shift))
+			return null;
+
+		Object[] node = this.root;
+
+		for (int s = this.shift; null != node && s > 0; s -= PersistentTrie.BITS)
+			node = (Object[]) node[PersistentTrie.slot(position, s)];
+
+		return null == node ? null : (V) node[PersistentTrie.slot(position, 0)];
+	}
+
+	/**
+	 * Returns a trie with a value set at a position
+	 *
+	 * @param position
+	 *            - non-negative position
+	 * @param value
+	 *            - value, not null
+	 * @return trie holding the value
+	 */
+	PersistentTrie<V> with(long position, V value) {
+		if (position < 0 || null == value)
+			throw new IllegalArgumentException();
+
+		Object[] root = null == this.root ? new Object[PersistentTrie.WIDTH]
+				: this.root;
+		int shift = this.shift;
+
+		while (!PersistentTrie.fits(position, shift)) {
+			Object[] grown = new Object[PersistentTrie.WIDTH];
+			grown[0] = root;
+			root = grown;
+			shift += PersistentTrie.BITS;
+		}
+
+		int size = null == this.get(position) ? this.size + 1 : this.size;
+
+		return new PersistentTrie<V>(PersistentTrie.set(root, shift,
+				position, value), shift, size);
+	}
+
+	/**
+	 * Returns a trie without the value at a position
+	 *
+	 * @param position
+	 *            - position
+	 * @return trie without the value, this trie if it holds none
+	 */
+	PersistentTrie<V> without(long position) {
+		if (null == this.get(position))
+			return this;
+
+		if (1 == this.size)
+			return PersistentTrie.empty();
+
+		return new PersistentTrie<V>(PersistentTrie.clear(this.root,
+				this.shift, position), this.shift, this.size - 1);
+	}
+
+	/**
+	 * Copies the values in ascending order of their positions
+	 *
+	 * @param into
+	 *            - array of at least size() elements
+	 * @return the array
+	 */
+	V[] toArray(V[] into) {
+		if (null != this.root)
+			PersistentTrie.fill(this.root, this.shift, into, 0);
+
+		return into;
+	}
+
+	/**
+	 * Returns true if a position can be stored below a root with the given
+	 * shift
+	 *
+	 * @param position
+	 *            - position
+	 * @param shift
+	 *            - number of position bits below the root
+	 * @return true if it fits
+	 */
+	private static boolean fits(long position, int shift) {
+		return shift + PersistentTrie.BITS >= Long.SIZE - 1
+				|| 0 == position >>> (shift + PersistentTrie.BITS);
+	}
+
+	/**
+	 * Returns the slot of a position within a node
+	 *
+	 * @param position
+	 *            - position
+	 * @param shift
+	 *            - number of position bits below the node
+	 * @return slot
+	 */
+	private static int slot(long position, int shift) {
+		return (int) (position >>> shift) & PersistentTrie.MASK;
+	}
+
+	/**
+	 * Copies the path to a position, setting its value
+	 *
+	 * @param node
+	 *            - node, null if not created yet
+	 * @param shift
+	 *            - number of position bits below the node
+	 * @param position
+	 *            - position
+	 * @param value
+	 *            - value
+	 * @return copied node
+	 */
+	private static Object[] set(Object[] node, int shift, long position,
+			Object value) {
+		Object[] copy = null == node ? new Object[PersistentTrie.WIDTH]
+				: node.clone();
+		int slot = PersistentTrie.slot(position, shift);
+
+		if (0 == shift)
+			copy[slot] = value;
+		else
+			copy[slot] = PersistentTrie.set((Object[]) copy[slot], shift
+					- PersistentTrie.BITS, position, value);
+
+		return copy;
+	}
+
+	/**
+	 * Copies the path to a stored position, clearing its value and dropping
+	 * nodes left empty
+	 *
+	 * @param node
+	 *            - node on the path
+	 * @param shift
+	 *            - number of position bits below the node
+	 * @param position
+	 *            - position
+	 * @return copied node, null if left empty
+	 */
+	private static Object[] clear(Object[] node, int shift, long position) {
+		Object[] copy = node.clone();
+		int slot = PersistentTrie.slot(position, shift);
+
+		if (0 == shift)
+			copy[slot] = null;
+		else
+			copy[slot] = PersistentTrie.clear((Object[]) copy[slot], shift
+					- PersistentTrie.BITS, position);
+
+		for (Object child : copy)
+			if (null != child)
+				return copy;
+
+		return null;
+	}
+
+	/**
+	 * Copies the values below a node in ascending order
+	 *
+	 * @param node
+	 *            - node
+	 * @param shift
+	 *            - number of position bits below the node
+	 * @param into
+	 *            - array to copy to
+	 * @param at
+	 *            - index of the next value
+	 * @return index after the copied values
+	 */
+	@SuppressWarnings("unchecked")
+	private static <V> int fill(Object[] node, int shift, V[] into, int at) {
+		for (Object child : node) {
+			if (null == child)
+				continue;
+
+			if (0 == shift)
+				into[at++] = (V) child;
+			else
+				at = PersistentTrie.fill((Object[]) child, shift
+						- PersistentTrie.BITS, into, at);
+		}
+
+		return at;
+	}
+}
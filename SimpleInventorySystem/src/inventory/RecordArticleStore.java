@@ -0,0 +1,485 @@
+package inventory;
+
+import java.lang.ref.Cleaner;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Article store keeping each article as an (article number id, width)
+ * record. Article objects are created only when articles are read or
+ * picked. Each record holds its article number id until it is removed;
+ * records a dropped store still holds are released once their block is
+ * unreachable. Subclasses decide where the records live.
+ *
+ * Snapshots share the current block instead of copying it. A shared block
+ * keeps the ids of all its records until unreachable, so the store only
+ * appends to it; removing records or growing copies the block first.
+ */
+abstract class RecordArticleStore implements ArticleStore {
+
+	private static final Cleaner CLEANER = Cleaner.create();
+	private static final int INITIAL_CAPACITY = 8;
+
+	private Block block;
+	private int size;
+	private double totalWidth;
+	private boolean shared;
+
+	/**
+	 * Constructor
+	 */
+	RecordArticleStore() {
+		this.block = new Block(this.allocate(RecordArticleStore.INITIAL_CAPACITY));
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public List<Article> getArticles() {
+		LinkedList<Article> articles = new LinkedList<Article>();
+
+		for (int i = 0; i < this.size; i++)
+			articles.add(this.materialize(i));
+
+		return articles;
+	}
+
+	@Override
+	public LinkedList<Article> find(String artNr) {
+		int[] matching = ArticleNumbers.idsFor(artNr);
+		LinkedList<Article> articles = new LinkedList<Article>();
+
+		for (int i = 0; i < this.size; i++)
+			if (matches(matching, this.idAt(i)))
+				articles.add(this.materialize(i));
+
+		return articles;
+	}
+
+	@Override
+	public int count(String artNr) {
+		int[] matching = ArticleNumbers.idsFor(artNr);
+		int count = 0;
+
+		for (int i = 0; i < this.size; i++)
+			if (matches(matching, this.idAt(i)))
+				count++;
+
+		return count;
+	}
+
+	@Override
+	public double width(String artNr) {
+		int[] matching = ArticleNumbers.idsFor(artNr);
+		double totWidth = 0;
+
+		for (int i = 0; i < this.size; i++)
+			if (matches(matching, this.idAt(i)))
+				totWidth += this.widthAt(i);
+
+		return totWidth;
+	}
+
+	@Override
+	public Map<String, Integer> counts() {
+		Map<Integer, Integer> byId = new HashMap<Integer, Integer>();
+
+		for (int i = 0; i < this.size; i++) {
+			Integer current = byId.get(this.idAt(i));
+			byId.put(this.idAt(i), null == current ? 1 : current + 1);
+		}
+
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+
+		for (Map.Entry<Integer, Integer> e : byId.entrySet()) {
+			String key = ArticleNumbers.keyOf(e.getKey()).toString();
+			Integer current = counts.get(key);
+			counts.put(key, (null == current ? 0 : current) + e.getValue());
+		}
+
+		return counts;
+	}
+
+	@Override
+	public void addAll(List<Article> articles) {
+		this.ensureCapacity(this.size + articles.size());
+
+		for (Article a : articles) {
+			this.set(this.size, ArticleNumbers.intern(a.getArtNr()),
+					a.getWidth());
+			this.size++;
+			this.totalWidth += a.getWidth();
+			this.block.records.held = this.size;
+		}
+	}
+
+	@Override
+	public LinkedList<Article> remove(String artNr, int count) {
+		int[] matching = ArticleNumbers.idsFor(artNr);
+		LinkedList<Article> picked = new LinkedList<Article>();
+		int kept = 0;
+
+		this.unshare();
+
+		for (int i = 0; i < this.size; i++)
+			if (picked.size() < count && matches(matching, this.idAt(i))) {
+				picked.add(this.materialize(i));
+				ArticleNumbers.release(this.idAt(i));
+				this.totalWidth -= this.widthAt(i);
+			} else {
+				if (kept != i)
+					this.set(kept, this.idAt(i), this.widthAt(i));
+				kept++;
+			}
+
+		this.size = kept;
+		this.block.records.held = kept;
+
+		// Widths are summed up incrementally, so start over once empty
+		if (0 == kept)
+			this.totalWidth = 0;
+
+		return picked;
+	}
+
+	@Override
+	public Map<String, LinkedList<Article>> removeMany(
+			Map<String, Integer> counts) {
+		Map<Integer, String> keys = new HashMap<Integer, String>();
+		Map<String, int[]> remaining = new HashMap<String, int[]>();
+
+		for (Map.Entry<String, Integer> e : counts.entrySet()) {
+			if (e.getValue() <= 0)
+				continue;
+
+			remaining.put(e.getKey(), new int[] { e.getValue() });
+
+			for (int id : ArticleNumbers.idsFor(e.getKey()))
+				keys.put(id, e.getKey());
+		}
+
+		Map<String, LinkedList<Article>> picked = new HashMap<String, LinkedList<Article>>();
+		int kept = 0;
+
+		this.unshare();
+
+		for (int i = 0; i < this.size; i++) {
+			String key = keys.get(this.idAt(i));
+			int[] left = null == key ? null : remaining.get(key);
+
+			if (null != left && left[0] > 0) {
+				LinkedList<Article> matches = picked.get(key);
+
+				if (null == matches) {
+					matches = new LinkedList<Article>();
+					picked.put(key, matches);
+				}
+
+				matches.add(this.materialize(i));
+				ArticleNumbers.release(this.idAt(i));
+				this.totalWidth -= this.widthAt(i);
+				left[0]--;
+			} else {
+				if (kept != i)
+					this.set(kept, this.idAt(i), this.widthAt(i));
+				kept++;
+			}
+		}
+
+		this.size = kept;
+		this.block.records.held = kept;
+
+		// Widths are summed up incrementally, so start over once empty
+		if (0 == kept)
+			this.totalWidth = 0;
+
+		return picked;
+	}
+
+	@Override
+	public LinkedList<Article> removeAll() {
+		LinkedList<Article> picked = (LinkedList<Article>) this.getArticles();
+
+		// A shared block keeps its ids until snapshots drop it
+		if (!this.shared) {
+			for (int i = 0; i < this.size; i++)
+				ArticleNumbers.release(this.idAt(i));
+
+			this.block.records.held = 0;
+		}
+
+		this.block = new Block(this.allocate(RecordArticleStore.INITIAL_CAPACITY));
+		this.size = 0;
+		this.totalWidth = 0;
+		this.shared = false;
+
+		return picked;
+	}
+
+	@Override
+	public void articleRenamed(Article article, String oldArtNr) {
+		// Stored articles are copies, nothing refers back to the store
+	}
+
+	@Override
+	public SnapshotArticles snapshot() {
+		this.shared = true;
+
+		return new Snapshot(this.block, this.size, this.totalWidth);
+	}
+
+	/**
+	 * Allocates empty records
+	 * 
+	 * @param capacity
+	 *            - number of records
+	 * @return records
+	 */
+	abstract Records allocate(int capacity);
+
+	/**
+	 * Returns the article number id of the record at the given position
+	 * 
+	 * @param i
+	 *            - position
+	 * @return article number id
+	 */
+	private int idAt(int i) {
+		return this.block.records.idAt(i);
+	}
+
+	/**
+	 * Returns the width of the record at the given position
+	 * 
+	 * @param i
+	 *            - position
+	 * @return width
+	 */
+	private double widthAt(int i) {
+		return this.block.records.widthAt(i);
+	}
+
+	/**
+	 * Writes the record at the given position
+	 * 
+	 * @param i
+	 *            - position
+	 * @param id
+	 *            - article number id
+	 * @param width
+	 *            - width
+	 */
+	private void set(int i, int id, double width) {
+		this.block.records.set(i, id, width);
+	}
+
+	/**
+	 * Grows the records to hold at least the given number of records
+	 * 
+	 * @param capacity
+	 *            - required capacity
+	 */
+	private void ensureCapacity(int capacity) {
+		Records current = this.block.records;
+
+		if (capacity <= current.capacity())
+			return;
+
+		this.copy(Math.max(capacity, current.capacity() * 2));
+	}
+
+	/**
+	 * Copies a block shared with snapshots, so that its records can be
+	 * changed
+	 */
+	private void unshare() {
+		if (this.shared)
+			this.copy(this.block.records.capacity());
+	}
+
+	/**
+	 * Copies the records to a new block. The ids held by the old block move
+	 * to the new one, unless the old block is shared: then both hold them.
+	 * 
+	 * @param capacity
+	 *            - capacity of the new block
+	 */
+	private void copy(int capacity) {
+		Records current = this.block.records;
+		Records copied = this.allocate(capacity);
+
+		for (int i = 0; i < this.size; i++) {
+			if (this.shared)
+				ArticleNumbers.retain(current.idAt(i));
+
+			copied.set(i, current.idAt(i), current.widthAt(i));
+		}
+
+		copied.held = this.size;
+
+		if (!this.shared)
+			current.held = 0;
+
+		this.block = new Block(copied);
+		this.shared = false;
+	}
+
+	/**
+	 * Creates the article at the given position
+	 * 
+	 * @param i
+	 *            - position
+	 * @return article
+	 */
+	private Article materialize(int i) {
+		return Article.restore(ArticleNumbers.get(this.idAt(i)),
+				this.widthAt(i));
+	}
+
+	/**
+	 * Returns true if the id is one of the matching ids
+	 * 
+	 * @param matching
+	 *            - matching ids
+	 * @param id
+	 *            - id to test
+	 * @return true if matching, false otherwise
+	 */
+	private static boolean matches(int[] matching, int id) {
+		for (int m : matching)
+			if (m == id)
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Fixed capacity (article number id, width) records. The first held
+	 * records hold their article number ids; run releases them, so records
+	 * must not refer to the block owning them.
+	 */
+	abstract static class Records implements Runnable {
+
+		private volatile int held;
+
+		/**
+		 * Returns the number of records
+		 * 
+		 * @return capacity
+		 */
+		abstract int capacity();
+
+		/**
+		 * Returns the article number id of the record at the given position
+		 * 
+		 * @param i
+		 *            - position
+		 * @return article number id
+		 */
+		abstract int idAt(int i);
+
+		/**
+		 * Returns the width of the record at the given position
+		 * 
+		 * @param i
+		 *            - position
+		 * @return width
+		 */
+		abstract double widthAt(int i);
+
+		/**
+		 * Writes the record at the given position
+		 * 
+		 * @param i
+		 *            - position
+		 * @param id
+		 *            - article number id
+		 * @param width
+		 *            - width
+		 */
+		abstract void set(int i, int id, double width);
+
+		@Override
+		public void run() {
+			for (int i = 0; i < this.held; i++)
+				ArticleNumbers.release(this.idAt(i));
+		}
+	}
+
+	/**
+	 * Records of a store at the time of a snapshot. Holding the block keeps
+	 * the ids of the records alive.
+	 */
+	private static final class Snapshot extends SnapshotArticles {
+
+		private final Block block;
+		private final int size;
+		private final double totalWidth;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param block
+		 *            - shared block, only appended to afterwards
+		 * @param size
+		 *            - number of records
+		 * @param totalWidth
+		 *            - total width of the records
+		 */
+		Snapshot(Block block, int size, double totalWidth) {
+			this.block = block;
+			this.size = size;
+			this.totalWidth = totalWidth;
+		}
+
+		@Override
+		int size() {
+			return this.size;
+		}
+
+		@Override
+		double getTotalWidth() {
+			return this.totalWidth;
+		}
+
+		@Override
+		String artNrAt(int i) {
+			return ArticleNumbers.get(this.block.records.idAt(i));
+		}
+
+		@Override
+		ArticleKey keyAt(int i) {
+			return ArticleNumbers.keyOf(this.block.records.idAt(i));
+		}
+
+		@Override
+		double widthAt(int i) {
+			return this.block.records.widthAt(i);
+		}
+	}
+
+	/**
+	 * Records in use by a store, releasing the ids they still hold once
+	 * unreachable
+	 */
+	static final class Block {
+
+		private final Records records;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param records
+		 *            - records of the block
+		 */
+		Block(Records records) {
+			this.records = records;
+			RecordArticleStore.CLEANER.register(this, records);
+		}
+	}
+}
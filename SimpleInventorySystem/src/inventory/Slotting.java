@@ -0,0 +1,18 @@
+package inventory;
+
+/**
+ * How a location is chosen for putting away an article
+ */
+public enum Slotting {
+
+	/**
+	 * The location left with the least free width after the article is put
+	 * away, keeping large gaps free for large articles
+	 */
+	BEST_FIT,
+
+	/**
+	 * The earliest added location with room for the article
+	 */
+	FIRST_FIT
+}
@@ -0,0 +1,50 @@
+package inventory;
+
+/**
+ * Immutable articles of a location snapshot, read by position. Record
+ * stores and mapped records hand out their state as is, other locations
+ * are copied.
+ */
+abstract class SnapshotArticles {
+
+	/**
+	 * Returns the number of articles
+	 *
+	 * @return number of articles
+	 */
+	abstract int size();
+
+	/**
+	 * Returns the total width of all articles
+	 *
+	 * @return total width
+	 */
+	abstract double getTotalWidth();
+
+	/**
+	 * Returns the article number at the given position
+	 *
+	 * @param i
+	 *            - position
+	 * @return article number
+	 */
+	abstract String artNrAt(int i);
+
+	/**
+	 * Returns the article number key at the given position
+	 *
+	 * @param i
+	 *            - position
+	 * @return article number key
+	 */
+	abstract ArticleKey keyAt(int i);
+
+	/**
+	 * Returns the width at the given position
+	 *
+	 * @param i
+	 *            - position
+	 * @return width
+	 */
+	abstract double widthAt(int i);
+}
@@ -1,22 +1,78 @@
 package inventory;
 
 import inventory.exceptions.InvalidTemperatureException;
+import inventory.exceptions.InvalidWidthException;
+import inventory.exceptions.TooManyArticlesException;
 import inventory.exceptions.TooManyStorageLocationsException;
+import inventory.metrics.InventoryMetrics;
+import inventory.metrics.Operation;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Stock {
 
 	private double temperature;
-	private List<StorageLocation> storageLocations;
+	private StorageLocationRegistry storageLocations;
+	private ConcurrentMap<ArticleKey, Map<StorageLocation, Integer>> articleIndex;
+	private ArticleStorage storage;
+	private LocationLocks locks;
+	private AtomicReference<StockSnapshot> snapshot;
+	private ThreadLocal<Set<StorageLocation>> pending;
+	private Set<StorageLocation> unpublished;
+	private volatile StockLog log;
+	private FreeCapacityIndex freeCapacity;
+	private ReentrantLock[] capacityStripes;
+	private volatile InventoryMetrics metrics;
 	public static double MAX_TEMP = 30;
 	public static double MIN_TEMP = 20;
 	public static int MAX_STORAGE_LOCATIONS = 3;
+	private static final int PUTAWAY_ATTEMPTS = 3;
+	private static final int CAPACITY_STRIPES = 16;
 
 	public Stock() {
-		this.storageLocations = new LinkedList<StorageLocation>();
+		this(ArticleStorage.LINKED);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param storage
+	 *            - how locations created by the stock keep their articles
+	 */
+	public Stock(ArticleStorage storage) {
+		if (null == storage)
+			throw new IllegalArgumentException();
+
+		this.storageLocations = new StorageLocationRegistry();
+		this.articleIndex = new ConcurrentHashMap<ArticleKey, Map<StorageLocation, Integer>>();
+		this.storage = storage;
+		this.locks = new LocationLocks();
+		this.snapshot = new AtomicReference<StockSnapshot>(
+				StockSnapshot.empty());
+		this.pending = new ThreadLocal<Set<StorageLocation>>();
+		this.unpublished = Collections
+				.newSetFromMap(new ConcurrentHashMap<StorageLocation, Boolean>());
+		this.freeCapacity = new FreeCapacityIndex();
+		this.capacityStripes = new ReentrantLock[Stock.CAPACITY_STRIPES];
+		for (int i = 0; i < this.capacityStripes.length; i++)
+			this.capacityStripes[i] = new ReentrantLock();
+		this.metrics = InventoryMetrics.NONE;
 		this.temperature = Double.MIN_VALUE;
 	}
 
@@ -31,6 +87,13 @@ public class Stock {
 			throw new InvalidTemperatureException();
 
 		this.temperature = d;
+
+		StockLog log = this.log;
+
+		if (null != log) {
+			log.temperatureSet(d);
+			log.logged();
+		}
 	}
 
 	/**
@@ -48,7 +111,56 @@ public class Stock {
 	 * @return all storage locations in stock
 	 */
 	public List<StorageLocation> getStorageLocations() {
-		return this.storageLocations;
+		return this.storageLocations.toList();
+	}
+
+	/**
+	 * Returns the number of storage locations in stock, without copying them
+	 * 
+	 * @return number of storage locations
+	 */
+	public int getStorageLocationCount() {
+		return this.storageLocations.size();
+	}
+
+	/**
+	 * Returns the latest version of all storage locations and their
+	 * articles, publishing the locations changed since the last call first.
+	 * The snapshot never changes and can be read without locking while the
+	 * stock is being modified.
+	 * 
+	 * @return latest snapshot
+	 */
+	public StockSnapshot getSnapshot() {
+		this.publishChanged();
+		return this.snapshot.get();
+	}
+
+	/**
+	 * Returns where the stock reports its operations
+	 * 
+	 * @return metrics, InventoryMetrics.NONE if not reported
+	 */
+	public InventoryMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * Sets where the stock reports the latency, number of articles and
+	 * rejections of its moves and lookups, and of the inserts and picks of
+	 * its locations, including locations added later
+	 * 
+	 * @param metrics
+	 *            - metrics, InventoryMetrics.NONE to stop reporting
+	 */
+	public void setMetrics(InventoryMetrics metrics) {
+		if (null == metrics)
+			throw new IllegalArgumentException();
+
+		this.metrics = metrics;
+
+		for (StorageLocation loc : this.storageLocations.toList())
+			loc.setMetrics(metrics);
 	}
 
 	/**
@@ -61,13 +173,28 @@ public class Stock {
 		if (null == loc)
 			throw new IllegalArgumentException();
 
-		if (!(this.duplicationExists(loc))) {
+		if (!(this.storageLocations.contains(loc))) {
 			checkStorageCount(1);
 
 			this.storageLocations.add(loc);
+			this.indexLocation(loc);
 		}
 	}
 
+	/**
+	 * Creates a storage location using the stock's article storage and adds
+	 * it to the stock
+	 * 
+	 * @param name
+	 *            - name of storage location
+	 * @return created storage location
+	 */
+	public StorageLocation createStorageLocation(String name) {
+		StorageLocation loc = new StorageLocation(name, this.storage);
+		this.addStorageLocation(loc);
+		return loc;
+	}
+
 	/**
 	 * Adds a list of storage locations to stock
 	 * 
@@ -81,12 +208,19 @@ public class Stock {
 		LinkedList<StorageLocation> noInternalDuplicates = this
 				.removeInternalDuplications(locs);
 		LinkedList<StorageLocation> nonExternalDuplicates = this
-				.removeExternalDuplications(noInternalDuplicates,
-						this.storageLocations);
+				.removeExternalDuplications(noInternalDuplicates);
 
 		this.checkStorageCount(nonExternalDuplicates.size());
 
-		this.storageLocations.addAll(nonExternalDuplicates);
+		boolean outermost = this.deferChanges();
+		try {
+			for (StorageLocation loc : nonExternalDuplicates) {
+				this.storageLocations.add(loc);
+				this.indexLocation(loc);
+			}
+		} finally {
+			this.publishDeferred(outermost);
+		}
 
 	}
 
@@ -100,13 +234,83 @@ public class Stock {
 	public LinkedList<StorageLocation> getStorageLocationsByName(
 			String storageName) {
 
-		LinkedList<StorageLocation> toReturn = new LinkedList<StorageLocation>();
+		return this.storageLocations.getByName(storageName);
+	}
 
-		for (StorageLocation loc : this.storageLocations)
-			if (loc.getName().equalsIgnoreCase(storageName))
-				toReturn.add(loc);
+	/**
+	 * Returns a lazy stream of the storage locations with a name, ignoring
+	 * case. The locations are looked up when the stream is consumed.
+	 * 
+	 * @param storageName
+	 *            - name of storage location
+	 * @return stream of all storage locations with name
+	 */
+	public Stream<StorageLocation> streamStorageLocationsByName(
+			final String storageName) {
+		return StreamSupport.stream(
+				new Supplier<Spliterator<StorageLocation>>() {
+					public Spliterator<StorageLocation> get() {
+						return Stock.this.storageLocations.getByName(
+								storageName).spliterator();
+					}
+				}, Spliterator.ORDERED | Spliterator.NONNULL, false);
+	}
 
-		return toReturn;
+	/**
+	 * Finds a location with room for one more article of a width, using the
+	 * free capacity of the latest published version
+	 * 
+	 * @param width
+	 *            - width of the article
+	 * @param slotting
+	 *            - how to choose among the locations with room
+	 * @return location, null if no location has room
+	 */
+	public StorageLocation findStorageLocation(double width, Slotting slotting) {
+		if (null == slotting)
+			throw new IllegalArgumentException();
+
+		this.publishChanged();
+
+		if (Slotting.FIRST_FIT == slotting)
+			return this.freeCapacity.firstFit(width);
+
+		return this.freeCapacity.bestFit(width);
+	}
+
+	/**
+	 * Puts an article away at a location chosen by findStorageLocation. If
+	 * the location fills up concurrently, another location is chosen.
+	 * 
+	 * @param article
+	 *            - article to put away
+	 * @param slotting
+	 *            - how to choose among the locations with room
+	 * @return location the article was inserted into, null if no location
+	 *         has room
+	 */
+	public StorageLocation putaway(Article article, Slotting slotting) {
+		if (null == article)
+			throw new IllegalArgumentException();
+
+		for (int i = 0; i < Stock.PUTAWAY_ATTEMPTS; i++) {
+			StorageLocation loc = this.findStorageLocation(article.getWidth(),
+					slotting);
+
+			if (null == loc)
+				return null;
+
+			try {
+				loc.insert(article);
+				return loc;
+			} catch (TooManyArticlesException e) {
+				// filled up since the index was updated, try again
+			} catch (InvalidWidthException e) {
+				// filled up since the index was updated, try again
+			}
+		}
+
+		return null;
 	}
 
 	/**
@@ -138,17 +342,99 @@ public class Stock {
 		if (null == s1 || null == s2)
 			throw new IllegalArgumentException();
 
-		LinkedList<Article> allArticles = new LinkedList<Article>();
-		allArticles.addAll(s1.getArticles());
-		allArticles.addAll(artNr == null ? s2.getArticles() : s2
-				.getArticles(artNr));
+		InventoryMetrics m = this.metrics;
+		InventoryEvents.Move event = new InventoryEvents.Move();
+		event.begin();
+		long start = m.isEnabled() ? System.nanoTime() : 0;
+		int moved;
+
+		try {
+			moved = this.moveLocked(s1, s2, artNr);
+		} catch (RuntimeException e) {
+			m.rejected(Operation.MOVE_ALL_ARTICLES, e);
+			throw e;
+		}
+
+		// Articles the destination gained, counted by the move itself so
+		// that concurrent inserts are not counted
+		int articles = Math.max(moved, 0);
+
+		if (m.isEnabled())
+			m.completed(Operation.MOVE_ALL_ARTICLES, System.nanoTime() - start,
+					articles);
+
+		event.end();
+
+		if (event.shouldCommit()) {
+			event.set(s2, artNr, articles);
+			event.destination = s1.getName();
+			event.commit();
+		}
+
+		return moved >= 0;
+	}
+
+	/**
+	 * Moves all with article id from one storage location to another, under
+	 * the locks of both
+	 * 
+	 * @param s1
+	 *            - to location
+	 * @param s2
+	 *            - from location
+	 * @param artNr
+	 *            - article number, null to move all articles
+	 * @return number of articles moved, -1 if the articles do not fit
+	 */
+	private int moveLocked(StorageLocation s1, StorageLocation s2,
+			String artNr) {
+		this.locks.lock(s1, s2);
+		boolean outermost = this.deferChanges();
+		try {
+			if (s2 instanceof ConcurrentStorageLocation)
+				return ((ConcurrentStorageLocation) s2).moveTo(s1, artNr);
 
-		if (this.checkCount(allArticles) && this.checkWidth(allArticles)) {
-			s1.insertMany(artNr == null ? s2.pickAll() : s2.pickAll(artNr));
-			return true;
+			if (s1 instanceof ConcurrentStorageLocation)
+				return ((ConcurrentStorageLocation) s1).moveFrom(s2, artNr);
+
+			return this.moveVerified(s1, s2, artNr);
+		} finally {
+			this.publishDeferred(outermost);
+			this.locks.unlock(s1, s2);
 		}
+	}
+
+	/**
+	 * Moves articles between plain locations after checking that they fit at
+	 * the destination
+	 * 
+	 * @param s1
+	 *            - to location
+	 * @param s2
+	 *            - from location
+	 * @param artNr
+	 *            - article number, null to move all articles
+	 * @return number of articles moved, -1 if the articles do not fit
+	 */
+	private int moveVerified(StorageLocation s1, StorageLocation s2,
+			String artNr) {
+		int count = artNr == null ? s2.getArticleCount() : s2
+				.getArticleCount(artNr);
 
-		return false;
+		if (!this.checkCount(s1.getArticleCount() + count))
+			return -1;
+
+		double width = artNr == null ? s2.getTotalWidth() : s2
+				.getTotalWidth(artNr);
+
+		if (!this.checkWidth(s1.getTotalWidth() + width))
+			return -1;
+
+		LinkedList<Article> picked = artNr == null ? s2.pickAll() : s2
+				.pickAll(artNr);
+		s1.insertVerified(picked, width);
+
+		return picked.size();
 	}
 
 	/**
@@ -162,16 +448,87 @@ public class Stock {
 		if (null == id)
 			throw new IllegalArgumentException();
 
+		InventoryMetrics m = this.metrics;
+		long start = m.isEnabled() ? System.nanoTime() : 0;
 		LinkedList<Article> foundArticles = new LinkedList<Article>();
 
-		for (StorageLocation s : this.storageLocations)
-			foundArticles.addAll(s.getArticles(id));
+		try {
+			for (StorageLocation s : this.getHolders(id))
+				foundArticles.addAll(s.getArticles(id));
+		} catch (RuntimeException e) {
+			m.rejected(Operation.FIND_ARTICLES, e);
+			throw e;
+		}
+
+		if (m.isEnabled())
+			m.completed(Operation.FIND_ARTICLES, System.nanoTime() - start,
+					foundArticles.size());
 
 		return foundArticles;
 	}
 
 	/**
-	 * Merge storage locations
+	 * Returns the locations holding articles with given id
+	 * 
+	 * @param id
+	 *            - article id
+	 * @return locations holding the id, in index order
+	 */
+	private LinkedList<StorageLocation> getHolders(String id) {
+		ArticleKey key = ArticleKey.find(id);
+		final LinkedList<StorageLocation> holders = new LinkedList<StorageLocation>();
+
+		if (null == key)
+			return holders;
+
+		// The holders of a key are only read and written while computing its
+		// entry, which locks that entry alone
+		this.articleIndex.computeIfPresent(key,
+				new BiFunction<ArticleKey, Map<StorageLocation, Integer>, Map<StorageLocation, Integer>>() {
+					@Override
+					public Map<StorageLocation, Integer> apply(ArticleKey k,
+							Map<StorageLocation, Integer> indexed) {
+						holders.addAll(indexed.keySet());
+						return indexed;
+					}
+				});
+
+		return holders;
+	}
+
+	/**
+	 * Returns a lazy stream of the articles with given id. The locations
+	 * holding the id are looked up when the stream is consumed and each
+	 * location is only searched once the stream reaches it, so
+	 * short-circuiting operations skip the remaining locations.
+	 * 
+	 * @param id
+	 *            - article id
+	 * @return stream of found articles
+	 */
+	public Stream<Article> streamArticles(final String id) {
+		if (null == id)
+			throw new IllegalArgumentException();
+
+		Stream<StorageLocation> holders = StreamSupport.stream(
+				new Supplier<Spliterator<StorageLocation>>() {
+					public Spliterator<StorageLocation> get() {
+						return Stock.this.getHolders(id).spliterator();
+					}
+				}, Spliterator.ORDERED | Spliterator.NONNULL, false);
+
+		return holders.flatMap(new Function<StorageLocation, Stream<Article>>() {
+			public Stream<Article> apply(StorageLocation s) {
+				return s.getArticles(id).stream();
+			}
+		});
+	}
+
+	/**
+	 * Merge storage locations. A merge from a location of this stock into a
+	 * location that is no longer part of it, e.g. because a concurrent merge
+	 * has already merged it away, is skipped, so articles never leave the
+	 * stock through a merge.
 	 * 
 	 * @param s1
 	 *            - to location
@@ -182,16 +539,79 @@ public class Stock {
 		if (null == s1 || null == s2)
 			throw new IllegalArgumentException();
 
-		if (this.moveAllArticles(s1, s2))
-			this.storageLocations.remove(s2);
+		InventoryEvents.Merge event = new InventoryEvents.Merge();
+		event.begin();
+
+		this.locks.lock(s1, s2);
+		int articles = event.isEnabled() ? s2.getArticleCount() : 0;
+		boolean outermost = this.deferChanges();
+		try {
+			// Checked under the locks of both, so opposite merges of the same
+			// pair cannot both move their articles
+			if (this.storageLocations.contains(s2)
+					&& !this.storageLocations.contains(s1))
+				return;
+
+			if (this.moveAllArticles(s1, s2)
+					&& this.storageLocations.remove(s2))
+				this.unindexLocation(s2);
+		} finally {
+			this.publishDeferred(outermost);
+			this.locks.unlock(s1, s2);
+		}
+
+		event.end();
 
+		if (event.shouldCommit()) {
+			event.set(s2, null, articles);
+			event.destination = s1.getName();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Plans how to empty as many storage locations as possible by merging
+	 * them into others, using the latest published version. Each location's
+	 * contents are packed as a whole, largest first (first-fit or best-fit
+	 * decreasing).
+	 * 
+	 * @param slotting
+	 *            - how to choose among the locations the contents fit into
+	 * @return plan to carry out with ConsolidationPlan.apply
+	 */
+	public ConsolidationPlan planConsolidation(Slotting slotting) {
+		if (null == slotting)
+			throw new IllegalArgumentException();
+
+		return new ConsolidationPlan(this, new ConsolidationPlanner(slotting)
+				.plan(this.getSnapshot()));
 	}
 
 	/**
 	 * Remove all storage locations
 	 */
 	public void removeAllStorageLocations() {
+		InventoryEvents.Remove event = new InventoryEvents.Remove();
+		event.begin();
+		LinkedList<StorageLocation> removed = this.storageLocations.toList();
+		StockLog log = this.log;
+
+		for (StorageLocation loc : removed) {
+			if (loc.getStock() == this)
+				loc.setStock(null);
+
+			if (null != log)
+				log.removed(loc);
+		}
+
 		this.storageLocations.clear();
+
+		this.articleIndex.clear();
+
+		this.publish(removed, false);
+		this.sync();
+
+		Stock.commit(event, null, removed);
 	}
 
 	/**
@@ -202,24 +622,505 @@ public class Stock {
 		if (null == name)
 			throw new IllegalArgumentException();
 
-		this.storageLocations.removeAll(this
-				.getStorageLocationsByName(name));
+		InventoryEvents.Remove event = new InventoryEvents.Remove();
+		event.begin();
+		LinkedList<StorageLocation> toRemove = this.storageLocations
+				.removeByName(name);
 
+		boolean outermost = this.deferChanges();
+		try {
+			for (StorageLocation loc : toRemove)
+				this.unindexLocation(loc);
+		} finally {
+			this.publishDeferred(outermost);
+		}
+
+		Stock.commit(event, name, toRemove);
 	}
 
 	/**
-	 * Verifies the total width
+	 * Records a removal of storage locations if it was slow enough
+	 * 
+	 * @param event
+	 *            - begun event
+	 * @param name
+	 *            - name of the removed locations, null for all
+	 * @param removed
+	 *            - removed locations
+	 */
+	private static void commit(InventoryEvents.Remove event, String name,
+			List<StorageLocation> removed) {
+		event.end();
+
+		if (!event.shouldCommit())
+			return;
+
+		int articles = 0;
+
+		for (StorageLocation loc : removed)
+			articles += loc.getArticleCount();
+
+		event.set(null, null, articles);
+		event.location = name;
+		event.locations = removed.size();
+		event.commit();
+	}
+
+	/**
+	 * Removes one storage location
+	 * 
+	 * @param loc
+	 *            - location to remove
+	 */
+	void removeStorageLocation(StorageLocation loc) {
+		if (this.storageLocations.remove(loc))
+			this.unindexLocation(loc);
+	}
+
+	/**
+	 * Sets the log recording the changes of the stock
+	 * 
+	 * @param log
+	 *            - log, null to stop logging
+	 */
+	void setLog(StockLog log) {
+		this.log = log;
+	}
+
+	/**
+	 * Sets the temperature read back from a stock file without range checks
+	 * 
+	 * @param d
+	 *            - temperature
+	 */
+	void restoreTemperature(double d) {
+		this.temperature = d;
+	}
+
+	/**
+	 * Returns how locations created by the stock keep their articles
 	 * 
+	 * @return article storage
+	 */
+	ArticleStorage getStorage() {
+		return this.storage;
+	}
+
+	/**
+	 * Registers articles inserted into one of the stock's locations
+	 * 
+	 * @param loc
+	 *            - location the articles were inserted into
 	 * @param articles
-	 *            - articles to verify
-	 * @return true if width is within storage boundaries, false otherwise
+	 *            - inserted articles
 	 */
-	private boolean checkWidth(LinkedList<Article> articles) {
-		double totWidth = 0;
+	void articlesAdded(StorageLocation loc, List<Article> articles) {
+		this.indexArticles(loc, articles, 1);
+
+		StockLog log = this.log;
 
-		for (Article art : articles)
-			totWidth += art.getWidth();
+		if (null != log)
+			log.inserted(loc, articles);
 
+		this.changed(loc);
+	}
+
+	/**
+	 * Unregisters articles picked from one of the stock's locations
+	 * 
+	 * @param loc
+	 *            - location the articles were picked from
+	 * @param articles
+	 *            - picked articles
+	 */
+	void articlesRemoved(StorageLocation loc, List<Article> articles) {
+		this.indexArticles(loc, articles, -1);
+
+		StockLog log = this.log;
+
+		if (null != log)
+			log.picked(loc, articles);
+
+		this.changed(loc);
+	}
+
+	/**
+	 * Moves a renamed article to the index entry of its new article number
+	 * 
+	 * @param loc
+	 *            - location holding the article
+	 * @param article
+	 *            - renamed article
+	 * @param oldArtNr
+	 *            - article number before renaming
+	 */
+	void articleRenamed(StorageLocation loc, Article article, String oldArtNr) {
+		this.indexArticle(loc, ArticleKey.of(oldArtNr), -1);
+		this.indexArticle(loc, article.getKey(), 1);
+
+		StockLog log = this.log;
+
+		if (null != log)
+			log.renamed(loc, article, oldArtNr);
+
+		this.changed(loc);
+	}
+
+	/**
+	 * Publishes the new width of an article at one of the stock's locations
+	 * 
+	 * @param loc
+	 *            - location holding the article
+	 * @param article
+	 *            - resized article
+	 * @param oldWidth
+	 *            - width before the change
+	 */
+	void articleResized(StorageLocation loc, Article article, double oldWidth) {
+		StockLog log = this.log;
+
+		if (null != log)
+			log.resized(loc, article, oldWidth);
+
+		this.changed(loc);
+	}
+
+	/**
+	 * Adds all articles of a location to the article index
+	 * 
+	 * @param loc
+	 *            - added location
+	 */
+	private void indexLocation(StorageLocation loc) {
+		loc.setStock(this);
+
+		if (this.metrics.isEnabled())
+			loc.setMetrics(this.metrics);
+
+		this.indexCounts(loc, loc.getArticleCounts(), 1);
+
+		StockLog log = this.log;
+
+		if (null != log)
+			log.added(loc);
+
+		// Added locations are published right away, so the free capacity index
+		// keeps them in the order they were added
+		if (!this.deferred(loc)) {
+			this.publish(Collections.singletonList(loc), false);
+			this.sync();
+		}
+	}
+
+	/**
+	 * Removes all articles of a location from the article index
+	 * 
+	 * @param loc
+	 *            - removed location
+	 */
+	private void unindexLocation(StorageLocation loc) {
+		if (loc.getStock() == this)
+			loc.setStock(null);
+
+		this.indexCounts(loc, loc.getArticleCounts(), -1);
+
+		StockLog log = this.log;
+
+		if (null != log)
+			log.removed(loc);
+
+		this.changed(loc);
+	}
+
+	/**
+	 * Updates the article index for the article counts of a location
+	 * 
+	 * @param loc
+	 *            - location
+	 * @param counts
+	 *            - number of articles per lower cased article number
+	 * @param sign
+	 *            - 1 if added, -1 if removed
+	 */
+	private void indexCounts(StorageLocation loc, Map<String, Integer> counts,
+			int sign) {
+		for (Map.Entry<String, Integer> e : counts.entrySet())
+			this.indexArticle(loc, ArticleKey.of(e.getKey()), sign * e.getValue());
+	}
+
+	/**
+	 * Updates the article index for a number of articles
+	 * 
+	 * @param loc
+	 *            - location holding the articles
+	 * @param articles
+	 *            - articles
+	 * @param delta
+	 *            - change per article, 1 if added, -1 if removed
+	 */
+	private void indexArticles(StorageLocation loc, List<Article> articles,
+			int delta) {
+		if (articles.isEmpty())
+			return;
+
+		for (Article a : articles)
+			this.indexArticle(loc, a.getKey(), delta);
+	}
+
+	/**
+	 * Marks a changed location for the next snapshot, or records the location
+	 * if changes are being deferred. Changes of one location are published
+	 * lazily, so inserts and picks neither lock nor copy anything here.
+	 * 
+	 * @param loc
+	 *            - changed location
+	 */
+	private void changed(StorageLocation loc) {
+		if (this.deferred(loc))
+			return;
+
+		// Reading first keeps a hot location from writing to the set
+		if (!this.unpublished.contains(loc))
+			this.unpublished.add(loc);
+
+		this.sync();
+	}
+
+	/**
+	 * Records a changed location if changes of the current thread are being
+	 * deferred
+	 * 
+	 * @param loc
+	 *            - changed location
+	 * @return true if recorded, false if not deferring
+	 */
+	private boolean deferred(StorageLocation loc) {
+		Set<StorageLocation> deferred = this.pending.get();
+
+		if (null == deferred)
+			return false;
+
+		deferred.add(loc);
+		return true;
+	}
+
+	/**
+	 * Publishes the locations changed outside of deferred operations in one
+	 * version. Each location is captured under its move lock, so a version
+	 * never holds one side of a move that has not been published yet.
+	 */
+	private void publishChanged() {
+		if (this.unpublished.isEmpty())
+			return;
+
+		List<StorageLocation> changed = new LinkedList<StorageLocation>();
+
+		// Removed before capturing, so a change made meanwhile marks the
+		// location again
+		for (StorageLocation loc : this.unpublished)
+			if (this.unpublished.remove(loc))
+				changed.add(loc);
+
+		if (!changed.isEmpty())
+			this.publish(changed, true);
+	}
+
+	/**
+	 * Starts deferring published changes of the current thread, so that an
+	 * operation on several locations becomes visible as one version
+	 * 
+	 * @return true if this call started deferring, false if already deferring
+	 */
+	boolean deferChanges() {
+		if (null != this.pending.get())
+			return false;
+
+		this.pending.set(new LinkedHashSet<StorageLocation>());
+		return true;
+	}
+
+	/**
+	 * Publishes the changes deferred by deferChanges in one version
+	 * 
+	 * @param outermost
+	 *            - result of deferChanges, nothing is published if false
+	 */
+	void publishDeferred(boolean outermost) {
+		if (!outermost)
+			return;
+
+		Set<StorageLocation> deferred = this.pending.get();
+		this.pending.remove();
+
+		if (!deferred.isEmpty())
+			this.publish(new LinkedList<StorageLocation>(deferred), false);
+
+		this.sync();
+	}
+
+	/**
+	 * Makes the logged changes of the stock durable as the commit policy of
+	 * its log demands, if the stock is logged
+	 */
+	private void sync() {
+		StockLog log = this.log;
+
+		if (null != log)
+			log.logged();
+	}
+
+	/**
+	 * Publishes a new snapshot with the current state of changed locations
+	 * and updates their free capacity. Locations no longer in the stock are
+	 * dropped from both. Versions are swapped in with compare-and-set, so
+	 * concurrent publishes of different locations do not wait for each other.
+	 * 
+	 * @param locs
+	 *            - changed locations
+	 * @param lock
+	 *            - true to capture each location under its move lock
+	 */
+	private void publish(List<StorageLocation> locs, boolean lock) {
+		long[] positions = new long[locs.size()];
+		boolean[] removed = new boolean[locs.size()];
+		StockSnapshot current;
+		StockSnapshot next;
+
+		do {
+			current = this.snapshot.get();
+			PersistentTrie<LocationSnapshot> locations = current
+					.getLocations();
+			int i = 0;
+
+			// Locations are captured after reading the current version, so a
+			// version that gets swapped in never holds older state than the
+			// version it replaces
+			for (StorageLocation loc : locs) {
+				removed[i] = !this.storageLocations.contains(loc);
+				positions[i] = this.storageLocations.positionOf(loc);
+
+				if (removed[i])
+					locations = locations.without(positions[i]);
+				else
+					locations = locations.with(positions[i],
+							this.capture(loc, lock));
+
+				i++;
+			}
+
+			next = current.next(locations);
+		} while (!this.snapshot.compareAndSet(current, next));
+
+		int i = 0;
+
+		for (StorageLocation loc : locs) {
+			this.updateFreeCapacity(loc, positions[i]);
+
+			if (removed[i])
+				this.storageLocations.drop(loc);
+
+			i++;
+		}
+	}
+
+	/**
+	 * Captures the current state of a location
+	 * 
+	 * @param loc
+	 *            - location
+	 * @param lock
+	 *            - true to wait for moves of the location to be published
+	 * @return snapshot of the location
+	 */
+	private LocationSnapshot capture(StorageLocation loc, boolean lock) {
+		if (!lock)
+			return LocationSnapshot.of(loc);
+
+		this.locks.lock(loc);
+		try {
+			return LocationSnapshot.of(loc);
+		} finally {
+			this.locks.unlock(loc);
+		}
+	}
+
+	/**
+	 * Updates the free capacity of a location from the latest version, so
+	 * that concurrent publishes leave the latest state in the index whatever
+	 * order they finish in. Publishes of one location take turns on its
+	 * stripe; other locations are updated concurrently.
+	 * 
+	 * @param loc
+	 *            - published location
+	 * @param position
+	 *            - position of the location
+	 */
+	private void updateFreeCapacity(StorageLocation loc, long position) {
+		int h = System.identityHashCode(loc);
+		ReentrantLock stripe = this.capacityStripes[(h ^ (h >>> 16))
+				& (this.capacityStripes.length - 1)];
+
+		stripe.lock();
+		try {
+			LocationSnapshot latest = position < 0 ? null : this.snapshot
+					.get().get(position);
+
+			if (null == latest)
+				this.freeCapacity.remove(loc);
+			else
+				this.freeCapacity.update(loc, latest.getTotalWidth(),
+						latest.getArticleCount());
+		} finally {
+			stripe.unlock();
+		}
+	}
+
+	/**
+	 * Updates the number of articles a location holds for an article number,
+	 * locking the index entry of that number only
+	 * 
+	 * @param loc
+	 *            - location
+	 * @param key
+	 *            - article number key
+	 * @param delta
+	 *            - change in number of articles
+	 */
+	private void indexArticle(final StorageLocation loc, ArticleKey key,
+			final int delta) {
+		this.articleIndex.compute(key,
+				new BiFunction<ArticleKey, Map<StorageLocation, Integer>, Map<StorageLocation, Integer>>() {
+					@Override
+					public Map<StorageLocation, Integer> apply(ArticleKey k,
+							Map<StorageLocation, Integer> holders) {
+						if (null == holders) {
+							if (delta <= 0)
+								return null;
+
+							holders = new LinkedHashMap<StorageLocation, Integer>();
+						}
+
+						Integer current = holders.get(loc);
+						int count = (null == current ? 0 : current) + delta;
+
+						if (count > 0)
+							holders.put(loc, count);
+						else
+							holders.remove(loc);
+
+						return holders.isEmpty() ? null : holders;
+					}
+				});
+	}
+
+	/**
+	 * Verifies the total width
+	 * 
+	 * @param totWidth
+	 *            - total width to verify
+	 * @return true if width is within storage boundaries, false otherwise
+	 */
+	private boolean checkWidth(double totWidth) {
 		if (totWidth > StorageLocation.MAX_WIDTH)
 			return false;
 
@@ -229,35 +1130,33 @@ public class Stock {
 	/**
 	 * Verifies the total number of articles
 	 * 
-	 * @param articles
-	 *            - articles
+	 * @param count
+	 *            - number of articles
 	 * @return true if number of articles less than max for storage location,
 	 *         false otherwise
 	 */
-	private boolean checkCount(LinkedList<Article> articles) {
-		if (articles.size() > StorageLocation.MAX_ARTICLES)
+	private boolean checkCount(int count) {
+		if (count > StorageLocation.MAX_ARTICLES)
 			return false;
 
 		return true;
 	}
 
 	/**
-	 * Removes external duplications, i.e. duplicated storage locations to be
-	 * inserted
+	 * Removes external duplications, i.e. storage locations to be inserted
+	 * that already exist at stock
 	 * 
 	 * @param newLocations
 	 *            - locations to insert
-	 * @param existingLocations
-	 *            - existing locations at stock
 	 * @return List without duplications
 	 */
 	private LinkedList<StorageLocation> removeExternalDuplications(
-			List<StorageLocation> newLocations,
-			List<StorageLocation> existingLocations) {
-		LinkedList<StorageLocation> toReturn = new LinkedList<StorageLocation>(
-				newLocations);
+			List<StorageLocation> newLocations) {
+		LinkedList<StorageLocation> toReturn = new LinkedList<StorageLocation>();
 
-		toReturn.removeAll(existingLocations);
+		for (StorageLocation loc : newLocations)
+			if (!this.storageLocations.contains(loc))
+				toReturn.add(loc);
 
 		return toReturn;
 	}
@@ -273,23 +1172,6 @@ public class Stock {
 			throw new TooManyStorageLocationsException();
 	}
 
-	/**
-	 * Returns true if duplication exists, false otherwise
-	 * 
-	 * @param loc
-	 *            - location
-	 * @return true if duplication exists, false otherwise
-	 */
-	private boolean duplicationExists(StorageLocation loc) {
-		boolean exists = false;
-
-		for (StorageLocation s : this.storageLocations)
-			if (loc == s)
-				exists = true;
-
-		return exists;
-	}
-
 	/**
 	 * Returns a list with non duplicated storage locations
 	 * 
@@ -0,0 +1,363 @@
+package inventory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary file format for a stock. The file starts with the
+ * temperature, the article storage, the generation of the stock log that
+ * continues the file and a directory of (offset, length) entries, one per
+ * location; each location record holds its article number
+ * dictionary followed by the dictionary indexes and widths of its articles
+ * (see MappedLocation).
+ *
+ * Files are written from a stock snapshot and loaded through memory
+ * mapping: loading only reads the directory and the location headers. The
+ * dictionary of a location is decoded and checked the first time its counts
+ * or articles are read, and its articles are decoded the first time they are
+ * accessed; a corrupt record found then fails with
+ * CorruptStockFileException. The file is mapped in windows of at most WINDOW_SIZE
+ * bytes that the location records are sliced from, so loading maps a few
+ * regions however many locations the file holds.
+ */
+public final class StockFile {
+
+	private static final int MAGIC = 0x53544F43;
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 32;
+	private static final int HEADER_SIZE_V1 = 24;
+	private static final int ENTRY_SIZE = 16;
+
+	static int WINDOW_SIZE = Integer.MAX_VALUE;
+
+	private StockFile() {
+	}
+
+	/**
+	 * Writes the latest snapshot of a stock to a file. The file is written
+	 * next to the target and atomically moved over it, so a stock loaded
+	 * from the target keeps reading the old content and a crash leaves
+	 * either the old or the new file.
+	 *
+	 * @param stock
+	 *            - stock to write
+	 * @param file
+	 *            - file to write to
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void write(Stock stock, File file) throws IOException {
+		StockFile.write(stock, file, 0);
+	}
+
+	/**
+	 * Writes the latest snapshot of a stock to a file
+	 *
+	 * @param stock
+	 *            - stock to write
+	 * @param file
+	 *            - file to write to
+	 * @param generation
+	 *            - generation of the stock log continuing the snapshot
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	static void write(Stock stock, File file, long generation)
+			throws IOException {
+		if (null == stock || null == file)
+			throw new IllegalArgumentException();
+
+		List<LocationSnapshot> locs = stock.getSnapshot()
+				.getStorageLocations();
+		int headerSize = StockFile.HEADER_SIZE + StockFile.ENTRY_SIZE
+				* locs.size();
+		ByteBuffer header = ByteBuffer.allocate(headerSize);
+		header.putInt(StockFile.MAGIC);
+		header.putInt(StockFile.VERSION);
+		header.putDouble((Double) stock.getTemperature());
+		header.putInt(stock.getStorage().ordinal());
+		header.putInt(locs.size());
+		header.putLong(generation);
+
+		File tmp = new File(file.getPath() + ".tmp");
+		RandomAccessFile out = new RandomAccessFile(tmp, "rw");
+		try {
+			FileChannel channel = out.getChannel();
+			channel.truncate(0);
+			long offset = headerSize;
+
+			for (LocationSnapshot loc : locs) {
+				ByteBuffer record = StockFile.encode(loc);
+				long length = record.remaining();
+				header.putLong(offset);
+				header.putLong(length);
+				StockFile.writeFully(channel, record, offset);
+				offset += length;
+			}
+
+			header.flip();
+			StockFile.writeFully(channel, header, 0);
+			channel.force(true);
+		} finally {
+			out.close();
+		}
+
+		try {
+			Files.move(tmp.toPath(), file.toPath(),
+					StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			tmp.delete();
+			throw new IOException("Cannot replace " + file, e);
+		}
+	}
+
+	/**
+	 * Loads a stock from a file written by write. The returned stock is
+	 * independent of the file; the file must not be changed while any of its
+	 * locations have not been accessed yet.
+	 *
+	 * @param file
+	 *            - file to load
+	 * @return loaded stock
+	 * @throws IOException
+	 *             if the file cannot be read or is not a stock file
+	 */
+	public static Stock load(File file) throws IOException {
+		if (null == file)
+			throw new IllegalArgumentException();
+
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+
+			ByteBuffer header = StockFile.mapHeader(channel, file);
+			double temperature = header.getDouble();
+			int storage = header.getInt();
+			int count = header.getInt();
+
+			if (storage < 0 || storage >= ArticleStorage.values().length
+					|| count < 0)
+				throw new IOException("Corrupt stock file: " + file);
+
+			Stock stock = new Stock(ArticleStorage.values()[storage]);
+			stock.restoreTemperature(temperature);
+
+			if (header.limit() + (long) StockFile.ENTRY_SIZE * count > channel
+					.size())
+				throw new IOException("Corrupt stock file: " + file);
+
+			ByteBuffer directory = channel.map(FileChannel.MapMode.READ_ONLY,
+					header.limit(), (long) StockFile.ENTRY_SIZE * count);
+			List<StorageLocation> locs = new ArrayList<StorageLocation>(count);
+			ByteBuffer window = null;
+			long windowStart = 0;
+
+			for (int i = 0; i < count; i++) {
+				long offset = directory.getLong();
+				long length = directory.getLong();
+
+				if (offset < 0 || length < 0 || length > StockFile.WINDOW_SIZE
+						|| offset + length > channel.size())
+					throw new IOException("Corrupt stock file: " + file);
+
+				// Records are written one after the other, so a new window
+				// is only needed once a record ends past the current one
+				if (null == window || offset < windowStart
+						|| offset + length > windowStart + window.capacity()) {
+					windowStart = offset;
+					window = channel.map(FileChannel.MapMode.READ_ONLY,
+							offset, Math.min(StockFile.WINDOW_SIZE,
+									channel.size() - offset));
+				}
+
+				ByteBuffer record = window.duplicate();
+				record.position((int) (offset - windowStart));
+				record.limit((int) (offset - windowStart + length));
+
+				try {
+					locs.add(StockFile.map(record.slice(), stock.getStorage()));
+				} catch (IOException e) {
+					throw new IOException("Corrupt stock file: " + file, e);
+				}
+			}
+
+			stock.addStorageLocations(locs);
+
+			return stock;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns the generation of the stock log continuing a stock file
+	 *
+	 * @param file
+	 *            - stock file
+	 * @return log generation, 0 for files written without one
+	 * @throws IOException
+	 *             if the file cannot be read or is not a stock file
+	 */
+	static long generation(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			ByteBuffer header = StockFile.mapHeader(in.getChannel(), file);
+
+			if (header.limit() == StockFile.HEADER_SIZE_V1)
+				return 0;
+
+			return header.getLong(StockFile.HEADER_SIZE_V1);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Maps and checks the file header
+	 *
+	 * @param channel
+	 *            - file channel
+	 * @param file
+	 *            - file, for error messages
+	 * @return header positioned after magic and version
+	 */
+	private static ByteBuffer mapHeader(FileChannel channel, File file)
+			throws IOException {
+		if (channel.size() < StockFile.HEADER_SIZE_V1)
+			throw new IOException("Not a stock file: " + file);
+
+		ByteBuffer start = channel.map(FileChannel.MapMode.READ_ONLY, 0, 8);
+		int size = StockFile.HEADER_SIZE;
+
+		if (start.getInt() != StockFile.MAGIC)
+			throw new IOException("Not a stock file: " + file);
+
+		switch (start.getInt()) {
+		case 1:
+			size = StockFile.HEADER_SIZE_V1;
+			break;
+		case StockFile.VERSION:
+			break;
+		default:
+			throw new IOException("Not a stock file: " + file);
+		}
+
+		if (channel.size() < size)
+			throw new IOException("Not a stock file: " + file);
+
+		ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+				size);
+		header.position(8);
+
+		return header;
+	}
+
+	/**
+	 * Creates the location of one mapped record
+	 *
+	 * @param buffer
+	 *            - mapped record
+	 * @param storage
+	 *            - how to keep the articles once decoded
+	 * @return location backed by the mapped record
+	 * @throws IOException
+	 *             if the record is corrupt
+	 */
+	private static StorageLocation map(ByteBuffer buffer,
+			ArticleStorage storage) throws IOException {
+		// Locations created from a list of articles have no name, which the
+		// record keeps as length -1
+		MappedLocation record = new MappedLocation(buffer, 0);
+		MappedArticleStore store = new MappedArticleStore(record, storage);
+		StorageLocation loc = new StorageLocation(record.getName(), store,
+				record.getTotalWidth());
+		store.setLocation(loc);
+
+		return loc;
+	}
+
+	/**
+	 * Encodes one location record
+	 *
+	 * @param loc
+	 *            - location snapshot
+	 * @return record, ready to be written
+	 */
+	private static ByteBuffer encode(LocationSnapshot loc) {
+		int size = loc.getArticleCount();
+		Map<String, Integer> indexes = new LinkedHashMap<String, Integer>();
+		List<Integer> counts = new ArrayList<Integer>();
+		int[] ids = new int[size];
+
+		for (int i = 0; i < size; i++) {
+			Integer id = indexes.get(loc.artNrAt(i));
+
+			if (null == id) {
+				id = indexes.size();
+				indexes.put(loc.artNrAt(i), id);
+				counts.add(0);
+			}
+
+			ids[i] = id;
+			counts.set(id, counts.get(id) + 1);
+		}
+
+		byte[] name = null == loc.getName() ? new byte[0] : loc.getName()
+				.getBytes(MappedLocation.UTF_8);
+		List<byte[]> dictionary = new ArrayList<byte[]>();
+		int length = 4 + name.length + 16 + 12 * size;
+
+		for (String artNr : indexes.keySet()) {
+			byte[] bytes = artNr.getBytes(MappedLocation.UTF_8);
+			dictionary.add(bytes);
+			length += 8 + bytes.length;
+		}
+
+		ByteBuffer record = ByteBuffer.allocate(length);
+		record.putInt(null == loc.getName() ? -1 : name.length).put(name);
+		record.putInt(size).putDouble(loc.getTotalWidth());
+		record.putInt(dictionary.size());
+
+		for (int i = 0; i < dictionary.size(); i++)
+			record.putInt(dictionary.get(i).length).put(dictionary.get(i))
+					.putInt(counts.get(i));
+
+		for (int id : ids)
+			record.putInt(id);
+
+		for (int i = 0; i < size; i++)
+			record.putDouble(loc.widthAt(i));
+
+		record.flip();
+
+		return record;
+	}
+
+	/**
+	 * Writes a whole buffer at a file position
+	 *
+	 * @param channel
+	 *            - file channel
+	 * @param buffer
+	 *            - buffer to write
+	 * @param position
+	 *            - file position
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer,
+			long position) throws IOException {
+		long pos = position;
+
+		while (buffer.hasRemaining())
+			pos += channel.write(buffer, pos);
+	}
+}
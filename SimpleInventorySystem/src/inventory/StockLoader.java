@@ -0,0 +1,239 @@
+package inventory;
+
+import inventory.exceptions.InvalidWidthException;
+import inventory.exceptions.TooManyArticlesException;
+import inventory.exceptions.TooManyStorageLocationsException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Bulk loader filling a stock from (location, article number, width) rows.
+ * Rows are grouped by location name as they are added. On load, each group
+ * is checked against the location limits once and stored in a new location
+ * with a single insert, groups being built in parallel. The locations are
+ * added to the stock only if every group is valid, and are published as one
+ * version.
+ */
+public class StockLoader {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private Stock stock;
+	private Map<String, Rows> groups;
+
+	/**
+	 * Constructor
+	 *
+	 * @param stock
+	 *            - stock to load into
+	 */
+	public StockLoader(Stock stock) {
+		if (null == stock)
+			throw new IllegalArgumentException();
+
+		this.stock = stock;
+		this.groups = new LinkedHashMap<String, Rows>();
+	}
+
+	/**
+	 * Adds a row
+	 *
+	 * @param location
+	 *            - name of storage location
+	 * @param artNr
+	 *            - article number
+	 * @param width
+	 *            - article width
+	 */
+	public void add(String location, String artNr, double width) {
+		if (null == location || null == artNr)
+			throw new IllegalArgumentException();
+
+		Rows rows = this.groups.get(location);
+
+		if (null == rows) {
+			rows = new Rows();
+			this.groups.put(location, rows);
+		}
+
+		rows.add(artNr, width);
+	}
+
+	/**
+	 * Returns the number of rows added since the last load
+	 *
+	 * @return number of rows
+	 */
+	public int size() {
+		int size = 0;
+
+		for (Rows rows : this.groups.values())
+			size += rows.size;
+
+		return size;
+	}
+
+	/**
+	 * Loads all rows using one thread per available processor
+	 *
+	 * @return created storage locations, in order of first appearance
+	 */
+	public List<StorageLocation> load() {
+		return this.load(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Loads all rows, creating one storage location per location name
+	 *
+	 * @param threads
+	 *            - number of threads building locations
+	 * @return created storage locations, in order of first appearance
+	 */
+	public List<StorageLocation> load(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException();
+
+		int locations = this.stock.getStorageLocationCount()
+				+ this.groups.size();
+
+		if (locations > Stock.MAX_STORAGE_LOCATIONS)
+			throw new TooManyStorageLocationsException();
+
+		List<StorageLocation> locs = this.build(threads);
+
+		boolean outermost = this.stock.deferChanges();
+		try {
+			this.stock.addStorageLocations(locs);
+		} finally {
+			this.stock.publishDeferred(outermost);
+		}
+
+		this.groups.clear();
+
+		return locs;
+	}
+
+	/**
+	 * Builds the locations of all groups
+	 *
+	 * @param threads
+	 *            - number of threads
+	 * @return built locations, in order of first appearance
+	 */
+	private List<StorageLocation> build(int threads) {
+		if (1 == threads || this.groups.size() < 2) {
+			List<StorageLocation> locs = new ArrayList<StorageLocation>();
+
+			for (Map.Entry<String, Rows> e : this.groups.entrySet())
+				locs.add(this.build(e.getKey(), e.getValue()));
+
+			return locs;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads,
+				this.groups.size()));
+		try {
+			List<Future<StorageLocation>> pending = new ArrayList<Future<StorageLocation>>();
+
+			for (final Map.Entry<String, Rows> e : this.groups.entrySet())
+				pending.add(pool.submit(new Callable<StorageLocation>() {
+					public StorageLocation call() {
+						return StockLoader.this.build(e.getKey(), e.getValue());
+					}
+				}));
+
+			List<StorageLocation> locs = new ArrayList<StorageLocation>();
+
+			for (Future<StorageLocation> f : pending)
+				locs.add(StockLoader.await(f));
+
+			return locs;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Checks a group against the location limits and builds its location
+	 *
+	 * @param name
+	 *            - name of storage location
+	 * @param rows
+	 *            - rows of the location
+	 * @return built location
+	 */
+	private StorageLocation build(String name, Rows rows) {
+		if (rows.size > StorageLocation.MAX_ARTICLES)
+			throw new TooManyArticlesException();
+
+		double width = 0;
+
+		for (int i = 0; i < rows.size; i++)
+			width += rows.widths[i];
+
+		if (width > StorageLocation.MAX_WIDTH)
+			throw new InvalidWidthException();
+
+		List<Article> articles = new ArrayList<Article>(rows.size);
+
+		for (int i = 0; i < rows.size; i++)
+			articles.add(new Article(rows.artNrs[i], rows.widths[i]));
+
+		StorageLocation loc = new StorageLocation(name,
+				this.stock.getStorage());
+		loc.insertVerified(articles, width);
+
+		return loc;
+	}
+
+	/**
+	 * Waits for a built location, rethrowing what building it threw
+	 *
+	 * @param f
+	 *            - pending location
+	 * @return built location
+	 */
+	private static StorageLocation await(Future<StorageLocation> f) {
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Growing columns of the rows of one location
+	 */
+	private static class Rows {
+
+		private String[] artNrs = new String[StockLoader.INITIAL_CAPACITY];
+		private double[] widths = new double[StockLoader.INITIAL_CAPACITY];
+		private int size;
+
+		private void add(String artNr, double width) {
+			if (this.size == this.artNrs.length) {
+				this.artNrs = Arrays.copyOf(this.artNrs, this.size * 2);
+				this.widths = Arrays.copyOf(this.widths, this.size * 2);
+			}
+
+			this.artNrs[this.size] = artNr;
+			this.widths[this.size] = width;
+			this.size++;
+		}
+	}
+}
@@ -0,0 +1,805 @@
+package inventory;
+
+import inventory.exceptions.LogWriteException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of the changes of a stock, continuing a stock
+ * file. Changes are appended to an in-memory batch; a thread that needs its
+ * changes to be durable writes and forces the whole batch, so changes of
+ * many threads share one force. Threads arriving during a force wait for
+ * it and then force the next batch together. The commit policy decides
+ * whether a change waits for a force at all.
+ *
+ * Each record is framed by its length and a CRC32, so a record torn by a
+ * crash ends the log. Locations are identified by numbers assigned in stock
+ * order at the last checkpoint and in order of addition after it. Renamed
+ * and resized articles are logged by article number and width, and replay
+ * changes a stored article with that number and width; a log that names no
+ * such article is corrupt.
+ *
+ * Checkpoints must not run concurrently with changes to the stock.
+ */
+public class StockLog {
+
+	private static final int MAGIC = 0x53544C47;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int FRAME_SIZE = 8;
+	private static final int INITIAL_BATCH = 4096;
+
+	private static final byte ADD_LOCATION = 1;
+	private static final byte REMOVE_LOCATION = 2;
+	private static final byte INSERT = 3;
+	private static final byte REMOVE = 4;
+	private static final byte TEMPERATURE = 5;
+	private static final byte RENAME = 6;
+	private static final byte RESIZE = 7;
+
+	public static long BATCH_WINDOW_MILLIS = 10;
+
+	private File snapshot;
+	private File file;
+	private RandomAccessFile out;
+	private FileChannel channel;
+	private long generation;
+	private Stock stock;
+	private Map<StorageLocation, Integer> ids;
+	private int nextId;
+	private ByteBuffer batch;
+	private int recordStart;
+	private IOException failure;
+	private long appended;
+	private long durable;
+	private boolean forcing;
+	private volatile CommitPolicy policy = CommitPolicy.EACH_CHANGE;
+	private volatile long lastForce;
+
+	/**
+	 * Constructor
+	 *
+	 * @param snapshot
+	 *            - stock file written by checkpoints
+	 * @param file
+	 *            - log file
+	 */
+	private StockLog(File snapshot, File file) {
+		this.snapshot = snapshot;
+		this.file = file;
+		this.ids = new IdentityHashMap<StorageLocation, Integer>();
+		this.batch = ByteBuffer.allocate(StockLog.INITIAL_BATCH);
+		this.lastForce = System.nanoTime();
+	}
+
+	/**
+	 * Restores a stock from its last checkpoint and log, then logs all
+	 * further changes of the stock. Missing files are created, a new stock
+	 * keeping articles as linked lists.
+	 *
+	 * @param snapshot
+	 *            - stock file written by checkpoints
+	 * @param file
+	 *            - log file
+	 * @return log of the restored stock
+	 * @throws IOException
+	 *             if a file cannot be read or written
+	 */
+	public static StockLog open(File snapshot, File file) throws IOException {
+		return StockLog.open(snapshot, file, ArticleStorage.LINKED);
+	}
+
+	/**
+	 * Restores a stock from its last checkpoint and log, then logs all
+	 * further changes of the stock. Missing files are created.
+	 *
+	 * @param snapshot
+	 *            - stock file written by checkpoints
+	 * @param file
+	 *            - log file
+	 * @param storage
+	 *            - article storage of a new stock, if there is no snapshot
+	 * @return log of the restored stock
+	 * @throws IOException
+	 *             if a file cannot be read or written
+	 */
+	public static StockLog open(File snapshot, File file,
+			ArticleStorage storage) throws IOException {
+		if (null == snapshot || null == file || null == storage)
+			throw new IllegalArgumentException();
+
+		StockLog log = new StockLog(snapshot, file);
+
+		if (snapshot.exists()) {
+			log.stock = StockFile.load(snapshot);
+			log.generation = StockFile.generation(snapshot);
+		} else
+			log.stock = new Stock(storage);
+
+		log.numberLocations();
+		log.out = new RandomAccessFile(file, "rw");
+		log.channel = log.out.getChannel();
+
+		try {
+			long end = log.replay();
+			log.channel.truncate(end);
+			log.channel.position(end);
+		} catch (IOException e) {
+			log.out.close();
+			throw e;
+		}
+
+		log.stock.setLog(log);
+
+		return log;
+	}
+
+	/**
+	 * Returns the logged stock
+	 *
+	 * @return stock
+	 */
+	public Stock getStock() {
+		return this.stock;
+	}
+
+	/**
+	 * Returns when logged changes are made durable
+	 *
+	 * @return commit policy
+	 */
+	public CommitPolicy getCommitPolicy() {
+		return this.policy;
+	}
+
+	/**
+	 * Sets when logged changes are made durable
+	 *
+	 * @param policy
+	 *            - commit policy
+	 */
+	public void setCommitPolicy(CommitPolicy policy) {
+		if (null == policy)
+			throw new IllegalArgumentException();
+
+		this.policy = policy;
+	}
+
+	/**
+	 * Writes the stock to the snapshot file and starts an empty log
+	 *
+	 * @throws IOException
+	 *             if a file cannot be written
+	 */
+	public synchronized void checkpoint() throws IOException {
+		this.commit();
+
+		long next = this.generation + 1;
+		StockFile.write(this.stock, this.snapshot, next);
+
+		this.generation = next;
+		this.channel.truncate(0);
+		this.writeHeader();
+		this.channel.force(true);
+		this.numberLocations();
+	}
+
+	/**
+	 * Makes all logged changes durable and closes the log. Later changes of
+	 * the stock are no longer logged.
+	 *
+	 * @throws IOException
+	 *             if the log cannot be written
+	 */
+	public void close() throws IOException {
+		this.stock.setLog(null);
+		this.commit();
+		this.out.close();
+	}
+
+	/**
+	 * Logs an added location and the articles it already holds
+	 *
+	 * @param loc
+	 *            - added location
+	 */
+	synchronized void added(StorageLocation loc) {
+		if (this.ids.containsKey(loc))
+			return;
+
+		int id = this.nextId++;
+		this.ids.put(loc, id);
+
+		byte[] name = StockLog.encode(loc.getName());
+		ByteBuffer record = this.begin(5 + StockLog.sizeOf(name));
+		record.put(StockLog.ADD_LOCATION).putInt(id);
+		StockLog.putString(record, name);
+		this.end();
+
+		this.inserted(loc, loc.getArticles());
+	}
+
+	/**
+	 * Logs a removed location
+	 *
+	 * @param loc
+	 *            - removed location
+	 */
+	synchronized void removed(StorageLocation loc) {
+		Integer id = this.ids.remove(loc);
+
+		if (null == id)
+			return;
+
+		this.begin(5).put(StockLog.REMOVE_LOCATION).putInt(id);
+		this.end();
+	}
+
+	/**
+	 * Logs articles inserted into a location
+	 *
+	 * @param loc
+	 *            - location
+	 * @param articles
+	 *            - inserted articles
+	 */
+	synchronized void inserted(StorageLocation loc, List<Article> articles) {
+		Integer id = this.ids.get(loc);
+
+		if (null == id || articles.isEmpty())
+			return;
+
+		List<byte[]> artNrs = new ArrayList<byte[]>(articles.size());
+		int length = 9;
+
+		for (Article a : articles) {
+			byte[] artNr = StockLog.encode(a.getArtNr());
+			artNrs.add(artNr);
+			length += 8 + StockLog.sizeOf(artNr);
+		}
+
+		ByteBuffer record = this.begin(length);
+		record.put(StockLog.INSERT).putInt(id).putInt(articles.size());
+
+		int i = 0;
+		for (Article a : articles) {
+			StockLog.putString(record, artNrs.get(i++));
+			record.putDouble(a.getWidth());
+		}
+
+		this.end();
+	}
+
+	/**
+	 * Logs articles picked from a location
+	 *
+	 * @param loc
+	 *            - location
+	 * @param articles
+	 *            - picked articles
+	 */
+	synchronized void picked(StorageLocation loc, List<Article> articles) {
+		Integer id = this.ids.get(loc);
+
+		if (null == id || articles.isEmpty())
+			return;
+
+		List<byte[]> artNrs = new ArrayList<byte[]>(articles.size());
+		int length = 9;
+
+		for (Article a : articles) {
+			byte[] artNr = StockLog.encode(a.getArtNr());
+			artNrs.add(artNr);
+			length += StockLog.sizeOf(artNr);
+		}
+
+		ByteBuffer record = this.begin(length);
+		record.put(StockLog.REMOVE).putInt(id).putInt(articles.size());
+
+		for (byte[] artNr : artNrs)
+			StockLog.putString(record, artNr);
+
+		this.end();
+	}
+
+	/**
+	 * Logs a renamed article
+	 *
+	 * @param loc
+	 *            - location holding the article
+	 * @param article
+	 *            - renamed article
+	 * @param oldArtNr
+	 *            - article number before renaming
+	 */
+	synchronized void renamed(StorageLocation loc, Article article,
+			String oldArtNr) {
+		Integer id = this.ids.get(loc);
+
+		if (null == id)
+			return;
+
+		byte[] oldName = StockLog.encode(oldArtNr);
+		byte[] newName = StockLog.encode(article.getArtNr());
+		ByteBuffer record = this.begin(13 + StockLog.sizeOf(oldName)
+				+ StockLog.sizeOf(newName));
+		record.put(StockLog.RENAME).putInt(id);
+		StockLog.putString(record, oldName);
+		record.putDouble(article.getWidth());
+		StockLog.putString(record, newName);
+		this.end();
+	}
+
+	/**
+	 * Logs a resized article
+	 *
+	 * @param loc
+	 *            - location holding the article
+	 * @param article
+	 *            - resized article
+	 * @param oldWidth
+	 *            - width before the change
+	 */
+	synchronized void resized(StorageLocation loc, Article article,
+			double oldWidth) {
+		Integer id = this.ids.get(loc);
+
+		if (null == id)
+			return;
+
+		byte[] artNr = StockLog.encode(article.getArtNr());
+		ByteBuffer record = this.begin(21 + StockLog.sizeOf(artNr));
+		record.put(StockLog.RESIZE).putInt(id);
+		StockLog.putString(record, artNr);
+		record.putDouble(oldWidth).putDouble(article.getWidth());
+		this.end();
+	}
+
+	/**
+	 * Logs a new temperature
+	 *
+	 * @param d
+	 *            - temperature
+	 */
+	synchronized void temperatureSet(double d) {
+		this.begin(9).put(StockLog.TEMPERATURE).putDouble(d);
+		this.end();
+	}
+
+	/**
+	 * Makes the changes logged so far durable as the commit policy demands
+	 */
+	void logged() {
+		switch (this.policy) {
+		case EACH_CHANGE:
+			this.commit();
+			break;
+		case BATCHED:
+			long elapsed = System.nanoTime() - this.lastForce;
+
+			if (elapsed >= StockLog.BATCH_WINDOW_MILLIS * 1000000L)
+				this.commit();
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Waits until all changes logged so far are durable, forcing them
+	 * together with the changes of other waiting threads
+	 */
+	public void commit() {
+		long target;
+
+		synchronized (this) {
+			target = this.appended;
+		}
+
+		while (true) {
+			ByteBuffer pending;
+			long upTo;
+
+			synchronized (this) {
+				while (this.forcing && this.durable < target)
+					this.awaitForce();
+
+				if (this.durable >= target)
+					return;
+
+				if (null != this.failure)
+					throw new LogWriteException(this.failure);
+
+				this.forcing = true;
+				upTo = this.appended;
+				pending = this.batch;
+				pending.flip();
+				this.batch = ByteBuffer.allocate(Math.max(
+						StockLog.INITIAL_BATCH, pending.capacity()));
+			}
+
+			boolean written = false;
+			try {
+				while (pending.hasRemaining())
+					this.channel.write(pending);
+
+				this.channel.force(false);
+				written = true;
+			} catch (IOException e) {
+				synchronized (this) {
+					this.failure = e;
+				}
+				throw new LogWriteException(e);
+			} finally {
+				synchronized (this) {
+					this.forcing = false;
+
+					if (written) {
+						this.durable = upTo;
+						this.lastForce = System.nanoTime();
+					}
+
+					this.notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Waits for the running force to finish
+	 */
+	private void awaitForce() {
+		try {
+			this.wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LogWriteException(e);
+		}
+	}
+
+	/**
+	 * Numbers the locations of the stock in stock order
+	 */
+	private void numberLocations() {
+		this.ids.clear();
+		this.nextId = 0;
+
+		for (StorageLocation loc : this.stock.getStorageLocations())
+			this.ids.put(loc, this.nextId++);
+	}
+
+	/**
+	 * Applies the records of the log file to the stock. A log of an older
+	 * generation than the snapshot was already included in it and is
+	 * discarded.
+	 *
+	 * @return end of the last complete record
+	 */
+	private long replay() throws IOException {
+		if (this.channel.size() < StockLog.HEADER_SIZE) {
+			this.writeHeader();
+			return StockLog.HEADER_SIZE;
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(StockLog.HEADER_SIZE);
+		this.readFully(header, 0);
+
+		if (header.getInt() != StockLog.MAGIC
+				|| header.getInt() != StockLog.VERSION)
+			throw new IOException("Not a stock log: " + this.file);
+
+		if (header.getLong() != this.generation) {
+			this.channel.truncate(0);
+			this.writeHeader();
+			return StockLog.HEADER_SIZE;
+		}
+
+		Map<Integer, StorageLocation> locations = new HashMap<Integer, StorageLocation>();
+		for (Map.Entry<StorageLocation, Integer> e : this.ids.entrySet())
+			locations.put(e.getValue(), e.getKey());
+
+		long pos = StockLog.HEADER_SIZE;
+		ByteBuffer frame = ByteBuffer.allocate(StockLog.FRAME_SIZE);
+
+		while (pos + StockLog.FRAME_SIZE <= this.channel.size()) {
+			frame.clear();
+			this.readFully(frame, pos);
+			int length = frame.getInt();
+			int crc = frame.getInt();
+
+			if (length <= 0
+					|| pos + StockLog.FRAME_SIZE + length > this.channel.size())
+				break;
+
+			ByteBuffer record = ByteBuffer.allocate(length);
+			this.readFully(record, pos + StockLog.FRAME_SIZE);
+
+			if (StockLog.crc(record.array(), length) != crc)
+				break;
+
+			this.apply(record, pos, locations);
+			pos += StockLog.FRAME_SIZE + length;
+		}
+
+		this.ids.clear();
+		for (Map.Entry<Integer, StorageLocation> e : locations.entrySet())
+			this.ids.put(e.getValue(), e.getKey());
+
+		return pos;
+	}
+
+	/**
+	 * Applies one record to the stock
+	 *
+	 * @param record
+	 *            - record payload
+	 * @param pos
+	 *            - file position of the record, for errors
+	 * @param locations
+	 *            - locations by number, updated by the record
+	 * @throws IOException
+	 *             if the record is of an unknown type or names an unknown
+	 *             location
+	 */
+	private void apply(ByteBuffer record, long pos,
+			Map<Integer, StorageLocation> locations) throws IOException {
+		byte type = record.get();
+
+		if (StockLog.TEMPERATURE == type) {
+			this.stock.restoreTemperature(record.getDouble());
+			return;
+		}
+
+		int id = record.getInt();
+
+		if (StockLog.ADD_LOCATION != type && !locations.containsKey(id))
+			throw this.corrupt(pos, "unknown location " + id);
+
+		switch (type) {
+		case StockLog.ADD_LOCATION:
+			StorageLocation added = StorageLocation.restore(
+					StockLog.getString(record), this.stock.getStorage());
+			this.stock.addStorageLocation(added);
+			locations.put(id, added);
+			this.nextId = Math.max(this.nextId, id + 1);
+			break;
+		case StockLog.REMOVE_LOCATION:
+			this.stock.removeStorageLocation(locations.remove(id));
+			break;
+		case StockLog.INSERT:
+			int inserted = record.getInt();
+			List<Article> articles = new ArrayList<Article>(inserted);
+			double width = 0;
+
+			for (int i = 0; i < inserted; i++) {
+				articles.add(Article.restore(StockLog.getString(record),
+						record.getDouble()));
+				width += articles.get(i).getWidth();
+			}
+
+			locations.get(id).insertVerified(articles, width);
+			break;
+		case StockLog.REMOVE:
+			int picked = record.getInt();
+			Map<String, Integer> lines = new LinkedHashMap<String, Integer>();
+
+			for (int i = 0; i < picked; i++) {
+				String artNr = StockLog.getString(record);
+				Integer count = lines.get(artNr);
+				lines.put(artNr, null == count ? 1 : count + 1);
+			}
+
+			locations.get(id).pickMany(lines);
+			break;
+		case StockLog.RENAME:
+			String oldArtNr = StockLog.getString(record);
+			Article renamed = this.stored(locations.get(id), oldArtNr,
+					record.getDouble(), pos);
+			renamed.setArtNr(StockLog.getString(record));
+			break;
+		case StockLog.RESIZE:
+			String artNr = StockLog.getString(record);
+			Article resized = this.stored(locations.get(id), artNr,
+					record.getDouble(), pos);
+			resized.setWidth(record.getDouble());
+			break;
+		default:
+			throw this.corrupt(pos, "unknown type " + type);
+		}
+	}
+
+	/**
+	 * Finds a stored article that a replayed rename or resize changes
+	 *
+	 * @param loc
+	 *            - location holding the article
+	 * @param artNr
+	 *            - article number
+	 * @param width
+	 *            - width
+	 * @param pos
+	 *            - file position of the record, for errors
+	 * @return article stored at the location
+	 * @throws IOException
+	 *             if the location holds no such article, so replay diverged
+	 */
+	private Article stored(StorageLocation loc, String artNr, double width,
+			long pos) throws IOException {
+		for (Article a : loc.getArticles(artNr))
+			if (a.getWidth() == width && a.getLocation() == loc)
+				return a;
+
+		throw this.corrupt(pos, "no article " + artNr + " of width " + width);
+	}
+
+	/**
+	 * Creates the error for a record that cannot be applied
+	 *
+	 * @param pos
+	 *            - file position of the record
+	 * @param reason
+	 *            - what is wrong with the record
+	 * @return error
+	 */
+	private IOException corrupt(long pos, String reason) {
+		return new IOException("Corrupt log record at " + pos + " of "
+				+ this.file + ": " + reason);
+	}
+
+	/**
+	 * Starts a record in the batch
+	 *
+	 * @param length
+	 *            - payload length
+	 * @return batch, positioned at the payload
+	 */
+	private ByteBuffer begin(int length) {
+		int needed = StockLog.FRAME_SIZE + length;
+
+		if (this.batch.remaining() < needed) {
+			ByteBuffer grown = ByteBuffer.allocate(Math.max(
+					this.batch.capacity() * 2, this.batch.position() + needed));
+			this.batch.flip();
+			grown.put(this.batch);
+			this.batch = grown;
+		}
+
+		this.batch.putInt(length).putInt(0);
+		this.recordStart = this.batch.position();
+
+		return this.batch;
+	}
+
+	/**
+	 * Ends the record started last, filling in its checksum
+	 */
+	private void end() {
+		CRC32 crc = new CRC32();
+		crc.update(this.batch.array(), this.recordStart,
+				this.batch.position() - this.recordStart);
+		this.batch.putInt(this.recordStart - 4, (int) crc.getValue());
+		this.appended++;
+	}
+
+	/**
+	 * Writes the file header of the current generation at the file start
+	 */
+	private void writeHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(StockLog.HEADER_SIZE);
+		header.putInt(StockLog.MAGIC).putInt(StockLog.VERSION)
+				.putLong(this.generation);
+		header.flip();
+
+		long pos = 0;
+		while (header.hasRemaining())
+			pos += this.channel.write(header, pos);
+
+		this.channel.position(StockLog.HEADER_SIZE);
+	}
+
+	/**
+	 * Fills a buffer from a file position
+	 *
+	 * @param buffer
+	 *            - buffer to fill
+	 * @param position
+	 *            - file position
+	 */
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		long pos = position;
+
+		while (buffer.hasRemaining()) {
+			int read = this.channel.read(buffer, pos);
+
+			if (read < 0)
+				throw new IOException("Unexpected end of " + this.file);
+
+			pos += read;
+		}
+
+		buffer.flip();
+	}
+
+	/**
+	 * Returns the CRC32 of the first bytes of an array
+	 *
+	 * @param bytes
+	 *            - array
+	 * @param length
+	 *            - number of bytes
+	 * @return checksum
+	 */
+	private static int crc(byte[] bytes, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, length);
+
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Encodes a string as UTF-8
+	 *
+	 * @param s
+	 *            - string
+	 * @return bytes, null for null
+	 */
+	private static byte[] encode(String s) {
+		return null == s ? null : s.getBytes(MappedLocation.UTF_8);
+	}
+
+	/**
+	 * Returns the size of a length prefixed string
+	 *
+	 * @param bytes
+	 *            - encoded string, may be null
+	 * @return size including the length
+	 */
+	private static int sizeOf(byte[] bytes) {
+		return 4 + (null == bytes ? 0 : bytes.length);
+	}
+
+	/**
+	 * Puts a length prefixed string, length -1 for null
+	 *
+	 * @param buffer
+	 *            - buffer
+	 * @param bytes
+	 *            - encoded string
+	 */
+	private static void putString(ByteBuffer buffer, byte[] bytes) {
+		if (null == bytes)
+			buffer.putInt(-1);
+		else
+			buffer.putInt(bytes.length).put(bytes);
+	}
+
+	/**
+	 * Reads a length prefixed string
+	 *
+	 * @param buffer
+	 *            - buffer
+	 * @return string, null for length -1
+	 */
+	private static String getString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+
+		if (length < 0)
+			return null;
+
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+
+		return new String(bytes, MappedLocation.UTF_8);
+	}
+}
@@ -0,0 +1,299 @@
+package inventory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Immutable, versioned view of all storage locations of a stock. Location
+ * snapshots are kept in a persistent trie keyed by the position of each
+ * location, so a new version shares all unchanged locations and publishing
+ * a change costs O(log n) in the number of locations. Reading needs no
+ * locks, and the streams handed out split well for parallel processing.
+ */
+public class StockSnapshot {
+
+	public static int PARALLEL_THRESHOLD = 256;
+
+	private long version;
+	private PersistentTrie<LocationSnapshot> locations;
+	private volatile LocationSnapshot[] ordered;
+
+	/**
+	 * Constructor
+	 *
+	 * @param version
+	 *            - version number
+	 * @param locations
+	 *            - location snapshots by position
+	 */
+	private StockSnapshot(long version,
+			PersistentTrie<LocationSnapshot> locations) {
+		this.version = version;
+		this.locations = locations;
+	}
+
+	/**
+	 * Returns the first, empty version
+	 *
+	 * @return empty snapshot
+	 */
+	static StockSnapshot empty() {
+		return new StockSnapshot(0, PersistentTrie.<LocationSnapshot> empty());
+	}
+
+	/**
+	 * Returns the next version
+	 *
+	 * @param locations
+	 *            - location snapshots of the next version by position,
+	 *            derived from getLocations
+	 * @return next version
+	 */
+	StockSnapshot next(PersistentTrie<LocationSnapshot> locations) {
+		return new StockSnapshot(this.version + 1, locations);
+	}
+
+	/**
+	 * Returns the location snapshots by position
+	 *
+	 * @return location snapshots by position
+	 */
+	PersistentTrie<LocationSnapshot> getLocations() {
+		return this.locations;
+	}
+
+	/**
+	 * Returns the snapshot of the location at a position
+	 *
+	 * @param position
+	 *            - position of the location
+	 * @return snapshot of the location, null if not in this version
+	 */
+	LocationSnapshot get(long position) {
+		return this.locations.get(position);
+	}
+
+	/**
+	 * Returns the version number, increasing with every published change
+	 *
+	 * @return version number
+	 */
+	public long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Returns all storage locations in insertion order
+	 *
+	 * @return all storage locations
+	 */
+	public List<LocationSnapshot> getStorageLocations() {
+		return Collections.unmodifiableList(Arrays.asList(this.ordered()));
+	}
+
+	/**
+	 * Returns a lazy stream of all storage locations in insertion order
+	 *
+	 * @return stream of all storage locations
+	 */
+	public Stream<LocationSnapshot> streamStorageLocations() {
+		return Arrays.stream(this.ordered());
+	}
+
+	/**
+	 * Finds articles with given id, ignoring case
+	 *
+	 * @param id
+	 *            - article id
+	 * @return copies of all found articles
+	 */
+	public LinkedList<Article> findArticles(String id) {
+		if (null == id)
+			throw new IllegalArgumentException();
+
+		LinkedList<Article> found = new LinkedList<Article>();
+
+		for (LocationSnapshot loc : this.ordered())
+			found.addAll(loc.getArticles(id));
+
+		return found;
+	}
+
+	/**
+	 * Runs an aggregation over all locations. Snapshots with more locations
+	 * than PARALLEL_THRESHOLD are split into ranges aggregated in parallel on
+	 * the common fork-join pool; smaller ones are aggregated by the calling
+	 * thread.
+	 *
+	 * @param aggregator
+	 *            - aggregation to run
+	 * @return combined result of all locations
+	 */
+	public <R> R aggregate(LocationAggregator<R> aggregator) {
+		if (null == aggregator)
+			throw new IllegalArgumentException();
+
+		LocationSnapshot[] ordered = this.ordered();
+		AggregationTask<R> task = new AggregationTask<R>(ordered, aggregator,
+				0, ordered.length, StockSnapshot.PARALLEL_THRESHOLD);
+
+		if (ordered.length <= StockSnapshot.PARALLEL_THRESHOLD)
+			return task.invoke();
+
+		return ForkJoinPool.commonPool().invoke(task);
+	}
+
+	/**
+	 * Returns the total width of all articles with given id, ignoring case
+	 *
+	 * @param id
+	 *            - article id
+	 * @return total width of found articles
+	 */
+	public double getTotalWidth(final String id) {
+		if (null == id)
+			throw new IllegalArgumentException();
+
+		return this.aggregate(new LocationAggregator<Double>() {
+			public Double empty() {
+				return 0.0;
+			}
+
+			public Double aggregate(LocationSnapshot loc) {
+				return loc.getTotalWidth(id);
+			}
+
+			public Double combine(Double first, Double second) {
+				return first + second;
+			}
+		});
+	}
+
+	/**
+	 * Returns the number of articles per lower cased article number
+	 *
+	 * @return number of articles per lower cased article number
+	 */
+	public Map<String, Integer> getArticleCounts() {
+		return this.aggregate(new LocationAggregator<Map<String, Integer>>() {
+			public Map<String, Integer> empty() {
+				return new HashMap<String, Integer>();
+			}
+
+			public Map<String, Integer> aggregate(LocationSnapshot loc) {
+				return loc.counts();
+			}
+
+			public Map<String, Integer> combine(Map<String, Integer> first,
+					Map<String, Integer> second) {
+				Map<String, Integer> into = first.size() < second.size() ? second
+						: first;
+				Map<String, Integer> from = into == first ? second : first;
+
+				for (Map.Entry<String, Integer> e : from.entrySet()) {
+					Integer current = into.get(e.getKey());
+					into.put(e.getKey(), (null == current ? 0 : current)
+							+ e.getValue());
+				}
+
+				return into;
+			}
+		});
+	}
+
+	/**
+	 * Returns the locations with room for at least one more article of given
+	 * width
+	 *
+	 * @param width
+	 *            - width of the article
+	 * @return matching locations in insertion order
+	 */
+	public List<LocationSnapshot> findStorageLocationsWithFreeWidth(
+			final double width) {
+		return this.aggregate(new LocationAggregator<List<LocationSnapshot>>() {
+			public List<LocationSnapshot> empty() {
+				return new ArrayList<LocationSnapshot>();
+			}
+
+			public List<LocationSnapshot> aggregate(LocationSnapshot loc) {
+				if (loc.getArticleCount() < StorageLocation.MAX_ARTICLES
+						&& loc.getTotalWidth() + width <= StorageLocation.MAX_WIDTH)
+					return Collections.singletonList(loc);
+
+				return Collections.emptyList();
+			}
+
+			public List<LocationSnapshot> combine(
+					List<LocationSnapshot> first, List<LocationSnapshot> second) {
+				if (second.isEmpty())
+					return first;
+
+				List<LocationSnapshot> combined = first instanceof ArrayList ? first
+						: new ArrayList<LocationSnapshot>(first);
+				combined.addAll(second);
+
+				return combined;
+			}
+		});
+	}
+
+	/**
+	 * Returns a lazy stream of copies of all articles, location by location.
+	 * Articles are only created as the stream is consumed.
+	 *
+	 * @return stream of all articles
+	 */
+	public Stream<Article> streamArticles() {
+		return StreamSupport.stream(new ArticleSpliterator(this.ordered(), null),
+				false);
+	}
+
+	/**
+	 * Returns a lazy stream of copies of the articles with given id, ignoring
+	 * case. Short-circuiting operations stop scanning at the first
+	 * match they need.
+	 *
+	 * @param id
+	 *            - article id
+	 * @return stream of found articles
+	 */
+	public Stream<Article> streamArticles(String id) {
+		if (null == id)
+			throw new IllegalArgumentException();
+
+		ArticleKey key = ArticleKey.find(id);
+
+		if (null == key)
+			return Stream.empty();
+
+		return StreamSupport.stream(new ArticleSpliterator(this.ordered(), key),
+				false);
+	}
+
+	/**
+	 * Returns the location snapshots in insertion order, collecting them
+	 * from the trie on first use
+	 *
+	 * @return location snapshots in insertion order
+	 */
+	private LocationSnapshot[] ordered() {
+		LocationSnapshot[] ordered = this.ordered;
+
+		if (null == ordered) {
+			ordered = this.locations.toArray(new LocationSnapshot[this.locations
+					.size()]);
+			this.ordered = ordered;
+		}
+
+		return ordered;
+	}
+}
@@ -2,9 +2,16 @@ package inventory;
 
 import inventory.exceptions.InvalidWidthException;
 import inventory.exceptions.TooManyArticlesException;
+import inventory.metrics.InventoryMetrics;
+import inventory.metrics.Operation;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 public class StorageLocation {
 
@@ -12,7 +19,10 @@ public class StorageLocation {
 	public static int MAX_ARTICLES = 10;
 
 	private String name;
-	private List<Article> articles;
+	private ArticleStore store;
+	private Stock stock;
+	private double totalWidth;
+	private volatile InventoryMetrics metrics = InventoryMetrics.NONE;
 
 	/**
 	 * Constructor
@@ -21,12 +31,57 @@ public class StorageLocation {
 	 *            of storage location
 	 */
 	public StorageLocation(String name) {
+		this(name, ArticleStorage.LINKED);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param name
+	 *            of storage location
+	 * @param storage
+	 *            - how the location keeps its articles
+	 */
+	public StorageLocation(String name, ArticleStorage storage) {
+
+		if (null == name || null == storage)
+			throw new IllegalArgumentException();
+
+		this.name = name;
+		this.store = this.createStore(storage);
+	}
+
+	/**
+	 * Constructor for subclasses keeping their articles themselves
+	 * 
+	 * @param name
+	 *            of storage location
+	 * @param store
+	 *            - article store, null if the subclass keeps no store
+	 */
+	protected StorageLocation(String name, ArticleStore store) {
 
 		if (null == name)
 			throw new IllegalArgumentException();
 
 		this.name = name;
-		this.articles = new LinkedList<Article>();
+		this.store = store;
+	}
+
+	/**
+	 * Constructor for a location whose store already holds its articles
+	 * 
+	 * @param name
+	 *            of storage location
+	 * @param store
+	 *            - article store
+	 * @param totalWidth
+	 *            - total width of the stored articles
+	 */
+	StorageLocation(String name, ArticleStore store, double totalWidth) {
+		this.name = name;
+		this.store = store;
+		this.totalWidth = totalWidth;
 	}
 
 	/**
@@ -37,9 +92,25 @@ public class StorageLocation {
 	 * @param articles
 	 */
 	public StorageLocation(String name, List<Article> articles) {
-		this.checkNumArticles(articles);
-		this.checkWidth((LinkedList<Article>) articles);
-		this.articles = articles;
+		this.checkNumArticles(articles.size());
+		this.totalWidth = this.checkWidth(this.sumWidth(articles));
+		this.store = new LinkedArticleStore(this, articles);
+	}
+
+	/**
+	 * Recreates a stored location without validating its name again. Names
+	 * are only null for locations created from a list of articles.
+	 * 
+	 * @param name
+	 *            of storage location, may be null
+	 * @param storage
+	 *            - how the location keeps its articles
+	 * @return empty location
+	 */
+	static StorageLocation restore(String name, ArticleStorage storage) {
+		StorageLocation loc = new StorageLocation(name, (ArticleStore) null, 0);
+		loc.store = loc.createStore(storage);
+		return loc;
 	}
 
 	/**
@@ -57,7 +128,53 @@ public class StorageLocation {
 	 * @return all articles at location
 	 */
 	public List<Article> getArticles() {
-		return this.articles;
+		return this.store.getArticles();
+	}
+
+	/**
+	 * Returns the number of articles at this location
+	 * 
+	 * @return number of articles
+	 */
+	public int getArticleCount() {
+		return this.store.size();
+	}
+
+	/**
+	 * Returns the total width of all articles at this location
+	 * 
+	 * @return total width
+	 */
+	public double getTotalWidth() {
+		return this.totalWidth;
+	}
+
+	/**
+	 * Returns the number of articles with given article id
+	 * 
+	 * @param string
+	 *            - article id
+	 * @return number of articles with given article id
+	 */
+	public int getArticleCount(String string) {
+		if (null == string)
+			throw new IllegalArgumentException();
+
+		return this.store.count(string);
+	}
+
+	/**
+	 * Returns the total width of all articles with given article id
+	 * 
+	 * @param string
+	 *            - article id
+	 * @return total width of articles with given article id
+	 */
+	public double getTotalWidth(String string) {
+		if (null == string)
+			throw new IllegalArgumentException();
+
+		return this.store.width(string);
 	}
 
 	/**
@@ -72,9 +189,7 @@ public class StorageLocation {
 		if (null == string)
 			throw new IllegalArgumentException();
 
-		LinkedList<Article> tmpList = findArticlesWithId(string);
-
-		return tmpList;
+		return this.store.find(string);
 	}
 
 	/**
@@ -87,13 +202,7 @@ public class StorageLocation {
 		if (null == article)
 			throw new IllegalArgumentException();
 
-		LinkedList<Article> articles = new LinkedList<Article>(this.articles);
-		articles.add(article);
-
-		this.checkWidth(articles);
-		this.checkNumArticles(articles);
-
-		this.articles.add(article);
+		this.insertTimed(Collections.singletonList(article));
 	}
 
 	/**
@@ -106,13 +215,46 @@ public class StorageLocation {
 		if (null == articles)
 			throw new IllegalArgumentException();
 
-		LinkedList<Article> allArticles = new LinkedList<Article>(articles);
-		allArticles.addAll(this.articles);
+		this.insertTimed(articles);
+	}
 
-		this.checkWidth(allArticles);
-		this.checkNumArticles(allArticles);
+	/**
+	 * Inserts articles after checking that they fit
+	 * 
+	 * @param articles
+	 *            - articles to insert
+	 */
+	void insertArticles(List<Article> articles) {
+		synchronized (this) {
+			double newWidth = this.checkWidth(this.totalWidth
+					+ this.sumWidth(articles));
+			this.checkNumArticles(this.store.size() + articles.size());
+
+			this.store.addAll(articles);
+			this.totalWidth = newWidth;
+		}
+
+		if (null != this.stock)
+			this.stock.articlesAdded(this, articles);
+	}
 
-		this.articles.addAll(articles);
+	/**
+	 * Inserts articles whose count and width the caller has already verified
+	 * against this location
+	 * 
+	 * @param articles
+	 *            to insert
+	 * @param width
+	 *            - total width of the articles
+	 */
+	void insertVerified(List<Article> articles, double width) {
+		synchronized (this) {
+			this.store.addAll(articles);
+			this.totalWidth += width;
+		}
+
+		if (null != this.stock)
+			this.stock.articlesAdded(this, articles);
 	}
 
 	/**
@@ -127,12 +269,7 @@ public class StorageLocation {
 		if (null == string)
 			throw new IllegalArgumentException();
 
-		LinkedList<Article> tmpList = findArticlesWithId(string);
-
-		for (Article tmpArticle : tmpList)
-			this.articles.remove(tmpArticle);
-
-		return tmpList;
+		return this.pickTimed(Operation.PICK_ALL, string, Integer.MAX_VALUE);
 	}
 
 	/**
@@ -141,9 +278,7 @@ public class StorageLocation {
 	 * @return all articles
 	 */
 	public LinkedList<Article> pickAll() {
-		LinkedList<Article> tmpList = new LinkedList<Article>(this.articles);
-		this.articles.clear();
-		return tmpList;
+		return this.pickTimed(Operation.PICK_ALL, null, Integer.MAX_VALUE);
 	}
 
 	/**
@@ -156,58 +291,476 @@ public class StorageLocation {
 	 * @return picked articles
 	 */
 	public LinkedList<Article> pick(String string, int count) {
-		LinkedList<Article> allArticles = this.getArticles(string);
-		LinkedList<Article> pickedArticles = new LinkedList<Article>();
+		if (null == string)
+			throw new IllegalArgumentException();
+
+		return this.pickTimed(Operation.PICK, string, count);
+	}
+
+	/**
+	 * Picks a count articles with number
+	 * 
+	 * @param string
+	 *            - article number
+	 * @param count
+	 *            - number to pick
+	 * @return picked articles
+	 */
+	LinkedList<Article> pickArticles(String string, int count) {
+		LinkedList<Article> pickedArticles;
 
-		for (int i = 0; i < count && i < allArticles.size(); i++)
-			pickedArticles.add(allArticles.get(i));
-		
-		this.articles.removeAll(pickedArticles);
+		synchronized (this) {
+			pickedArticles = this.store.remove(string, count);
+			this.releaseWidth(pickedArticles);
+		}
+
+		this.articlesPicked(pickedArticles);
 
 		return pickedArticles;
 	}
 
 	/**
-	 * Checks the the total width of a set of articles
+	 * Picks all articles
+	 * 
+	 * @return all articles
+	 */
+	LinkedList<Article> pickArticles() {
+		LinkedList<Article> tmpList;
+
+		synchronized (this) {
+			tmpList = this.store.removeAll();
+			this.releaseWidth(tmpList);
+		}
+
+		this.articlesPicked(tmpList);
+
+		return tmpList;
+	}
+
+	/**
+	 * Picks the articles of many order lines in one pass over the location.
+	 * Lines are served in iteration order; lines whose article numbers only
+	 * differ in case share the available articles.
+	 * 
+	 * @param lines
+	 *            - number of articles to pick per article number
+	 * @return picked articles per order line, in the order of the lines
+	 */
+	public Map<String, LinkedList<Article>> pickMany(Map<String, Integer> lines) {
+		if (null == lines)
+			throw new IllegalArgumentException();
+
+		return this.pickManyTimed(lines);
+	}
+
+	/**
+	 * Picks the articles of many order lines in one pass over the location
+	 * 
+	 * @param lines
+	 *            - number of articles to pick per article number
+	 * @return picked articles per order line, in the order of the lines
+	 */
+	Map<String, LinkedList<Article>> pickManyArticles(Map<String, Integer> lines) {
+		Map<String, Integer> counts = StorageLocation.countsByKey(lines);
+		Map<String, LinkedList<Article>> picked;
+		LinkedList<Article> all = new LinkedList<Article>();
+
+		synchronized (this) {
+			picked = this.store.removeMany(counts);
+
+			for (LinkedList<Article> matches : picked.values())
+				all.addAll(matches);
+
+			this.releaseWidth(all);
+		}
+
+		this.articlesPicked(all);
+
+		return StorageLocation.splitByLine(lines, picked);
+	}
+
+	/**
+	 * Returns where the location reports its inserts and picks
+	 * 
+	 * @return metrics, InventoryMetrics.NONE if not reported
+	 */
+	public InventoryMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * Sets where the location reports the latency, number of articles and
+	 * rejections of its inserts and picks. A stock with metrics sets them on
+	 * its locations.
+	 * 
+	 * @param metrics
+	 *            - metrics, InventoryMetrics.NONE to stop reporting
+	 */
+	public void setMetrics(InventoryMetrics metrics) {
+		if (null == metrics)
+			throw new IllegalArgumentException();
+
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Moves an already stored article to the index entry of its new article
+	 * number
+	 * 
+	 * @param article
+	 *            - renamed article
+	 * @param oldArtNr
+	 *            - article number before renaming
+	 */
+	void articleRenamed(Article article, String oldArtNr) {
+		synchronized (this) {
+			this.store.articleRenamed(article, oldArtNr);
+		}
+
+		if (null != this.stock)
+			this.stock.articleRenamed(this, article, oldArtNr);
+	}
+
+	/**
+	 * Updates the total width when an already stored article changes width
+	 * 
+	 * @param article
+	 *            - resized article
+	 * @param oldWidth
+	 *            - width before the change
+	 * @param newWidth
+	 *            - width after the change
+	 */
+	void articleResized(Article article, double oldWidth, double newWidth) {
+		synchronized (this) {
+			this.totalWidth = this.checkWidth(this.totalWidth - oldWidth
+					+ newWidth);
+		}
+
+		if (null != this.stock)
+			this.stock.articleResized(this, article, oldWidth);
+	}
+
+	/**
+	 * Returns the number of articles per lower cased article number
+	 * 
+	 * @return number of articles per lower cased article number
+	 */
+	Map<String, Integer> getArticleCounts() {
+		return this.store.counts();
+	}
+
+	/**
+	 * Returns the current articles in a state later changes do not affect.
+	 * Changes hold the monitor of the location, so another thread reading a
+	 * snapshot sees the articles between two changes.
+	 * 
+	 * @return immutable articles
+	 */
+	synchronized SnapshotArticles snapshotArticles() {
+		SnapshotArticles articles = this.store.snapshot();
+
+		return null == articles ? StoredArticles.copyOf(this.store
+				.getArticles()) : articles;
+	}
+
+	/**
+	 * Returns the article store
+	 * 
+	 * @return article store
+	 */
+	ArticleStore getStore() {
+		return this.store;
+	}
+
+	/**
+	 * Returns the stock holding this location
+	 * 
+	 * @return stock, null if not added to a stock
+	 */
+	Stock getStock() {
+		return this.stock;
+	}
+
+	/**
+	 * Sets the stock holding this location
+	 * 
+	 * @param stock
+	 *            - stock, null when removed
+	 */
+	void setStock(Stock stock) {
+		this.stock = stock;
+	}
+
+	/**
+	 * Inserts articles, reporting the insert to the metrics and to Flight
+	 * Recorder
 	 * 
 	 * @param articles
+	 *            - articles to insert
+	 */
+	private void insertTimed(List<Article> articles) {
+		InventoryMetrics m = this.metrics;
+		InventoryEvents.Insert event = new InventoryEvents.Insert();
+		event.begin();
+		long start = m.isEnabled() ? System.nanoTime() : 0;
+
+		try {
+			this.insertArticles(articles);
+		} catch (RuntimeException e) {
+			m.rejected(Operation.INSERT, e);
+			throw e;
+		}
+
+		if (m.isEnabled())
+			m.completed(Operation.INSERT, System.nanoTime() - start,
+					articles.size());
+
+		event.end();
+
+		if (event.shouldCommit()) {
+			event.set(this, articles.isEmpty() ? null : articles.get(0)
+					.getArtNr(), articles.size());
+			event.commit();
+		}
+	}
+
+	/**
+	 * Picks articles, reporting the pick to the metrics and to Flight
+	 * Recorder
+	 * 
+	 * @param operation
+	 *            - operation to report
+	 * @param string
+	 *            - article number, null to pick all articles
+	 * @param count
+	 *            - number to pick
+	 * @return picked articles
+	 */
+	private LinkedList<Article> pickTimed(Operation operation, String string,
+			int count) {
+		InventoryMetrics m = this.metrics;
+		InventoryEvents.Pick event = new InventoryEvents.Pick();
+		event.begin();
+		long start = m.isEnabled() ? System.nanoTime() : 0;
+		LinkedList<Article> picked;
+
+		try {
+			picked = null == string ? this.pickArticles() : this.pickArticles(
+					string, count);
+		} catch (RuntimeException e) {
+			m.rejected(operation, e);
+			throw e;
+		}
+
+		if (m.isEnabled())
+			m.completed(operation, System.nanoTime() - start, picked.size());
+
+		event.end();
+
+		if (event.shouldCommit()) {
+			event.set(this, string, picked.size());
+			event.commit();
+		}
+
+		return picked;
+	}
+
+	/**
+	 * Picks the articles of many order lines, reporting the pick to the
+	 * metrics and as a Pick event without article number
+	 * 
+	 * @param lines
+	 *            - number of articles to pick per article number
+	 * @return picked articles per order line, in the order of the lines
 	 */
-	private void checkWidth(LinkedList<Article> articles) {
+	private Map<String, LinkedList<Article>> pickManyTimed(
+			Map<String, Integer> lines) {
+		InventoryMetrics m = this.metrics;
+		InventoryEvents.Pick event = new InventoryEvents.Pick();
+		event.begin();
+		long start = m.isEnabled() ? System.nanoTime() : 0;
+		Map<String, LinkedList<Article>> picked;
+
+		try {
+			picked = this.pickManyArticles(lines);
+		} catch (RuntimeException e) {
+			m.rejected(Operation.PICK_MANY, e);
+			throw e;
+		}
+
+		long elapsed = m.isEnabled() ? System.nanoTime() - start : 0;
+		event.end();
+
+		if (!m.isEnabled() && !event.shouldCommit())
+			return picked;
+
+		int count = 0;
+
+		for (LinkedList<Article> served : picked.values())
+			count += served.size();
+
+		if (m.isEnabled())
+			m.completed(Operation.PICK_MANY, elapsed, count);
+
+		if (event.shouldCommit()) {
+			event.set(this, null, count);
+			event.commit();
+		}
+
+		return picked;
+	}
+
+	/**
+	 * Checks a total width against the width of the location
+	 * 
+	 * @param totWidth
+	 *            - total width
+	 * @return the checked total width
+	 */
+	private double checkWidth(double totWidth) {
+		if (totWidth > StorageLocation.MAX_WIDTH)
+			throw new InvalidWidthException();
+
+		return totWidth;
+	}
+
+	/**
+	 * Sums the width of a set of articles
+	 * 
+	 * @param articles
+	 *            - articles
+	 * @return total width
+	 */
+	private double sumWidth(List<Article> articles) {
 		double totWidth = 0;
 
 		for (Article a : articles)
 			totWidth += a.getWidth();
 
-		if (totWidth > StorageLocation.MAX_WIDTH)
-			throw new InvalidWidthException();
+		return totWidth;
 	}
 
 	/**
-	 * Returns all articles with the given id
+	 * Creates the article store for the given storage
 	 * 
-	 * @param string
-	 *            - article id
-	 * @param tmpList
-	 *            - list
+	 * @param storage
+	 *            - how the location keeps its articles
+	 * @return empty article store
 	 */
-	private LinkedList<Article> findArticlesWithId(String string) {
-		LinkedList<Article> articles = new LinkedList<Article>();
+	ArticleStore createStore(ArticleStorage storage) {
+		switch (storage) {
+		case COLUMNAR:
+			return new ColumnarArticleStore();
+		case OFF_HEAP:
+			return new OffHeapArticleStore();
+		default:
+			return new LinkedArticleStore(this, new LinkedList<Article>());
+		}
+	}
 
-		for (Article a : this.articles)
-			if (a.getArtNr().equalsIgnoreCase(string))
-				articles.add(a);
+	/**
+	 * Updates the running width after a pick, holding the monitor
+	 * 
+	 * @param picked
+	 *            - picked articles
+	 */
+	private void releaseWidth(List<Article> picked) {
+		if (picked.isEmpty())
+			return;
+
+		if (0 == this.store.size())
+			this.totalWidth = 0;
+		else
+			this.totalWidth -= this.sumWidth(picked);
+	}
 
-		return articles;
+	/**
+	 * Notifies the stock after a pick
+	 * 
+	 * @param picked
+	 *            - picked articles
+	 */
+	private void articlesPicked(List<Article> picked) {
+		if (!picked.isEmpty() && null != this.stock)
+			this.stock.articlesRemoved(this, picked);
+	}
+
+	/**
+	 * Returns the index key for an article number
+	 * 
+	 * @param artNr
+	 *            - article number
+	 * @return lower cased article number
+	 */
+	static String toKey(String artNr) {
+		return null == artNr ? null : artNr.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Sums the counts of order lines per index key
+	 * 
+	 * @param lines
+	 *            - number of articles to pick per article number
+	 * @return number of articles to pick per lower cased article number
+	 */
+	static Map<String, Integer> countsByKey(Map<String, Integer> lines) {
+		if (null == lines)
+			throw new IllegalArgumentException();
+
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+
+		for (Map.Entry<String, Integer> line : lines.entrySet()) {
+			if (null == line.getKey() || null == line.getValue())
+				throw new IllegalArgumentException();
+
+			String key = StorageLocation.toKey(line.getKey());
+			Integer current = counts.get(key);
+			long count = (null == current ? 0 : current)
+					+ Math.max(line.getValue(), 0);
+
+			counts.put(key, (int) Math.min(count, Integer.MAX_VALUE));
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Hands out articles picked per index key to the order lines
+	 * 
+	 * @param lines
+	 *            - number of articles to pick per article number
+	 * @param picked
+	 *            - picked articles per lower cased article number, consumed
+	 * @return picked articles per order line, in the order of the lines
+	 */
+	static Map<String, LinkedList<Article>> splitByLine(
+			Map<String, Integer> lines, Map<String, LinkedList<Article>> picked) {
+		Map<String, LinkedList<Article>> byLine = new LinkedHashMap<String, LinkedList<Article>>();
+
+		for (Map.Entry<String, Integer> line : lines.entrySet()) {
+			LinkedList<Article> matches = picked.get(StorageLocation
+					.toKey(line.getKey()));
+			LinkedList<Article> served = new LinkedList<Article>();
+
+			while (null != matches && !matches.isEmpty()
+					&& served.size() < line.getValue())
+				served.add(matches.removeFirst());
+
+			byLine.put(line.getKey(), served);
+		}
+
+		return byLine;
 	}
 
 	/**
 	 * Checks the number of articles
 	 * 
-	 * @param articles
-	 *            - articles
+	 * @param count
+	 *            - number of articles
 	 */
-	private void checkNumArticles(List<Article> articles) {
-		if (articles.size() > StorageLocation.MAX_ARTICLES)
+	private void checkNumArticles(int count) {
+		if (count > StorageLocation.MAX_ARTICLES)
 			throw new TooManyArticlesException();
 	}
 }
@@ -0,0 +1,192 @@
+package inventory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storage locations of a stock, in insertion order, with expected constant
+ * time membership and lookup by name. Membership is by identity since
+ * storage locations do not override equals. All methods are synchronized and
+ * iteration runs over a snapshot.
+ *
+ * Each location gets an increasing position when added, which orders the
+ * locations of stock snapshots. A removed location keeps its position until
+ * dropped, so its snapshot can still be found and removed.
+ */
+class StorageLocationRegistry implements Iterable<StorageLocation> {
+
+	private Map<StorageLocation, String> locations;
+	private Map<String, Set<StorageLocation>> byName;
+	private Map<StorageLocation, Long> positions;
+	private long nextPosition;
+
+	/**
+	 * Constructor
+	 */
+	StorageLocationRegistry() {
+		this.locations = new LinkedHashMap<StorageLocation, String>();
+		this.byName = new HashMap<String, Set<StorageLocation>>();
+		this.positions = new HashMap<StorageLocation, Long>();
+	}
+
+	/**
+	 * Returns the number of registered locations
+	 *
+	 * @return number of registered locations
+	 */
+	synchronized int size() {
+		return this.locations.size();
+	}
+
+	/**
+	 * Returns true if the location is registered, false otherwise
+	 *
+	 * @param loc
+	 *            - location
+	 * @return true if the location is registered, false otherwise
+	 */
+	synchronized boolean contains(StorageLocation loc) {
+		return this.locations.containsKey(loc);
+	}
+
+	/**
+	 * Registers a location
+	 *
+	 * @param loc
+	 *            - location
+	 * @return true if added, false if already registered
+	 */
+	synchronized boolean add(StorageLocation loc) {
+		if (this.locations.containsKey(loc))
+			return false;
+
+		String key = StorageLocation.toKey(loc.getName());
+		this.locations.put(loc, key);
+
+		Set<StorageLocation> named = this.byName.get(key);
+
+		if (null == named) {
+			named = new LinkedHashSet<StorageLocation>();
+			this.byName.put(key, named);
+		}
+
+		named.add(loc);
+
+		if (!this.positions.containsKey(loc))
+			this.positions.put(loc, this.nextPosition++);
+
+		return true;
+	}
+
+	/**
+	 * Returns the position of a location, also if removed and not dropped
+	 * yet
+	 *
+	 * @param loc
+	 *            - location
+	 * @return position, -1 if unknown
+	 */
+	synchronized long positionOf(StorageLocation loc) {
+		Long position = this.positions.get(loc);
+
+		return null == position ? -1 : position;
+	}
+
+	/**
+	 * Forgets the position of a removed location, once its removal has been
+	 * published
+	 *
+	 * @param loc
+	 *            - location
+	 */
+	synchronized void drop(StorageLocation loc) {
+		if (!this.locations.containsKey(loc))
+			this.positions.remove(loc);
+	}
+
+	/**
+	 * Unregisters a location
+	 *
+	 * @param loc
+	 *            - location
+	 * @return true if removed, false if not registered
+	 */
+	synchronized boolean remove(StorageLocation loc) {
+		if (!this.locations.containsKey(loc))
+			return false;
+
+		String key = this.locations.remove(loc);
+		Set<StorageLocation> named = this.byName.get(key);
+		named.remove(loc);
+
+		if (named.isEmpty())
+			this.byName.remove(key);
+
+		return true;
+	}
+
+	/**
+	 * Returns all locations with the given name, ignoring case
+	 *
+	 * @param name
+	 *            - location name
+	 * @return all locations with the given name
+	 */
+	synchronized LinkedList<StorageLocation> getByName(String name) {
+		Set<StorageLocation> named = this.byName.get(StorageLocation
+				.toKey(name));
+
+		if (null == named)
+			return new LinkedList<StorageLocation>();
+
+		return new LinkedList<StorageLocation>(named);
+	}
+
+	/**
+	 * Unregisters all locations with the given name, ignoring case
+	 *
+	 * @param name
+	 *            - location name
+	 * @return removed locations
+	 */
+	synchronized LinkedList<StorageLocation> removeByName(String name) {
+		Set<StorageLocation> named = this.byName.remove(StorageLocation
+				.toKey(name));
+
+		if (null == named)
+			return new LinkedList<StorageLocation>();
+
+		for (StorageLocation loc : named)
+			this.locations.remove(loc);
+
+		return new LinkedList<StorageLocation>(named);
+	}
+
+	/**
+	 * Unregisters all locations
+	 */
+	synchronized void clear() {
+		this.locations.clear();
+		this.byName.clear();
+	}
+
+	/**
+	 * Returns all locations in insertion order
+	 *
+	 * @return all locations
+	 */
+	synchronized LinkedList<StorageLocation> toList() {
+		return new LinkedList<StorageLocation>(this.locations.keySet());
+	}
+
+	@Override
+	public Iterator<StorageLocation> iterator() {
+		return Collections.unmodifiableList(this.toList()).iterator();
+	}
+}
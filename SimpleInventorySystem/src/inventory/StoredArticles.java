@@ -0,0 +1,77 @@
+package inventory;
+
+import java.util.List;
+
+/**
+ * Immutable copy of the articles of a location, for stores that cannot hand
+ * out their state as is. Locations are only copied when a snapshot is read
+ * after they changed, so a copy serves every change made in between.
+ */
+final class StoredArticles extends SnapshotArticles {
+
+	private final String[] artNrs;
+	private final ArticleKey[] keys;
+	private final double[] widths;
+	private final double totalWidth;
+
+	/**
+	 * Constructor
+	 *
+	 * @param articles
+	 *            - articles to copy
+	 */
+	private StoredArticles(List<Article> articles) {
+		double totalWidth = 0;
+		int i = 0;
+
+		this.artNrs = new String[articles.size()];
+		this.keys = new ArticleKey[articles.size()];
+		this.widths = new double[articles.size()];
+
+		for (Article a : articles) {
+			this.artNrs[i] = a.getArtNr();
+			this.keys[i] = a.getKey();
+			this.widths[i] = a.getWidth();
+			totalWidth += this.widths[i];
+			i++;
+		}
+
+		this.totalWidth = totalWidth;
+	}
+
+	/**
+	 * Copies the current state of articles
+	 *
+	 * @param articles
+	 *            - articles
+	 * @return copied articles, which cannot be updated
+	 */
+	static StoredArticles copyOf(List<Article> articles) {
+		return new StoredArticles(articles);
+	}
+
+	@Override
+	int size() {
+		return this.artNrs.length;
+	}
+
+	@Override
+	double getTotalWidth() {
+		return this.totalWidth;
+	}
+
+	@Override
+	String artNrAt(int i) {
+		return this.artNrs[i];
+	}
+
+	@Override
+	ArticleKey keyAt(int i) {
+		return this.keys[i];
+	}
+
+	@Override
+	double widthAt(int i) {
+		return this.widths[i];
+	}
+}
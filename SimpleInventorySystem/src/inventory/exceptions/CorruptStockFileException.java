@@ -0,0 +1,20 @@
+package inventory.exceptions;
+
+public class CorruptStockFileException extends RuntimeException{
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param cause
+	 *            - failed check of a record read on first access
+	 */
+	public CorruptStockFileException(Throwable cause) {
+		super(cause);
+	}
+
+}
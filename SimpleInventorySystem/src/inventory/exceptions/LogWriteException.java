@@ -0,0 +1,20 @@
+package inventory.exceptions;
+
+public class LogWriteException extends RuntimeException{
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param cause
+	 *            - failed write
+	 */
+	public LogWriteException(Throwable cause) {
+		super(cause);
+	}
+
+}
@@ -0,0 +1,188 @@
+package inventory.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non negative values such as latencies in nanoseconds or scan
+ * lengths. Like HdrHistogram, values are counted in buckets of 16 linear
+ * steps per power of two, so percentiles are within about 6% of the
+ * recorded values, and the buckets are allocated once. Recording is lock
+ * free and may be done by any number of threads; reads see a recent but not
+ * necessarily consistent state.
+ */
+public final class Histogram {
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << Histogram.SUB_BITS;
+	private static final int BUCKETS = (64 - Histogram.SUB_BITS)
+			* Histogram.SUB_BUCKETS;
+
+	private final AtomicLongArray counts;
+	private final LongAdder sum;
+	private final AtomicLong max;
+
+	public Histogram() {
+		this.counts = new AtomicLongArray(Histogram.BUCKETS);
+		this.sum = new LongAdder();
+		this.max = new AtomicLong();
+	}
+
+	/**
+	 * Records one value
+	 *
+	 * @param value
+	 *            - value, negative values are recorded as 0
+	 */
+	public void record(long value) {
+		long v = Math.max(value, 0);
+		this.counts.incrementAndGet(Histogram.bucket(v));
+		this.sum.add(v);
+
+		long current = this.max.get();
+
+		while (v > current && !this.max.compareAndSet(current, v))
+			current = this.max.get();
+	}
+
+	/**
+	 * Adds all values recorded by another histogram
+	 *
+	 * @param other
+	 *            - histogram to add
+	 */
+	public void add(Histogram other) {
+		if (null == other)
+			throw new IllegalArgumentException();
+
+		for (int i = 0; i < Histogram.BUCKETS; i++) {
+			long n = other.counts.get(i);
+
+			if (0 != n)
+				this.counts.addAndGet(i, n);
+		}
+
+		this.sum.add(other.sum.sum());
+
+		long v = other.max.get();
+		long current = this.max.get();
+
+		while (v > current && !this.max.compareAndSet(current, v))
+			current = this.max.get();
+	}
+
+	/**
+	 * Forgets all recorded values. Values recorded concurrently may be lost
+	 * or partly kept.
+	 */
+	public void reset() {
+		for (int i = 0; i < Histogram.BUCKETS; i++)
+			this.counts.set(i, 0);
+
+		this.sum.reset();
+		this.max.set(0);
+	}
+
+	/**
+	 * Returns the number of recorded values
+	 *
+	 * @return number of values
+	 */
+	public long getCount() {
+		long count = 0;
+
+		for (int i = 0; i < Histogram.BUCKETS; i++)
+			count += this.counts.get(i);
+
+		return count;
+	}
+
+	/**
+	 * Returns the largest recorded value
+	 *
+	 * @return largest value, 0 if empty
+	 */
+	public long getMax() {
+		return this.max.get();
+	}
+
+	/**
+	 * Returns the mean of the recorded values
+	 *
+	 * @return mean, 0 if empty
+	 */
+	public double getMean() {
+		long count = this.getCount();
+
+		return 0 == count ? 0 : (double) this.sum.sum() / count;
+	}
+
+	/**
+	 * Returns the value below or at which a percentage of the recorded
+	 * values lie
+	 *
+	 * @param percentile
+	 *            - percentage, above 0 and at most 100
+	 * @return largest value of the bucket holding the percentile, at most
+	 *         the largest recorded value; 0 if empty
+	 */
+	public long getPercentile(double percentile) {
+		if (!(percentile > 0 && percentile <= 100))
+			throw new IllegalArgumentException();
+
+		long[] snapshot = new long[Histogram.BUCKETS];
+		long count = 0;
+
+		for (int i = 0; i < Histogram.BUCKETS; i++) {
+			snapshot[i] = this.counts.get(i);
+			count += snapshot[i];
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+
+		for (int i = 0; i < Histogram.BUCKETS && count > 0; i++) {
+			seen += snapshot[i];
+
+			if (seen >= rank)
+				return Math.min(Histogram.upperBound(i), this.max.get());
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Returns the bucket of a value
+	 *
+	 * @param value
+	 *            - non negative value
+	 * @return bucket index
+	 */
+	static int bucket(long value) {
+		if (value < Histogram.SUB_BUCKETS)
+			return (int) value;
+
+		int shift = 63 - Long.numberOfLeadingZeros(value) - Histogram.SUB_BITS;
+
+		return (shift + 1) * Histogram.SUB_BUCKETS
+				+ (int) (value >>> shift) - Histogram.SUB_BUCKETS;
+	}
+
+	/**
+	 * Returns the largest value of a bucket
+	 *
+	 * @param bucket
+	 *            - bucket index
+	 * @return largest value counted in the bucket
+	 */
+	static long upperBound(int bucket) {
+		if (bucket < Histogram.SUB_BUCKETS)
+			return bucket;
+
+		int shift = bucket / Histogram.SUB_BUCKETS - 1;
+		long first = bucket % Histogram.SUB_BUCKETS + Histogram.SUB_BUCKETS;
+
+		return ((first + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,298 @@
+package inventory.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metrics that keep a latency and a scan length histogram per operation
+ * and count rejections per operation and per exception type. Give it to a
+ * stock with Stock.setMetrics and read it directly or through JMX after
+ * register.
+ */
+public class HistogramMetrics implements InventoryMetrics {
+
+	private static final String DOMAIN = "inventory";
+
+	private final Histogram[] latencies;
+	private final Histogram[] scanLengths;
+	private final LongAdder[] rejected;
+	private final ConcurrentMap<String, LongAdder> rejections;
+	private final List<ObjectName> registered;
+
+	public HistogramMetrics() {
+		int operations = Operation.values().length;
+
+		this.latencies = new Histogram[operations];
+		this.scanLengths = new Histogram[operations];
+		this.rejected = new LongAdder[operations];
+		this.rejections = new ConcurrentHashMap<String, LongAdder>();
+		this.registered = new ArrayList<ObjectName>();
+
+		for (int i = 0; i < operations; i++) {
+			this.latencies[i] = new Histogram();
+			this.scanLengths[i] = new Histogram();
+			this.rejected[i] = new LongAdder();
+		}
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	@Override
+	public void completed(Operation operation, long nanos, int articles) {
+		this.latencies[operation.ordinal()].record(nanos);
+		this.scanLengths[operation.ordinal()].record(articles);
+	}
+
+	@Override
+	public void rejected(Operation operation, RuntimeException e) {
+		this.rejected[operation.ordinal()].increment();
+
+		String type = e.getClass().getSimpleName();
+		LongAdder count = this.rejections.get(type);
+
+		if (null == count) {
+			LongAdder created = new LongAdder();
+			count = this.rejections.putIfAbsent(type, created);
+
+			if (null == count)
+				count = created;
+		}
+
+		count.increment();
+	}
+
+	/**
+	 * Returns the latencies of an operation
+	 *
+	 * @param operation
+	 *            - operation
+	 * @return latencies in nanoseconds of the completed operations
+	 */
+	public Histogram getLatencies(Operation operation) {
+		return this.latencies[operation.ordinal()];
+	}
+
+	/**
+	 * Returns the scan lengths of an operation
+	 *
+	 * @param operation
+	 *            - operation
+	 * @return number of articles per completed operation
+	 */
+	public Histogram getScanLengths(Operation operation) {
+		return this.scanLengths[operation.ordinal()];
+	}
+
+	/**
+	 * Returns the number of rejections of an operation
+	 *
+	 * @param operation
+	 *            - operation
+	 * @return number of operations rejected with an exception
+	 */
+	public long getRejected(Operation operation) {
+		return this.rejected[operation.ordinal()].sum();
+	}
+
+	/**
+	 * Returns the number of rejections per exception type
+	 *
+	 * @return number of rejected operations per simple name of the exception
+	 *         type, sorted by name
+	 */
+	public Map<String, Long> getRejections() {
+		Map<String, Long> counts = new TreeMap<String, Long>();
+
+		for (Map.Entry<String, LongAdder> e : this.rejections.entrySet())
+			counts.put(e.getKey(), e.getValue().sum());
+
+		return counts;
+	}
+
+	/**
+	 * Forgets everything recorded so far
+	 */
+	public void reset() {
+		for (int i = 0; i < this.latencies.length; i++) {
+			this.latencies[i].reset();
+			this.scanLengths[i].reset();
+			this.rejected[i].reset();
+		}
+
+		this.rejections.clear();
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server, one MXBean for
+	 * the rejections and one per operation
+	 *
+	 * @param name
+	 *            - name telling these metrics apart from others, such as the
+	 *            name of the stock
+	 * @throws JMException
+	 *             if the name is invalid or already registered
+	 */
+	public synchronized void register(String name) throws JMException {
+		if (null == name)
+			throw new IllegalArgumentException();
+
+		if (!this.registered.isEmpty())
+			throw new IllegalStateException();
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		String quoted = ObjectName.quote(name);
+
+		try {
+			this.register(server, new ObjectName(HistogramMetrics.DOMAIN
+					+ ":type=InventoryMetrics,name=" + quoted),
+					new RejectionsView());
+
+			for (Operation op : Operation.values())
+				this.register(server, new ObjectName(HistogramMetrics.DOMAIN
+						+ ":type=OperationMetrics,name=" + quoted
+						+ ",operation=" + op.name().toLowerCase(Locale.ROOT)),
+						new OperationView(op));
+		} catch (JMException e) {
+			this.unregister();
+			throw e;
+		}
+	}
+
+	/**
+	 * Removes the MXBeans added by register
+	 *
+	 * @throws JMException
+	 *             if an MXBean cannot be removed
+	 */
+	public synchronized void unregister() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		try {
+			for (ObjectName registeredName : this.registered)
+				if (server.isRegistered(registeredName))
+					server.unregisterMBean(registeredName);
+		} finally {
+			this.registered.clear();
+		}
+	}
+
+	/**
+	 * Registers one MXBean and remembers its name
+	 *
+	 * @param server
+	 *            - MBean server
+	 * @param objectName
+	 *            - name of the MXBean
+	 * @param view
+	 *            - MXBean
+	 */
+	private void register(MBeanServer server, ObjectName objectName,
+			Object view) throws JMException {
+		server.registerMBean(view, objectName);
+		this.registered.add(objectName);
+	}
+
+	/**
+	 * Converts nanoseconds to microseconds
+	 *
+	 * @param nanos
+	 *            - nanoseconds
+	 * @return microseconds
+	 */
+	private static double micros(double nanos) {
+		return nanos / 1000;
+	}
+
+	/**
+	 * JMX view of the rejections
+	 */
+	private class RejectionsView implements InventoryMetricsMXBean {
+
+		public Map<String, Long> getRejections() {
+			return HistogramMetrics.this.getRejections();
+		}
+
+		public void reset() {
+			HistogramMetrics.this.reset();
+		}
+	}
+
+	/**
+	 * JMX view of one operation
+	 */
+	private class OperationView implements OperationMetricsMXBean {
+
+		private final Operation operation;
+
+		OperationView(Operation operation) {
+			this.operation = operation;
+		}
+
+		public long getCount() {
+			return HistogramMetrics.this.getLatencies(this.operation)
+					.getCount();
+		}
+
+		public long getRejected() {
+			return HistogramMetrics.this.getRejected(this.operation);
+		}
+
+		public double getMeanMicros() {
+			return HistogramMetrics.micros(HistogramMetrics.this.getLatencies(
+					this.operation).getMean());
+		}
+
+		public double getP50Micros() {
+			return this.percentileMicros(50);
+		}
+
+		public double getP99Micros() {
+			return this.percentileMicros(99);
+		}
+
+		public double getP999Micros() {
+			return this.percentileMicros(99.9);
+		}
+
+		public double getMaxMicros() {
+			return HistogramMetrics.micros(HistogramMetrics.this.getLatencies(
+					this.operation).getMax());
+		}
+
+		public double getMeanScanLength() {
+			return HistogramMetrics.this.getScanLengths(this.operation)
+					.getMean();
+		}
+
+		public long getMaxScanLength() {
+			return HistogramMetrics.this.getScanLengths(this.operation)
+					.getMax();
+		}
+
+		/**
+		 * Returns a latency percentile
+		 *
+		 * @param percentile
+		 *            - percentage
+		 * @return latency in microseconds
+		 */
+		private double percentileMicros(double percentile) {
+			return HistogramMetrics.micros(HistogramMetrics.this.getLatencies(
+					this.operation).getPercentile(percentile));
+		}
+	}
+}
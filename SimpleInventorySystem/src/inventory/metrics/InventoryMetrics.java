@@ -0,0 +1,59 @@
+package inventory.metrics;
+
+/**
+ * Receives the latency, scan length and rejections of inventory operations.
+ * Stocks and locations report to NONE until given other metrics; callers
+ * only read the clock when isEnabled() is true, so NONE costs one call per
+ * operation. Implementations are called from every thread that uses the
+ * inventory and must be thread safe and fast.
+ */
+public interface InventoryMetrics {
+
+	/**
+	 * Metrics that record nothing
+	 */
+	InventoryMetrics NONE = new InventoryMetrics() {
+
+		public boolean isEnabled() {
+			return false;
+		}
+
+		public void completed(Operation operation, long nanos, int articles) {
+		}
+
+		public void rejected(Operation operation, RuntimeException e) {
+		}
+	};
+
+	/**
+	 * Returns whether operations should be timed
+	 * 
+	 * @return true if completed operations are recorded
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Records an operation that completed, only called while enabled
+	 * 
+	 * @param operation
+	 *            - operation
+	 * @param nanos
+	 *            - latency in nanoseconds
+	 * @param articles
+	 *            - number of articles inserted, picked, moved or found. The
+	 *            article stores are indexed by article number, so this is
+	 *            also the number of articles the operation went through.
+	 */
+	void completed(Operation operation, long nanos, int articles);
+
+	/**
+	 * Records an operation that was rejected with an exception, such as a
+	 * TooManyArticlesException from a capacity check
+	 * 
+	 * @param operation
+	 *            - operation
+	 * @param e
+	 *            - exception the operation threw
+	 */
+	void rejected(Operation operation, RuntimeException e);
+}
@@ -0,0 +1,21 @@
+package inventory.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the rejections counted by HistogramMetrics, registered as
+ * inventory:type=InventoryMetrics,name=...
+ */
+public interface InventoryMetricsMXBean {
+
+	/**
+	 * @return number of rejected operations per simple name of the exception
+	 *         type
+	 */
+	Map<String, Long> getRejections();
+
+	/**
+	 * Forgets everything recorded so far
+	 */
+	void reset();
+}
@@ -0,0 +1,39 @@
+package inventory.metrics;
+
+/**
+ * Inventory operation whose latency, scan length and rejections are
+ * reported to InventoryMetrics
+ */
+public enum Operation {
+
+	/**
+	 * StorageLocation.insert and insertMany
+	 */
+	INSERT,
+
+	/**
+	 * StorageLocation.pick
+	 */
+	PICK,
+
+	/**
+	 * StorageLocation.pickAll, with or without article number
+	 */
+	PICK_ALL,
+
+	/**
+	 * StorageLocation.pickMany, the scan length being the articles picked
+	 * for all order lines
+	 */
+	PICK_MANY,
+
+	/**
+	 * Stock.moveAllArticles, with or without article number
+	 */
+	MOVE_ALL_ARTICLES,
+
+	/**
+	 * Stock.findArticles
+	 */
+	FIND_ARTICLES
+}
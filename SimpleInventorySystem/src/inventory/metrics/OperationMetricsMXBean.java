@@ -0,0 +1,53 @@
+package inventory.metrics;
+
+/**
+ * JMX view of the metrics of one operation, registered by HistogramMetrics
+ * as inventory:type=OperationMetrics,name=...,operation=...
+ */
+public interface OperationMetricsMXBean {
+
+	/**
+	 * @return number of completed operations
+	 */
+	long getCount();
+
+	/**
+	 * @return number of operations rejected with an exception
+	 */
+	long getRejected();
+
+	/**
+	 * @return mean latency in microseconds
+	 */
+	double getMeanMicros();
+
+	/**
+	 * @return median latency in microseconds
+	 */
+	double getP50Micros();
+
+	/**
+	 * @return 99th percentile latency in microseconds
+	 */
+	double getP99Micros();
+
+	/**
+	 * @return 99.9th percentile latency in microseconds
+	 */
+	double getP999Micros();
+
+	/**
+	 * @return largest latency in microseconds
+	 */
+	double getMaxMicros();
+
+	/**
+	 * @return mean number of articles per operation
+	 */
+	double getMeanScanLength();
+
+	/**
+	 * @return largest number of articles of one operation
+	 */
+	long getMaxScanLength();
+}
@@ -1,11 +1,22 @@
 package inventory;
 
+import inventory.metrics.TestHistogram;
+import inventory.metrics.TestHistogramMetrics;
+
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ TestArticle.class, TestStock.class, TestStorageLocation.class })
+@SuiteClasses({ TestArticle.class, TestStock.class, TestStorageLocation.class,
+		TestStorageLocationRegistry.class, TestColumnarArticleStore.class,
+		TestOffHeapArticleStore.class, TestConcurrentStorageLocation.class,
+		TestStockSnapshot.class, TestPersistentTrie.class,
+		TestStockLoader.class, TestStockFile.class,
+		TestStockLog.class, TestFreeCapacityIndex.class,
+		TestConsolidationPlan.class, TestInventoryEvents.class,
+		TestHistogram.class,
+		TestHistogramMetrics.class })
 public class AllTests {
 
 }
@@ -1,6 +1,9 @@
 package inventory;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertSame;
 import inventory.exceptions.InvalidNameException;
 import inventory.exceptions.InvalidWidthException;
 
@@ -88,4 +91,68 @@ public class TestArticle {
 	public void shouldThrowWhenNullArtNr() {
 		this.sut.setArtNr(null);
 	}
+
+	/*
+	 * Article number key
+	 */
+	@Test
+	public void shouldShareKeyAcrossCase() {
+		Article upper = new Article(TestArticle.VALID_ART_NR + "ABC",
+				TestArticle.VALID_WIDTH);
+		Article lower = new Article(TestArticle.VALID_ART_NR + "abc",
+				TestArticle.VALID_WIDTH);
+
+		assertSame(upper.getKey(), lower.getKey());
+		assertSame(upper.getKey(),
+				ArticleKey.find(TestArticle.VALID_ART_NR + "aBc"));
+		assertEquals(TestArticle.VALID_ART_NR + "abc", upper.getKey()
+				.toString());
+	}
+
+	@Test
+	public void shouldChangeKeyWithArticleNumber() {
+		this.sut.setArtNr(TestArticle.VALID_ART_NR);
+		ArticleKey before = this.sut.getKey();
+
+		this.sut.setArtNr(TestArticle.EMPTY_ART_NR);
+
+		assertSame(ArticleKey.of(TestArticle.VALID_ART_NR), before);
+		assertSame(ArticleKey.of(TestArticle.EMPTY_ART_NR), this.sut.getKey());
+	}
+
+	@Test
+	public void shouldNotInternArticleNumbersOnlySearchedFor() {
+		assertNull(ArticleKey.find("neverStoredArtNr"));
+		assertNull(ArticleKey.find("neverStoredArtNr"));
+	}
+
+	@Test
+	public void shouldPackShortAlphanumericArticleNumbers() {
+		long packed = ArticleKey.pack("AbC123xyz789");
+
+		assertTrue(ArticleKey.NOT_PACKED != packed);
+		assertEquals(packed, ArticleKey.pack("abc123XYZ789"));
+		assertTrue(ArticleKey.pack("a") != ArticleKey.pack("a0"));
+		assertEquals(packed, ArticleKey.of("ABC123XYZ789").getPacked());
+		assertEquals(ArticleKey.NOT_PACKED, ArticleKey.pack("abc123xyz7890"));
+		assertEquals(ArticleKey.NOT_PACKED, ArticleKey.pack("abc-123"));
+	}
+
+	@Test
+	public void shouldShareKeyOfPackedAndUnpackedSpellings() {
+		// The Kelvin sign lower cases to an ASCII k
+		ArticleKey key = ArticleKey.of("\u212A1");
+
+		assertEquals(ArticleKey.NOT_PACKED, ArticleKey.pack("\u212A1"));
+		assertSame(key, ArticleKey.of("K1"));
+		assertSame(key, ArticleKey.find("k1"));
+		assertEquals("k1", key.toString());
+	}
+
+	@Test
+	public void shouldDecodeLowerCasedValueOfPackedKeys() {
+		assertEquals("abc123xyz789", ArticleKey.of("AbC123xYz789").toString());
+		assertEquals("0z", ArticleKey.of("0Z").toString());
+		assertEquals("ab-1", ArticleKey.of("AB-1").toString());
+	}
 }
@@ -0,0 +1,278 @@
+package inventory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import inventory.exceptions.InvalidWidthException;
+import inventory.exceptions.TooManyArticlesException;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestColumnarArticleStore {
+
+	private static final String VALID_STORAGE_NAME = "MyStorageLocation";
+	private static final String ARTICLE_NAME = "articleName";
+	private static final String ARTICLE_NAME_2 = "articleName2";
+	private static final double VALID_WIDTH = 10;
+
+	private StorageLocation sut;
+
+	@Before
+	public void setUp() {
+		this.sut = new StorageLocation(
+				TestColumnarArticleStore.VALID_STORAGE_NAME,
+				ArticleStorage.COLUMNAR);
+	}
+
+	/*
+	 * Insert
+	 */
+	@Test
+	public void shouldInsertArticles() {
+		this.insert5Articles();
+
+		assertEquals(5, this.sut.getArticleCount());
+		assertEquals(5 * TestColumnarArticleStore.VALID_WIDTH,
+				this.sut.getTotalWidth(), 0.001);
+	}
+
+	@Test
+	public void shouldReturnArticlesInInsertionOrder() {
+		this.insert5Articles();
+
+		LinkedList<Article> output = (LinkedList<Article>) this.sut
+				.getArticles();
+
+		assertEquals(TestColumnarArticleStore.ARTICLE_NAME, output.getFirst()
+				.getArtNr());
+		assertEquals(TestColumnarArticleStore.ARTICLE_NAME_2, output
+				.getLast().getArtNr());
+	}
+
+	@Test
+	public void shouldStoreCopiesOfArticles() {
+		Article input = new Article(TestColumnarArticleStore.ARTICLE_NAME,
+				TestColumnarArticleStore.VALID_WIDTH);
+
+		this.sut.insert(input);
+		input.setWidth(TestColumnarArticleStore.VALID_WIDTH * 2);
+
+		Article output = this.sut.getArticles().get(0);
+
+		assertNotSame(input, output);
+		assertEquals(TestColumnarArticleStore.VALID_WIDTH, output.getWidth(),
+				0.001);
+	}
+
+	@Test(expected = TooManyArticlesException.class)
+	public void shouldThrowWhenInsertingTooManyArticles() {
+		for (int i = 0; i < StorageLocation.MAX_ARTICLES + 1; i++)
+			this.sut.insert(new Article(TestColumnarArticleStore.ARTICLE_NAME,
+					0));
+	}
+
+	@Test(expected = InvalidWidthException.class)
+	public void shouldThrowWhenInsertingTooLargeWidth() {
+		this.sut.insert(new Article(TestColumnarArticleStore.ARTICLE_NAME,
+				StorageLocation.MAX_WIDTH));
+		this.sut.insert(new Article(TestColumnarArticleStore.ARTICLE_NAME, 1));
+	}
+
+	/*
+	 * Get
+	 */
+	@Test
+	public void shouldFindArticlesIgnoringCase() {
+		this.insert5Articles();
+
+		assertEquals(3,
+				this.sut.getArticles(
+						TestColumnarArticleStore.ARTICLE_NAME.toUpperCase())
+						.size());
+		assertEquals(2, this.sut
+				.getArticleCount(TestColumnarArticleStore.ARTICLE_NAME_2));
+	}
+
+	@Test
+	public void shouldNotFindUnknownArticleNumber() {
+		this.insert5Articles();
+
+		assertEquals(0, this.sut.getArticles("unknown").size());
+	}
+
+	/*
+	 * Pick
+	 */
+	@Test
+	public void shouldPickGivenAmount() {
+		this.insert5Articles();
+
+		LinkedList<Article> output = this.sut.pick(
+				TestColumnarArticleStore.ARTICLE_NAME, 2);
+
+		assertEquals(2, output.size());
+		assertEquals(1,
+				this.sut.getArticleCount(TestColumnarArticleStore.ARTICLE_NAME));
+		assertEquals(3 * TestColumnarArticleStore.VALID_WIDTH,
+				this.sut.getTotalWidth(), 0.001);
+	}
+
+	@Test
+	public void shouldPickAllWithArticleNumber() {
+		this.insert5Articles();
+
+		LinkedList<Article> output = this.sut
+				.pickAll(TestColumnarArticleStore.ARTICLE_NAME_2);
+
+		assertEquals(2, output.size());
+		assertEquals(3, this.sut.getArticleCount());
+	}
+
+	@Test
+	public void shouldPickAll() {
+		this.insert5Articles();
+
+		LinkedList<Article> output = this.sut.pickAll();
+
+		assertEquals(5, output.size());
+		assertEquals(0, this.sut.getArticleCount());
+		assertEquals(0, this.sut.getTotalWidth(), 0.0);
+	}
+
+	@Test
+	public void shouldPickManyOrderLines() {
+		this.insert5Articles();
+		Map<String, Integer> lines = new LinkedHashMap<String, Integer>();
+		lines.put(TestColumnarArticleStore.ARTICLE_NAME.toUpperCase(), 2);
+		lines.put(TestColumnarArticleStore.ARTICLE_NAME_2, 5);
+
+		Map<String, LinkedList<Article>> output = this.sut.pickMany(lines);
+
+		assertEquals(2,
+				output.get(TestColumnarArticleStore.ARTICLE_NAME.toUpperCase())
+						.size());
+		assertEquals(2, output.get(TestColumnarArticleStore.ARTICLE_NAME_2)
+				.size());
+		assertEquals(1, this.sut.getArticleCount());
+		assertEquals(1,
+				this.sut.getArticleCount(TestColumnarArticleStore.ARTICLE_NAME));
+		assertEquals(TestColumnarArticleStore.VALID_WIDTH,
+				this.sut.getTotalWidth(), 0.001);
+	}
+
+	/*
+	 * Article number ids
+	 */
+	@Test
+	public void shouldReclaimIdOnceLastArticleIsPicked() {
+		String artNr = "reclaimedArtNr";
+		this.sut.insert(new Article(artNr, TestColumnarArticleStore.VALID_WIDTH));
+		this.sut.insert(new Article(artNr, TestColumnarArticleStore.VALID_WIDTH));
+
+		this.sut.pick(artNr, 1);
+
+		assertEquals(1, ArticleNumbers.idsFor(artNr).length);
+
+		this.sut.pick(artNr, 1);
+
+		assertEquals(0, ArticleNumbers.idsFor(artNr).length);
+	}
+
+	@Test
+	public void shouldKeepIdsConsistentWhenInterningAndReleasingConcurrently()
+			throws InterruptedException {
+		final String artNr = "concurrentArtNr";
+		final AtomicInteger wrong = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						int id = ArticleNumbers.intern(artNr);
+
+						if (!artNr.equals(ArticleNumbers.get(id)))
+							wrong.incrementAndGet();
+
+						ArticleNumbers.release(id);
+					}
+				}
+			});
+			threads[t].start();
+		}
+
+		for (Thread t : threads)
+			t.join();
+
+		assertEquals(0, wrong.get());
+		assertEquals(0, ArticleNumbers.idsFor(artNr).length);
+	}
+
+	/*
+	 * Snapshots
+	 */
+	@Test
+	public void shouldNotChangeSnapshotWhenArticlesArePickedOrInserted() {
+		Stock stock = new Stock(ArticleStorage.COLUMNAR);
+		StorageLocation loc = stock
+				.createStorageLocation(TestColumnarArticleStore.VALID_STORAGE_NAME);
+		this.sut = loc;
+		this.insert5Articles();
+		StockSnapshot before = stock.getSnapshot();
+
+		loc.pick(TestColumnarArticleStore.ARTICLE_NAME, 2);
+		loc.insert(new Article(TestColumnarArticleStore.ARTICLE_NAME_2, 1));
+
+		LocationSnapshot old = before.getStorageLocations().get(0);
+		LocationSnapshot now = stock.getSnapshot().getStorageLocations()
+				.get(0);
+		assertEquals(5, old.getArticleCount());
+		assertEquals(3, old.getArticleCount(TestColumnarArticleStore.ARTICLE_NAME));
+		assertEquals(5 * TestColumnarArticleStore.VALID_WIDTH,
+				old.getTotalWidth(), 0.001);
+		assertEquals(TestColumnarArticleStore.ARTICLE_NAME, old.getArticles()
+				.getFirst().getArtNr());
+		assertEquals(4, now.getArticleCount());
+		assertEquals(1, now.getArticleCount(TestColumnarArticleStore.ARTICLE_NAME));
+		assertEquals(3 * TestColumnarArticleStore.VALID_WIDTH + 1,
+				now.getTotalWidth(), 0.001);
+	}
+
+	@Test
+	public void shouldKeepIdsOfSnapshotAfterLastArticleIsPicked() {
+		String artNr = "snapshotArtNr";
+		Stock stock = new Stock(ArticleStorage.COLUMNAR);
+		StorageLocation loc = stock
+				.createStorageLocation(TestColumnarArticleStore.VALID_STORAGE_NAME);
+		loc.insert(new Article(artNr, TestColumnarArticleStore.VALID_WIDTH));
+		StockSnapshot before = stock.getSnapshot();
+
+		loc.pickAll(artNr);
+
+		assertEquals(1, ArticleNumbers.idsFor(artNr).length);
+		assertEquals(artNr, before.getStorageLocations().get(0).getArticles()
+				.getFirst().getArtNr());
+		assertEquals(0, stock.getSnapshot().getStorageLocations().get(0)
+				.getArticleCount());
+	}
+
+	/*
+	 * Helper methods
+	 */
+	private void insert5Articles() {
+		LinkedList<Article> articles = new LinkedList<Article>();
+
+		for (int i = 0; i < 5; i++)
+			articles.add(new Article(
+					i < 3 ? TestColumnarArticleStore.ARTICLE_NAME
+							: TestColumnarArticleStore.ARTICLE_NAME_2,
+					TestColumnarArticleStore.VALID_WIDTH));
+
+		this.sut.insertMany(articles);
+	}
+}
@@ -0,0 +1,393 @@
+package inventory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import inventory.exceptions.InvalidWidthException;
+import inventory.exceptions.TooManyArticlesException;
+import inventory.metrics.HistogramMetrics;
+import inventory.metrics.Operation;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestConcurrentStorageLocation {
+
+	private static final String VALID_STORAGE_NAME = "MyStorageLocation";
+	private static final String ARTICLE_NAME = "articleName";
+	private static final String ARTICLE_NAME_2 = "articleName2";
+	private static final double VALID_WIDTH = 10;
+	private static final int THREADS = 8;
+	private static final int ARTICLES_PER_THREAD = 500;
+
+	private int maxArticles;
+	private double maxWidth;
+	private ConcurrentStorageLocation sut;
+
+	@Before
+	public void setUp() {
+		this.maxArticles = StorageLocation.MAX_ARTICLES;
+		this.maxWidth = StorageLocation.MAX_WIDTH;
+		this.sut = new ConcurrentStorageLocation(
+				TestConcurrentStorageLocation.VALID_STORAGE_NAME);
+	}
+
+	@After
+	public void tearDown() {
+		StorageLocation.MAX_ARTICLES = this.maxArticles;
+		StorageLocation.MAX_WIDTH = this.maxWidth;
+	}
+
+	/*
+	 * Single threaded
+	 */
+	@Test
+	public void shouldInsertAndFindIgnoringCase() {
+		this.sut.insert(this.createArticle(TestConcurrentStorageLocation.ARTICLE_NAME));
+
+		assertEquals(1,
+				this.sut.getArticles(
+						TestConcurrentStorageLocation.ARTICLE_NAME.toUpperCase())
+						.size());
+		assertEquals(TestConcurrentStorageLocation.VALID_WIDTH,
+				this.sut.getTotalWidth(), 0.001);
+	}
+
+	@Test(expected = TooManyArticlesException.class)
+	public void shouldThrowWhenInsertingTooManyArticles() {
+		for (int i = 0; i < StorageLocation.MAX_ARTICLES + 1; i++)
+			this.sut.insert(new Article(
+					TestConcurrentStorageLocation.ARTICLE_NAME, 0));
+	}
+
+	@Test(expected = InvalidWidthException.class)
+	public void shouldThrowWhenInsertingTooLargeWidth() {
+		this.sut.insert(new Article(TestConcurrentStorageLocation.ARTICLE_NAME,
+				StorageLocation.MAX_WIDTH));
+		this.sut.insert(new Article(TestConcurrentStorageLocation.ARTICLE_NAME,
+				1));
+	}
+
+	@Test
+	public void shouldPickGivenAmount() {
+		this.insertArticles(TestConcurrentStorageLocation.ARTICLE_NAME, 3);
+		this.insertArticles(TestConcurrentStorageLocation.ARTICLE_NAME_2, 2);
+
+		LinkedList<Article> output = this.sut.pick(
+				TestConcurrentStorageLocation.ARTICLE_NAME, 2);
+
+		assertEquals(2, output.size());
+		assertEquals(3, this.sut.getArticleCount());
+		assertEquals(3 * TestConcurrentStorageLocation.VALID_WIDTH,
+				this.sut.getTotalWidth(), 0.001);
+	}
+
+	@Test
+	public void shouldPickAll() {
+		this.insertArticles(TestConcurrentStorageLocation.ARTICLE_NAME, 3);
+		this.insertArticles(TestConcurrentStorageLocation.ARTICLE_NAME_2, 2);
+
+		assertEquals(5, this.sut.pickAll().size());
+		assertEquals(0, this.sut.getArticleCount());
+		assertEquals(0, this.sut.getArticles().size());
+	}
+
+	@Test
+	public void shouldPickManyOrderLines() {
+		this.insertArticles(TestConcurrentStorageLocation.ARTICLE_NAME, 3);
+		this.insertArticles(TestConcurrentStorageLocation.ARTICLE_NAME_2, 2);
+		Map<String, Integer> lines = new LinkedHashMap<String, Integer>();
+		lines.put(TestConcurrentStorageLocation.ARTICLE_NAME, 2);
+		lines.put(TestConcurrentStorageLocation.ARTICLE_NAME_2.toUpperCase(), 5);
+
+		Map<String, LinkedList<Article>> output = this.sut.pickMany(lines);
+
+		assertEquals(2, output.get(TestConcurrentStorageLocation.ARTICLE_NAME)
+				.size());
+		assertEquals(2,
+				output.get(
+						TestConcurrentStorageLocation.ARTICLE_NAME_2
+								.toUpperCase()).size());
+		assertEquals(1, this.sut.getArticleCount());
+		assertEquals(TestConcurrentStorageLocation.VALID_WIDTH,
+				this.sut.getTotalWidth(), 0.001);
+	}
+
+	@Test
+	public void shouldMoveRenamedArticle() {
+		Article article = this
+				.createArticle(TestConcurrentStorageLocation.ARTICLE_NAME);
+		this.sut.insert(article);
+
+		article.setArtNr(TestConcurrentStorageLocation.ARTICLE_NAME_2);
+
+		assertEquals(0, this.sut
+				.getArticleCount(TestConcurrentStorageLocation.ARTICLE_NAME));
+		assertEquals(1, this.sut
+				.getArticleCount(TestConcurrentStorageLocation.ARTICLE_NAME_2));
+	}
+
+	/*
+	 * Multi threaded
+	 */
+	@Test
+	public void shouldNeverExceedMaxArticlesWhenInsertingConcurrently()
+			throws InterruptedException {
+		StorageLocation.MAX_ARTICLES = TestConcurrentStorageLocation.ARTICLES_PER_THREAD;
+		StorageLocation.MAX_WIDTH = Double.MAX_VALUE;
+		final AtomicInteger rejected = new AtomicInteger();
+
+		this.runConcurrently(new Runnable() {
+			public void run() {
+				for (int i = 0; i < TestConcurrentStorageLocation.ARTICLES_PER_THREAD; i++)
+					try {
+						TestConcurrentStorageLocation.this.sut
+								.insert(createArticle(TestConcurrentStorageLocation.ARTICLE_NAME
+										+ i % 4));
+					} catch (TooManyArticlesException e) {
+						rejected.incrementAndGet();
+					}
+			}
+		});
+
+		assertEquals(StorageLocation.MAX_ARTICLES, this.sut.getArticleCount());
+		assertEquals(StorageLocation.MAX_ARTICLES, this.sut.getArticles()
+				.size());
+		assertEquals(TestConcurrentStorageLocation.THREADS
+				* TestConcurrentStorageLocation.ARTICLES_PER_THREAD
+				- StorageLocation.MAX_ARTICLES, rejected.get());
+	}
+
+	@Test
+	public void shouldPickEachArticleOnceWhenPickingConcurrently()
+			throws InterruptedException {
+		StorageLocation.MAX_ARTICLES = Integer.MAX_VALUE;
+		StorageLocation.MAX_WIDTH = Double.MAX_VALUE;
+		final int total = TestConcurrentStorageLocation.THREADS
+				* TestConcurrentStorageLocation.ARTICLES_PER_THREAD;
+		this.insertArticles(TestConcurrentStorageLocation.ARTICLE_NAME, total);
+		final AtomicInteger picked = new AtomicInteger();
+
+		this.runConcurrently(new Runnable() {
+			public void run() {
+				for (int i = 0; i < TestConcurrentStorageLocation.ARTICLES_PER_THREAD; i++)
+					picked.addAndGet(TestConcurrentStorageLocation.this.sut
+							.pick(TestConcurrentStorageLocation.ARTICLE_NAME, 1)
+							.size());
+			}
+		});
+
+		assertEquals(total, picked.get());
+		assertEquals(0, this.sut.getArticleCount());
+		assertTrue(this.sut.getArticles().isEmpty());
+	}
+
+	@Test
+	public void shouldKeepAllArticlesWhenMovingBothWaysConcurrently()
+			throws InterruptedException {
+		StorageLocation.MAX_ARTICLES = Integer.MAX_VALUE;
+		StorageLocation.MAX_WIDTH = Double.MAX_VALUE;
+		final int total = TestConcurrentStorageLocation.THREADS
+				* TestConcurrentStorageLocation.ARTICLES_PER_THREAD;
+		this.insertArticles(TestConcurrentStorageLocation.ARTICLE_NAME, total);
+		final ConcurrentStorageLocation other = new ConcurrentStorageLocation(
+				TestConcurrentStorageLocation.VALID_STORAGE_NAME);
+		final Stock stock = new Stock();
+		stock.addStorageLocation(this.sut);
+		stock.addStorageLocation(other);
+		final AtomicInteger started = new AtomicInteger();
+
+		this.runConcurrently(new Runnable() {
+			public void run() {
+				boolean forward = 0 == started.getAndIncrement() % 2;
+				StorageLocation from = forward ? TestConcurrentStorageLocation.this.sut
+						: other;
+				StorageLocation to = forward ? other
+						: TestConcurrentStorageLocation.this.sut;
+
+				for (int i = 0; i < TestConcurrentStorageLocation.ARTICLES_PER_THREAD; i++)
+					stock.moveAllArticles(to, from,
+							TestConcurrentStorageLocation.ARTICLE_NAME);
+			}
+		});
+
+		assertEquals(total, this.sut.getArticleCount()
+				+ other.getArticleCount());
+		assertEquals(total, stock.findArticles(
+				TestConcurrentStorageLocation.ARTICLE_NAME).size());
+	}
+
+	@Test
+	public void shouldNotMoveArticlesThatDoNotFit() {
+		StorageLocation.MAX_ARTICLES = 2;
+		this.insertArticles(TestConcurrentStorageLocation.ARTICLE_NAME, 2);
+		ConcurrentStorageLocation other = new ConcurrentStorageLocation(
+				TestConcurrentStorageLocation.VALID_STORAGE_NAME);
+		other.insert(this.createArticle(TestConcurrentStorageLocation.ARTICLE_NAME_2));
+
+		assertFalse(new Stock().moveAllArticles(other, this.sut));
+		assertEquals(2, this.sut.getArticleCount());
+		assertEquals(1, other.getArticleCount());
+	}
+
+	@Test
+	public void shouldNotMoveArticlesFromPlainLocationThatDoNotFit() {
+		StorageLocation.MAX_ARTICLES = 2;
+		this.insertArticles(TestConcurrentStorageLocation.ARTICLE_NAME, 2);
+		StorageLocation plain = new StorageLocation(
+				TestConcurrentStorageLocation.VALID_STORAGE_NAME);
+		plain.insert(this.createArticle(TestConcurrentStorageLocation.ARTICLE_NAME_2));
+
+		assertFalse(new Stock().moveAllArticles(this.sut, plain));
+		assertEquals(2, this.sut.getArticleCount());
+		assertEquals(1, plain.getArticleCount());
+		assertEquals(TestConcurrentStorageLocation.VALID_WIDTH,
+				plain.getTotalWidth(), 0.001);
+	}
+
+	@Test
+	public void shouldMoveWidthOfPickedArticlesToPlainLocation() {
+		final ConcurrentStorageLocation source = new ConcurrentStorageLocation(
+				TestConcurrentStorageLocation.VALID_STORAGE_NAME) {
+			@Override
+			public double getTotalWidth(String string) {
+				double width = super.getTotalWidth(string);
+				// An insert racing with the move
+				this.insert(TestConcurrentStorageLocation.this
+						.createArticle(string));
+				return width;
+			}
+		};
+		source.insert(this.createArticle(TestConcurrentStorageLocation.ARTICLE_NAME));
+		StorageLocation plain = new StorageLocation(
+				TestConcurrentStorageLocation.VALID_STORAGE_NAME);
+
+		assertTrue(new Stock().moveAllArticles(plain, source,
+				TestConcurrentStorageLocation.ARTICLE_NAME));
+		assertEquals(plain.getArticleCount()
+				* TestConcurrentStorageLocation.VALID_WIDTH,
+				plain.getTotalWidth(), 0.001);
+		assertEquals(source.getArticleCount()
+				* TestConcurrentStorageLocation.VALID_WIDTH,
+				source.getTotalWidth(), 0.001);
+	}
+
+	@Test
+	public void shouldNotExceedMaxArticlesWhenMovingFromPlainLocationWhileInserting() {
+		StorageLocation.MAX_ARTICLES = 2;
+		this.insertArticles(TestConcurrentStorageLocation.ARTICLE_NAME, 1);
+		StorageLocation plain = new StorageLocation(
+				TestConcurrentStorageLocation.VALID_STORAGE_NAME) {
+			@Override
+			public LinkedList<Article> pickAll() {
+				// An insert racing with the move fills the target
+				TestConcurrentStorageLocation.this.sut
+						.insert(TestConcurrentStorageLocation.this
+								.createArticle(TestConcurrentStorageLocation.ARTICLE_NAME));
+				return super.pickAll();
+			}
+		};
+		plain.insert(this.createArticle(TestConcurrentStorageLocation.ARTICLE_NAME_2));
+
+		assertFalse(new Stock().moveAllArticles(this.sut, plain));
+		assertEquals(2, this.sut.getArticleCount());
+		assertEquals(1, plain.getArticleCount());
+		assertEquals(TestConcurrentStorageLocation.VALID_WIDTH,
+				plain.getTotalWidth(), 0.001);
+	}
+
+	@Test
+	public void shouldReportConcurrentInsertsAndPicks()
+			throws InterruptedException {
+		StorageLocation.MAX_ARTICLES = Integer.MAX_VALUE;
+		StorageLocation.MAX_WIDTH = Double.MAX_VALUE;
+		final HistogramMetrics metrics = new HistogramMetrics();
+		this.sut.setMetrics(metrics);
+
+		this.runConcurrently(new Runnable() {
+			public void run() {
+				for (int i = 0; i < TestConcurrentStorageLocation.ARTICLES_PER_THREAD; i++) {
+					TestConcurrentStorageLocation.this.sut
+							.insert(TestConcurrentStorageLocation.this
+									.createArticle(TestConcurrentStorageLocation.ARTICLE_NAME));
+					TestConcurrentStorageLocation.this.sut.pick(
+							TestConcurrentStorageLocation.ARTICLE_NAME, 1);
+				}
+			}
+		});
+
+		long operations = TestConcurrentStorageLocation.THREADS
+				* TestConcurrentStorageLocation.ARTICLES_PER_THREAD;
+
+		assertEquals(operations, metrics.getLatencies(Operation.INSERT)
+				.getCount());
+		assertEquals(operations, metrics.getLatencies(Operation.PICK)
+				.getCount());
+	}
+
+	@Test
+	public void shouldReportRejectedReservations() {
+		StorageLocation.MAX_ARTICLES = 1;
+		HistogramMetrics metrics = new HistogramMetrics();
+		this.sut.setMetrics(metrics);
+		this.sut.insert(this.createArticle(TestConcurrentStorageLocation.ARTICLE_NAME));
+
+		try {
+			this.sut.insert(this
+					.createArticle(TestConcurrentStorageLocation.ARTICLE_NAME));
+		} catch (TooManyArticlesException e) {
+		}
+
+		assertEquals(1, metrics.getRejected(Operation.INSERT));
+		assertEquals(1, (long) metrics.getRejections().get(
+				"TooManyArticlesException"));
+	}
+
+	/*
+	 * Helper methods
+	 */
+	private Article createArticle(String name) {
+		return new Article(name, TestConcurrentStorageLocation.VALID_WIDTH);
+	}
+
+	private void insertArticles(String name, int count) {
+		LinkedList<Article> articles = new LinkedList<Article>();
+
+		for (int i = 0; i < count; i++)
+			articles.add(this.createArticle(name));
+
+		this.sut.insertMany(articles);
+	}
+
+	private void runConcurrently(final Runnable task)
+			throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[TestConcurrentStorageLocation.THREADS];
+
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					task.run();
+				}
+			});
+			threads[i].start();
+		}
+
+		start.countDown();
+
+		for (Thread t : threads)
+			t.join();
+	}
+}
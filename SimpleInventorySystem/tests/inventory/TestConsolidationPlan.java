@@ -0,0 +1,197 @@
+package inventory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestConsolidationPlan {
+
+	private static final String VALID_STORAGE_NAME = "SomeName";
+	private static final String VALID_ART_NR_1 = "1";
+	private static final int MANY_STORAGE_LOCATIONS = 10;
+	private static final int LARGE_STOCK = 100000;
+	private static final long LARGE_STOCK_MILLIS = 1000;
+
+	private int maxArticles;
+	private int maxStorageLocations;
+	private Stock sut;
+
+	@Before
+	public void setUp() {
+		this.maxArticles = StorageLocation.MAX_ARTICLES;
+		this.maxStorageLocations = Stock.MAX_STORAGE_LOCATIONS;
+		Stock.MAX_STORAGE_LOCATIONS = TestConsolidationPlan.MANY_STORAGE_LOCATIONS;
+		this.sut = new Stock();
+	}
+
+	@After
+	public void tearDown() {
+		StorageLocation.MAX_ARTICLES = this.maxArticles;
+		Stock.MAX_STORAGE_LOCATIONS = this.maxStorageLocations;
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowWhenNullSlotting() {
+		this.sut.planConsolidation(null);
+	}
+
+	@Test
+	public void shouldPackLargestContentsFirstWithBestFit() {
+		StorageLocation[] locs = this.createStorageLocations(600, 100, 500,
+				300, 400);
+
+		List<ConsolidationPlan.Move> moves = this.sut.planConsolidation(
+				Slotting.BEST_FIT).getMoves();
+
+		assertEquals(2, moves.size());
+		this.verifyMove(moves.get(0), locs[4], locs[2]);
+		this.verifyMove(moves.get(1), locs[3], locs[0]);
+	}
+
+	@Test
+	public void shouldPackIntoEarliestKeptLocationWithFirstFit() {
+		StorageLocation[] locs = this.createStorageLocations(700, 600, 250,
+				200, 150);
+
+		List<ConsolidationPlan.Move> moves = this.sut.planConsolidation(
+				Slotting.FIRST_FIT).getMoves();
+
+		assertEquals(3, moves.size());
+		this.verifyMove(moves.get(0), locs[2], locs[0]);
+		this.verifyMove(moves.get(1), locs[3], locs[1]);
+		this.verifyMove(moves.get(2), locs[4], locs[1]);
+	}
+
+	@Test
+	public void shouldRespectArticleCount() {
+		StorageLocation.MAX_ARTICLES = 3;
+		StorageLocation[] locs = this.createStorageLocations(2, 2, 1);
+		locs[0].insert(new Article(TestConsolidationPlan.VALID_ART_NR_1, 1));
+		locs[1].insert(new Article(TestConsolidationPlan.VALID_ART_NR_1, 1));
+
+		List<ConsolidationPlan.Move> moves = this.sut.planConsolidation(
+				Slotting.BEST_FIT).getMoves();
+
+		assertEquals(1, moves.size());
+		this.verifyMove(moves.get(0), locs[2], locs[0]);
+	}
+
+	@Test
+	public void shouldMergeAwayPlannedLocations() {
+		StorageLocation[] locs = this.createStorageLocations(600, 100, 500,
+				300, 400);
+		this.sut.createStorageLocation(TestConsolidationPlan.VALID_STORAGE_NAME);
+
+		int merged = this.sut.planConsolidation(Slotting.BEST_FIT).apply();
+
+		assertEquals(2, merged);
+		assertEquals(4, this.sut.getStorageLocations().size());
+		assertEquals(2, locs[0].getArticleCount());
+		assertEquals(2, locs[2].getArticleCount());
+		assertEquals(5, this.sut.findArticles(
+				TestConsolidationPlan.VALID_ART_NR_1).size());
+	}
+
+	@Test
+	public void shouldSkipMovesThatNoLongerFit() {
+		StorageLocation[] locs = this.createStorageLocations(600, 300);
+		ConsolidationPlan plan = this.sut.planConsolidation(Slotting.BEST_FIT);
+
+		locs[0].insert(new Article(TestConsolidationPlan.VALID_ART_NR_1, 200));
+
+		assertEquals(0, plan.apply());
+		assertEquals(2, this.sut.getStorageLocations().size());
+		assertEquals(1, locs[1].getArticleCount());
+	}
+
+	@Test
+	public void shouldPlanLargeStockQuickly() {
+		Stock.MAX_STORAGE_LOCATIONS = TestConsolidationPlan.LARGE_STOCK;
+		List<StorageLocation> locs = new ArrayList<StorageLocation>();
+
+		for (int i = 0; i < Stock.MAX_STORAGE_LOCATIONS; i++) {
+			StorageLocation loc = new StorageLocation(
+					TestConsolidationPlan.VALID_STORAGE_NAME);
+
+			for (int n = 0; n <= i % 4; n++)
+				loc.insert(new Article(TestConsolidationPlan.VALID_ART_NR_1,
+						1 + (i + n) % 200));
+
+			locs.add(loc);
+		}
+
+		this.sut.addStorageLocations(locs);
+
+		// Planning once first keeps compilation out of the measured time
+		for (Slotting slotting : Slotting.values())
+			this.sut.planConsolidation(slotting);
+
+		for (Slotting slotting : Slotting.values()) {
+			long start = System.nanoTime();
+			List<ConsolidationPlan.Move> moves = this.sut.planConsolidation(
+					slotting).getMoves();
+			long millis = (System.nanoTime() - start) / 1000000;
+
+			assertTrue(moves.size() > Stock.MAX_STORAGE_LOCATIONS / 2);
+			assertTrue(slotting + " took " + millis + " ms",
+					millis < TestConsolidationPlan.LARGE_STOCK_MILLIS);
+		}
+	}
+
+	@Test
+	public void shouldApplyLargePlanQuicklyAsOneVersion() {
+		Stock.MAX_STORAGE_LOCATIONS = 100000;
+		List<StorageLocation> locs = new ArrayList<StorageLocation>();
+
+		for (int i = 0; i < Stock.MAX_STORAGE_LOCATIONS; i++) {
+			StorageLocation loc = new StorageLocation(
+					TestConsolidationPlan.VALID_STORAGE_NAME);
+			loc.insert(new Article(TestConsolidationPlan.VALID_ART_NR_1,
+					1 + i % 500));
+			locs.add(loc);
+		}
+
+		this.sut.addStorageLocations(locs);
+		ConsolidationPlan plan = this.sut.planConsolidation(Slotting.FIRST_FIT);
+		long version = this.sut.getSnapshot().getVersion();
+
+		long start = System.nanoTime();
+		int merged = plan.apply();
+		long elapsed = System.nanoTime() - start;
+
+		assertEquals(plan.getMoves().size(), merged);
+		assertEquals(Stock.MAX_STORAGE_LOCATIONS - merged, this.sut
+				.getSnapshot().getStorageLocations().size());
+		assertEquals(version + 1, this.sut.getSnapshot().getVersion());
+		assertTrue(elapsed < 5000000000L);
+	}
+
+	/*
+	 * Helper methods
+	 */
+	private StorageLocation[] createStorageLocations(double... widths) {
+		StorageLocation[] locs = new StorageLocation[widths.length];
+
+		for (int i = 0; i < widths.length; i++) {
+			locs[i] = this.sut
+					.createStorageLocation(TestConsolidationPlan.VALID_STORAGE_NAME);
+			locs[i].insert(new Article(TestConsolidationPlan.VALID_ART_NR_1,
+					widths[i]));
+		}
+
+		return locs;
+	}
+
+	private void verifyMove(ConsolidationPlan.Move move, StorageLocation from,
+			StorageLocation to) {
+		assertSame(from, move.getFrom());
+		assertSame(to, move.getTo());
+	}
+}
@@ -0,0 +1,107 @@
+package inventory;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestFreeCapacityIndex {
+
+	private static final String VALID_STORAGE_NAME = "SomeName";
+	private static final int MANY_STORAGE_LOCATIONS = 100;
+
+	private FreeCapacityIndex sut;
+	private StorageLocation loc1;
+	private StorageLocation loc2;
+	private StorageLocation loc3;
+
+	@Before
+	public void setUp() {
+		this.sut = new FreeCapacityIndex();
+		this.loc1 = new StorageLocation(TestFreeCapacityIndex.VALID_STORAGE_NAME);
+		this.loc2 = new StorageLocation(TestFreeCapacityIndex.VALID_STORAGE_NAME);
+		this.loc3 = new StorageLocation(TestFreeCapacityIndex.VALID_STORAGE_NAME);
+	}
+
+	@Test
+	public void shouldFindNothingWhenEmpty() {
+		assertNull(this.sut.bestFit(1));
+		assertNull(this.sut.firstFit(1));
+	}
+
+	@Test
+	public void shouldFindFullestLocationWithRoomForBestFit() {
+		this.sut.update(this.loc1, 100, 1);
+		this.sut.update(this.loc2, StorageLocation.MAX_WIDTH - 10, 1);
+		this.sut.update(this.loc3, 500, 1);
+
+		assertSame(this.loc2, this.sut.bestFit(10));
+		assertSame(this.loc3, this.sut.bestFit(11));
+		assertSame(this.loc1, this.sut.bestFit(StorageLocation.MAX_WIDTH - 100));
+		assertNull(this.sut.bestFit(StorageLocation.MAX_WIDTH - 99));
+	}
+
+	@Test
+	public void shouldFindEarliestLocationWithRoomForFirstFit() {
+		this.sut.update(this.loc1, 500, 1);
+		this.sut.update(this.loc2, 100, 1);
+		this.sut.update(this.loc3, 0, 1);
+
+		assertSame(this.loc1, this.sut.firstFit(10));
+		assertSame(this.loc2, this.sut.firstFit(StorageLocation.MAX_WIDTH - 200));
+		assertSame(this.loc3, this.sut.firstFit(StorageLocation.MAX_WIDTH));
+	}
+
+	@Test
+	public void shouldSkipLocationsWithoutFreeArticleSlot() {
+		this.sut.update(this.loc1, 0, StorageLocation.MAX_ARTICLES);
+		this.sut.update(this.loc2, 100, StorageLocation.MAX_ARTICLES - 1);
+
+		assertSame(this.loc2, this.sut.bestFit(1));
+		assertSame(this.loc2, this.sut.firstFit(1));
+
+		this.sut.update(this.loc1, 0, StorageLocation.MAX_ARTICLES - 1);
+
+		assertSame(this.loc1, this.sut.firstFit(1));
+	}
+
+	@Test
+	public void shouldFollowUpdatesAndRemovals() {
+		this.sut.update(this.loc1, 100, 1);
+		this.sut.update(this.loc2, 200, 1);
+		this.sut.update(this.loc1, 300, 2);
+
+		assertSame(this.loc1, this.sut.bestFit(1));
+
+		this.sut.remove(this.loc1);
+
+		assertSame(this.loc2, this.sut.bestFit(1));
+		assertSame(this.loc2, this.sut.firstFit(1));
+
+		this.sut.remove(this.loc2);
+
+		assertNull(this.sut.bestFit(1));
+		assertNull(this.sut.firstFit(1));
+	}
+
+	@Test
+	public void shouldKeepInsertionOrderWhenGrowing() {
+		StorageLocation[] locs = new StorageLocation[TestFreeCapacityIndex.MANY_STORAGE_LOCATIONS];
+
+		for (int i = 0; i < locs.length; i++) {
+			locs[i] = new StorageLocation(
+					TestFreeCapacityIndex.VALID_STORAGE_NAME);
+			this.sut.update(locs[i], StorageLocation.MAX_WIDTH - i, 0);
+
+			if (i % 2 == 1)
+				this.sut.remove(locs[i - 1]);
+		}
+
+		assertSame(locs[1], this.sut.firstFit(1));
+		assertSame(locs[51], this.sut.firstFit(51));
+		assertSame(locs[locs.length - 1], this.sut.firstFit(locs.length - 1));
+		assertNull(this.sut.firstFit(locs.length));
+		assertSame(locs[3], this.sut.bestFit(2));
+	}
+}
@@ -0,0 +1,189 @@
+package inventory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestInventoryEvents {
+
+	private static final String LOCATION_NAME = "From";
+	private static final String LOCATION_NAME_2 = "To";
+	private static final String ART_NR = "eventArtNr";
+	private static final String[] EVENTS = { "inventory.Insert",
+			"inventory.Pick", "inventory.MoveAllArticles",
+			"inventory.MergeStorageLocations",
+			"inventory.RemoveStorageLocations" };
+
+	private Recording recording;
+	private Stock stock;
+	private StorageLocation from;
+	private StorageLocation to;
+
+	@Before
+	public void setUp() {
+		this.recording = new Recording();
+
+		for (String name : TestInventoryEvents.EVENTS)
+			this.recording.enable(name).withThreshold(Duration.ZERO);
+
+		this.stock = new Stock();
+		this.from = new StorageLocation(TestInventoryEvents.LOCATION_NAME);
+		this.to = new StorageLocation(TestInventoryEvents.LOCATION_NAME_2);
+		this.stock.addStorageLocation(this.from);
+		this.stock.addStorageLocation(this.to);
+	}
+
+	@After
+	public void tearDown() {
+		this.recording.close();
+	}
+
+	@Test
+	public void shouldRecordInsertsAndPicks() throws IOException {
+		this.recording.start();
+		this.insert(this.from, 2);
+		this.from.pick(TestInventoryEvents.ART_NR, 1);
+
+		RecordedEvent insert = this.single("inventory.Insert");
+		RecordedEvent pick = this.single("inventory.Pick");
+
+		assertEquals(TestInventoryEvents.LOCATION_NAME,
+				insert.getString("location"));
+		assertEquals(TestInventoryEvents.ART_NR, insert.getString("artNr"));
+		assertEquals(2, insert.getInt("articles"));
+		assertEquals(1, pick.getInt("articles"));
+		assertTrue(insert.getDuration().compareTo(Duration.ZERO) >= 0);
+	}
+
+	@Test
+	public void shouldRecordPickMany() throws IOException {
+		this.insert(this.from, 3);
+		Map<String, Integer> lines = new HashMap<String, Integer>();
+		lines.put(TestInventoryEvents.ART_NR, 2);
+		this.recording.start();
+		this.from.pickMany(lines);
+
+		RecordedEvent pick = this.single("inventory.Pick");
+
+		assertEquals(TestInventoryEvents.LOCATION_NAME,
+				pick.getString("location"));
+		assertNull(pick.getString("artNr"));
+		assertEquals(2, pick.getInt("articles"));
+	}
+
+	@Test
+	public void shouldRecordMoves() throws IOException {
+		this.insert(this.from, 3);
+		this.recording.start();
+		this.stock.moveAllArticles(this.to, this.from,
+				TestInventoryEvents.ART_NR);
+
+		RecordedEvent move = this.single("inventory.MoveAllArticles");
+
+		assertEquals(TestInventoryEvents.LOCATION_NAME,
+				move.getString("location"));
+		assertEquals(TestInventoryEvents.LOCATION_NAME_2,
+				move.getString("destination"));
+		assertEquals(3, move.getInt("articles"));
+	}
+
+	@Test
+	public void shouldRecordMerges() throws IOException {
+		this.insert(this.from, 2);
+		this.recording.start();
+		this.stock.mergeStorageLocations(this.to, this.from);
+
+		RecordedEvent merge = this.single("inventory.MergeStorageLocations");
+
+		assertEquals(TestInventoryEvents.LOCATION_NAME,
+				merge.getString("location"));
+		assertEquals(TestInventoryEvents.LOCATION_NAME_2,
+				merge.getString("destination"));
+		assertEquals(2, merge.getInt("articles"));
+		assertNull(merge.getString("artNr"));
+	}
+
+	@Test
+	public void shouldRecordRemovals() throws IOException {
+		this.insert(this.to, 2);
+		this.recording.start();
+		this.stock.removeAllStorageLocations(TestInventoryEvents.LOCATION_NAME);
+		this.stock.removeAllStorageLocations();
+
+		List<RecordedEvent> removals = this
+				.events("inventory.RemoveStorageLocations");
+
+		assertEquals(2, removals.size());
+		assertEquals(TestInventoryEvents.LOCATION_NAME, removals.get(0)
+				.getString("location"));
+		assertEquals(1, removals.get(0).getInt("locations"));
+		assertNull(removals.get(1).getString("location"));
+		assertEquals(2, removals.get(1).getInt("articles"));
+	}
+
+	@Test
+	public void shouldNotRecordBelowThreshold() throws IOException {
+		this.recording.enable("inventory.Insert").withThreshold(
+				Duration.ofHours(1));
+		this.recording.start();
+		this.insert(this.from, 1);
+
+		assertEquals(0, this.events("inventory.Insert").size());
+	}
+
+	/*
+	 * Helper methods
+	 */
+
+	private void insert(StorageLocation loc, int count) {
+		LinkedList<Article> articles = new LinkedList<Article>();
+
+		for (int i = 0; i < count; i++)
+			articles.add(new Article(TestInventoryEvents.ART_NR, 1));
+
+		loc.insertMany(articles);
+	}
+
+	private RecordedEvent single(String name) throws IOException {
+		List<RecordedEvent> events = this.events(name);
+		assertEquals(1, events.size());
+		return events.get(0);
+	}
+
+	private List<RecordedEvent> events(String name) throws IOException {
+		if (RecordingState.RUNNING == this.recording.getState())
+			this.recording.stop();
+
+		File file = File.createTempFile("inventory", ".jfr");
+		List<RecordedEvent> events = new LinkedList<RecordedEvent>();
+
+		try {
+			this.recording.dump(file.toPath());
+
+			for (RecordedEvent e : RecordingFile.readAllEvents(file.toPath()))
+				if (name.equals(e.getEventType().getName()))
+					events.add(e);
+		} finally {
+			file.delete();
+		}
+
+		return events;
+	}
+}
@@ -0,0 +1,116 @@
+package inventory;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.LinkedList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestOffHeapArticleStore {
+
+	private static final String VALID_STORAGE_NAME = "MyStorageLocation";
+	private static final String VALID_STORAGE_NAME_2 = "MyOtherStorageLocation";
+	private static final String ARTICLE_NAME = "articleName";
+	private static final String ARTICLE_NAME_2 = "articleName2";
+	private static final int MANY_ARTICLES = 1000;
+
+	private int maxArticles;
+	private double maxWidth;
+	private Stock stock;
+	private StorageLocation sut;
+
+	@Before
+	public void setUp() {
+		this.maxArticles = StorageLocation.MAX_ARTICLES;
+		this.maxWidth = StorageLocation.MAX_WIDTH;
+		StorageLocation.MAX_ARTICLES = TestOffHeapArticleStore.MANY_ARTICLES;
+		StorageLocation.MAX_WIDTH = TestOffHeapArticleStore.MANY_ARTICLES;
+
+		this.stock = new Stock(ArticleStorage.OFF_HEAP);
+		this.sut = this.stock
+				.createStorageLocation(TestOffHeapArticleStore.VALID_STORAGE_NAME);
+	}
+
+	@After
+	public void tearDown() {
+		StorageLocation.MAX_ARTICLES = this.maxArticles;
+		StorageLocation.MAX_WIDTH = this.maxWidth;
+	}
+
+	@Test
+	public void shouldGrowBeyondInitialCapacity() {
+		this.insertArticles(TestOffHeapArticleStore.MANY_ARTICLES);
+
+		assertEquals(TestOffHeapArticleStore.MANY_ARTICLES,
+				this.sut.getArticleCount());
+		assertEquals(TestOffHeapArticleStore.MANY_ARTICLES / 2,
+				this.sut.getArticleCount(TestOffHeapArticleStore.ARTICLE_NAME));
+		assertEquals(TestOffHeapArticleStore.MANY_ARTICLES / 2,
+				this.sut.getTotalWidth(TestOffHeapArticleStore.ARTICLE_NAME),
+				0.001);
+	}
+
+	@Test
+	public void shouldPickFromOffHeapRecords() {
+		this.insertArticles(10);
+
+		LinkedList<Article> output = this.sut.pick(
+				TestOffHeapArticleStore.ARTICLE_NAME_2.toUpperCase(), 3);
+
+		assertEquals(3, output.size());
+		assertEquals(TestOffHeapArticleStore.ARTICLE_NAME_2, output.get(0)
+				.getArtNr());
+		assertEquals(2,
+				this.sut.getArticleCount(TestOffHeapArticleStore.ARTICLE_NAME_2));
+		assertEquals(7, this.sut.getArticleCount());
+	}
+
+	@Test
+	public void shouldMoveBetweenOffHeapLocations() {
+		StorageLocation input = this.stock
+				.createStorageLocation(TestOffHeapArticleStore.VALID_STORAGE_NAME_2);
+		this.insertArticles(10);
+
+		this.stock.moveAllArticles(input, this.sut,
+				TestOffHeapArticleStore.ARTICLE_NAME);
+
+		assertEquals(5, input.getArticleCount());
+		assertEquals(5, this.sut.getArticleCount());
+		assertEquals(5,
+				this.stock.findArticles(TestOffHeapArticleStore.ARTICLE_NAME)
+						.size());
+	}
+
+	@Test
+	public void shouldNotChangeSnapshotWhenRecordsGrowOrArePicked() {
+		this.insertArticles(10);
+		StockSnapshot before = this.stock.getSnapshot();
+
+		this.insertArticles(TestOffHeapArticleStore.MANY_ARTICLES / 2);
+		this.sut.pickAll(TestOffHeapArticleStore.ARTICLE_NAME);
+
+		LocationSnapshot old = before.getStorageLocations().get(0);
+		assertEquals(10, old.getArticleCount());
+		assertEquals(5,
+				old.getArticleCount(TestOffHeapArticleStore.ARTICLE_NAME));
+		assertEquals(10, old.getTotalWidth(), 0.001);
+		assertEquals(TestOffHeapArticleStore.MANY_ARTICLES / 4 + 5, this.stock
+				.getSnapshot().getStorageLocations().get(0).getArticleCount());
+	}
+
+	/*
+	 * Helper methods
+	 */
+	private void insertArticles(int count) {
+		LinkedList<Article> articles = new LinkedList<Article>();
+
+		for (int i = 0; i < count; i++)
+			articles.add(new Article(
+					i % 2 == 0 ? TestOffHeapArticleStore.ARTICLE_NAME
+							: TestOffHeapArticleStore.ARTICLE_NAME_2, 1));
+
+		this.sut.insertMany(articles);
+	}
+}
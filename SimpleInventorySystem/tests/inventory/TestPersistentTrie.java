@@ -0,0 +1,108 @@
+package inventory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TestPersistentTrie {
+
+	private static final String VALUE_1 = "value1";
+	private static final String VALUE_2 = "value2";
+	private static final String VALUE_3 = "value3";
+	private static final long FAR_POSITION = Long.MAX_VALUE;
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAcceptNegativePosition() {
+		PersistentTrie.<String> empty().with(-1, TestPersistentTrie.VALUE_1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAcceptNullValue() {
+		PersistentTrie.<String> empty().with(0, null);
+	}
+
+	@Test
+	public void shouldReturnValuesInOrderOfPositions() {
+		PersistentTrie<String> trie = PersistentTrie.<String> empty()
+				.with(TestPersistentTrie.FAR_POSITION, TestPersistentTrie.VALUE_3)
+				.with(1000, TestPersistentTrie.VALUE_2)
+				.with(3, TestPersistentTrie.VALUE_1);
+
+		assertEquals(3, trie.size());
+		assertEquals(TestPersistentTrie.VALUE_2, trie.get(1000));
+		assertEquals(TestPersistentTrie.VALUE_3,
+				trie.get(TestPersistentTrie.FAR_POSITION));
+		assertNull(trie.get(4));
+		assertEquals(Arrays.asList(TestPersistentTrie.VALUE_1,
+				TestPersistentTrie.VALUE_2, TestPersistentTrie.VALUE_3),
+				Arrays.asList(trie.toArray(new String[3])));
+	}
+
+	@Test
+	public void shouldReplaceValueAtSamePosition() {
+		PersistentTrie<String> trie = PersistentTrie.<String> empty()
+				.with(7, TestPersistentTrie.VALUE_1)
+				.with(7, TestPersistentTrie.VALUE_2);
+
+		assertEquals(1, trie.size());
+		assertEquals(TestPersistentTrie.VALUE_2, trie.get(7));
+	}
+
+	@Test
+	public void shouldNotChangeOlderVersions() {
+		PersistentTrie<String> before = PersistentTrie.<String> empty().with(
+				1, TestPersistentTrie.VALUE_1);
+
+		PersistentTrie<String> after = before.with(2,
+				TestPersistentTrie.VALUE_2).without(1);
+
+		assertEquals(1, before.size());
+		assertEquals(TestPersistentTrie.VALUE_1, before.get(1));
+		assertNull(before.get(2));
+		assertEquals(1, after.size());
+		assertNull(after.get(1));
+		assertEquals(TestPersistentTrie.VALUE_2, after.get(2));
+	}
+
+	@Test
+	public void shouldIgnoreRemovingMissingPosition() {
+		PersistentTrie<String> trie = PersistentTrie.<String> empty().with(
+				1, TestPersistentTrie.VALUE_1);
+
+		assertSame(trie, trie.without(2));
+		assertSame(trie, trie.without(TestPersistentTrie.FAR_POSITION));
+		assertSame(trie, trie.without(-1));
+	}
+
+	@Test
+	public void shouldBecomeEmptyWhenLastValueIsRemoved() {
+		PersistentTrie<String> trie = PersistentTrie.<String> empty()
+				.with(5, TestPersistentTrie.VALUE_1)
+				.with(500, TestPersistentTrie.VALUE_2).without(5).without(500);
+
+		assertEquals(0, trie.size());
+		assertSame(PersistentTrie.<String> empty(), trie);
+	}
+
+	@Test
+	public void shouldKeepManyValues() {
+		PersistentTrie<Integer> trie = PersistentTrie.empty();
+
+		for (int i = 0; i < 10000; i++)
+			trie = trie.with(3 * i, i);
+
+		for (int i = 0; i < 10000; i += 2)
+			trie = trie.without(3 * i);
+
+		Integer[] values = trie.toArray(new Integer[trie.size()]);
+
+		assertEquals(5000, values.length);
+
+		for (int i = 0; i < values.length; i++)
+			assertEquals(2 * i + 1, (int) values[i]);
+	}
+}
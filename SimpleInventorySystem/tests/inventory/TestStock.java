@@ -1,19 +1,26 @@
 package inventory;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import inventory.exceptions.InvalidTemperatureException;
 import inventory.exceptions.TooManyStorageLocationsException;
+import inventory.metrics.HistogramMetrics;
+import inventory.metrics.Operation;
 
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -87,6 +94,16 @@ public class TestStock {
 		assertEquals(0, input.size());
 	}
 
+	@Test
+	public void shouldCountStorageLocations() {
+		this.sut.addStorageLocations(this.createStorageLocations(
+				TestStock.VALID_NUM_STORAGE_LOCATIONS,
+				TestStock.VALID_STORAGE_NAME));
+
+		assertEquals(TestStock.VALID_NUM_STORAGE_LOCATIONS,
+				this.sut.getStorageLocationCount());
+	}
+
 	// Note: Several storage locations may have the same names but not be the
 	// same object
 	@Test
@@ -229,56 +246,47 @@ public class TestStock {
 
 	@Test
 	public void shouldMoveAllArticlesBetweenStorageLocations() {
-		StorageLocation input1 = this
-				.createStorageLocation(TestStock.VALID_STORAGE_NAME);
-		StorageLocation input2 = this
-				.createStorageLocation(TestStock.VALID_STORAGE_NAME_2);
+		StorageLocation input1 = this.createStorageLocation(
+				TestStock.VALID_STORAGE_NAME, 2, 0);
+		StorageLocation input2 = this.createStorageLocation(
+				TestStock.VALID_STORAGE_NAME_2, 2, 0);
 
-		LinkedList<Article> inputArticles1 = this.createArticleList(
-				TestStock.VALID_ART_NR_1, 0, 2);
 		LinkedList<Article> inputArticles2 = this.createArticleList(
 				TestStock.VALID_ART_NR_1, 0, 1);
 		this.populateArticleList(TestStock.VALID_ART_NR_2, inputArticles2, 0, 1);
 
-		when(input1.getArticles()).thenReturn(inputArticles1);
-		when(input2.getArticles()).thenReturn(inputArticles2);
 		when(input2.pickAll()).thenReturn(inputArticles2);
 
-		this.sut.moveAllArticles(input1, input2);
+		assertTrue(this.sut.moveAllArticles(input1, input2));
 
-		this.verifyInvokeGetArticles(input1, input2);
 		verify(input2).pickAll();
-		verify(input1).insertMany(inputArticles2);
-		this.verifyInvokeArticleWidth(inputArticles1);
-		this.verifyInvokeArticleWidth(inputArticles2);
+		verify(input1).insertVerified(inputArticles2, 0);
+		verify(input1, never()).getArticles();
+		verify(input2, never()).getArticles();
 	}
 
 	@Test
 	public void shouldMoveAllMatchingArticlesBetweenStorageLocations() {
-		StorageLocation input1 = this
-				.createStorageLocation(TestStock.VALID_STORAGE_NAME);
+		StorageLocation input1 = this.createStorageLocation(
+				TestStock.VALID_STORAGE_NAME, 2, Article.MAX_WIDTH / 3 * 2);
 		StorageLocation input2 = this
 				.createStorageLocation(TestStock.VALID_STORAGE_NAME_2);
 
-		LinkedList<Article> inputArticles1 = this.createArticleList(
-				TestStock.VALID_ART_NR_1, 2);
 		LinkedList<Article> inputArticles2 = this.createArticleList(
 				TestStock.VALID_ART_NR_1, 1);
 
-		when(input1.getArticles()).thenReturn(inputArticles1);
-		when(input2.getArticles(TestStock.VALID_ART_NR_1)).thenReturn(
-				inputArticles2);
+		when(input2.getArticleCount(TestStock.VALID_ART_NR_1)).thenReturn(1);
+		when(input2.getTotalWidth(TestStock.VALID_ART_NR_1)).thenReturn(
+				Article.MAX_WIDTH / 3);
 		when(input2.pickAll(TestStock.VALID_ART_NR_1)).thenReturn(
 				inputArticles2);
 
-		this.sut.moveAllArticles(input1, input2, TestStock.VALID_ART_NR_1);
+		assertTrue(this.sut.moveAllArticles(input1, input2,
+				TestStock.VALID_ART_NR_1));
 
-		this.verifyInvokeGetArticles(input1);
-		this.verifyInvokeGetArticles(TestStock.VALID_ART_NR_1, input2);
+		verify(input2, never()).getArticleCount();
 		verify(input2).pickAll(TestStock.VALID_ART_NR_1);
-		verify(input1).insertMany(inputArticles2);
-		this.verifyInvokeArticleWidth(inputArticles1);
-		this.verifyInvokeArticleWidth(inputArticles2);
+		verify(input1).insertVerified(inputArticles2, Article.MAX_WIDTH / 3);
 	}
 
 	@Test(expected = IllegalArgumentException.class)
@@ -302,26 +310,19 @@ public class TestStock {
 
 	@Test
 	public void shouldNotMoveWhenTooManyArticles() {
-		StorageLocation input1 = this
-				.createStorageLocation(TestStock.VALID_STORAGE_NAME);
+		StorageLocation input1 = this.createStorageLocation(
+				TestStock.VALID_STORAGE_NAME, StorageLocation.MAX_ARTICLES, 0);
 		StorageLocation input2 = this
 				.createStorageLocation(TestStock.VALID_STORAGE_NAME_2);
 
-		LinkedList<Article> inputArticles1 = this.createArticleList(
-				TestStock.VALID_ART_NR_2, StorageLocation.MAX_ARTICLES + 1);
-		LinkedList<Article> inputArticles2 = this.createArticleList(
-				TestStock.VALID_ART_NR_2, StorageLocation.MAX_ARTICLES + 1);
-
-		when(input1.getArticles()).thenReturn(inputArticles1);
-		when(input2.getArticles(anyString())).thenReturn(inputArticles2);
-		when(input2.pickAll()).thenReturn(inputArticles2);
+		when(input2.getArticleCount(anyString())).thenReturn(1);
 
-		this.sut.moveAllArticles(input1, input2, TestStock.VALID_ART_NR_2);
+		assertFalse(this.sut.moveAllArticles(input1, input2,
+				TestStock.VALID_ART_NR_2));
 
-		this.verifyInvokeGetArticles(TestStock.VALID_ART_NR_2, input2);
-		this.verifyInvokeGetArticles(input1);
-		this.verifyNotInvokingGetWidth(inputArticles1);
-		this.verifyNotInvokingGetWidth(inputArticles2);
+		this.verifyNotMoved(input1, input2);
+		verify(input1, never()).getTotalWidth();
+		verify(input2, never()).getTotalWidth(anyString());
 	}
 
 	@Test
@@ -331,20 +332,70 @@ public class TestStock {
 		StorageLocation input2 = this
 				.createStorageLocation(TestStock.VALID_STORAGE_NAME_2);
 
-		LinkedList<Article> inputArticles1 = new LinkedList<Article>();
-		LinkedList<Article> inputArticles2 = this.createArticleList(
-				TestStock.VALID_ART_NR_2, StorageLocation.MAX_WIDTH / 2 + 0.1,
-				2);
+		when(input2.getArticleCount(anyString())).thenReturn(2);
+		when(input2.getTotalWidth(anyString())).thenReturn(
+				(StorageLocation.MAX_WIDTH / 2 + 0.1) * 2);
+
+		assertFalse(this.sut.moveAllArticles(input1, input2,
+				TestStock.VALID_ART_NR_2));
+
+		this.verifyNotMoved(input1, input2);
+	}
+
+	/*
+	 * Putaway
+	 */
+	@Test
+	public void shouldPutAwayIntoFullestLocationWithRoom() {
+		StorageLocation input1 = this.sut
+				.createStorageLocation(TestStock.VALID_STORAGE_NAME);
+		StorageLocation input2 = this.sut
+				.createStorageLocation(TestStock.VALID_STORAGE_NAME_2);
+		input1.insert(new Article(TestStock.VALID_ART_NR_1, 100));
+		input2.insert(new Article(TestStock.VALID_ART_NR_1, 500));
 
-		when(input1.getArticles()).thenReturn(inputArticles1);
-		when(input2.getArticles(anyString())).thenReturn(inputArticles2);
+		assertEquals(input2, this.sut.putaway(new Article(
+				TestStock.VALID_ART_NR_2, 100), Slotting.BEST_FIT));
+		assertEquals(input1, this.sut.putaway(new Article(
+				TestStock.VALID_ART_NR_2, StorageLocation.MAX_WIDTH - 500),
+				Slotting.BEST_FIT));
+		assertEquals(2, input2.getArticleCount());
+		assertEquals(2, input1.getArticleCount());
+	}
 
-		this.sut.moveAllArticles(input1, input2, TestStock.VALID_ART_NR_2);
+	@Test
+	public void shouldPutAwayIntoEarliestLocationWithRoom() {
+		StorageLocation input1 = this.sut
+				.createStorageLocation(TestStock.VALID_STORAGE_NAME);
+		StorageLocation input2 = this.sut
+				.createStorageLocation(TestStock.VALID_STORAGE_NAME_2);
+		input1.insert(new Article(TestStock.VALID_ART_NR_1,
+				StorageLocation.MAX_WIDTH - 1));
 
-		this.verifyInvokeGetArticles(TestStock.VALID_ART_NR_2, input2);
-		this.verifyInvokeGetArticles(input1);
-		this.verifyInvokeArticleWidth(inputArticles1);
-		this.verifyInvokeArticleWidth(inputArticles2);
+		assertEquals(input1, this.sut.findStorageLocation(1,
+				Slotting.FIRST_FIT));
+		assertEquals(input2, this.sut.putaway(new Article(
+				TestStock.VALID_ART_NR_2, 2), Slotting.FIRST_FIT));
+	}
+
+	@Test
+	public void shouldNotPutAwayWhenNoLocationHasRoom() {
+		StorageLocation input = this.sut
+				.createStorageLocation(TestStock.VALID_STORAGE_NAME);
+		input.insert(new Article(TestStock.VALID_ART_NR_1, 500));
+		StorageLocation removed = this.sut
+				.createStorageLocation(TestStock.VALID_STORAGE_NAME_2);
+		this.sut.removeAllStorageLocations(TestStock.VALID_STORAGE_NAME_2);
+
+		assertNull(this.sut.putaway(new Article(TestStock.VALID_ART_NR_2, 500),
+				Slotting.BEST_FIT));
+		assertEquals(1, input.getArticleCount());
+		assertEquals(0, removed.getArticleCount());
+
+		input.pickAll();
+
+		assertEquals(input, this.sut.findStorageLocation(500,
+				Slotting.BEST_FIT));
 	}
 
 	@Test(expected = IllegalArgumentException.class)
@@ -378,80 +429,195 @@ public class TestStock {
 		LinkedList<Article> output = this.sut
 				.findArticles(TestStock.VALID_ART_NR_2);
 
-		this.verifyInvokeGetArticles(TestStock.VALID_ART_NR_2, input1);
-		this.verifyInvokeGetArticles(TestStock.VALID_ART_NR_2, input2);
+		verify(input1, never()).getArticles(TestStock.VALID_ART_NR_2);
+		verify(input2, never()).getArticles(TestStock.VALID_ART_NR_2);
 		assertEquals(0, output.size());
 	}
 
+	@Test
+	public void shouldFindArticlesInAllStorageLocations() {
+		StorageLocation input1 = new StorageLocation(
+				TestStock.VALID_STORAGE_NAME);
+		StorageLocation input2 = new StorageLocation(
+				TestStock.VALID_STORAGE_NAME_2);
+		input1.insert(new Article(TestStock.VALID_ART_NR_1, 1));
+
+		this.sut.addStorageLocation(input1);
+		this.sut.addStorageLocation(input2);
+		input2.insert(new Article(TestStock.VALID_ART_NR_1, 1));
+		input2.insert(new Article(TestStock.VALID_ART_NR_2, 1));
+
+		assertEquals(2, this.sut.findArticles(TestStock.VALID_ART_NR_1).size());
+		assertEquals(1, this.sut.findArticles(TestStock.VALID_ART_NR_2).size());
+	}
+
+	@Test
+	public void shouldStopSearchingWhenStreamIsShortCircuited() {
+		StorageLocation input1 = spy(new StorageLocation(
+				TestStock.VALID_STORAGE_NAME));
+		StorageLocation input2 = spy(new StorageLocation(
+				TestStock.VALID_STORAGE_NAME_2));
+		this.sut.addStorageLocation(input1);
+		this.sut.addStorageLocation(input2);
+		input1.insert(new Article(TestStock.VALID_ART_NR_1, 1));
+		input2.insert(new Article(TestStock.VALID_ART_NR_1, 1));
+
+		assertTrue(this.sut.streamArticles(TestStock.VALID_ART_NR_1)
+				.findFirst().isPresent());
+		assertEquals(2, this.sut.streamArticles(TestStock.VALID_ART_NR_1)
+				.count());
+		verify(input2).getArticles(TestStock.VALID_ART_NR_1);
+	}
+
+	@Test
+	public void shouldLookUpStreamedArticlesWhenConsumed() {
+		StorageLocation input = new StorageLocation(
+				TestStock.VALID_STORAGE_NAME);
+		this.sut.addStorageLocation(input);
+		Stream<Article> found = this.sut
+				.streamArticles(TestStock.VALID_ART_NR_1);
+		Stream<StorageLocation> named = this.sut
+				.streamStorageLocationsByName(TestStock.VALID_STORAGE_NAME);
+
+		input.insert(new Article(TestStock.VALID_ART_NR_1, 1));
+		this.sut.addStorageLocation(new StorageLocation(
+				TestStock.VALID_STORAGE_NAME.toUpperCase()));
+
+		assertEquals(1, found.count());
+		assertEquals(2, named.count());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowWhenStreamingUsingNullArticleNumber() {
+		this.sut.streamArticles(null);
+	}
+
+	@Test
+	public void shouldNotFindPickedArticles() {
+		StorageLocation input = new StorageLocation(
+				TestStock.VALID_STORAGE_NAME);
+		input.insert(new Article(TestStock.VALID_ART_NR_1, 1));
+		this.sut.addStorageLocation(input);
+
+		input.pickAll(TestStock.VALID_ART_NR_1);
+
+		assertEquals(0, this.sut.findArticles(TestStock.VALID_ART_NR_1).size());
+	}
+
+	@Test
+	public void shouldNotFindArticlesInRemovedStorageLocations() {
+		StorageLocation input = new StorageLocation(
+				TestStock.VALID_STORAGE_NAME);
+		input.insert(new Article(TestStock.VALID_ART_NR_1, 1));
+		this.sut.addStorageLocation(input);
+
+		this.sut.removeAllStorageLocations(TestStock.VALID_STORAGE_NAME);
+		input.insert(new Article(TestStock.VALID_ART_NR_1, 1));
+
+		assertEquals(0, this.sut.findArticles(TestStock.VALID_ART_NR_1).size());
+	}
+
 	/*
 	 * Merge
 	 */
 	@Test
 	public void shouldNotMergeWhenTooLargeWidth() {
-		StorageLocation input1 = this
-				.createStorageLocation(TestStock.VALID_STORAGE_NAME);
-		StorageLocation input2 = this
-				.createStorageLocation(TestStock.VALID_STORAGE_NAME_2);
-
-		LinkedList<Article> inputArticles1 = this.createArticleList(
-				TestStock.VALID_ART_NR_1, StorageLocation.MAX_WIDTH / 2, 2);
-		LinkedList<Article> inputArticles2 = this.createArticleList(
-				TestStock.VALID_ART_NR_2, 0.1, 1);
-
-		when(input1.getArticles()).thenReturn(inputArticles1);
-		when(input2.getArticles()).thenReturn(inputArticles2);
+		StorageLocation input1 = this.createStorageLocation(
+				TestStock.VALID_STORAGE_NAME, 2, StorageLocation.MAX_WIDTH);
+		StorageLocation input2 = this.createStorageLocation(
+				TestStock.VALID_STORAGE_NAME_2, 1, 0.1);
+		this.sut.addStorageLocation(input1);
+		this.sut.addStorageLocation(input2);
 
 		this.sut.mergeStorageLocations(input1, input2);
 
-		this.verifyInvokeGetArticles(input1, input2);
-		this.verifyInvokeArticleWidth(inputArticles1);
-		this.verifyInvokeArticleWidth(inputArticles2);
+		this.verifyNotMoved(input1, input2);
+		assertEquals(2, this.sut.getStorageLocations().size());
 	}
 
 	@Test
 	public void shouldNotMergeWhenTooManyArticles() {
-		StorageLocation input1 = this
-				.createStorageLocation(TestStock.VALID_STORAGE_NAME);
+		StorageLocation input1 = this.createStorageLocation(
+				TestStock.VALID_STORAGE_NAME, StorageLocation.MAX_ARTICLES + 1,
+				0);
 		StorageLocation input2 = this
 				.createStorageLocation(TestStock.VALID_STORAGE_NAME_2);
-
-		LinkedList<Article> inputArticles1 = this.createArticleList(
-				TestStock.VALID_ART_NR_2, StorageLocation.MAX_ARTICLES + 1);
-		LinkedList<Article> inputArticles2 = new LinkedList<Article>();
-
-		when(input1.getArticles()).thenReturn(inputArticles1);
-		when(input2.getArticles()).thenReturn(inputArticles2);
+		this.sut.addStorageLocation(input1);
+		this.sut.addStorageLocation(input2);
 
 		this.sut.mergeStorageLocations(input1, input2);
 
-		this.verifyInvokeGetArticles(input1, input2);
-		this.verifyNotInvokingGetWidth(inputArticles1);
-		this.verifyNotInvokingGetWidth(inputArticles2);
+		this.verifyNotMoved(input1, input2);
+		verify(input1, never()).getTotalWidth();
+		verify(input2, never()).getTotalWidth();
+		assertEquals(2, this.sut.getStorageLocations().size());
 	}
 
 	@Test
 	public void shouldMerge() {
-		StorageLocation input1 = this
-				.createStorageLocation(TestStock.VALID_STORAGE_NAME);
-		StorageLocation input2 = this
-				.createStorageLocation(TestStock.VALID_STORAGE_NAME_2);
+		StorageLocation input1 = this.createStorageLocation(
+				TestStock.VALID_STORAGE_NAME, 1, StorageLocation.MAX_WIDTH / 4);
+		StorageLocation input2 = this.createStorageLocation(
+				TestStock.VALID_STORAGE_NAME_2, 1, StorageLocation.MAX_WIDTH / 4);
+		this.sut.addStorageLocation(input1);
+		this.sut.addStorageLocation(input2);
 
-		LinkedList<Article> inputArticles1 = this.createArticleList(
-				TestStock.VALID_ART_NR_2, StorageLocation.MAX_WIDTH / 4, 1);
 		LinkedList<Article> inputArticles2 = this.createArticleList(
 				TestStock.VALID_ART_NR_2, StorageLocation.MAX_WIDTH / 4, 1);
 
-		when(input1.getArticles()).thenReturn(inputArticles1);
-		when(input2.getArticles()).thenReturn(inputArticles2);
 		when(input2.pickAll()).thenReturn(inputArticles2);
 
 		this.sut.mergeStorageLocations(input1, input2);
 
-		this.verifyInvokeGetArticles(input1, input2);
 		verify(input2).pickAll();
-		verify(input1).insertMany(inputArticles2);
-		this.verifyInvokeArticleWdith(inputArticles1, 1);
-		this.verifyInvokeArticleWdith(inputArticles2, 1);
+		verify(input1).insertVerified(inputArticles2,
+				StorageLocation.MAX_WIDTH / 4);
+		assertEquals(1, this.sut.getStorageLocations().size());
+		assertEquals(input1, this.sut.getStorageLocations().get(0));
+	}
+
+	@Test
+	public void shouldMoveArticlesAndKeepTotals() {
+		StorageLocation input1 = new StorageLocation(
+				TestStock.VALID_STORAGE_NAME);
+		StorageLocation input2 = new StorageLocation(
+				TestStock.VALID_STORAGE_NAME_2);
+		input1.insert(new Article(TestStock.VALID_ART_NR_1, 1));
+		input2.insert(new Article(TestStock.VALID_ART_NR_1, 2));
+		input2.insert(new Article(TestStock.VALID_ART_NR_2, 4));
+		this.sut.addStorageLocation(input1);
+		this.sut.addStorageLocation(input2);
+
+		assertTrue(this.sut.moveAllArticles(input1, input2,
+				TestStock.VALID_ART_NR_1));
+
+		assertEquals(2, input1.getArticleCount());
+		assertEquals(3, input1.getTotalWidth(), 0.001);
+		assertEquals(1, input2.getArticleCount());
+		assertEquals(4, input2.getTotalWidth(), 0.001);
+		assertEquals(input1, this.sut.findArticles(TestStock.VALID_ART_NR_1)
+				.get(1).getLocation());
+	}
+
+	@Test
+	public void shouldSkipMergeIntoLocationAlreadyMergedAway() {
+		StorageLocation input1 = new StorageLocation(
+				TestStock.VALID_STORAGE_NAME);
+		StorageLocation input2 = new StorageLocation(
+				TestStock.VALID_STORAGE_NAME_2);
+		input1.insert(new Article(TestStock.VALID_ART_NR_1, 1));
+		input2.insert(new Article(TestStock.VALID_ART_NR_2, 2));
+		this.sut.addStorageLocation(input1);
+		this.sut.addStorageLocation(input2);
+
+		this.sut.mergeStorageLocations(input1, input2);
+		this.sut.mergeStorageLocations(input2, input1);
+
+		assertEquals(1, this.sut.getStorageLocations().size());
+		assertEquals(2, input1.getArticleCount());
+		assertEquals(0, input2.getArticleCount());
+		assertEquals(input1, this.sut.findArticles(TestStock.VALID_ART_NR_2)
+				.get(0).getLocation());
 	}
 
 	@Test(expected = IllegalArgumentException.class)
@@ -506,6 +672,57 @@ public class TestStock {
 		this.sut.removeAllStorageLocations(null);
 	}
 
+	/*
+	 * Metrics
+	 */
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowWhenNullMetrics() {
+		this.sut.setMetrics(null);
+	}
+
+	@Test
+	public void shouldSetMetricsOnAllStorageLocations() {
+		StorageLocation before = new StorageLocation(
+				TestStock.VALID_STORAGE_NAME);
+		StorageLocation after = new StorageLocation(
+				TestStock.VALID_STORAGE_NAME_2);
+		HistogramMetrics metrics = new HistogramMetrics();
+
+		this.sut.addStorageLocation(before);
+		this.sut.setMetrics(metrics);
+		this.sut.addStorageLocation(after);
+
+		assertSame(metrics, this.sut.getMetrics());
+		assertSame(metrics, before.getMetrics());
+		assertSame(metrics, after.getMetrics());
+	}
+
+	@Test
+	public void shouldReportFindAndMove() {
+		StorageLocation from = new StorageLocation(TestStock.VALID_STORAGE_NAME);
+		StorageLocation to = new StorageLocation(TestStock.VALID_STORAGE_NAME_2);
+		HistogramMetrics metrics = new HistogramMetrics();
+
+		from.insert(new Article(TestStock.VALID_ART_NR_1, 1));
+		from.insert(new Article(TestStock.VALID_ART_NR_1, 1));
+		this.sut.addStorageLocation(from);
+		this.sut.addStorageLocation(to);
+		this.sut.setMetrics(metrics);
+
+		this.sut.findArticles(TestStock.VALID_ART_NR_1);
+		assertTrue(this.sut.moveAllArticles(to, from, TestStock.VALID_ART_NR_1));
+
+		assertEquals(1, metrics.getLatencies(Operation.FIND_ARTICLES)
+				.getCount());
+		assertEquals(2, metrics.getScanLengths(Operation.FIND_ARTICLES)
+				.getMax());
+		assertEquals(1, metrics.getLatencies(Operation.MOVE_ALL_ARTICLES)
+				.getCount());
+		assertEquals(2, metrics.getScanLengths(Operation.MOVE_ALL_ARTICLES)
+				.getMax());
+	}
+
 	/*
 	 * Helper methods
 	 */
@@ -529,46 +746,11 @@ public class TestStock {
 		}
 	}
 
-	private void verifyInvokeGetArticles(StorageLocation... storageLocations) {
-		HashMap<StorageLocation, Integer> locations = new HashMap<StorageLocation, Integer>();
-		for (int i = 0; i < storageLocations.length; i++)
-			if (locations.containsKey(storageLocations[i]))
-				locations.put(storageLocations[i],
-						locations.get(storageLocations[i]) + 1);
-			else
-				locations.put(storageLocations[i], 1);
-
-		for (Map.Entry<StorageLocation, Integer> s : locations.entrySet())
-			verify(s.getKey(), times(s.getValue())).getArticles();
-	}
-
-	private void verifyInvokeGetArticles(String name,
-			StorageLocation... storageLocations) {
-		HashMap<StorageLocation, Integer> locations = new HashMap<StorageLocation, Integer>();
-		for (int i = 0; i < storageLocations.length; i++)
-			if (locations.containsKey(storageLocations[i]))
-				locations.put(storageLocations[i],
-						locations.get(storageLocations[i]) + 1);
-			else
-				locations.put(storageLocations[i], 1);
-
-		for (Map.Entry<StorageLocation, Integer> s : locations.entrySet())
-			verify(s.getKey(), times(s.getValue())).getArticles(name);
-	}
-
-	private void verifyInvokeArticleWidth(LinkedList<Article> articles) {
-		verifyInvokeArticleWdith(articles, 1);
-	}
-
-	private void verifyInvokeArticleWdith(LinkedList<Article> articles,
-			int times) {
-		for (Article art : articles)
-			verify(art, times(times)).getWidth();
-	}
-
-	private void verifyNotInvokingGetWidth(LinkedList<Article> articles) {
-		for (Article art : articles)
-			verify(art, never()).getWidth();
+	private void verifyNotMoved(StorageLocation to, StorageLocation from) {
+		verify(from, never()).pickAll();
+		verify(from, never()).pickAll(anyString());
+		verify(to, never()).insertVerified(anyListOf(Article.class),
+				anyDouble());
 	}
 
 	//
@@ -609,6 +791,14 @@ public class TestStock {
 		return mock;
 	}
 
+	private StorageLocation createStorageLocation(String name, int count,
+			double width) {
+		StorageLocation mock = this.createStorageLocation(name);
+		when(mock.getArticleCount()).thenReturn(count);
+		when(mock.getTotalWidth()).thenReturn(width);
+		return mock;
+	}
+
 	private StorageLocation createStorageLocation(String name) {
 		StorageLocation mock = mock(StorageLocation.class);
 		if (null != name)
@@ -0,0 +1,244 @@
+package inventory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import inventory.exceptions.CorruptStockFileException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestStockFile {
+
+	private static final String VALID_STORAGE_NAME = "MyStorageLocation";
+	private static final String VALID_STORAGE_NAME_2 = "MyStorageLocation2";
+	private static final String VALID_ART_NR_1 = "artNr1";
+	private static final String VALID_ART_NR_2 = "artNr2";
+	private static final double VALID_TEMPERATURE = 25;
+
+	private File file;
+	private Stock stock;
+	private int windowSize;
+	private int maxStorageLocations;
+
+	@Before
+	public void setUp() throws IOException {
+		this.windowSize = StockFile.WINDOW_SIZE;
+		this.maxStorageLocations = Stock.MAX_STORAGE_LOCATIONS;
+		this.file = File.createTempFile("stock", ".bin");
+		this.stock = new Stock(ArticleStorage.COLUMNAR);
+		this.stock.setTemperature(TestStockFile.VALID_TEMPERATURE);
+
+		StorageLocation loc1 = this.stock
+				.createStorageLocation(TestStockFile.VALID_STORAGE_NAME);
+		loc1.insert(new Article(TestStockFile.VALID_ART_NR_1, 1));
+		loc1.insert(new Article(TestStockFile.VALID_ART_NR_2, 2));
+		loc1.insert(new Article(TestStockFile.VALID_ART_NR_1, 4));
+		this.stock.createStorageLocation(TestStockFile.VALID_STORAGE_NAME_2);
+	}
+
+	@After
+	public void tearDown() {
+		StockFile.WINDOW_SIZE = this.windowSize;
+		Stock.MAX_STORAGE_LOCATIONS = this.maxStorageLocations;
+		this.file.delete();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowWhenWritingNullStock() throws IOException {
+		StockFile.write(null, this.file);
+	}
+
+	@Test
+	public void shouldRestoreStock() throws IOException {
+		StockFile.write(this.stock, this.file);
+
+		Stock loaded = StockFile.load(this.file);
+		List<StorageLocation> locs = loaded.getStorageLocations();
+
+		assertEquals(TestStockFile.VALID_TEMPERATURE, loaded.getTemperature());
+		assertEquals(2, locs.size());
+		assertEquals(TestStockFile.VALID_STORAGE_NAME, locs.get(0).getName());
+		assertEquals(TestStockFile.VALID_STORAGE_NAME_2, locs.get(1).getName());
+		assertEquals(3, locs.get(0).getArticleCount());
+		assertEquals(7, locs.get(0).getTotalWidth(), 0.001);
+		assertEquals(2, locs.get(0).getArticleCount(TestStockFile.VALID_ART_NR_1));
+		assertEquals(5, locs.get(0).getTotalWidth(TestStockFile.VALID_ART_NR_1),
+				0.001);
+		assertEquals(0, locs.get(1).getArticleCount());
+	}
+
+	@Test
+	public void shouldRestoreLocationWithoutName() throws IOException {
+		List<Article> articles = new LinkedList<Article>();
+		articles.add(new Article(TestStockFile.VALID_ART_NR_1, 3));
+		this.stock.addStorageLocation(new StorageLocation(null, articles));
+
+		StockFile.write(this.stock, this.file);
+
+		List<StorageLocation> locs = StockFile.load(this.file)
+				.getStorageLocations();
+		assertEquals(3, locs.size());
+		assertNull(locs.get(2).getName());
+		assertEquals(1, locs.get(2).getArticleCount(TestStockFile.VALID_ART_NR_1));
+		assertEquals(3, locs.get(2).getTotalWidth(), 0.001);
+	}
+
+	@Test
+	public void shouldNotDecodeArticlesUntilAccessed() throws IOException {
+		StockFile.write(this.stock, this.file);
+
+		Stock loaded = StockFile.load(this.file);
+		StorageLocation loc = loaded.getStorageLocations().get(0);
+
+		assertEquals(3, loaded.getSnapshot().getStorageLocations().get(0)
+				.getArticleCount());
+		assertEquals(2, loc.getArticleCount(TestStockFile.VALID_ART_NR_1));
+		assertNotNull(((MappedArticleStore) loc.getStore()).getRecord());
+
+		loc.pick(TestStockFile.VALID_ART_NR_1.toUpperCase(), 1);
+
+		assertEquals(null, ((MappedArticleStore) loc.getStore()).getRecord());
+		assertEquals(2, loc.getArticleCount());
+		assertEquals(1, loaded.findArticles(TestStockFile.VALID_ART_NR_1)
+				.size());
+	}
+
+	@Test
+	public void shouldKeepSnapshotOfUnaccessedLocationAfterChange()
+			throws IOException {
+		StockFile.write(this.stock, this.file);
+		Stock loaded = StockFile.load(this.file);
+		StockSnapshot before = loaded.getSnapshot();
+
+		loaded.getStorageLocations().get(0).pickAll();
+
+		assertEquals(3, before.getStorageLocations().get(0).getArticleCount());
+		assertEquals(2, before.findArticles(TestStockFile.VALID_ART_NR_1)
+				.size());
+		assertEquals(0, loaded.getSnapshot().getStorageLocations().get(0)
+				.getArticleCount());
+	}
+
+	@Test
+	public void shouldWriteLoadedStockAgain() throws IOException {
+		StockFile.write(this.stock, this.file);
+		StockFile.write(StockFile.load(this.file), this.file);
+
+		Stock loaded = StockFile.load(this.file);
+
+		assertEquals(3, loaded.getStorageLocations().get(0).getArticles()
+				.size());
+	}
+
+	@Test
+	public void shouldSliceRecordsFromSeveralWindows() throws IOException {
+		Stock.MAX_STORAGE_LOCATIONS = 50;
+
+		for (int i = 0; i < 40; i++) {
+			StorageLocation loc = this.stock
+					.createStorageLocation(TestStockFile.VALID_STORAGE_NAME + i);
+
+			for (int j = 0; j <= i % 5; j++)
+				loc.insert(new Article(TestStockFile.VALID_ART_NR_2, j));
+		}
+
+		StockFile.write(this.stock, this.file);
+		StockFile.WINDOW_SIZE = 256;
+
+		List<StorageLocation> locs = StockFile.load(this.file)
+				.getStorageLocations();
+
+		assertEquals(42, locs.size());
+
+		for (int i = 0; i < 40; i++) {
+			StorageLocation loc = locs.get(i + 2);
+			assertEquals(TestStockFile.VALID_STORAGE_NAME + i, loc.getName());
+			assertEquals(i % 5 + 1,
+					loc.getArticleCount(TestStockFile.VALID_ART_NR_2));
+			assertEquals((i % 5) * (i % 5 + 1) / 2,
+					loc.getTotalWidth(TestStockFile.VALID_ART_NR_2), 0.001);
+			assertEquals(i % 5, loc.getArticles().get(i % 5).getWidth(), 0);
+		}
+	}
+
+	@Test
+	public void shouldRejectCorruptRecordOnFirstAccess() throws IOException {
+		StockFile.write(this.stock, this.file);
+
+		RandomAccessFile out = new RandomAccessFile(this.file, "rw");
+		try {
+			out.seek(32);
+			long offset = out.readLong();
+			// First dictionary index, after name, counts and dictionary
+			out.seek(offset + 4 + TestStockFile.VALID_STORAGE_NAME.length()
+					+ 16 + 8 + TestStockFile.VALID_ART_NR_1.length() + 8
+					+ TestStockFile.VALID_ART_NR_2.length());
+			out.writeInt(7);
+		} finally {
+			out.close();
+		}
+
+		StorageLocation loc = StockFile.load(this.file).getStorageLocations()
+				.get(0);
+
+		try {
+			loc.getArticles();
+		} catch (CorruptStockFileException e) {
+			return;
+		}
+
+		fail();
+	}
+
+	@Test
+	public void shouldRejectCorruptHeaderWhenLoading() throws IOException {
+		StockFile.write(this.stock, this.file);
+
+		RandomAccessFile out = new RandomAccessFile(this.file, "rw");
+		try {
+			out.seek(32);
+			long offset = out.readLong();
+			// Article count, after the name
+			out.seek(offset + 4 + TestStockFile.VALID_STORAGE_NAME.length());
+			out.writeInt(-1);
+		} finally {
+			out.close();
+		}
+
+		try {
+			StockFile.load(this.file);
+		} catch (IOException e) {
+			assertTrue(e.getMessage().startsWith("Corrupt stock file"));
+			return;
+		}
+
+		fail();
+	}
+
+	@Test
+	public void shouldRejectOtherFiles() throws IOException {
+		FileOutputStream out = new FileOutputStream(this.file);
+		out.write(new byte[32]);
+		out.close();
+
+		try {
+			StockFile.load(this.file);
+		} catch (IOException e) {
+			assertTrue(e.getMessage().startsWith("Not a stock file"));
+			return;
+		}
+
+		fail();
+	}
+}
@@ -0,0 +1,158 @@
+package inventory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import inventory.exceptions.InvalidWidthException;
+import inventory.exceptions.TooManyArticlesException;
+import inventory.exceptions.TooManyStorageLocationsException;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestStockLoader {
+
+	private static final String VALID_STORAGE_NAME = "MyStorageLocation";
+	private static final String VALID_STORAGE_NAME_2 = "MyStorageLocation2";
+	private static final String VALID_ART_NR_1 = "artNr1";
+	private static final String VALID_ART_NR_2 = "artNr2";
+	private static final double VALID_WIDTH = 10;
+	private static final int THREADS = 4;
+
+	private int maxArticles;
+	private int maxStorageLocations;
+	private Stock stock;
+	private StockLoader sut;
+
+	@Before
+	public void setUp() {
+		this.maxArticles = StorageLocation.MAX_ARTICLES;
+		this.maxStorageLocations = Stock.MAX_STORAGE_LOCATIONS;
+		this.stock = new Stock();
+		this.sut = new StockLoader(this.stock);
+	}
+
+	@After
+	public void tearDown() {
+		StorageLocation.MAX_ARTICLES = this.maxArticles;
+		Stock.MAX_STORAGE_LOCATIONS = this.maxStorageLocations;
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowWhenNullStock() {
+		new StockLoader(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowWhenAddingNullLocation() {
+		this.sut.add(null, TestStockLoader.VALID_ART_NR_1,
+				TestStockLoader.VALID_WIDTH);
+	}
+
+	@Test
+	public void shouldGroupRowsByLocation() {
+		this.addRows();
+
+		List<StorageLocation> locs = this.sut.load(TestStockLoader.THREADS);
+
+		assertEquals(2, locs.size());
+		assertEquals(TestStockLoader.VALID_STORAGE_NAME, locs.get(0).getName());
+		assertEquals(3, locs.get(0).getArticleCount());
+		assertEquals(3 * TestStockLoader.VALID_WIDTH, locs.get(0)
+				.getTotalWidth(), 0.001);
+		assertEquals(TestStockLoader.VALID_STORAGE_NAME_2, locs.get(1)
+				.getName());
+		assertEquals(1, locs.get(1).getArticleCount());
+		assertEquals(0, this.sut.size());
+	}
+
+	@Test
+	public void shouldAddLoadedLocationsToStock() {
+		this.addRows();
+
+		List<StorageLocation> locs = this.sut.load(1);
+
+		assertEquals(locs, this.stock.getStorageLocations());
+		assertEquals(3, this.stock.findArticles(TestStockLoader.VALID_ART_NR_1)
+				.size());
+		assertEquals(2, this.stock.getSnapshot().getStorageLocations().size());
+		assertEquals(1, this.stock.getSnapshot().getVersion());
+	}
+
+	@Test
+	public void shouldLoadManyLocationsInParallel() {
+		StorageLocation.MAX_ARTICLES = 1000;
+		Stock.MAX_STORAGE_LOCATIONS = 100;
+
+		for (int i = 0; i < 100 * 1000; i++)
+			this.sut.add(TestStockLoader.VALID_STORAGE_NAME + i % 100,
+					TestStockLoader.VALID_ART_NR_1, 0);
+
+		List<StorageLocation> locs = this.sut.load(TestStockLoader.THREADS);
+
+		assertEquals(100, locs.size());
+		for (StorageLocation loc : locs)
+			assertEquals(1000, loc.getArticleCount());
+		assertEquals(100 * 1000,
+				this.stock.findArticles(TestStockLoader.VALID_ART_NR_1).size());
+	}
+
+	@Test
+	public void shouldNotAddAnyLocationWhenOneIsTooFull() {
+		this.addRows();
+		StorageLocation.MAX_ARTICLES = 2;
+
+		try {
+			this.sut.load(TestStockLoader.THREADS);
+		} catch (TooManyArticlesException e) {
+			assertTrue(this.stock.getStorageLocations().isEmpty());
+			return;
+		}
+
+		fail();
+	}
+
+	@Test(expected = InvalidWidthException.class)
+	public void shouldThrowWhenLocationTooWide() {
+		this.sut.add(TestStockLoader.VALID_STORAGE_NAME,
+				TestStockLoader.VALID_ART_NR_1, Article.MAX_WIDTH);
+		this.sut.add(TestStockLoader.VALID_STORAGE_NAME,
+				TestStockLoader.VALID_ART_NR_1, Article.MAX_WIDTH);
+
+		this.sut.load(TestStockLoader.THREADS);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowWhenRowIsInvalid() {
+		this.sut.add(TestStockLoader.VALID_STORAGE_NAME,
+				TestStockLoader.VALID_ART_NR_1, -1);
+
+		this.sut.load(TestStockLoader.THREADS);
+	}
+
+	@Test(expected = TooManyStorageLocationsException.class)
+	public void shouldThrowWhenTooManyLocations() {
+		for (int i = 0; i <= Stock.MAX_STORAGE_LOCATIONS; i++)
+			this.sut.add(TestStockLoader.VALID_STORAGE_NAME + i,
+					TestStockLoader.VALID_ART_NR_1, TestStockLoader.VALID_WIDTH);
+
+		this.sut.load(TestStockLoader.THREADS);
+	}
+
+	/*
+	 * Helper methods
+	 */
+	private void addRows() {
+		this.sut.add(TestStockLoader.VALID_STORAGE_NAME,
+				TestStockLoader.VALID_ART_NR_1, TestStockLoader.VALID_WIDTH);
+		this.sut.add(TestStockLoader.VALID_STORAGE_NAME_2,
+				TestStockLoader.VALID_ART_NR_2, TestStockLoader.VALID_WIDTH);
+		this.sut.add(TestStockLoader.VALID_STORAGE_NAME,
+				TestStockLoader.VALID_ART_NR_1, TestStockLoader.VALID_WIDTH);
+		this.sut.add(TestStockLoader.VALID_STORAGE_NAME,
+				TestStockLoader.VALID_ART_NR_1, TestStockLoader.VALID_WIDTH);
+	}
+}
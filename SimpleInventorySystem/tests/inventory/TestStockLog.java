@@ -0,0 +1,328 @@
+package inventory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestStockLog {
+
+	private static final String VALID_STORAGE_NAME = "MyStorageLocation";
+	private static final String VALID_STORAGE_NAME_2 = "MyStorageLocation2";
+	private static final String VALID_ART_NR_1 = "artNr1";
+	private static final String VALID_ART_NR_2 = "artNr2";
+	private static final double VALID_TEMPERATURE = 25;
+	private static final int THREADS = 4;
+	private static final int INSERTS_PER_THREAD = 100;
+	private static final int BATCHED_INSERTS = 10000;
+	private static final long BATCHED_INSERTS_MILLIS = 1000;
+
+	private int maxArticles;
+	private double maxWidth;
+	private int maxStorageLocations;
+	private File snapshot;
+	private File file;
+	private StockLog sut;
+
+	@Before
+	public void setUp() throws IOException {
+		this.maxArticles = StorageLocation.MAX_ARTICLES;
+		this.maxWidth = StorageLocation.MAX_WIDTH;
+		this.maxStorageLocations = Stock.MAX_STORAGE_LOCATIONS;
+		this.snapshot = File.createTempFile("stock", ".bin");
+		this.file = File.createTempFile("stock", ".log");
+		this.snapshot.delete();
+		this.file.delete();
+		this.sut = StockLog.open(this.snapshot, this.file);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		StorageLocation.MAX_ARTICLES = this.maxArticles;
+		StorageLocation.MAX_WIDTH = this.maxWidth;
+		Stock.MAX_STORAGE_LOCATIONS = this.maxStorageLocations;
+		this.sut.close();
+		this.snapshot.delete();
+		this.file.delete();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowWhenNullFile() throws IOException {
+		StockLog.open(this.snapshot, null);
+	}
+
+	@Test
+	public void shouldStartWithEmptyStock() {
+		assertTrue(this.sut.getStock().getStorageLocations().isEmpty());
+	}
+
+	@Test
+	public void shouldRestoreLoggedChanges() throws IOException {
+		this.applyChanges(this.sut.getStock());
+
+		this.reopen();
+
+		this.verifyChanges(this.sut.getStock());
+	}
+
+	@Test
+	public void shouldRestoreLocationWithoutName() throws IOException {
+		List<Article> articles = new LinkedList<Article>();
+		articles.add(new Article(TestStockLog.VALID_ART_NR_1, 1));
+		this.sut.getStock().addStorageLocation(
+				new StorageLocation(null, articles));
+
+		this.reopen();
+		this.verifyLocationWithoutName();
+
+		this.sut.checkpoint();
+		this.reopen();
+		this.verifyLocationWithoutName();
+	}
+
+	@Test
+	public void shouldRestoreCheckpointAndLaterChanges() throws IOException {
+		Stock stock = this.sut.getStock();
+		StorageLocation loc = stock
+				.createStorageLocation(TestStockLog.VALID_STORAGE_NAME_2);
+		loc.insert(new Article(TestStockLog.VALID_ART_NR_1, 1));
+
+		this.sut.checkpoint();
+		this.applyChanges(stock);
+		this.reopen();
+
+		List<StorageLocation> locs = this.sut.getStock().getStorageLocations();
+		assertEquals(2, locs.size());
+		assertEquals(TestStockLog.VALID_STORAGE_NAME_2, locs.get(0).getName());
+		assertEquals(1, locs.get(0).getArticleCount());
+		this.verifyChanges(locs.get(1), this.sut.getStock());
+	}
+
+	@Test
+	public void shouldRestoreRenamedAndResizedArticles() throws IOException {
+		StorageLocation loc = this.sut.getStock().createStorageLocation(
+				TestStockLog.VALID_STORAGE_NAME);
+		Article small = new Article(TestStockLog.VALID_ART_NR_1, 1);
+		Article large = new Article(TestStockLog.VALID_ART_NR_1, 4);
+		loc.insert(small);
+		loc.insert(large);
+
+		large.setArtNr(TestStockLog.VALID_ART_NR_2);
+		small.setWidth(3);
+		this.reopen();
+		this.verifyRenamedAndResized(3, 4);
+
+		// Articles of a checkpoint are found through the stock file
+		this.sut.checkpoint();
+		loc = this.sut.getStock().getStorageLocations().get(0);
+		loc.getArticles(TestStockLog.VALID_ART_NR_2).getFirst().setWidth(5);
+		this.reopen();
+		this.verifyRenamedAndResized(3, 5);
+	}
+
+	@Test
+	public void shouldIgnoreTornRecordAtEnd() throws IOException {
+		this.applyChanges(this.sut.getStock());
+		this.sut.close();
+
+		FileOutputStream out = new FileOutputStream(this.file, true);
+		out.write(new byte[] { 0, 0, 0, 42, 1, 2, 3 });
+		out.close();
+
+		this.sut = StockLog.open(this.snapshot, this.file);
+		this.verifyChanges(this.sut.getStock());
+		this.sut.getStock().setTemperature(TestStockLog.VALID_TEMPERATURE - 1);
+
+		this.reopen();
+
+		assertEquals(TestStockLog.VALID_TEMPERATURE - 1, this.sut.getStock()
+				.getTemperature());
+	}
+
+	@Test(expected = IOException.class)
+	public void shouldThrowWhenRecordNamesUnknownLocation() throws IOException {
+		this.applyChanges(this.sut.getStock());
+		this.sut.close();
+
+		// Insert of no articles into location 99, with a valid checksum
+		ByteBuffer payload = ByteBuffer.allocate(9);
+		payload.put((byte) 3).putInt(99).putInt(0);
+		CRC32 crc = new CRC32();
+		crc.update(payload.array());
+		ByteBuffer record = ByteBuffer.allocate(17);
+		record.putInt(9).putInt((int) crc.getValue()).put(payload.array());
+
+		FileOutputStream out = new FileOutputStream(this.file, true);
+		out.write(record.array());
+		out.close();
+
+		StockLog.open(this.snapshot, this.file);
+	}
+
+	@Test
+	public void shouldDiscardLogIncludedInCheckpoint() throws IOException {
+		this.applyChanges(this.sut.getStock());
+		byte[] before = this.read(this.file);
+
+		this.sut.checkpoint();
+		this.sut.close();
+
+		// Crash between writing the snapshot and resetting the log
+		FileOutputStream out = new FileOutputStream(this.file);
+		out.write(before);
+		out.close();
+
+		this.sut = StockLog.open(this.snapshot, this.file);
+		this.verifyChanges(this.sut.getStock());
+	}
+
+	@Test
+	public void shouldRestoreChangesOfConcurrentThreads() throws Exception {
+		StorageLocation.MAX_ARTICLES = TestStockLog.INSERTS_PER_THREAD;
+		Stock.MAX_STORAGE_LOCATIONS = TestStockLog.THREADS;
+		Thread[] threads = new Thread[TestStockLog.THREADS];
+
+		for (int i = 0; i < threads.length; i++) {
+			final StorageLocation loc = this.sut.getStock()
+					.createStorageLocation(TestStockLog.VALID_STORAGE_NAME + i);
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					for (int n = 0; n < TestStockLog.INSERTS_PER_THREAD; n++)
+						loc.insert(new Article(TestStockLog.VALID_ART_NR_1, 1));
+				}
+			});
+			threads[i].start();
+		}
+
+		for (Thread t : threads)
+			t.join();
+
+		this.reopen();
+
+		assertEquals(TestStockLog.THREADS * TestStockLog.INSERTS_PER_THREAD,
+				this.sut.getStock().findArticles(TestStockLog.VALID_ART_NR_1)
+						.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowWhenNullCommitPolicy() {
+		this.sut.setCommitPolicy(null);
+	}
+
+	@Test
+	public void shouldOnlyWriteChangesOnCommitWhenOnDemand() throws IOException {
+		this.sut.setCommitPolicy(CommitPolicy.ON_DEMAND);
+		long length = this.file.length();
+
+		this.applyChanges(this.sut.getStock());
+		assertEquals(length, this.file.length());
+
+		this.sut.commit();
+		assertTrue(this.file.length() > length);
+
+		this.reopen();
+		this.verifyChanges(this.sut.getStock());
+	}
+
+	@Test
+	public void shouldInsertQuicklyWithBatchedCommits() throws IOException {
+		StorageLocation.MAX_ARTICLES = TestStockLog.BATCHED_INSERTS;
+		StorageLocation.MAX_WIDTH = TestStockLog.BATCHED_INSERTS;
+		this.sut.setCommitPolicy(CommitPolicy.BATCHED);
+		StorageLocation loc = this.sut.getStock().createStorageLocation(
+				TestStockLog.VALID_STORAGE_NAME);
+
+		long start = System.nanoTime();
+
+		for (int i = 0; i < TestStockLog.BATCHED_INSERTS; i++)
+			loc.insert(new Article(TestStockLog.VALID_ART_NR_1, 1));
+
+		this.sut.commit();
+		long millis = (System.nanoTime() - start) / 1000000;
+
+		assertTrue("took " + millis + " ms",
+				millis < TestStockLog.BATCHED_INSERTS_MILLIS);
+
+		this.reopen();
+		assertEquals(TestStockLog.BATCHED_INSERTS, this.sut.getStock()
+				.findArticles(TestStockLog.VALID_ART_NR_1).size());
+	}
+
+	/*
+	 * Helper methods
+	 */
+	private void verifyLocationWithoutName() {
+		List<StorageLocation> locs = this.sut.getStock().getStorageLocations();
+		assertEquals(1, locs.size());
+		assertNull(locs.get(0).getName());
+		assertEquals(1, locs.get(0).getArticleCount(TestStockLog.VALID_ART_NR_1));
+	}
+
+	private void reopen() throws IOException {
+		this.sut.close();
+		this.sut = StockLog.open(this.snapshot, this.file);
+	}
+
+	private void applyChanges(Stock stock) {
+		stock.setTemperature(TestStockLog.VALID_TEMPERATURE);
+		StorageLocation loc1 = stock
+				.createStorageLocation(TestStockLog.VALID_STORAGE_NAME);
+		StorageLocation loc2 = stock
+				.createStorageLocation(TestStockLog.VALID_STORAGE_NAME);
+		loc1.insert(new Article(TestStockLog.VALID_ART_NR_1, 1));
+		loc1.insert(new Article(TestStockLog.VALID_ART_NR_2, 2));
+		loc2.insert(new Article(TestStockLog.VALID_ART_NR_1, 4));
+		loc2.insert(new Article(TestStockLog.VALID_ART_NR_2, 8));
+		loc1.pick(TestStockLog.VALID_ART_NR_2, 1);
+		stock.moveAllArticles(loc1, loc2, TestStockLog.VALID_ART_NR_1);
+		stock.mergeStorageLocations(loc1, loc2);
+	}
+
+	private void verifyChanges(Stock stock) {
+		List<StorageLocation> locs = stock.getStorageLocations();
+		assertEquals(1, locs.size());
+		this.verifyChanges(locs.get(0), stock);
+	}
+
+	private void verifyChanges(StorageLocation loc, Stock stock) {
+		assertEquals(TestStockLog.VALID_TEMPERATURE, stock.getTemperature());
+		assertEquals(TestStockLog.VALID_STORAGE_NAME, loc.getName());
+		assertEquals(3, loc.getArticleCount());
+		assertEquals(13, loc.getTotalWidth(), 0.001);
+		assertEquals(2, loc.getArticleCount(TestStockLog.VALID_ART_NR_1));
+	}
+
+	private void verifyRenamedAndResized(double width1, double width2) {
+		StorageLocation loc = this.sut.getStock().getStorageLocations().get(0);
+		assertEquals(1, loc.getArticleCount(TestStockLog.VALID_ART_NR_1));
+		assertEquals(1, loc.getArticleCount(TestStockLog.VALID_ART_NR_2));
+		assertEquals(width1, loc.getTotalWidth(TestStockLog.VALID_ART_NR_1),
+				0.001);
+		assertEquals(width2, loc.getTotalWidth(TestStockLog.VALID_ART_NR_2),
+				0.001);
+		assertEquals(width1 + width2, loc.getTotalWidth(), 0.001);
+	}
+
+	private byte[] read(File f) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(f, "r");
+		try {
+			byte[] bytes = new byte[(int) in.length()];
+			in.readFully(bytes);
+			return bytes;
+		} finally {
+			in.close();
+		}
+	}
+}
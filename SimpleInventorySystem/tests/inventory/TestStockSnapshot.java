@@ -0,0 +1,400 @@
+package inventory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestStockSnapshot {
+
+	private static final String VALID_STORAGE_NAME = "MyStorageLocation";
+	private static final String VALID_STORAGE_NAME_2 = "MyStorageLocation2";
+	private static final String VALID_ART_NR_1 = "artNr1";
+	private static final String VALID_ART_NR_2 = "artNr2";
+	private static final double VALID_WIDTH = 10;
+	private static final int MANY_STORAGE_LOCATIONS = 100;
+	private static final int MANY_LOCATIONS = 20000;
+	private static final int THREADS = 4;
+	private static final int ARTICLES_PER_THREAD = 1000;
+
+	private Stock sut;
+	private StorageLocation loc1;
+	private StorageLocation loc2;
+	private int maxStorageLocations;
+	private int parallelThreshold;
+	private int maxArticles;
+	private double maxWidth;
+
+	@Before
+	public void setUp() {
+		this.maxStorageLocations = Stock.MAX_STORAGE_LOCATIONS;
+		this.parallelThreshold = StockSnapshot.PARALLEL_THRESHOLD;
+		this.maxArticles = StorageLocation.MAX_ARTICLES;
+		this.maxWidth = StorageLocation.MAX_WIDTH;
+		this.sut = new Stock();
+		this.loc1 = this.sut
+				.createStorageLocation(TestStockSnapshot.VALID_STORAGE_NAME);
+		this.loc2 = this.sut
+				.createStorageLocation(TestStockSnapshot.VALID_STORAGE_NAME_2);
+	}
+
+	@After
+	public void tearDown() {
+		Stock.MAX_STORAGE_LOCATIONS = this.maxStorageLocations;
+		StockSnapshot.PARALLEL_THRESHOLD = this.parallelThreshold;
+		StorageLocation.MAX_ARTICLES = this.maxArticles;
+		StorageLocation.MAX_WIDTH = this.maxWidth;
+	}
+
+	@Test
+	public void shouldStartEmpty() {
+		StockSnapshot snapshot = new Stock().getSnapshot();
+
+		assertEquals(0, snapshot.getVersion());
+		assertTrue(snapshot.getStorageLocations().isEmpty());
+	}
+
+	@Test
+	public void shouldContainLocationsInInsertionOrder() {
+		List<LocationSnapshot> locs = this.sut.getSnapshot()
+				.getStorageLocations();
+
+		assertEquals(2, locs.size());
+		assertEquals(TestStockSnapshot.VALID_STORAGE_NAME, locs.get(0)
+				.getName());
+		assertEquals(TestStockSnapshot.VALID_STORAGE_NAME_2, locs.get(1)
+				.getName());
+	}
+
+	@Test
+	public void shouldNotChangeWhenStockChanges() {
+		this.loc1.insert(this.createArticle(TestStockSnapshot.VALID_ART_NR_1));
+		StockSnapshot before = this.sut.getSnapshot();
+
+		this.loc1.insert(this.createArticle(TestStockSnapshot.VALID_ART_NR_1));
+		this.loc1.getArticles().get(0).setWidth(1);
+
+		assertEquals(1, before.findArticles(TestStockSnapshot.VALID_ART_NR_1)
+				.size());
+		assertEquals(TestStockSnapshot.VALID_WIDTH, before
+				.getStorageLocations().get(0).getTotalWidth(), 0);
+		// Changes made between two reads are published as one version
+		assertEquals(before.getVersion() + 1, this.sut.getSnapshot()
+				.getVersion());
+		assertEquals(TestStockSnapshot.VALID_WIDTH + 1, this.sut.getSnapshot()
+				.getStorageLocations().get(0).getTotalWidth(), 0);
+	}
+
+	@Test
+	public void shouldShareUnchangedLocations() {
+		StockSnapshot before = this.sut.getSnapshot();
+
+		this.loc1.insert(this.createArticle(TestStockSnapshot.VALID_ART_NR_1));
+
+		assertSame(before.getStorageLocations().get(1), this.sut.getSnapshot()
+				.getStorageLocations().get(1));
+	}
+
+	@Test
+	public void shouldPublishMoveAsOneVersion() {
+		this.loc2.insert(this.createArticle(TestStockSnapshot.VALID_ART_NR_1));
+		this.loc2.insert(this.createArticle(TestStockSnapshot.VALID_ART_NR_2));
+		long version = this.sut.getSnapshot().getVersion();
+
+		this.sut.moveAllArticles(this.loc1, this.loc2);
+
+		StockSnapshot after = this.sut.getSnapshot();
+		assertEquals(version + 1, after.getVersion());
+		assertEquals(2, after.getStorageLocations().get(0).getArticleCount());
+		assertEquals(0, after.getStorageLocations().get(1).getArticleCount());
+	}
+
+	@Test
+	public void shouldPublishMergeAsOneVersion() {
+		this.loc2.insert(this.createArticle(TestStockSnapshot.VALID_ART_NR_1));
+		long version = this.sut.getSnapshot().getVersion();
+
+		this.sut.mergeStorageLocations(this.loc1, this.loc2);
+
+		StockSnapshot after = this.sut.getSnapshot();
+		assertEquals(version + 1, after.getVersion());
+		assertEquals(1, after.getStorageLocations().size());
+		assertEquals(1, after.getStorageLocations().get(0)
+				.getArticleCount(TestStockSnapshot.VALID_ART_NR_1));
+	}
+
+	@Test
+	public void shouldDropRemovedLocations() {
+		this.sut.removeAllStorageLocations(TestStockSnapshot.VALID_STORAGE_NAME);
+
+		assertEquals(1, this.sut.getSnapshot().getStorageLocations().size());
+
+		this.sut.removeAllStorageLocations();
+
+		assertTrue(this.sut.getSnapshot().getStorageLocations().isEmpty());
+	}
+
+	@Test
+	public void shouldNotSeeRenamesOrPicksAfterPublishing() {
+		Article renamed = this.createArticle(TestStockSnapshot.VALID_ART_NR_1);
+		this.loc1.insert(renamed);
+		this.loc1.insert(this.createArticle(TestStockSnapshot.VALID_ART_NR_2));
+		StockSnapshot before = this.sut.getSnapshot();
+
+		renamed.setArtNr(TestStockSnapshot.VALID_ART_NR_2);
+		this.loc1.pick(TestStockSnapshot.VALID_ART_NR_2, 1);
+
+		LocationSnapshot old = before.getStorageLocations().get(0);
+		LocationSnapshot now = this.sut.getSnapshot().getStorageLocations()
+				.get(0);
+		assertEquals(2, old.getArticleCount());
+		assertEquals(1, old.getArticleCount(TestStockSnapshot.VALID_ART_NR_1));
+		assertEquals(TestStockSnapshot.VALID_ART_NR_1, old.getArticles()
+				.get(0).getArtNr());
+		assertEquals(1, now.getArticleCount());
+		assertEquals(0, now.getArticleCount(TestStockSnapshot.VALID_ART_NR_1));
+		assertEquals(TestStockSnapshot.VALID_WIDTH, now.getTotalWidth(), 0);
+	}
+
+	@Test
+	public void shouldNotChangeWhenConcurrentLocationChanges() {
+		StorageLocation loc = new ConcurrentStorageLocation(
+				TestStockSnapshot.VALID_STORAGE_NAME);
+		Stock stock = new Stock();
+		stock.addStorageLocation(loc);
+		Article resized = this.createArticle(TestStockSnapshot.VALID_ART_NR_1);
+		loc.insert(resized);
+		loc.insert(this.createArticle(TestStockSnapshot.VALID_ART_NR_2));
+		StockSnapshot before = stock.getSnapshot();
+
+		resized.setWidth(1);
+		loc.pick(TestStockSnapshot.VALID_ART_NR_2, 1);
+		loc.insert(this.createArticle(TestStockSnapshot.VALID_ART_NR_1));
+
+		LocationSnapshot old = before.getStorageLocations().get(0);
+		LocationSnapshot now = stock.getSnapshot().getStorageLocations().get(0);
+		assertEquals(2, old.getArticleCount());
+		assertEquals(2 * TestStockSnapshot.VALID_WIDTH, old.getTotalWidth(), 0);
+		assertEquals(1, old.getArticleCount(TestStockSnapshot.VALID_ART_NR_2));
+		assertEquals(2, now.getArticleCount());
+		assertEquals(TestStockSnapshot.VALID_WIDTH + 1, now.getTotalWidth(), 0);
+		assertEquals(TestStockSnapshot.VALID_WIDTH + 1,
+				now.getTotalWidth(TestStockSnapshot.VALID_ART_NR_1), 0);
+	}
+
+	@Test
+	public void shouldPublishConcurrentInsertsWhenRead()
+			throws InterruptedException {
+		StorageLocation.MAX_ARTICLES = Integer.MAX_VALUE;
+		StorageLocation.MAX_WIDTH = Double.MAX_VALUE;
+		final StorageLocation loc = new ConcurrentStorageLocation(
+				TestStockSnapshot.VALID_STORAGE_NAME);
+		final Stock stock = new Stock();
+		stock.addStorageLocation(loc);
+		Thread[] threads = new Thread[TestStockSnapshot.THREADS];
+
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					for (int j = 0; j < TestStockSnapshot.ARTICLES_PER_THREAD; j++) {
+						loc.insert(TestStockSnapshot.this
+								.createArticle(TestStockSnapshot.VALID_ART_NR_1));
+
+						if (0 == j % 100)
+							stock.getSnapshot();
+					}
+				}
+			});
+			threads[i].start();
+		}
+
+		for (Thread t : threads)
+			t.join();
+
+		assertEquals(TestStockSnapshot.THREADS
+				* TestStockSnapshot.ARTICLES_PER_THREAD, stock.getSnapshot()
+				.getStorageLocations().get(0).getArticleCount());
+	}
+
+	@Test
+	public void shouldAppendReaddedLocation() {
+		this.sut.removeAllStorageLocations(TestStockSnapshot.VALID_STORAGE_NAME);
+		this.sut.addStorageLocation(this.loc1);
+
+		List<LocationSnapshot> locs = this.sut.getSnapshot()
+				.getStorageLocations();
+		assertEquals(2, locs.size());
+		assertEquals(TestStockSnapshot.VALID_STORAGE_NAME_2, locs.get(0)
+				.getName());
+		assertEquals(TestStockSnapshot.VALID_STORAGE_NAME, locs.get(1)
+				.getName());
+	}
+
+	@Test
+	public void shouldPublishQuicklyWithManyLocations() {
+		Stock.MAX_STORAGE_LOCATIONS = 2 * TestStockSnapshot.MANY_LOCATIONS;
+		List<StorageLocation> locs = new LinkedList<StorageLocation>();
+
+		for (int i = 0; i < TestStockSnapshot.MANY_LOCATIONS; i++)
+			locs.add(new StorageLocation(TestStockSnapshot.VALID_STORAGE_NAME
+					+ i));
+
+		this.sut.addStorageLocations(locs);
+		long version = this.sut.getSnapshot().getVersion();
+		long start = System.nanoTime();
+
+		for (StorageLocation loc : locs)
+			loc.insert(this.createArticle(TestStockSnapshot.VALID_ART_NR_1));
+
+		StockSnapshot after = this.sut.getSnapshot();
+		long millis = (System.nanoTime() - start) / 1000000;
+		assertEquals(version + 1, after.getVersion());
+		assertEquals(TestStockSnapshot.MANY_LOCATIONS, (int) after
+				.getArticleCounts().get(
+						StorageLocation.toKey(TestStockSnapshot.VALID_ART_NR_1)));
+		assertTrue("took " + millis + " ms", millis < 5000);
+	}
+
+	@Test
+	public void shouldReturnCopiesOfArticles() {
+		Article article = this.createArticle(TestStockSnapshot.VALID_ART_NR_1);
+		this.loc1.insert(article);
+		StockSnapshot snapshot = this.sut.getSnapshot();
+
+		LinkedList<Article> copies = snapshot
+				.findArticles(TestStockSnapshot.VALID_ART_NR_1.toUpperCase());
+		copies.get(0).setWidth(1);
+
+		assertEquals(1, copies.size());
+		assertTrue(copies.get(0) != article);
+		assertEquals(TestStockSnapshot.VALID_WIDTH, snapshot
+				.getStorageLocations().get(0).getArticles().get(0).getWidth(),
+				0);
+	}
+
+	@Test
+	public void shouldStreamArticlesIgnoringCase() {
+		this.loc1.insert(this.createArticle(TestStockSnapshot.VALID_ART_NR_1));
+		this.loc2.insert(this.createArticle(TestStockSnapshot.VALID_ART_NR_2));
+		this.loc2.insert(this.createArticle(TestStockSnapshot.VALID_ART_NR_1));
+		StockSnapshot snapshot = this.sut.getSnapshot();
+
+		assertEquals(2, snapshot.streamArticles(
+				TestStockSnapshot.VALID_ART_NR_1.toUpperCase()).count());
+		assertEquals(3, snapshot.streamArticles().count());
+		assertEquals(1, snapshot.getStorageLocations().get(1)
+				.streamArticles(TestStockSnapshot.VALID_ART_NR_2).count());
+		assertTrue(snapshot.streamArticles(TestStockSnapshot.VALID_ART_NR_2)
+				.findAny().isPresent());
+	}
+
+	@Test
+	public void shouldSplitStreamAcrossLocationsAndArticles() {
+		for (int i = 0; i < StorageLocation.MAX_ARTICLES; i++) {
+			this.loc1.insert(new Article(TestStockSnapshot.VALID_ART_NR_1, i));
+			this.loc2.insert(new Article(TestStockSnapshot.VALID_ART_NR_2, i));
+		}
+
+		StockSnapshot snapshot = this.sut.getSnapshot();
+		Spliterator<Article> rest = snapshot.streamArticles().spliterator();
+		Spliterator<Article> first = rest.trySplit();
+		Spliterator<Article> firstHalf = first.trySplit();
+
+		assertEquals(StorageLocation.MAX_ARTICLES, rest.estimateSize());
+		assertEquals(StorageLocation.MAX_ARTICLES / 2, firstHalf.estimateSize());
+		assertEquals(StorageLocation.MAX_ARTICLES
+				- StorageLocation.MAX_ARTICLES / 2, first.estimateSize());
+
+		List<Article> sequential = snapshot.streamArticles().collect(
+				Collectors.<Article> toList());
+		List<Article> parallel = snapshot.streamArticles().parallel()
+				.collect(Collectors.<Article> toList());
+
+		assertEquals(sequential.size(), parallel.size());
+		for (int i = 0; i < sequential.size(); i++)
+			assertEquals(sequential.get(i).getArtNr(), parallel.get(i)
+					.getArtNr());
+	}
+
+	@Test
+	public void shouldAggregateSequentiallyBelowThreshold() {
+		this.loc1.insert(this.createArticle(TestStockSnapshot.VALID_ART_NR_1));
+		this.loc2.insert(this.createArticle(TestStockSnapshot.VALID_ART_NR_1
+				.toUpperCase()));
+		this.loc2.insert(this.createArticle(TestStockSnapshot.VALID_ART_NR_2));
+		StockSnapshot snapshot = this.sut.getSnapshot();
+
+		Map<String, Integer> counts = snapshot.getArticleCounts();
+
+		assertEquals(2, counts.size());
+		assertEquals(2, (int) counts.get(StorageLocation
+				.toKey(TestStockSnapshot.VALID_ART_NR_1)));
+		assertEquals(1, (int) counts.get(StorageLocation
+				.toKey(TestStockSnapshot.VALID_ART_NR_2)));
+		assertEquals(2 * TestStockSnapshot.VALID_WIDTH,
+				snapshot.getTotalWidth(TestStockSnapshot.VALID_ART_NR_1), 0);
+		assertEquals(2, snapshot.findStorageLocationsWithFreeWidth(
+				StorageLocation.MAX_WIDTH - 2 * TestStockSnapshot.VALID_WIDTH)
+				.size());
+		assertSame(snapshot.getStorageLocations().get(0), snapshot
+				.findStorageLocationsWithFreeWidth(
+						StorageLocation.MAX_WIDTH - TestStockSnapshot.VALID_WIDTH)
+				.get(0));
+	}
+
+	@Test
+	public void shouldAggregateInParallelAboveThreshold() {
+		Stock.MAX_STORAGE_LOCATIONS = TestStockSnapshot.MANY_STORAGE_LOCATIONS;
+		StockSnapshot.PARALLEL_THRESHOLD = 3;
+
+		for (int i = 2; i < TestStockSnapshot.MANY_STORAGE_LOCATIONS; i++) {
+			StorageLocation loc = this.sut
+					.createStorageLocation(TestStockSnapshot.VALID_STORAGE_NAME
+							+ i);
+
+			for (int n = 0; n < i % 4; n++)
+				loc.insert(new Article(TestStockSnapshot.VALID_ART_NR_1, i));
+		}
+
+		StockSnapshot snapshot = this.sut.getSnapshot();
+		double width = 0;
+		int count = 0;
+		int free = 0;
+
+		for (LocationSnapshot loc : snapshot.getStorageLocations()) {
+			width += loc.getTotalWidth();
+			count += loc.getArticleCount();
+
+			if (loc.getTotalWidth() + 200 <= StorageLocation.MAX_WIDTH)
+				free++;
+		}
+
+		List<LocationSnapshot> found = snapshot
+				.findStorageLocationsWithFreeWidth(200);
+
+		assertEquals(width,
+				snapshot.getTotalWidth(TestStockSnapshot.VALID_ART_NR_1), 0.001);
+		assertEquals(count, (int) snapshot.getArticleCounts().get(
+				StorageLocation.toKey(TestStockSnapshot.VALID_ART_NR_1)));
+		assertEquals(free, found.size());
+		for (int i = 1; i < found.size(); i++)
+			assertTrue(snapshot.getStorageLocations().indexOf(found.get(i - 1)) < snapshot
+					.getStorageLocations().indexOf(found.get(i)));
+	}
+
+	/*
+	 * Helper methods
+	 */
+	private Article createArticle(String artNr) {
+		return new Article(artNr, TestStockSnapshot.VALID_WIDTH);
+	}
+}
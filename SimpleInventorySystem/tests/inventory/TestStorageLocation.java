@@ -1,6 +1,10 @@
 package inventory;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -8,9 +12,15 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import inventory.exceptions.InvalidWidthException;
 import inventory.exceptions.TooManyArticlesException;
+import inventory.metrics.HistogramMetrics;
+import inventory.metrics.InventoryMetrics;
+import inventory.metrics.Operation;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -27,6 +37,8 @@ public class TestStorageLocation {
 	private static final int OVER_PICK = 4;
 	private static final int UNDER_PICK = 2;
 	private static final String ARTICLE_NAME = "articleName";
+	// Not used by any other test, so its key is not interned yet
+	private static final String UNSEEN_ART_NR = "unseenArtNr";
 
 	private StorageLocation sut;
 
@@ -188,7 +200,7 @@ public class TestStorageLocation {
 		LinkedList<Article> input1 = insert5Articles();
 		LinkedList<Article> input2 = insert5Articles();
 		
-		this.verifyInvokeGetWidth(input1, 2);
+		this.verifyInvokeGetWidth(input1);
 		this.verifyInvokeGetWidth(input2);
 
 		LinkedList<Article> output = (LinkedList<Article>) this.sut.getArticles();		
@@ -311,6 +323,288 @@ public class TestStorageLocation {
 		assertEquals(input.subList(0, 3), output);		
 	}
 
+	/*
+	 * Article number index
+	 */
+
+	@Test
+	public void shouldFindArticlesIgnoringCase() {
+		this.sut.insert(new Article(TestStorageLocation.ARTICLE_NAME,
+				TestStorageLocation.VALID_WIDTH));
+
+		assertEquals(1,
+				this.sut.getArticles(TestStorageLocation.ARTICLE_NAME.toUpperCase())
+						.size());
+	}
+
+	@Test
+	public void shouldFindRenamedArticleByNewArticleNumber() {
+		Article article = new Article(TestStorageLocation.ARTICLE_NAME,
+				TestStorageLocation.VALID_WIDTH);
+		this.sut.insert(article);
+		this.sut.getArticles(TestStorageLocation.ARTICLE_NAME);
+
+		article.setArtNr(TestStorageLocation.ARTICLE_NAME_2);
+
+		assertEquals(0, this.sut.getArticles(TestStorageLocation.ARTICLE_NAME)
+				.size());
+		assertEquals(article,
+				this.sut.getArticles(TestStorageLocation.ARTICLE_NAME_2).get(0));
+	}
+
+	@Test
+	public void shouldNotFindPickedArticles() {
+		Article article = new Article(TestStorageLocation.ARTICLE_NAME,
+				TestStorageLocation.VALID_WIDTH);
+		this.sut.insert(article);
+		this.sut.insert(new Article(TestStorageLocation.ARTICLE_NAME,
+				TestStorageLocation.VALID_WIDTH));
+
+		this.sut.pick(TestStorageLocation.ARTICLE_NAME, 1);
+
+		assertEquals(1, this.sut.getArticles(TestStorageLocation.ARTICLE_NAME)
+				.size());
+		assertEquals(1, this.sut.getArticles().size());
+		assertEquals(null, article.getLocation());
+	}
+
+	@Test
+	public void shouldPickArticleNumberNeverLookedUpBefore() {
+		this.sut.insert(new Article(TestStorageLocation.UNSEEN_ART_NR,
+				TestStorageLocation.VALID_WIDTH));
+
+		assertEquals(1, this.sut.pick(TestStorageLocation.UNSEEN_ART_NR, 1)
+				.size());
+		assertEquals(0, this.sut.getArticleCount());
+	}
+
+	@Test
+	public void shouldKeepInsertionOrderOfArticlesLeftAfterPick() {
+		Article first = new Article(TestStorageLocation.ARTICLE_NAME_2,
+				TestStorageLocation.VALID_WIDTH);
+		Article second = new Article(TestStorageLocation.ARTICLE_NAME,
+				TestStorageLocation.VALID_WIDTH);
+		Article third = new Article(TestStorageLocation.ARTICLE_NAME_2,
+				TestStorageLocation.VALID_WIDTH);
+		this.sut.insert(new Article(TestStorageLocation.ARTICLE_NAME,
+				TestStorageLocation.VALID_WIDTH));
+		this.sut.insert(first);
+		this.sut.insert(second);
+		this.sut.insert(third);
+
+		this.sut.pick(TestStorageLocation.ARTICLE_NAME, 1);
+		second.setArtNr(TestStorageLocation.ARTICLE_NAME_2);
+
+		List<Article> left = this.sut.getArticles();
+		assertEquals(3, left.size());
+		assertSame(first, left.get(0));
+		assertSame(second, left.get(1));
+		assertSame(third, left.get(2));
+		assertEquals(0,
+				this.sut.getArticleCount(TestStorageLocation.ARTICLE_NAME));
+		assertSame(second,
+				this.sut.pick(TestStorageLocation.ARTICLE_NAME_2, 3).get(2));
+		assertEquals(0, this.sut.getArticleCount());
+	}
+
+	/*
+	 * Batch pick
+	 */
+
+	@Test
+	public void shouldPickManyOrderLines() {
+		this.insertRealArticles(3, 2);
+		Map<String, Integer> lines = new LinkedHashMap<String, Integer>();
+		lines.put(TestStorageLocation.ARTICLE_NAME_2, 5);
+		lines.put(TestStorageLocation.ARTICLE_NAME, 2);
+		lines.put(TestStorageLocation.NONE_EXISTING_ART_NR, 1);
+
+		Map<String, LinkedList<Article>> output = this.sut.pickMany(lines);
+
+		assertEquals(new LinkedList<String>(lines.keySet()),
+				new LinkedList<String>(output.keySet()));
+		assertEquals(2, output.get(TestStorageLocation.ARTICLE_NAME_2).size());
+		assertEquals(2, output.get(TestStorageLocation.ARTICLE_NAME).size());
+		assertEquals(0, output.get(TestStorageLocation.NONE_EXISTING_ART_NR)
+				.size());
+		assertEquals(1, this.sut.getArticleCount());
+		assertEquals(TestStorageLocation.VALID_WIDTH, this.sut.getTotalWidth(),
+				0.001);
+		assertEquals(1, this.sut.getArticles(TestStorageLocation.ARTICLE_NAME)
+				.size());
+		assertEquals(null, output.get(TestStorageLocation.ARTICLE_NAME).get(0)
+				.getLocation());
+	}
+
+	@Test
+	public void shouldShareArticlesBetweenLinesDifferingInCase() {
+		this.insertRealArticles(3, 0);
+		Map<String, Integer> lines = new LinkedHashMap<String, Integer>();
+		lines.put(TestStorageLocation.ARTICLE_NAME, 2);
+		lines.put(TestStorageLocation.ARTICLE_NAME.toUpperCase(), 2);
+
+		Map<String, LinkedList<Article>> output = this.sut.pickMany(lines);
+
+		assertEquals(2, output.get(TestStorageLocation.ARTICLE_NAME).size());
+		assertEquals(1,
+				output.get(TestStorageLocation.ARTICLE_NAME.toUpperCase())
+						.size());
+		assertEquals(0, this.sut.getArticleCount());
+	}
+
+	@Test
+	public void shouldKeepIndexInSyncAcrossBatchPicks() {
+		this.insertRealArticles(2, 2);
+		Map<String, Integer> lines = new HashMap<String, Integer>();
+		lines.put(TestStorageLocation.ARTICLE_NAME, 1);
+
+		this.sut.pickMany(lines);
+		this.insertRealArticles(1, 0);
+		this.sut.pickMany(lines);
+
+		assertEquals(1,
+				this.sut.getArticleCount(TestStorageLocation.ARTICLE_NAME));
+		assertEquals(2,
+				this.sut.getArticleCount(TestStorageLocation.ARTICLE_NAME_2));
+		assertEquals(3, this.sut.getArticles().size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowWhenPickManyNullLines() {
+		this.sut.pickMany(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowWhenPickManyNullCount() {
+		Map<String, Integer> lines = new HashMap<String, Integer>();
+		lines.put(TestStorageLocation.ARTICLE_NAME, null);
+
+		this.sut.pickMany(lines);
+	}
+
+	/*
+	 * Totals
+	 */
+
+	@Test
+	public void shouldKeepTotalWidthAndCount() {
+		this.insert5Articles();
+		this.sut.insert(new Article(TestStorageLocation.ARTICLE_NAME,
+				TestStorageLocation.VALID_WIDTH));
+
+		this.sut.pick(TestStorageLocation.ARTICLE_NAME, 1);
+
+		assertEquals(5, this.sut.getArticleCount());
+		assertEquals(50, this.sut.getTotalWidth(), 0.001);
+	}
+
+	@Test
+	public void shouldResetTotalWidthWhenEmpty() {
+		this.insert5Articles();
+
+		this.sut.pickAll();
+
+		assertEquals(0, this.sut.getArticleCount());
+		assertEquals(0, this.sut.getTotalWidth(), 0.0);
+	}
+
+	@Test
+	public void shouldAccountForWidthChangeOfStoredArticle() {
+		Article article = new Article(TestStorageLocation.ARTICLE_NAME,
+				TestStorageLocation.VALID_WIDTH);
+		this.sut.insert(article);
+
+		article.setWidth(TestStorageLocation.VALID_WIDTH * 2);
+
+		assertEquals(TestStorageLocation.VALID_WIDTH * 2,
+				this.sut.getTotalWidth(), 0.001);
+	}
+
+	@Test(expected = InvalidWidthException.class)
+	public void shouldThrowWhenWideningStoredArticleBeyondMaxWidth() {
+		this.sut.insert(new Article(TestStorageLocation.ARTICLE_NAME,
+				StorageLocation.MAX_WIDTH / 2));
+		Article article = new Article(TestStorageLocation.ARTICLE_NAME,
+				TestStorageLocation.VALID_WIDTH);
+		this.sut.insert(article);
+
+		article.setWidth(StorageLocation.MAX_WIDTH / 2 + 1);
+	}
+
+	/*
+	 * Metrics
+	 */
+
+	@Test
+	public void shouldNotReportWithoutMetrics() {
+		assertSame(InventoryMetrics.NONE, this.sut.getMetrics());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowWhenNullMetrics() {
+		this.sut.setMetrics(null);
+	}
+
+	@Test
+	public void shouldReportInsertsAndPicks() {
+		HistogramMetrics metrics = new HistogramMetrics();
+		this.sut.setMetrics(metrics);
+		this.insertRealArticles(3, 0);
+
+		this.sut.pick(TestStorageLocation.ARTICLE_NAME, 2);
+		this.sut.pickAll();
+
+		assertEquals(1, metrics.getLatencies(Operation.INSERT).getCount());
+		assertEquals(3, metrics.getScanLengths(Operation.INSERT).getMax());
+		assertEquals(1, metrics.getLatencies(Operation.PICK).getCount());
+		assertEquals(2, metrics.getScanLengths(Operation.PICK).getMax());
+		assertEquals(1, metrics.getScanLengths(Operation.PICK_ALL).getMax());
+	}
+
+	@Test
+	public void shouldReportPickMany() {
+		HistogramMetrics metrics = new HistogramMetrics();
+		this.sut.setMetrics(metrics);
+		this.insertRealArticles(3, 0);
+		Map<String, Integer> lines = new LinkedHashMap<String, Integer>();
+		lines.put(TestStorageLocation.ARTICLE_NAME, 2);
+
+		this.sut.pickMany(lines);
+
+		assertEquals(1, metrics.getLatencies(Operation.PICK_MANY).getCount());
+		assertEquals(2, metrics.getScanLengths(Operation.PICK_MANY).getMax());
+	}
+
+	@Test
+	public void shouldReportRejectedInserts() {
+		HistogramMetrics metrics = new HistogramMetrics();
+		this.sut.setMetrics(metrics);
+
+		try {
+			this.sut.insertMany(this.createArticleList(
+					StorageLocation.MAX_ARTICLES + 1, 0.0));
+		} catch (TooManyArticlesException e) {
+		}
+
+		assertEquals(1, metrics.getRejected(Operation.INSERT));
+		assertEquals(0, metrics.getLatencies(Operation.INSERT).getCount());
+		assertEquals(1, (long) metrics.getRejections().get(
+				"TooManyArticlesException"));
+	}
+
+	@Test
+	public void shouldNotTimeWhenMetricsDisabled() {
+		InventoryMetrics metrics = mock(InventoryMetrics.class);
+		this.sut.setMetrics(metrics);
+
+		this.sut.insert(new Article(TestStorageLocation.ARTICLE_NAME,
+				TestStorageLocation.VALID_WIDTH));
+		this.sut.pick(TestStorageLocation.ARTICLE_NAME, 1);
+
+		verify(metrics, never()).completed(any(Operation.class), anyLong(),
+				anyInt());
+	}
+
 	/*
 	 * Helper methods
 	 */
@@ -327,6 +621,17 @@ public class TestStorageLocation {
 				TestStorageLocation.ARTICLE_NAME_2);
 	}
 
+	private void insertRealArticles(int count, int count2) {
+		LinkedList<Article> articles = new LinkedList<Article>();
+
+		for (int i = 0; i < count + count2; i++)
+			articles.add(new Article(i < count ? TestStorageLocation.ARTICLE_NAME
+					: TestStorageLocation.ARTICLE_NAME_2,
+					TestStorageLocation.VALID_WIDTH));
+
+		this.sut.insertMany(articles);
+	}
+
 	private LinkedList<Article> insert5Articles() {
 		LinkedList<Article> articles = this.createArticleList(5, 10);
 		this.sut.insertMany(articles);
@@ -0,0 +1,122 @@
+package inventory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestStorageLocationRegistry {
+
+	private static final String VALID_STORAGE_NAME = "SomeName";
+	private static final String VALID_STORAGE_NAME_2 = "SomeOtherName";
+
+	private StorageLocationRegistry sut;
+
+	@Before
+	public void setUp() {
+		this.sut = new StorageLocationRegistry();
+	}
+
+	/*
+	 * Add
+	 */
+	@Test
+	public void shouldAddStorageLocation() {
+		StorageLocation input = new StorageLocation(
+				TestStorageLocationRegistry.VALID_STORAGE_NAME);
+
+		assertTrue(this.sut.add(input));
+		assertTrue(this.sut.contains(input));
+		assertEquals(1, this.sut.size());
+	}
+
+	@Test
+	public void shouldNotAddSameStorageLocationTwice() {
+		StorageLocation input = new StorageLocation(
+				TestStorageLocationRegistry.VALID_STORAGE_NAME);
+
+		this.sut.add(input);
+
+		assertFalse(this.sut.add(input));
+		assertEquals(1, this.sut.size());
+	}
+
+	@Test
+	public void shouldAddStorageLocationsWithSameName() {
+		this.sut.add(new StorageLocation(
+				TestStorageLocationRegistry.VALID_STORAGE_NAME));
+		this.sut.add(new StorageLocation(
+				TestStorageLocationRegistry.VALID_STORAGE_NAME));
+
+		assertEquals(2, this.sut.size());
+	}
+
+	@Test
+	public void shouldKeepInsertionOrder() {
+		LinkedList<StorageLocation> input = new LinkedList<StorageLocation>();
+		input.add(new StorageLocation(
+				TestStorageLocationRegistry.VALID_STORAGE_NAME_2));
+		input.add(new StorageLocation(
+				TestStorageLocationRegistry.VALID_STORAGE_NAME));
+
+		for (StorageLocation loc : input)
+			this.sut.add(loc);
+
+		assertEquals(input, this.sut.toList());
+	}
+
+	/*
+	 * Get
+	 */
+	@Test
+	public void shouldGetStorageLocationsByNameIgnoringCase() {
+		StorageLocation input = new StorageLocation(
+				TestStorageLocationRegistry.VALID_STORAGE_NAME);
+		this.sut.add(input);
+		this.sut.add(new StorageLocation(
+				TestStorageLocationRegistry.VALID_STORAGE_NAME_2));
+
+		LinkedList<StorageLocation> output = this.sut
+				.getByName(TestStorageLocationRegistry.VALID_STORAGE_NAME
+						.toUpperCase());
+
+		assertEquals(1, output.size());
+		assertEquals(input, output.get(0));
+	}
+
+	/*
+	 * Remove
+	 */
+	@Test
+	public void shouldRemoveStorageLocation() {
+		StorageLocation input = new StorageLocation(
+				TestStorageLocationRegistry.VALID_STORAGE_NAME);
+		this.sut.add(input);
+
+		assertTrue(this.sut.remove(input));
+		assertFalse(this.sut.contains(input));
+		assertEquals(0,
+				this.sut.getByName(TestStorageLocationRegistry.VALID_STORAGE_NAME)
+						.size());
+	}
+
+	@Test
+	public void shouldRemoveStorageLocationsByName() {
+		this.sut.add(new StorageLocation(
+				TestStorageLocationRegistry.VALID_STORAGE_NAME));
+		this.sut.add(new StorageLocation(
+				TestStorageLocationRegistry.VALID_STORAGE_NAME));
+		this.sut.add(new StorageLocation(
+				TestStorageLocationRegistry.VALID_STORAGE_NAME_2));
+
+		LinkedList<StorageLocation> output = this.sut
+				.removeByName(TestStorageLocationRegistry.VALID_STORAGE_NAME);
+
+		assertEquals(2, output.size());
+		assertEquals(1, this.sut.size());
+	}
+}
@@ -0,0 +1,137 @@
+package inventory.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestHistogram {
+
+	private static final int THREADS = 4;
+	private static final int VALUES_PER_THREAD = 10000;
+	private static final double PRECISION = 1.0 / 16;
+
+	private Histogram sut;
+
+	@Before
+	public void setUp() {
+		this.sut = new Histogram();
+	}
+
+	@Test
+	public void shouldBeEmptyWhenCreated() {
+		assertEquals(0, this.sut.getCount());
+		assertEquals(0, this.sut.getMax());
+		assertEquals(0, this.sut.getMean(), 0);
+		assertEquals(0, this.sut.getPercentile(99));
+	}
+
+	@Test
+	public void shouldKeepSmallValuesExact() {
+		for (int i = 1; i <= 10; i++)
+			this.sut.record(i);
+
+		assertEquals(10, this.sut.getCount());
+		assertEquals(5, this.sut.getPercentile(50));
+		assertEquals(10, this.sut.getPercentile(100));
+		assertEquals(5.5, this.sut.getMean(), 0);
+	}
+
+	@Test
+	public void shouldKeepPercentilesWithinPrecision() {
+		for (int i = 1; i <= 1000000; i++)
+			this.sut.record(i);
+
+		this.assertNear(500000, this.sut.getPercentile(50));
+		this.assertNear(990000, this.sut.getPercentile(99));
+		this.assertNear(999000, this.sut.getPercentile(99.9));
+		assertEquals(1000000, this.sut.getMax());
+	}
+
+	@Test
+	public void shouldNeverReportMoreThanMax() {
+		this.sut.record(1000);
+
+		assertEquals(1000, this.sut.getPercentile(50));
+	}
+
+	@Test
+	public void shouldRecordLargestValues() {
+		this.sut.record(Long.MAX_VALUE);
+
+		assertEquals(1, this.sut.getCount());
+		assertEquals(Long.MAX_VALUE, this.sut.getPercentile(100));
+	}
+
+	@Test
+	public void shouldRecordNegativeValuesAsZero() {
+		this.sut.record(-5);
+
+		assertEquals(1, this.sut.getCount());
+		assertEquals(0, this.sut.getMax());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowWhenPercentileZero() {
+		this.sut.getPercentile(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowWhenPercentileAboveHundred() {
+		this.sut.getPercentile(100.1);
+	}
+
+	@Test
+	public void shouldAddOtherHistogram() {
+		Histogram other = new Histogram();
+		this.sut.record(10);
+		other.record(20);
+		other.record(3000);
+
+		this.sut.add(other);
+
+		assertEquals(3, this.sut.getCount());
+		assertEquals(3000, this.sut.getMax());
+		assertEquals(20, this.sut.getPercentile(50));
+	}
+
+	@Test
+	public void shouldForgetValuesOnReset() {
+		this.sut.record(10);
+
+		this.sut.reset();
+
+		assertEquals(0, this.sut.getCount());
+		assertEquals(0, this.sut.getMax());
+	}
+
+	@Test
+	public void shouldCountEveryValueRecordedConcurrently()
+			throws InterruptedException {
+		Thread[] threads = new Thread[TestHistogram.THREADS];
+
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					for (int v = 0; v < TestHistogram.VALUES_PER_THREAD; v++)
+						TestHistogram.this.sut.record(v);
+				}
+			});
+			threads[i].start();
+		}
+
+		for (Thread t : threads)
+			t.join();
+
+		assertEquals(TestHistogram.THREADS * TestHistogram.VALUES_PER_THREAD,
+				this.sut.getCount());
+		assertEquals(TestHistogram.VALUES_PER_THREAD - 1, this.sut.getMax());
+	}
+
+	private void assertNear(long expected, long actual) {
+		assertTrue(actual + " not near " + expected,
+				Math.abs(actual - expected) <= expected
+						* TestHistogram.PRECISION);
+	}
+}
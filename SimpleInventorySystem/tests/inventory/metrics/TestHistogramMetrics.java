@@ -0,0 +1,119 @@
+package inventory.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import inventory.exceptions.InvalidWidthException;
+import inventory.exceptions.TooManyArticlesException;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestHistogramMetrics {
+
+	private static final String NAME = "TestHistogramMetrics";
+
+	private HistogramMetrics sut;
+
+	@Before
+	public void setUp() {
+		this.sut = new HistogramMetrics();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.sut.unregister();
+	}
+
+	@Test
+	public void shouldBeEnabled() {
+		assertTrue(this.sut.isEnabled());
+		assertFalse(InventoryMetrics.NONE.isEnabled());
+	}
+
+	@Test
+	public void shouldRecordLatencyAndScanLengthPerOperation() {
+		this.sut.completed(Operation.PICK, 2000, 3);
+		this.sut.completed(Operation.PICK, 4000, 5);
+
+		assertEquals(2, this.sut.getLatencies(Operation.PICK).getCount());
+		assertEquals(4000, this.sut.getLatencies(Operation.PICK).getMax());
+		assertEquals(4, this.sut.getScanLengths(Operation.PICK).getMean(), 0);
+		assertEquals(0, this.sut.getLatencies(Operation.INSERT).getCount());
+	}
+
+	@Test
+	public void shouldCountRejectionsPerOperationAndType() {
+		this.sut.rejected(Operation.INSERT, new TooManyArticlesException());
+		this.sut.rejected(Operation.INSERT, new TooManyArticlesException());
+		this.sut.rejected(Operation.INSERT, new InvalidWidthException());
+
+		Map<String, Long> rejections = this.sut.getRejections();
+
+		assertEquals(3, this.sut.getRejected(Operation.INSERT));
+		assertEquals(0, this.sut.getRejected(Operation.PICK));
+		assertEquals(2, (long) rejections.get("TooManyArticlesException"));
+		assertEquals(1, (long) rejections.get("InvalidWidthException"));
+	}
+
+	@Test
+	public void shouldForgetEverythingOnReset() {
+		this.sut.completed(Operation.PICK, 2000, 3);
+		this.sut.rejected(Operation.INSERT, new TooManyArticlesException());
+
+		this.sut.reset();
+
+		assertEquals(0, this.sut.getLatencies(Operation.PICK).getCount());
+		assertEquals(0, this.sut.getRejected(Operation.INSERT));
+		assertTrue(this.sut.getRejections().isEmpty());
+	}
+
+	@Test
+	public void shouldExportThroughJmx() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		this.sut.completed(Operation.FIND_ARTICLES, 3000, 7);
+		this.sut.rejected(Operation.INSERT, new TooManyArticlesException());
+
+		this.sut.register(TestHistogramMetrics.NAME);
+
+		ObjectName find = new ObjectName("inventory:type=OperationMetrics,name="
+				+ ObjectName.quote(TestHistogramMetrics.NAME)
+				+ ",operation=find_articles");
+		ObjectName rejections = new ObjectName(
+				"inventory:type=InventoryMetrics,name="
+						+ ObjectName.quote(TestHistogramMetrics.NAME));
+
+		assertEquals(1L, server.getAttribute(find, "Count"));
+		assertEquals(3.0, (Double) server.getAttribute(find, "MaxMicros"), 0);
+		assertEquals(7L, server.getAttribute(find, "MaxScanLength"));
+		assertEquals(1, ((TabularData) server.getAttribute(rejections,
+				"Rejections")).size());
+	}
+
+	@Test
+	public void shouldRemoveMXBeansOnUnregister() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		this.sut.register(TestHistogramMetrics.NAME);
+
+		this.sut.unregister();
+
+		assertTrue(server.queryNames(
+				new ObjectName("inventory:name="
+						+ ObjectName.quote(TestHistogramMetrics.NAME) + ",*"),
+				null).isEmpty());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldThrowWhenRegisteredTwice() throws Exception {
+		this.sut.register(TestHistogramMetrics.NAME);
+		this.sut.register(TestHistogramMetrics.NAME);
+	}
+}